@@ -2,6 +2,18 @@ plugins {
     alias(libs.plugins.android.application)
 }
 
+// Repository benchmark results (written by PostRepositoryBenchmarkTest) and the baseline they are checked against
+val benchmarkResults = layout.buildDirectory.file("benchmarks/repository.json")
+val benchmarkBaseline = layout.projectDirectory.file("benchmarks/repository-baseline.json")
+
+// Table sizes PostRepositoryBenchmarkTest runs at: -PbenchmarkRepoSizes=1000,5000, or
+// -PbenchmarkFullSizes for the full run including the million-row table
+val benchmarkRepoSizes = providers.gradleProperty("benchmarkRepoSizes")
+    .orElse(providers.gradleProperty("benchmarkFullSizes").map { "1000,100000,1000000" })
+
+// Message for a missing benchmark run, shared by the record and check tasks
+val benchmarkRunHint = "run ./gradlew :app:testDebugUnitTest --tests '*PostRepositoryBenchmarkTest' first"
+
 android {
     namespace = "com.example.hifzaa4"
     compileSdk = 36
@@ -14,6 +26,15 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // API server; -PapiBaseUrl=http://10.0.2.2:8080 points a build at a local server
+        val apiBaseUrl = providers.gradleProperty("apiBaseUrl")
+            .getOrElse("https://jsonplaceholder.typicode.com")
+        buildConfigField("String", "API_BASE_URL", "\"$apiBaseUrl\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -29,10 +50,26 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+        // Footprint tests hold a million-row list in memory
+        unitTests.all { test ->
+            test.maxHeapSize = "2g"
+            // Pass benchmark sizes (-Dbench.*) through to the test JVM
+            System.getProperties().stringPropertyNames()
+                .filter { it.startsWith("bench.") }
+                .forEach { test.systemProperty(it, System.getProperty(it)) }
+            benchmarkRepoSizes.orNull?.let { test.systemProperty("bench.repo.sizes", it) }
+            test.systemProperty("bench.output.dir", benchmarkResults.get().asFile.parent)
+        }
+    }
 }
 
 dependencies {
 
+    // Model, JSON codec, list diff and caches (plain Java)
+    implementation(project(":core"))
+
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -48,6 +85,74 @@ dependencies {
     implementation("androidx.swiperefreshlayout:swiperefreshlayout:1.1.0")
     
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-}
\ No newline at end of file
+}
+// Record step: run PostRepositoryBenchmarkTest (at the sizes the check should cover), then
+// this task, on the machine the check runs on; commit app/benchmarks/repository-baseline.json.
+// Re-record after an intended performance change or a change of machine.
+tasks.register("recordRepositoryBaseline") {
+    group = "verification"
+    description = "Saves the last repository benchmark results as the baseline " +
+        "(run PostRepositoryBenchmarkTest first)"
+    doLast {
+        val resultsFile = benchmarkResults.get().asFile
+        if (!resultsFile.exists()) {
+            throw GradleException("No repository benchmark results to record; $benchmarkRunHint")
+        }
+        resultsFile.copyTo(benchmarkBaseline.asFile, overwrite = true)
+        logger.lifecycle("Recorded ${benchmarkBaseline.asFile}")
+    }
+}
+
+tasks.register("checkRepositoryBenchmarks") {
+    group = "verification"
+    description = "Fails if a repository benchmark is slower than the baseline by more than " +
+        "-PbenchmarkThreshold (default 0.2 = 20%); fails without a baseline unless -PallowMissingBaseline"
+    mustRunAfter("testDebugUnitTest")
+    val threshold = providers.gradleProperty("benchmarkThreshold").map { it.toDouble() }.orElse(0.2)
+    val allowMissingBaseline = providers.gradleProperty("allowMissingBaseline").isPresent
+    doLast {
+        val baselineFile = benchmarkBaseline.asFile
+        val resultsFile = benchmarkResults.get().asFile
+        if (!resultsFile.exists()) {
+            throw GradleException("No repository benchmark results at $resultsFile; $benchmarkRunHint")
+        }
+        if (!baselineFile.exists()) {
+            val message = "No repository benchmark baseline at $baselineFile " +
+                "(record one with ./gradlew :app:recordRepositoryBaseline)"
+            if (!allowMissingBaseline) {
+                throw GradleException("$message, or pass -PallowMissingBaseline to skip the check")
+            }
+            logger.warn("$message; skipped (-PallowMissingBaseline)")
+            return@doLast
+        }
+        // operation@rows -> result
+        fun load(file: File): Map<String, Map<*, *>> =
+            ((groovy.json.JsonSlurper().parse(file) as Map<*, *>)["results"] as List<*>)
+                .map { it as Map<*, *> }
+                .associateBy { "${it["operation"]}@${it["rows"]}" }
+        fun Map<*, *>.number(key: String) = (this[key] as Number).toDouble()
+
+        val limit = threshold.get()
+        val baseline = load(baselineFile)
+        val current = load(resultsFile)
+        val regressions = mutableListOf<String>()
+        for ((key, result) in current) {
+            val base = baseline[key] ?: continue
+            if (result.number("opsPerSecond") < base.number("opsPerSecond") * (1 - limit)) {
+                regressions += "$key: ${base["opsPerSecond"]} -> ${result["opsPerSecond"]} ${result["unit"]}/s"
+            }
+            if (result.number("p50Nanos") > base.number("p50Nanos") * (1 + limit)) {
+                regressions += "$key: p50 ${base["p50Nanos"]} -> ${result["p50Nanos"]} ns"
+            }
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Repository benchmarks regressed by more than ${(limit * 100).toInt()}%:\n" +
+                regressions.joinToString("\n"))
+        }
+        logger.lifecycle("Repository benchmarks: ${current.size} results within ${(limit * 100).toInt()}% of the baseline")
+    }
+}
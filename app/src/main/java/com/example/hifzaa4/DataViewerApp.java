@@ -0,0 +1,43 @@
+package com.example.hifzaa4;
+
+import android.app.Application;
+
+import com.example.hifzaa4.images.ImageLoader;
+import com.example.hifzaa4.network.OutboxSender;
+import com.example.hifzaa4.startup.StartupInitializer;
+import com.example.hifzaa4.startup.StartupTrace;
+import com.example.hifzaa4.sync.SyncScheduler;
+
+/**
+ * DataViewerApp - Application class
+ * Kicks off background initialization before the first activity is created
+ */
+public class DataViewerApp extends Application {
+
+  @Override
+  public void onCreate() {
+    super.onCreate();
+
+    StartupTrace trace = StartupTrace.get();
+    long begin = trace.begin();
+    StartupInitializer initializer = StartupInitializer.getInstance(this);
+    initializer.start();
+    trace.end(StartupTrace.PHASE_APP_CREATE, begin);
+
+    // Once the database is open: push changes left over from the last session,
+    // start following connectivity and keep the periodic background sync scheduled
+    initializer.runWhenReady(() -> {
+      if (initializer.isNetworkAvailable()) {
+        OutboxSender.getInstance(this).requestSend();
+      }
+      SyncScheduler.getInstance(this);
+      SyncScheduler.schedulePeriodic(this);
+    });
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    super.onTrimMemory(level);
+    ImageLoader.trimMemory(level);
+  }
+}
@@ -0,0 +1,97 @@
+package com.example.hifzaa4.activities;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.hifzaa4.R;
+import com.example.hifzaa4.adapters.AlbumAdapter;
+import com.example.hifzaa4.concurrent.TaskScope;
+import com.example.hifzaa4.database.AuthorStore;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.utils.ThemeManager;
+
+/**
+ * AlbumsActivity - Photo albums of all users, from the API
+ * Albums are not stored locally; opening one shows its photos (PhotosActivity).
+ */
+public class AlbumsActivity extends AppCompatActivity {
+
+  // UI Elements
+  private RecyclerView rvAlbums;
+  private TextView tvStatus;
+  private ProgressBar progressBar;
+
+  // Data
+  private AlbumAdapter adapter;
+  private TaskScope scope;
+
+  @Override
+  protected void onCreate(Bundle savedInstanceState) {
+    // Apply theme
+    ThemeManager.applyTheme(this);
+
+    super.onCreate(savedInstanceState);
+    setContentView(R.layout.activity_gallery);
+
+    scope = TaskScope.of(this);
+    rvAlbums = findViewById(R.id.rv_items);
+    tvStatus = findViewById(R.id.tv_status);
+    progressBar = findViewById(R.id.progress_bar);
+    setupToolbar();
+
+    adapter = new AlbumAdapter();
+    adapter.setOnAlbumClickListener(album -> {
+      Intent intent = new Intent(this, PhotosActivity.class);
+      intent.putExtra(PhotosActivity.EXTRA_ALBUM_ID, album.getId());
+      intent.putExtra(PhotosActivity.EXTRA_ALBUM_TITLE, album.getTitle());
+      startActivity(intent);
+    });
+    rvAlbums.setLayoutManager(new LinearLayoutManager(this));
+    rvAlbums.setAdapter(adapter);
+
+    loadAlbums();
+  }
+
+  /**
+   * Setup toolbar
+   */
+  private void setupToolbar() {
+    Toolbar toolbar = findViewById(R.id.toolbar);
+    setSupportActionBar(toolbar);
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+      getSupportActionBar().setTitle(R.string.title_albums);
+    }
+    toolbar.setNavigationOnClickListener(v -> onBackPressed());
+  }
+
+  /**
+   * Fetch the albums, and show their authors' names from memory
+   */
+  private void loadAlbums() {
+    progressBar.setVisibility(View.VISIBLE);
+    AuthorStore authorStore = AuthorStore.getInstance(this);
+    scope.bind(authorStore.loadAsync(), adapter::setAuthorNames, null);
+    scope.bind(new ApiService().fetchAlbumsAsync(), albums -> {
+      progressBar.setVisibility(View.GONE);
+      adapter.setAlbums(albums);
+      showStatus(albums.isEmpty() ? getString(R.string.albums_empty) : null);
+    }, error -> {
+      progressBar.setVisibility(View.GONE);
+      showStatus(ApiService.errorMessage(error));
+    });
+  }
+
+  private void showStatus(String status) {
+    tvStatus.setText(status);
+    tvStatus.setVisibility(status != null ? View.VISIBLE : View.GONE);
+  }
+}
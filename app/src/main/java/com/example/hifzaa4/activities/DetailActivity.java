@@ -2,6 +2,7 @@ package com.example.hifzaa4.activities;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -12,14 +13,29 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.hifzaa4.R;
-import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskScope;
+import com.example.hifzaa4.database.AuthorStore;
+import com.example.hifzaa4.database.CommentStore;
+import com.example.hifzaa4.database.PostStore;
+import com.example.hifzaa4.metrics.Tracer;
+import com.example.hifzaa4.models.Comment;
 import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.PostPageCache;
 import com.example.hifzaa4.utils.ThemeManager;
 import com.google.android.material.button.MaterialButton;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * DetailActivity - Displays full post details
- * Shows complete post information with edit/delete/webview actions
+ * Shows complete post information with edit/delete/webview actions.
+ * The stored post, the server's copy and the post's comments are loaded at the
+ * same time; cached data is shown first and replaced if the server changed it.
  */
 public class DetailActivity extends AppCompatActivity {
 
@@ -30,14 +46,20 @@ public class DetailActivity extends AppCompatActivity {
   private TextView tvTitle;
   private TextView tvBody;
   private LinearLayout layoutFavorite;
+  private TextView tvConflict;
   private MaterialButton btnEdit;
   private MaterialButton btnDelete;
   private MaterialButton btnViewWeb;
+  private TextView tvCommentsStatus;
+  private LinearLayout layoutComments;
 
   // Data
   private Post post;
   private int position;
-  private PostRepository repository;
+  private PostStore postStore;
+  private CommentStore commentStore;
+  private AuthorStore authorStore;
+  private TaskScope scope;
   private boolean isModified = false;
 
   // Request codes
@@ -45,28 +67,42 @@ public class DetailActivity extends AppCompatActivity {
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    Tracer.begin("DetailActivity.onCreate");
+
     // Apply theme
     ThemeManager.applyTheme(this);
 
     super.onCreate(savedInstanceState);
+    Tracer.begin("DetailActivity.setContentView");
     setContentView(R.layout.activity_detail);
+    Tracer.end();
 
-    // Get intent data
-    post = getIntent().getParcelableExtra("post");
+    // Get intent data - only the post ID is passed, the post comes from the store
+    postStore = PostStore.getInstance(this);
+    commentStore = CommentStore.getInstance(this);
+    authorStore = AuthorStore.getInstance(this);
+    scope = TaskScope.of(this);
+    // Local posts have negative IDs, so a missing ID is not told by its value
+    int postId = getIntent().getIntExtra(PostStore.EXTRA_POST_ID, 0);
     position = getIntent().getIntExtra("position", -1);
 
-    if (post == null) {
-      Toast.makeText(this, "Error loading post", Toast.LENGTH_SHORT).show();
-      finish();
+    if (!getIntent().hasExtra(PostStore.EXTRA_POST_ID)) {
+      showLoadError();
+      Tracer.end();
       return;
     }
 
     // Initialize
-    repository = new PostRepository(this);
+    Tracer.begin("DetailActivity.bind");
     initViews();
     setupToolbar();
-    displayPost();
     setupButtons();
+    Tracer.end();
+
+    loadPost(postId);
+    loadComments(postId);
+
+    Tracer.end();
   }
 
   /**
@@ -79,9 +115,12 @@ public class DetailActivity extends AppCompatActivity {
     tvTitle = findViewById(R.id.tv_title);
     tvBody = findViewById(R.id.tv_body);
     layoutFavorite = findViewById(R.id.layout_favorite);
+    tvConflict = findViewById(R.id.tv_conflict);
     btnEdit = findViewById(R.id.btn_edit);
     btnDelete = findViewById(R.id.btn_delete);
     btnViewWeb = findViewById(R.id.btn_view_web);
+    tvCommentsStatus = findViewById(R.id.tv_comments_status);
+    layoutComments = findViewById(R.id.layout_comments);
   }
 
   /**
@@ -96,12 +135,120 @@ public class DetailActivity extends AppCompatActivity {
     toolbar.setNavigationOnClickListener(v -> onBackPressed());
   }
 
+  /**
+   * Load the stored post and the server's copy in parallel
+   * Local posts (negative IDs) are not on the server, so they are only read from the store.
+   *
+   * @param postId Post ID
+   */
+  private void loadPost(int postId) {
+    CompletableFuture<Post> stored = postStore.getPostAsync(postId);
+    CompletableFuture<Post> refreshed = postId > 0
+        ? Futures.flatMap(new ApiService().fetchPostByIdAsync(postId),
+            serverPost -> Futures.supply(AppExecutors.get().dbWrite(), Priority.NORMAL,
+                () -> postStore.mergeServerPost(serverPost)),
+            Runnable::run)
+        : CompletableFuture.completedFuture(null);
+
+    // A post that is not stored yet waits for the server
+    CompletableFuture<Post> first = Futures.flatMap(stored,
+        found -> found != null ? CompletableFuture.completedFuture(found) : refreshed, Runnable::run);
+    scope.bind(first, loaded -> {
+      if (loaded == null) {
+        showLoadError();
+        return;
+      }
+      post = loaded;
+      displayPost();
+    }, error -> showLoadError());
+
+    // Then show the server's changes, if there are any (offline, the stored post stays)
+    scope.bind(Futures.flatMap(first, shown -> refreshed, Runnable::run), changed -> {
+      if (changed != null && post != null) {
+        post = changed;
+        isModified = true;
+        displayPost();
+      }
+    }, null);
+    // A server version that came in while a local edit was unsent, once the refresh
+    // (which may record one) has settled
+    CompletableFuture<Post> conflict = Futures.flatMap(refreshed.handle((changed, error) -> null),
+        settled -> Futures.supply(AppExecutors.get().io(), Priority.LOW, () -> postStore.getConflict(postId)),
+        Runnable::run);
+    scope.bind(conflict, this::showConflict, null);
+  }
+
+  /**
+   * Show that the server changed the post while a local edit was waiting to be sent
+   *
+   * @param serverPost Server version, or null if there is no conflict
+   */
+  private void showConflict(Post serverPost) {
+    if (serverPost == null) {
+      tvConflict.setVisibility(View.GONE);
+      return;
+    }
+    tvConflict.setText(getString(R.string.post_conflict, serverPost.getTitle()));
+    tvConflict.setVisibility(View.VISIBLE);
+  }
+
+  /**
+   * Show the cached comments, then the server's if they differ
+   *
+   * @param postId Post ID
+   */
+  private void loadComments(int postId) {
+    CompletableFuture<List<Comment>> cached = commentStore.getCommentsAsync(postId);
+    CompletableFuture<List<Comment>> refreshed = commentStore.refreshComments(postId);
+
+    scope.bind(cached, comments -> {
+      if (!comments.isEmpty()) {
+        displayComments(comments);
+      }
+    }, null);
+    scope.bind(Futures.flatMap(cached, shown -> refreshed, Runnable::run), changed -> {
+      if (changed != null) {
+        displayComments(changed);
+      } else if (layoutComments.getChildCount() == 0) {
+        tvCommentsStatus.setText(R.string.comments_empty);
+      }
+    }, error -> {
+      if (layoutComments.getChildCount() == 0) {
+        tvCommentsStatus.setText(R.string.comments_unavailable);
+      }
+    });
+  }
+
+  /**
+   * Show comments below the post (a post has a handful, so rows are inflated directly)
+   */
+  private void displayComments(List<Comment> comments) {
+    layoutComments.removeAllViews();
+    tvCommentsStatus.setVisibility(comments.isEmpty() ? View.VISIBLE : View.GONE);
+    tvCommentsStatus.setText(R.string.comments_empty);
+
+    LayoutInflater inflater = getLayoutInflater();
+    for (Comment comment : comments) {
+      View row = inflater.inflate(R.layout.item_comment, layoutComments, false);
+      ((TextView) row.findViewById(R.id.tv_comment_name)).setText(comment.getName());
+      ((TextView) row.findViewById(R.id.tv_comment_email)).setText(comment.getEmail());
+      ((TextView) row.findViewById(R.id.tv_comment_body)).setText(comment.getBody());
+      layoutComments.addView(row);
+    }
+  }
+
+  private void showLoadError() {
+    Toast.makeText(this, "Error loading post", Toast.LENGTH_SHORT).show();
+    finish();
+  }
+
   /**
    * Display post data in views
    */
   private void displayPost() {
     tvPostId.setText(getString(R.string.label_post_id, post.getId()));
-    tvUserId.setText(getString(R.string.label_user_id, post.getUserId()));
+    String author = authorStore.getName(post.getUserId());
+    tvUserId.setText(author != null ? author : getString(R.string.label_user_id, post.getUserId()));
     tvTitle.setText(post.getTitle());
     tvBody.setText(post.getBody());
     layoutFavorite.setVisibility(post.isFavorite() ? View.VISIBLE : View.GONE);
@@ -111,21 +258,32 @@ public class DetailActivity extends AppCompatActivity {
    * Setup button click listeners
    */
   private void setupButtons() {
+    // Buttons do nothing until the post is loaded
     // Edit button
     btnEdit.setOnClickListener(v -> {
+      if (post == null) {
+        return;
+      }
       Intent intent = new Intent(this, EditPostActivity.class);
-      intent.putExtra("post", post);
+      intent.putExtra(PostStore.EXTRA_POST_ID, post.getId());
       intent.putExtra("position", position);
       startActivityForResult(intent, REQUEST_EDIT);
     });
 
     // Delete button
-    btnDelete.setOnClickListener(v -> confirmDelete());
+    btnDelete.setOnClickListener(v -> {
+      if (post != null) {
+        confirmDelete();
+      }
+    });
 
     // WebView button
     btnViewWeb.setOnClickListener(v -> {
+      if (post == null) {
+        return;
+      }
       Intent intent = new Intent(this, WebViewActivity.class);
-      intent.putExtra("url", "https://jsonplaceholder.typicode.com/posts/" + post.getId());
+      intent.putExtra("url", PostPageCache.getInstance(this).getPageUrl(post.getId()));
       intent.putExtra("title", post.getTitle());
       startActivity(intent);
     });
@@ -139,11 +297,17 @@ public class DetailActivity extends AppCompatActivity {
         .setTitle(R.string.dialog_delete_title)
         .setMessage(R.string.dialog_delete_message)
         .setPositiveButton(R.string.btn_yes, (dialog, which) -> {
-          repository.deletePost(post.getId());
-          Toast.makeText(this, R.string.post_deleted, Toast.LENGTH_SHORT).show();
-          isModified = true;
-          setResult(RESULT_OK);
-          finish();
+          // Finish once the row is gone, so the list reloads without it
+          int postId = post.getId();
+          scope.commit(AppExecutors.get().dbWrite(), Priority.HIGH, () -> {
+            postStore.deletePost(postId);
+            return postId;
+          }, deleted -> {
+            Toast.makeText(this, R.string.post_deleted, Toast.LENGTH_SHORT).show();
+            isModified = true;
+            setResult(RESULT_OK);
+            finish();
+          });
         })
         .setNegativeButton(R.string.btn_no, null)
         .show();
@@ -156,11 +320,12 @@ public class DetailActivity extends AppCompatActivity {
     if (requestCode == REQUEST_EDIT && resultCode == RESULT_OK) {
       // Reload post data after edit
       isModified = true;
-      Post updatedPost = repository.getPostById(post.getId());
-      if (updatedPost != null) {
-        post = updatedPost;
-        displayPost();
-      }
+      scope.bind(postStore.getPostAsync(post.getId()), updatedPost -> {
+        if (updatedPost != null) {
+          post = updatedPost;
+          displayPost();
+        }
+      }, null);
     }
   }
 
@@ -11,7 +11,13 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.hifzaa4.R;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskScope;
+import com.example.hifzaa4.database.AuthorStore;
 import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.database.PostStore;
+import com.example.hifzaa4.models.Author;
 import com.example.hifzaa4.models.Post;
 import com.example.hifzaa4.utils.ThemeManager;
 import com.google.android.material.button.MaterialButton;
@@ -19,6 +25,9 @@ import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * EditPostActivity - Create or edit a post
  * Demonstrates input controls: EditText, Spinner, Switch, Buttons
@@ -41,6 +50,9 @@ public class EditPostActivity extends AppCompatActivity {
   private int position;
   private boolean isEditMode = false;
   private PostRepository repository;
+  private PostStore postStore;
+  private TaskScope scope;
+  private int[] spinnerUserIds; // User ID of each spinner position
 
   // State keys
   private static final String KEY_TITLE = "title";
@@ -58,25 +70,53 @@ public class EditPostActivity extends AppCompatActivity {
 
     // Initialize repository
     repository = new PostRepository(this);
+    postStore = PostStore.getInstance(this);
+    scope = TaskScope.of(this);
 
-    // Get intent data
-    post = getIntent().getParcelableExtra("post");
+    // Get intent data - the ID of the post to edit, none for a new post
+    // (local posts have negative IDs, so no ID value can mean "new post")
+    isEditMode = getIntent().hasExtra(PostStore.EXTRA_POST_ID);
     position = getIntent().getIntExtra("position", -1);
-    isEditMode = (post != null);
 
     initViews();
     setupToolbar();
     setupSpinner();
     setupButtons();
 
-    // Restore state or populate form
-    if (savedInstanceState != null) {
+    // Restore state or populate form (an edited post once it is loaded)
+    if (isEditMode) {
+      loadPost(getIntent().getIntExtra(PostStore.EXTRA_POST_ID, 0), savedInstanceState);
+    } else if (savedInstanceState != null) {
       restoreState(savedInstanceState);
-    } else if (isEditMode) {
-      populateForm();
     }
   }
 
+  /**
+   * Load the post to edit off the main thread, then fill the form
+   * Saving is disabled until then
+   *
+   * @param postId             Post ID
+   * @param savedInstanceState State to restore instead of the post's data, or null
+   */
+  private void loadPost(int postId, Bundle savedInstanceState) {
+    btnSave.setEnabled(false);
+    scope.run(AppExecutors.get().io(), Priority.HIGH, () -> postStore.getPost(postId), loaded -> {
+      if (loaded == null) {
+        Toast.makeText(this, R.string.error_loading, Toast.LENGTH_SHORT).show();
+        finish();
+        return;
+      }
+      post = loaded;
+      setupSpinner(); // Adds the post's author if it is not listed
+      if (savedInstanceState != null) {
+        restoreState(savedInstanceState);
+      } else {
+        populateForm();
+      }
+      btnSave.setEnabled(true);
+    });
+  }
+
   /**
    * Initialize view references
    */
@@ -106,12 +146,30 @@ public class EditPostActivity extends AppCompatActivity {
 
   /**
    * Setup user selection spinner
+   * Lists the cached authors; before they were ever fetched, User 1 to User 10
    */
   private void setupSpinner() {
-    // Create user options (User 1 to User 10)
-    String[] users = new String[10];
-    for (int i = 0; i < 10; i++) {
-      users[i] = "User " + (i + 1);
+    List<Author> authors = AuthorStore.getInstance(this).getAuthors();
+    List<String> users = new ArrayList<>();
+    List<Integer> userIds = new ArrayList<>();
+    for (Author author : authors) {
+      users.add(author.getName());
+      userIds.add(author.getId());
+    }
+    if (authors.isEmpty()) {
+      for (int i = 1; i <= 10; i++) {
+        users.add("User " + i);
+        userIds.add(i);
+      }
+    }
+    // Keep the author of the edited post selectable even if it is not in the list
+    if (post != null && !userIds.contains(post.getUserId())) {
+      users.add(getString(R.string.label_user_id, post.getUserId()));
+      userIds.add(post.getUserId());
+    }
+    spinnerUserIds = new int[userIds.size()];
+    for (int i = 0; i < spinnerUserIds.length; i++) {
+      spinnerUserIds[i] = userIds.get(i);
     }
 
     ArrayAdapter<String> adapter = new ArrayAdapter<>(
@@ -137,7 +195,7 @@ public class EditPostActivity extends AppCompatActivity {
     if (post != null) {
       etTitle.setText(post.getTitle());
       etBody.setText(post.getBody());
-      spinnerUser.setSelection(post.getUserId() - 1); // User IDs are 1-based
+      selectUser(post.getUserId());
       switchFavorite.setChecked(post.isFavorite());
     }
   }
@@ -148,10 +206,23 @@ public class EditPostActivity extends AppCompatActivity {
   private void restoreState(Bundle savedInstanceState) {
     etTitle.setText(savedInstanceState.getString(KEY_TITLE, ""));
     etBody.setText(savedInstanceState.getString(KEY_BODY, ""));
-    spinnerUser.setSelection(savedInstanceState.getInt(KEY_USER_ID, 0));
+    selectUser(savedInstanceState.getInt(KEY_USER_ID, spinnerUserIds[0]));
     switchFavorite.setChecked(savedInstanceState.getBoolean(KEY_FAVORITE, false));
   }
 
+  /**
+   * Select a user in the spinner by ID (the first one if it is not listed)
+   */
+  private void selectUser(int userId) {
+    for (int i = 0; i < spinnerUserIds.length; i++) {
+      if (spinnerUserIds[i] == userId) {
+        spinnerUser.setSelection(i);
+        return;
+      }
+    }
+    spinnerUser.setSelection(0);
+  }
+
   /**
    * Validate and save post
    */
@@ -163,7 +234,7 @@ public class EditPostActivity extends AppCompatActivity {
     // Get values
     String title = etTitle.getText() != null ? etTitle.getText().toString().trim() : "";
     String body = etBody.getText() != null ? etBody.getText().toString().trim() : "";
-    int userId = spinnerUser.getSelectedItemPosition() + 1; // Convert to 1-based
+    int userId = spinnerUserIds[spinnerUser.getSelectedItemPosition()];
     boolean isFavorite = switchFavorite.isChecked();
 
     // Validate
@@ -183,23 +254,26 @@ public class EditPostActivity extends AppCompatActivity {
       return;
     }
 
-    // Create or update post
-    if (isEditMode) {
-      post.setTitle(title);
-      post.setBody(body);
-      post.setUserId(userId);
-      post.setFavorite(isFavorite);
-      repository.updatePost(post);
-    } else {
-      // Generate new ID (simple approach: get max ID + 1)
-      int newId = repository.getPostCount() + 1000; // Offset to avoid conflicts
-      Post newPost = new Post(newId, userId, title, body, isFavorite);
-      repository.insertPost(newPost);
-    }
-
-    Toast.makeText(this, R.string.post_saved, Toast.LENGTH_SHORT).show();
-    setResult(RESULT_OK);
-    finish();
+    // Create or update post on the DB write thread, then close once it is stored
+    // The loaded post is the cached instance other screens show: save a new one,
+    // which the store caches once it is committed
+    btnSave.setEnabled(false);
+    Post edited = isEditMode ? new Post(post.getId(), userId, title, body, isFavorite) : null;
+    scope.commit(AppExecutors.get().dbWrite(), Priority.HIGH, () -> {
+      if (edited != null) {
+        postStore.updatePost(edited);
+        return edited;
+      }
+      // Local posts get negative IDs so a refresh can never overwrite them
+      // (ID and insert are on the one write thread, so two saves cannot take the same ID)
+      Post newPost = new Post(repository.nextLocalPostId(), userId, title, body, isFavorite);
+      postStore.insertPost(newPost);
+      return newPost;
+    }, saved -> {
+      Toast.makeText(this, R.string.post_saved, Toast.LENGTH_SHORT).show();
+      setResult(RESULT_OK);
+      finish();
+    });
   }
 
   @Override
@@ -211,7 +285,7 @@ public class EditPostActivity extends AppCompatActivity {
     if (etBody.getText() != null) {
       outState.putString(KEY_BODY, etBody.getText().toString());
     }
-    outState.putInt(KEY_USER_ID, spinnerUser.getSelectedItemPosition());
+    outState.putInt(KEY_USER_ID, spinnerUserIds[spinnerUser.getSelectedItemPosition()]);
     outState.putBoolean(KEY_FAVORITE, switchFavorite.isChecked());
   }
 }
@@ -12,7 +12,12 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.hifzaa4.R;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskScope;
 import com.example.hifzaa4.database.UserRepository;
+import com.example.hifzaa4.startup.LaunchRouter;
+import com.example.hifzaa4.startup.StartupInitializer;
 import com.example.hifzaa4.utils.AppPreferences;
 import com.example.hifzaa4.utils.ThemeManager;
 import com.google.android.material.textfield.TextInputEditText;
@@ -36,6 +41,7 @@ public class LoginActivity extends AppCompatActivity {
   // Preferences & Repository
   private AppPreferences preferences;
   private UserRepository userRepository;
+  private TaskScope scope;
 
   // State keys for saving instance state
   private static final String KEY_USERNAME = "username";
@@ -43,24 +49,47 @@ public class LoginActivity extends AppCompatActivity {
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
-    // Apply theme before super.onCreate()
-    ThemeManager.applyTheme(this);
+    // Route first - an authenticated session skips theming and layout entirely
+    LaunchRouter.Destination destination = LaunchRouter.resolve(this);
 
-    super.onCreate(savedInstanceState);
+    if (destination != LaunchRouter.Destination.POSTS) {
+      // Apply theme before super.onCreate()
+      ThemeManager.applyTheme(this);
+    }
 
-    // Initialize preferences
-    preferences = new AppPreferences(this);
+    super.onCreate(savedInstanceState);
 
-    // Check if already logged in - redirect to MainActivity
-    if (preferences.isLoggedIn()) {
-      navigateToMain();
-      return;
+    if (destination == LaunchRouter.Destination.POSTS) {
+      LaunchRouter.openPosts(this);
+    } else if (destination == LaunchRouter.Destination.LOGIN) {
+      showLogin(savedInstanceState);
+    } else {
+      // Session not known yet: route once the preferences are loaded rather than wait for them here
+      LaunchRouter.resolve(this, resolved -> {
+        if (isFinishing() || isDestroyed()) {
+          return;
+        }
+        if (resolved == LaunchRouter.Destination.POSTS) {
+          LaunchRouter.openPosts(this);
+        } else {
+          showLogin(savedInstanceState);
+        }
+      });
     }
+  }
+
+  /**
+   * Show the login form
+   */
+  private void showLogin(Bundle savedInstanceState) {
+    // Preferences are already loaded by the startup initializer
+    preferences = StartupInitializer.getInstance(this).getPreferences();
 
     setContentView(R.layout.activity_login);
 
     // Initialize database repository
     userRepository = new UserRepository(this);
+    scope = TaskScope.of(this);
 
     // Initialize views
     initViews();
@@ -127,13 +156,17 @@ public class LoginActivity extends AppCompatActivity {
 
     if (isValid) {
       // Check credentials against database
-      if (userRepository.loginUser(username, password)) {
-        preferences.login(username);
-        Toast.makeText(this, "Welcome back, " + username + "!", Toast.LENGTH_SHORT).show();
-        navigateToMain();
-      } else {
-        Toast.makeText(this, "Invalid username or password", Toast.LENGTH_SHORT).show();
-      }
+      btnLogin.setEnabled(false);
+      scope.run(AppExecutors.get().io(), Priority.HIGH, () -> userRepository.loginUser(username, password), valid -> {
+        btnLogin.setEnabled(true);
+        if (valid) {
+          preferences.login(username);
+          Toast.makeText(this, "Welcome back, " + username + "!", Toast.LENGTH_SHORT).show();
+          navigateToMain();
+        } else {
+          Toast.makeText(this, "Invalid username or password", Toast.LENGTH_SHORT).show();
+        }
+      }, error -> btnLogin.setEnabled(true));
     }
   }
 
@@ -1,11 +1,17 @@
 package com.example.hifzaa4.activities;
 
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.util.Log;
 import android.view.ContextMenu;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
@@ -21,9 +27,24 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.hifzaa4.R;
 import com.example.hifzaa4.adapters.PostAdapter;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskScope;
+import com.example.hifzaa4.database.AuthorStore;
+import com.example.hifzaa4.database.CommentStore;
 import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.database.PostSnapshot;
+import com.example.hifzaa4.database.PostStore;
+import com.example.hifzaa4.metrics.JankMonitor;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.metrics.Tracer;
 import com.example.hifzaa4.models.Post;
-import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.models.PostColumnStore;
+import com.example.hifzaa4.network.PostPageCache;
+import com.example.hifzaa4.startup.StartupInitializer;
+import com.example.hifzaa4.startup.StartupTrace;
+import com.example.hifzaa4.sync.SyncScheduler;
 import com.example.hifzaa4.utils.AppPreferences;
 import com.example.hifzaa4.utils.NetworkUtils;
 import com.example.hifzaa4.utils.ThemeManager;
@@ -31,6 +52,7 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * MainActivity - Main posts list screen
@@ -41,11 +63,25 @@ public class MainActivity extends AppCompatActivity implements
     PostAdapter.OnPostLongClickListener,
     PostAdapter.OnPostMenuClickListener {
 
+  private static final String TAG = "MainActivity";
+
+  // Rows shown from a single page query before the full list is loaded
+  private static final int FIRST_PAGE_SIZE = 50;
+
+  // Rows past the last visible one whose comments are prefetched when scrolling stops
+  private static final int COMMENT_PREFETCH_AHEAD = 10;
+
+  // Theme switch latency, from the menu tap to the first frame drawn with the new theme
+  private static final Timer THEME_SWITCH_TIMER = MetricsRegistry.get().timer("theme.switch.in_place");
+  private static final Timer THEME_RECREATE_TIMER = MetricsRegistry.get().timer("theme.switch.recreate");
+
   // UI Elements
+  private View rootView;
   private Toolbar toolbar;
   private SwipeRefreshLayout swipeRefresh;
   private RecyclerView rvPosts;
   private LinearLayout layoutEmpty;
+  private TextView tvEmpty;
   private ProgressBar progressBar;
   private TextView tvOfflineBanner;
   private FloatingActionButton fabAdd;
@@ -53,13 +89,26 @@ public class MainActivity extends AppCompatActivity implements
   // Data
   private PostAdapter adapter;
   private PostRepository repository;
-  private ApiService apiService;
+  private PostStore postStore;
+  private CommentStore commentStore;
+  private AuthorStore authorStore;
+  private PostPageCache pageCache;
+  private SyncScheduler syncScheduler;
+  private final SyncScheduler.SyncListener syncListener =
+      success -> runOnUiThread(() -> {
+        if (!isDestroyed()) {
+          onSyncFinished(success);
+        }
+      });
   private AppPreferences preferences;
-  private List<Post> postsList = new ArrayList<>();
+  private PostColumnStore posts = new PostColumnStore();
+  private JankMonitor jankMonitor;
+  private TaskScope scope;
 
   // State
   private boolean isOfflineMode = false;
   private int contextMenuPosition = -1;
+  private int loadRequests;
 
   // Request codes
   private static final int REQUEST_ADD_POST = 100;
@@ -67,56 +116,115 @@ public class MainActivity extends AppCompatActivity implements
   private static final int REQUEST_VIEW_DETAIL = 102;
 
   // State keys
-  private static final String KEY_POSTS = "posts_list";
   private static final String KEY_OFFLINE_MODE = "offline_mode";
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    StartupTrace trace = StartupTrace.get();
+    long createBegin = trace.begin();
+    Tracer.begin("MainActivity.onCreate");
+
     // Apply theme before super.onCreate()
     ThemeManager.applyTheme(this);
 
     super.onCreate(savedInstanceState);
+    Tracer.begin("MainActivity.setContentView");
     setContentView(R.layout.activity_main);
+    Tracer.end();
 
     // Initialize
+    Tracer.begin("MainActivity.setupViews");
     initViews();
     setupToolbar();
     setupRecyclerView();
     setupSwipeRefresh();
     setupFab();
+    Tracer.end();
 
-    // Initialize data sources
+    // Initialize data sources (the database is opened in the background by StartupInitializer)
+    Tracer.begin("MainActivity.initData");
+    scope = TaskScope.of(this);
+    StartupInitializer initializer = StartupInitializer.getInstance(this);
     repository = new PostRepository(this);
-    apiService = new ApiService();
-    preferences = new AppPreferences(this);
-
-    // Load data
+    postStore = PostStore.getInstance(this);
+    commentStore = CommentStore.getInstance(this);
+    authorStore = AuthorStore.getInstance(this);
+    pageCache = PostPageCache.getInstance(this);
+    syncScheduler = SyncScheduler.getInstance(this);
+    syncScheduler.addListener(syncListener);
+    preferences = initializer.getPreferences();
+    Tracer.end();
+
+    // Show the last list straight from the snapshot, before the database is open
+    Tracer.begin("MainActivity.showSnapshot");
+    showSnapshot();
+    Tracer.end();
+
+    // Load data once the database is open, so the first frame is not blocked on it
     if (savedInstanceState != null) {
-      // Restore state after configuration change
-      ArrayList<Post> savedPosts = savedInstanceState.getParcelableArrayList(KEY_POSTS);
+      // Restore after recreation from the local database - no network re-fetch
       isOfflineMode = savedInstanceState.getBoolean(KEY_OFFLINE_MODE, false);
-      if (savedPosts != null && !savedPosts.isEmpty()) {
-        postsList = savedPosts;
-        adapter.setPosts(postsList);
-        updateEmptyState();
-      } else {
-        loadData();
-      }
+      initializer.runWhenReady(this::loadFromDatabase);
     } else {
-      loadData();
+      // Connectivity now, not as probed at process start: this screen may open much later
+      initializer.runWhenReady(() -> loadData(syncScheduler.isConnected()));
     }
 
     updateOfflineBanner();
+    trackFirstFrame();
+    long themeSwitchStart = ThemeManager.takeRecreateStart();
+    if (themeSwitchStart != 0) {
+      recordThemeSwitch(THEME_RECREATE_TIMER, themeSwitchStart);
+    }
+    trace.end(StartupTrace.PHASE_MAIN_CREATED, createBegin);
+    Tracer.end();
+  }
+
+  /**
+   * Render the first-screen snapshot, if there is one
+   */
+  private void showSnapshot() {
+    List<Post> snapshot = repository.readSnapshot();
+    if (snapshot != null && !snapshot.isEmpty()) {
+      posts = PostColumnStore.of(snapshot);
+      adapter.setPosts(posts);
+      updateEmptyState();
+    }
+  }
+
+  /**
+   * Save the first visible posts as the launch snapshot in the background
+   */
+  private void saveSnapshot(PostColumnStore posts, long generation) {
+    List<Post> firstPosts = posts.toPosts(0, PostSnapshot.MAX_POSTS);
+    AppExecutors.get().io().execute(Priority.LOW, () -> repository.writeSnapshot(firstPosts, generation));
+  }
+
+  /**
+   * Record the first frame in the startup trace
+   */
+  private void trackFirstFrame() {
+    rootView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+      @Override
+      public boolean onPreDraw() {
+        rootView.getViewTreeObserver().removeOnPreDrawListener(this);
+        StartupTrace.get().mark(StartupTrace.PHASE_FIRST_FRAME);
+        StartupTrace.get().finish();
+        return true;
+      }
+    });
   }
 
   /**
    * Initialize view references
    */
   private void initViews() {
+    rootView = findViewById(R.id.main);
     toolbar = findViewById(R.id.toolbar);
     swipeRefresh = findViewById(R.id.swipe_refresh);
     rvPosts = findViewById(R.id.rv_posts);
     layoutEmpty = findViewById(R.id.layout_empty);
+    tvEmpty = findViewById(R.id.tv_empty);
     progressBar = findViewById(R.id.progress_bar);
     tvOfflineBanner = findViewById(R.id.tv_offline_banner);
     fabAdd = findViewById(R.id.fab_add);
@@ -144,6 +252,19 @@ public class MainActivity extends AppCompatActivity implements
     rvPosts.setLayoutManager(new LinearLayoutManager(this));
     rvPosts.setAdapter(adapter);
 
+    // Prefetch comments (and so comment counts) around the rows the scroll stopped on
+    rvPosts.addOnScrollListener(new RecyclerView.OnScrollListener() {
+      @Override
+      public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+          prefetchVisibleComments();
+        }
+      }
+    });
+
+    // Frame timings while the list scrolls
+    jankMonitor = JankMonitor.attach(this, rvPosts, "posts", adapter.getWork());
+
     // Register for context menu
     registerForContextMenu(rvPosts);
   }
@@ -169,15 +290,22 @@ public class MainActivity extends AppCompatActivity implements
   }
 
   /**
-   * Load data - from API if online, from SQLite if offline
+   * Load data - local posts first, then a background sync if they are stale
+   * Opening the screen only waits on the network when there is nothing local to show
+   *
+   * @param online Whether the network is available
    */
-  private void loadData() {
-    if (NetworkUtils.isNetworkAvailable(this)) {
-      isOfflineMode = false;
-      fetchFromApi();
-    } else {
-      isOfflineMode = true;
-      loadFromDatabase();
+  private void loadData(boolean online) {
+    isOfflineMode = !online;
+    loadFromDatabase();
+    loadAuthors(online);
+    if (online) {
+      pageCache.prefetchFavorites();
+    }
+
+    boolean syncing = syncScheduler.syncIfStale() || syncScheduler.isRunning();
+    if (syncing && posts.isEmpty()) {
+      showLoading(true);
     }
     updateOfflineBanner();
   }
@@ -188,7 +316,11 @@ public class MainActivity extends AppCompatActivity implements
   private void refreshData() {
     if (NetworkUtils.isNetworkAvailable(this)) {
       isOfflineMode = false;
-      fetchFromApi();
+      refreshAuthors();
+      // Joins a sync that is already running
+      if (!syncScheduler.requestSync() && !syncScheduler.isRunning()) {
+        swipeRefresh.setRefreshing(false);
+      }
     } else {
       isOfflineMode = true;
       swipeRefresh.setRefreshing(false);
@@ -199,53 +331,132 @@ public class MainActivity extends AppCompatActivity implements
   }
 
   /**
-   * Fetch posts from API
+   * Show the merged table after a sync (foreground, reconnect or periodic)
    */
-  private void fetchFromApi() {
-    showLoading(true);
-
-    apiService.fetchPosts(new ApiService.ApiCallback<List<Post>>() {
-      @Override
-      public void onSuccess(List<Post> result) {
-        showLoading(false);
-        swipeRefresh.setRefreshing(false);
+  private void onSyncFinished(boolean success) {
+    boolean userRequested = swipeRefresh.isRefreshing();
+    swipeRefresh.setRefreshing(false);
+    showLoading(false);
 
-        // Save to database on background thread
-        new Thread(() -> {
-          repository.deleteAllPosts();
-          repository.insertPosts(result);
-          preferences.setLastSyncTime(System.currentTimeMillis());
-        }).start();
+    if (success) {
+      isOfflineMode = false;
+      postStore.clear();
+      loadFromDatabase();
+      pageCache.prefetchFavorites();
+      if (userRequested) {
+        Toast.makeText(this, R.string.refresh_success, Toast.LENGTH_SHORT).show();
+      }
+    } else if (userRequested) {
+      Toast.makeText(this, R.string.error_network, Toast.LENGTH_SHORT).show();
+    }
+    updateOfflineBanner();
+  }
 
-        // Update UI
-        postsList = result;
-        adapter.setPosts(postsList);
-        updateEmptyState();
+  /**
+   * Show how fresh the local data is in the toolbar
+   */
+  private void updateFreshness() {
+    if (getSupportActionBar() == null) {
+      return;
+    }
+    long lastSync = syncScheduler.getLastSyncTime();
+    getSupportActionBar().setSubtitle(lastSync > 0
+        ? getString(R.string.last_synced, DateUtils.getRelativeTimeSpanString(
+            lastSync, System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS))
+        : null);
+  }
 
-        Toast.makeText(MainActivity.this, R.string.refresh_success, Toast.LENGTH_SHORT).show();
+  /**
+   * Load posts from SQLite database in the background
+   * Only the latest load is shown if several overlap
+   */
+  private void loadFromDatabase() {
+    int request = ++loadRequests;
+    if (posts.isEmpty()) {
+      // Nothing on screen (no snapshot): show the newest page while the full list loads.
+      // A keyset query with a page-sized cursor window, so it returns well before the scan.
+      scope.run(AppExecutors.get().io(), Priority.HIGH,
+          () -> repository.getPostSummaryPage(Integer.MAX_VALUE, FIRST_PAGE_SIZE), page -> {
+            if (request == loadRequests && posts.isEmpty() && !page.isEmpty()) {
+              posts = PostColumnStore.of(page);
+              adapter.setPosts(posts);
+              updateEmptyState();
+            }
+          });
+    }
+    scope.run(AppExecutors.get().io(), Priority.HIGH, () -> {
+      long generation = repository.getSnapshotGeneration();
+      PostColumnStore loaded = repository.getPostSummaryColumns();
+      saveSnapshot(loaded, generation);
+      return loaded;
+    }, loaded -> {
+      if (request != loadRequests) {
+        return;
       }
+      posts = loaded;
+      adapter.setPosts(posts);
+      updateEmptyState();
+      updateFreshness();
+      // Keep the spinner while a first sync is still filling an empty list
+      showLoading(posts.isEmpty() && syncScheduler.isRunning());
+      loadCommentCounts();
+      rvPosts.post(this::prefetchVisibleComments);
+    });
+  }
 
-      @Override
-      public void onError(String errorMessage) {
-        showLoading(false);
-        swipeRefresh.setRefreshing(false);
+  /**
+   * Load the comment counts of all cached posts in one query
+   */
+  private void loadCommentCounts() {
+    scope.bind(commentStore.getCommentCountsAsync(), adapter::setCommentCounts, null);
+  }
 
-        Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_SHORT).show();
+  /**
+   * Show the stored author names, then revalidate them if online
+   */
+  private void loadAuthors(boolean online) {
+    scope.bind(authorStore.loadAsync(), adapter::setAuthorNames, null);
+    if (online) {
+      refreshAuthors();
+    }
+  }
 
-        // Fallback to local data
-        loadFromDatabase();
+  /**
+   * Revalidate the author names (a 304 when unchanged) and show them if they changed
+   */
+  private void refreshAuthors() {
+    scope.bind(authorStore.refresh(), changed -> {
+      if (changed) {
+        adapter.setAuthorNames(authorStore.getNames());
       }
-    });
+    }, null);
   }
 
   /**
-   * Load posts from SQLite database
+   * Prefetch the comments of the visible rows and the next few, the posts the
+   * user is most likely to open; counts are reloaded if that changed any
    */
-  private void loadFromDatabase() {
-    postsList = repository.getAllPosts();
-    adapter.setPosts(postsList);
-    updateEmptyState();
-    showLoading(false);
+  private void prefetchVisibleComments() {
+    LinearLayoutManager layoutManager = (LinearLayoutManager) rvPosts.getLayoutManager();
+    if (isOfflineMode || layoutManager == null) {
+      return;
+    }
+    int first = layoutManager.findFirstVisibleItemPosition();
+    if (first == RecyclerView.NO_POSITION) {
+      return;
+    }
+    int last = Math.min(layoutManager.findLastVisibleItemPosition() + COMMENT_PREFETCH_AHEAD,
+        adapter.getItemCount() - 1);
+
+    List<Integer> postIds = new ArrayList<>(last - first + 1);
+    for (int position = first; position <= last; position++) {
+      postIds.add(adapter.getPostIdAt(position));
+    }
+    scope.bind(commentStore.prefetch(postIds), changed -> {
+      if (changed) {
+        loadCommentCounts();
+      }
+    }, null);
   }
 
   /**
@@ -262,8 +473,8 @@ public class MainActivity extends AppCompatActivity implements
    * Update empty state visibility
    */
   private void updateEmptyState() {
-    layoutEmpty.setVisibility(postsList.isEmpty() ? View.VISIBLE : View.GONE);
-    rvPosts.setVisibility(postsList.isEmpty() ? View.GONE : View.VISIBLE);
+    layoutEmpty.setVisibility(posts.isEmpty() ? View.VISIBLE : View.GONE);
+    rvPosts.setVisibility(posts.isEmpty() ? View.GONE : View.VISIBLE);
   }
 
   /**
@@ -278,6 +489,9 @@ public class MainActivity extends AppCompatActivity implements
   @Override
   public boolean onCreateOptionsMenu(Menu menu) {
     getMenuInflater().inflate(R.menu.menu_main, menu);
+    boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    menu.findItem(R.id.action_metrics).setVisible(debuggable);
+    menu.findItem(R.id.theme_recreate).setVisible(debuggable).setChecked(ThemeManager.isRecreateOnSwitch());
     return true;
   }
 
@@ -289,14 +503,24 @@ public class MainActivity extends AppCompatActivity implements
       swipeRefresh.setRefreshing(true);
       refreshData();
       return true;
+    } else if (itemId == R.id.action_albums) {
+      startActivity(new Intent(this, AlbumsActivity.class));
+      return true;
     } else if (itemId == R.id.theme_light) {
-      ThemeManager.setThemeAndRecreate(this, ThemeManager.THEME_LIGHT);
+      switchTheme(ThemeManager.THEME_LIGHT);
       return true;
     } else if (itemId == R.id.theme_dark) {
-      ThemeManager.setThemeAndRecreate(this, ThemeManager.THEME_DARK);
+      switchTheme(ThemeManager.THEME_DARK);
       return true;
     } else if (itemId == R.id.theme_ocean) {
-      ThemeManager.setThemeAndRecreate(this, ThemeManager.THEME_OCEAN);
+      switchTheme(ThemeManager.THEME_OCEAN);
+      return true;
+    } else if (itemId == R.id.theme_recreate) {
+      item.setChecked(!item.isChecked());
+      ThemeManager.setRecreateOnSwitch(item.isChecked());
+      return true;
+    } else if (itemId == R.id.action_metrics) {
+      startActivity(new Intent(this, MetricsActivity.class));
       return true;
     } else if (itemId == R.id.action_logout) {
       showLogoutConfirmation();
@@ -306,6 +530,56 @@ public class MainActivity extends AppCompatActivity implements
     return super.onOptionsItemSelected(item);
   }
 
+  /**
+   * Switch theme in place - re-style live views instead of recreating the activity
+   * (debug builds can switch the old way instead, to compare the two)
+   */
+  private void switchTheme(int theme) {
+    if (ThemeManager.isRecreateOnSwitch()) {
+      ThemeManager.switchThemeByRecreating(this, theme);
+      return;
+    }
+    long start = THEME_SWITCH_TIMER.start();
+
+    ThemeManager.ThemeColors colors = ThemeManager.switchTheme(this, theme);
+    rootView.setBackgroundColor(colors.background);
+    toolbar.setBackgroundColor(colors.primary);
+    toolbar.setTitleTextColor(colors.onPrimary);
+    toolbar.setSubtitleTextColor(colors.onPrimary);
+    tint(toolbar.getNavigationIcon(), colors.onPrimary);
+    tint(toolbar.getOverflowIcon(), colors.onPrimary);
+    toolbar.setPopupTheme(ThemeManager.getPopupThemeStyle(theme));
+    invalidateOptionsMenu(); // Rebuilds the overflow menu with the new popup theme
+    tvEmpty.setTextColor(colors.onSurface);
+    fabAdd.setBackgroundTintList(ColorStateList.valueOf(colors.secondary));
+    adapter.setThemeColors(colors);
+
+    recordThemeSwitch(THEME_SWITCH_TIMER, start);
+  }
+
+  private static void tint(Drawable icon, int color) {
+    if (icon != null) {
+      icon.mutate().setTint(color);
+    }
+  }
+
+  /**
+   * Record a theme switch once the next frame (with the re-styled rows) is drawn
+   */
+  private void recordThemeSwitch(Timer timer, long startNanos) {
+    rootView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+      @Override
+      public boolean onPreDraw() {
+        rootView.getViewTreeObserver().removeOnPreDrawListener(this);
+        long nanos = System.nanoTime() - startNanos;
+        timer.record(nanos);
+        Log.d(TAG, "Theme switch (" + (timer == THEME_RECREATE_TIMER ? "recreate" : "in place") + ") took "
+            + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        return true;
+      }
+    });
+  }
+
   /**
    * Show logout confirmation dialog
    */
@@ -367,7 +641,7 @@ public class MainActivity extends AppCompatActivity implements
   @Override
   public void onPostClick(Post post, int position) {
     Intent intent = new Intent(this, DetailActivity.class);
-    intent.putExtra("post", post);
+    intent.putExtra(PostStore.EXTRA_POST_ID, post.getId());
     intent.putExtra("position", position);
     startActivityForResult(intent, REQUEST_VIEW_DETAIL);
   }
@@ -407,7 +681,7 @@ public class MainActivity extends AppCompatActivity implements
 
   private void editPost(Post post, int position) {
     Intent intent = new Intent(this, EditPostActivity.class);
-    intent.putExtra("post", post);
+    intent.putExtra(PostStore.EXTRA_POST_ID, post.getId());
     intent.putExtra("position", position);
     startActivityForResult(intent, REQUEST_EDIT_POST);
   }
@@ -417,9 +691,10 @@ public class MainActivity extends AppCompatActivity implements
         .setTitle(R.string.dialog_delete_title)
         .setMessage(R.string.dialog_delete_message)
         .setPositiveButton(R.string.btn_yes, (dialog, which) -> {
-          repository.deletePost(post.getId());
+          int postId = post.getId();
+          AppExecutors.get().dbWrite().execute(Priority.HIGH, () -> postStore.deletePost(postId));
+          // The adapter shares the store, so this removes the row once for both
           adapter.removePostAt(position);
-          postsList.remove(position);
           updateEmptyState();
           Toast.makeText(this, R.string.post_deleted, Toast.LENGTH_SHORT).show();
         })
@@ -428,6 +703,12 @@ public class MainActivity extends AppCompatActivity implements
   }
 
   private void sharePost(Post post) {
+    // List rows only hold a snippet - share the full body
+    scope.run(AppExecutors.get().io(), Priority.HIGH, () -> postStore.getPost(post.getId()),
+        fullPost -> startShare(fullPost != null ? fullPost : post));
+  }
+
+  private void startShare(Post post) {
     Intent shareIntent = new Intent(Intent.ACTION_SEND);
     shareIntent.setType("text/plain");
     shareIntent.putExtra(Intent.EXTRA_SUBJECT, post.getTitle());
@@ -437,7 +718,14 @@ public class MainActivity extends AppCompatActivity implements
 
   private void toggleFavorite(Post post, int position) {
     post.setFavorite(!post.isFavorite());
-    repository.toggleFavorite(post.getId(), post.isFavorite());
+    int postId = post.getId();
+    boolean isFavorite = post.isFavorite();
+    AppExecutors.get().dbWrite().execute(Priority.HIGH, () -> {
+      postStore.setFavorite(postId, isFavorite);
+      if (isFavorite && !isOfflineMode) {
+        pageCache.prefetchFavorites(); // So the new favorite's page opens offline
+      }
+    });
     adapter.updatePostAt(position, post);
 
     String message = post.isFavorite() ? "Added to favorites" : "Removed from favorites";
@@ -446,7 +734,7 @@ public class MainActivity extends AppCompatActivity implements
 
   private void openWebView(Post post) {
     Intent intent = new Intent(this, WebViewActivity.class);
-    intent.putExtra("url", "https://jsonplaceholder.typicode.com/posts/" + post.getId());
+    intent.putExtra("url", pageCache.getPageUrl(post.getId()));
     intent.putExtra("title", post.getTitle());
     startActivity(intent);
   }
@@ -468,15 +756,17 @@ public class MainActivity extends AppCompatActivity implements
   @Override
   protected void onSaveInstanceState(@NonNull Bundle outState) {
     super.onSaveInstanceState(outState);
-    outState.putParcelableArrayList(KEY_POSTS, new ArrayList<>(postsList));
     outState.putBoolean(KEY_OFFLINE_MODE, isOfflineMode);
   }
 
   @Override
   protected void onDestroy() {
     super.onDestroy();
-    if (apiService != null) {
-      apiService.shutdown();
+    if (syncScheduler != null) {
+      syncScheduler.removeListener(syncListener);
+    }
+    if (jankMonitor != null) {
+      jankMonitor.detach(rvPosts);
     }
   }
 }
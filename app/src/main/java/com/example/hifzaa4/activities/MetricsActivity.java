@@ -0,0 +1,173 @@
+package com.example.hifzaa4.activities;
+
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+
+import com.example.hifzaa4.R;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskScope;
+import com.example.hifzaa4.metrics.JankMonitor;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Tracer;
+import com.example.hifzaa4.network.PostPageCache;
+import com.example.hifzaa4.network.RequestMetrics;
+import com.example.hifzaa4.utils.ThemeManager;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * MetricsActivity - Debug screen with the app's metrics
+ * Shows every counter and timer in the MetricsRegistry and the latest slow
+ * frames from the jank log; dumping writes a JSON
+ * snapshot for bug reports and the per-endpoint request report to the app's
+ * files directory. Tracing can be switched on here and exported as a Chrome trace.
+ * Files are read and written on the IO pool.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+  private static final String JSON_FILE = "metrics.json";
+  private static final String REQUESTS_FILE = "request-metrics.txt";
+  private static final String TRACE_FILE = "trace.json";
+
+  // Slow frames shown from the jank log
+  private static final int RECENT_SLOW_FRAMES = 20;
+
+  // UI Elements
+  private TextView tvReport;
+
+  private TaskScope scope;
+
+  @Override
+  protected void onCreate(Bundle savedInstanceState) {
+    // Apply theme
+    ThemeManager.applyTheme(this);
+
+    super.onCreate(savedInstanceState);
+    setContentView(R.layout.activity_metrics);
+
+    tvReport = findViewById(R.id.tv_report);
+    scope = TaskScope.of(this);
+    setupToolbar();
+  }
+
+  @Override
+  protected void onResume() {
+    super.onResume();
+    showReport();
+  }
+
+  /**
+   * Setup toolbar
+   */
+  private void setupToolbar() {
+    Toolbar toolbar = findViewById(R.id.toolbar);
+    setSupportActionBar(toolbar);
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+      getSupportActionBar().setTitle(R.string.title_metrics);
+    }
+    toolbar.setNavigationOnClickListener(v -> onBackPressed());
+  }
+
+  @Override
+  public boolean onCreateOptionsMenu(Menu menu) {
+    getMenuInflater().inflate(R.menu.menu_metrics, menu);
+    menu.findItem(R.id.action_tracing).setChecked(Tracer.isEnabled());
+    return true;
+  }
+
+  @Override
+  public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+    int itemId = item.getItemId();
+
+    if (itemId == R.id.action_refresh) {
+      showReport();
+      return true;
+    } else if (itemId == R.id.action_dump) {
+      dumpReport();
+      return true;
+    } else if (itemId == R.id.action_tracing) {
+      Tracer.setEnabled(!Tracer.isEnabled());
+      item.setChecked(Tracer.isEnabled());
+      showReport();
+      return true;
+    } else if (itemId == R.id.action_export_trace) {
+      exportTrace();
+      return true;
+    } else if (itemId == R.id.action_reset) {
+      MetricsRegistry.get().reset();
+      Tracer.clear();
+      showReport();
+      return true;
+    }
+
+    return super.onOptionsItemSelected(item);
+  }
+
+  private void showReport() {
+    scope.run(AppExecutors.get().io(), Priority.HIGH, this::buildReport, tvReport::setText);
+  }
+
+  /**
+   * Build the report text, including the slow frames read from the jank log (IO pool)
+   */
+  private String buildReport() {
+    String slowFrames = JankMonitor.readRecent(JankMonitor.getLogFile(this), RECENT_SLOW_FRAMES);
+    String trace = Tracer.isEnabled() || Tracer.getEventCount() > 0
+        ? getString(R.string.trace_events, Tracer.getEventCount()) + "\n\n" : "";
+    String pages = getString(R.string.metrics_page_hit_rate, PostPageCache.getHitRate() * 100) + "\n\n";
+    return trace + pages + MetricsRegistry.get().format() +
+        (slowFrames.isEmpty() ? "" : "\n" + getString(R.string.metrics_slow_frames) + "\n" + slowFrames);
+  }
+
+  /**
+   * Write the JSON snapshot and the request report to the files directory
+   */
+  private void dumpReport() {
+    File json = new File(getFilesDir(), JSON_FILE);
+    File requests = new File(getFilesDir(), REQUESTS_FILE);
+    scope.commit(AppExecutors.get().io(), Priority.NORMAL, () -> {
+      try {
+        MetricsRegistry.get().writeJson(json);
+        RequestMetrics.get().dumpTo(requests);
+        return true;
+      } catch (IOException e) {
+        e.printStackTrace();
+        return false;
+      }
+    }, written -> showDumped(written, json));
+  }
+
+  /**
+   * Write the recorded trace as Chrome trace-event JSON to the files directory
+   */
+  private void exportTrace() {
+    File file = new File(getFilesDir(), TRACE_FILE);
+    scope.commit(AppExecutors.get().io(), Priority.NORMAL, () -> {
+      try {
+        Tracer.writeChromeTrace(file);
+        return true;
+      } catch (IOException e) {
+        e.printStackTrace();
+        return false;
+      }
+    }, written -> showDumped(written, file));
+  }
+
+  private void showDumped(boolean written, File file) {
+    if (written) {
+      Toast.makeText(this, getString(R.string.metrics_dumped, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+    } else {
+      Toast.makeText(this, R.string.metrics_dump_failed, Toast.LENGTH_SHORT).show();
+    }
+  }
+}
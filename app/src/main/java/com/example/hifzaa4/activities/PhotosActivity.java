@@ -0,0 +1,101 @@
+package com.example.hifzaa4.activities;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.hifzaa4.R;
+import com.example.hifzaa4.adapters.PhotoAdapter;
+import com.example.hifzaa4.concurrent.TaskScope;
+import com.example.hifzaa4.images.ImageLoader;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.utils.ThemeManager;
+
+/**
+ * PhotosActivity - Grid of the photos of an album
+ * Thumbnails are loaded by the ImageLoader at the size of a grid cell.
+ */
+public class PhotosActivity extends AppCompatActivity {
+
+  public static final String EXTRA_ALBUM_ID = "album_id";
+  public static final String EXTRA_ALBUM_TITLE = "album_title";
+
+  private static final int COLUMNS = 3;
+
+  // UI Elements
+  private RecyclerView rvPhotos;
+  private TextView tvStatus;
+  private ProgressBar progressBar;
+
+  // Data
+  private PhotoAdapter adapter;
+  private TaskScope scope;
+
+  @Override
+  protected void onCreate(Bundle savedInstanceState) {
+    // Apply theme
+    ThemeManager.applyTheme(this);
+
+    super.onCreate(savedInstanceState);
+    setContentView(R.layout.activity_gallery);
+
+    scope = TaskScope.of(this);
+    rvPhotos = findViewById(R.id.rv_items);
+    tvStatus = findViewById(R.id.tv_status);
+    progressBar = findViewById(R.id.progress_bar);
+    setupToolbar(getIntent().getStringExtra(EXTRA_ALBUM_TITLE));
+
+    adapter = new PhotoAdapter(ImageLoader.getInstance(this));
+    rvPhotos.setLayoutManager(new GridLayoutManager(this, COLUMNS));
+    rvPhotos.setHasFixedSize(true);
+    rvPhotos.setAdapter(adapter);
+    // Decode thumbnails at the column width once it is known
+    rvPhotos.addOnLayoutChangeListener((v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+      int cellSize = (v.getWidth() - v.getPaddingLeft() - v.getPaddingRight()) / COLUMNS;
+      v.post(() -> adapter.setCellSize(cellSize)); // Not while the grid is still laying out
+    });
+
+    int albumId = getIntent().getIntExtra(EXTRA_ALBUM_ID, -1);
+    loadPhotos(albumId);
+  }
+
+  /**
+   * Setup toolbar
+   */
+  private void setupToolbar(String albumTitle) {
+    Toolbar toolbar = findViewById(R.id.toolbar);
+    setSupportActionBar(toolbar);
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+      getSupportActionBar().setTitle(R.string.title_photos);
+      getSupportActionBar().setSubtitle(albumTitle);
+    }
+    toolbar.setNavigationOnClickListener(v -> onBackPressed());
+  }
+
+  /**
+   * Fetch the photo records of the album; the grid loads their images
+   */
+  private void loadPhotos(int albumId) {
+    progressBar.setVisibility(View.VISIBLE);
+    scope.bind(new ApiService().fetchPhotosAsync(albumId), photos -> {
+      progressBar.setVisibility(View.GONE);
+      adapter.setPhotos(photos);
+      showStatus(photos.isEmpty() ? getString(R.string.photos_empty) : null);
+    }, error -> {
+      progressBar.setVisibility(View.GONE);
+      showStatus(ApiService.errorMessage(error));
+    });
+  }
+
+  private void showStatus(String status) {
+    tvStatus.setText(status);
+    tvStatus.setVisibility(status != null ? View.VISIBLE : View.GONE);
+  }
+}
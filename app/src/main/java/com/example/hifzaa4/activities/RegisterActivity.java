@@ -11,6 +11,9 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.hifzaa4.R;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskScope;
 import com.example.hifzaa4.database.UserRepository;
 import com.example.hifzaa4.utils.ThemeManager;
 import com.google.android.material.textfield.TextInputEditText;
@@ -21,6 +24,11 @@ import com.google.android.material.textfield.TextInputLayout;
  */
 public class RegisterActivity extends AppCompatActivity {
 
+  // Outcome of the background registration
+  private static final int REGISTERED = 0;
+  private static final int USERNAME_TAKEN = 1;
+  private static final int FAILED = 2;
+
   // UI Elements
   private TextInputLayout tilUsername;
   private TextInputLayout tilPassword;
@@ -34,6 +42,7 @@ public class RegisterActivity extends AppCompatActivity {
 
   // Repository
   private UserRepository userRepository;
+  private TaskScope scope;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -43,6 +52,7 @@ public class RegisterActivity extends AppCompatActivity {
     setContentView(R.layout.activity_register);
 
     userRepository = new UserRepository(this);
+    scope = TaskScope.of(this);
     initViews();
 
     btnRegister.setOnClickListener(v -> attemptRegister());
@@ -84,9 +94,6 @@ public class RegisterActivity extends AppCompatActivity {
     if (TextUtils.isEmpty(username)) {
       tilUsername.setError(getString(R.string.error_empty_username));
       isValid = false;
-    } else if (userRepository.checkUsernameExists(username)) {
-      tilUsername.setError("Username already exists");
-      isValid = false;
     }
 
     // Validate Password
@@ -104,14 +111,27 @@ public class RegisterActivity extends AppCompatActivity {
       isValid = false;
     }
 
-    if (isValid) {
-      boolean success = userRepository.registerUser(username, password);
-      if (success) {
+    if (!isValid) {
+      return;
+    }
+
+    // Check and insert on the write thread, so two registrations cannot take the same name
+    btnRegister.setEnabled(false);
+    scope.commit(AppExecutors.get().dbWrite(), Priority.HIGH, () -> {
+      if (userRepository.checkUsernameExists(username)) {
+        return USERNAME_TAKEN;
+      }
+      return userRepository.registerUser(username, password) ? REGISTERED : FAILED;
+    }, result -> {
+      btnRegister.setEnabled(true);
+      if (result == REGISTERED) {
         Toast.makeText(this, "Registration successful! Please login.", Toast.LENGTH_SHORT).show();
         finish();
+      } else if (result == USERNAME_TAKEN) {
+        tilUsername.setError("Username already exists");
       } else {
         Toast.makeText(this, "Registration failed. Please try again.", Toast.LENGTH_SHORT).show();
       }
-    }
+    });
   }
 }
@@ -7,6 +7,7 @@ import android.view.View;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceError;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -17,12 +18,14 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.hifzaa4.R;
+import com.example.hifzaa4.network.PostPageCache;
 import com.example.hifzaa4.utils.ThemeManager;
 import com.google.android.material.button.MaterialButton;
 
 /**
  * WebViewActivity - Displays web content within the app
  * Demonstrates WebView with JavaScript, loading progress, and error handling
+ * Post pages are served by PostPageCache, so they open from the cache and work offline
  */
 public class WebViewActivity extends AppCompatActivity {
 
@@ -33,6 +36,9 @@ public class WebViewActivity extends AppCompatActivity {
   private LinearLayout layoutError;
   private MaterialButton btnRetry;
 
+  // Serves post pages from the cache and the posts table
+  private PostPageCache pageCache;
+
   // Data
   private String url;
   private String title;
@@ -61,6 +67,8 @@ public class WebViewActivity extends AppCompatActivity {
       url = savedInstanceState.getString(KEY_URL, url);
     }
 
+    pageCache = PostPageCache.getInstance(this);
+
     initViews();
     setupToolbar();
     setupWebView();
@@ -135,6 +143,18 @@ public class WebViewActivity extends AppCompatActivity {
         }
       }
 
+      @Override
+      public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        // Called on a WebView background thread
+        if ("GET".equals(request.getMethod())) {
+          WebResourceResponse response = pageCache.intercept(request.getUrl().toString());
+          if (response != null) {
+            return response;
+          }
+        }
+        return super.shouldInterceptRequest(view, request);
+      }
+
       @Override
       public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
         // Keep navigation within WebView (don't open external browser)
@@ -0,0 +1,103 @@
+package com.example.hifzaa4.adapters;
+
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.hifzaa4.R;
+import com.example.hifzaa4.models.Album;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AlbumAdapter - RecyclerView adapter for the albums list
+ * Author names come in as one map (from the in-memory AuthorStore), like in PostAdapter.
+ */
+public class AlbumAdapter extends RecyclerView.Adapter<AlbumAdapter.AlbumViewHolder> {
+
+  private List<Album> albums = new ArrayList<>();
+  private SparseArray<String> authorNames = new SparseArray<>();
+  private OnAlbumClickListener clickListener;
+
+  /**
+   * Interface for album click events
+   */
+  public interface OnAlbumClickListener {
+    void onAlbumClick(Album album);
+  }
+
+  public void setOnAlbumClickListener(OnAlbumClickListener listener) {
+    this.clickListener = listener;
+  }
+
+  /**
+   * Show albums
+   */
+  public void setAlbums(List<Album> albums) {
+    this.albums = albums;
+    notifyDataSetChanged();
+  }
+
+  /**
+   * Show author names; albums whose author is unknown show the user ID
+   *
+   * @param names Author name by user ID (not modified by the adapter)
+   */
+  public void setAuthorNames(SparseArray<String> names) {
+    this.authorNames = names != null ? names : new SparseArray<>();
+    notifyItemRangeChanged(0, albums.size());
+  }
+
+  @NonNull
+  @Override
+  public AlbumViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_album, parent, false);
+    return new AlbumViewHolder(view);
+  }
+
+  @Override
+  public void onBindViewHolder(@NonNull AlbumViewHolder holder, int position) {
+    holder.bind(albums.get(position));
+  }
+
+  @Override
+  public int getItemCount() {
+    return albums.size();
+  }
+
+  /**
+   * ViewHolder class for album items
+   */
+  class AlbumViewHolder extends RecyclerView.ViewHolder {
+
+    private final TextView tvTitle;
+    private final TextView tvAuthor;
+
+    AlbumViewHolder(@NonNull View itemView) {
+      super(itemView);
+
+      tvTitle = itemView.findViewById(R.id.tv_album_title);
+      tvAuthor = itemView.findViewById(R.id.tv_album_author);
+
+      itemView.setOnClickListener(v -> {
+        int position = getAdapterPosition();
+        if (clickListener != null && position != RecyclerView.NO_POSITION) {
+          clickListener.onAlbumClick(albums.get(position));
+        }
+      });
+    }
+
+    void bind(Album album) {
+      tvTitle.setText(album.getTitle());
+      String author = authorNames.get(album.getUserId());
+      tvAuthor.setText(author != null ? author
+          : itemView.getContext().getString(R.string.label_user_id, album.getUserId()));
+    }
+  }
+}
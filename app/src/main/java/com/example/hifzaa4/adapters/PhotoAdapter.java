@@ -0,0 +1,114 @@
+package com.example.hifzaa4.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.hifzaa4.R;
+import com.example.hifzaa4.images.ImageLoader;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.models.Photo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PhotoAdapter - RecyclerView adapter for a grid of photo thumbnails
+ * A bind only asks the ImageLoader for the thumbnail at the cell size: cached
+ * images show at once, others are downloaded and decoded in the background.
+ * A recycled row cancels its load and gives its bitmap back for reuse.
+ */
+public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoViewHolder> {
+
+  private static final Timer BIND_TIMER = MetricsRegistry.get().timer("adapter.photos.bind");
+
+  private final ImageLoader imageLoader;
+  private List<Photo> photos = new ArrayList<>();
+  private int cellSize;
+
+  /**
+   * Constructor
+   *
+   * @param imageLoader Loader for the thumbnails
+   */
+  public PhotoAdapter(ImageLoader imageLoader) {
+    this.imageLoader = imageLoader;
+  }
+
+  /**
+   * Show photos
+   */
+  public void setPhotos(List<Photo> photos) {
+    this.photos = photos;
+    notifyDataSetChanged();
+  }
+
+  /**
+   * Width and height of a thumbnail, in pixels (the grid column width)
+   */
+  public void setCellSize(int cellSize) {
+    if (this.cellSize != cellSize) {
+      this.cellSize = cellSize;
+      notifyItemRangeChanged(0, photos.size());
+    }
+  }
+
+  @NonNull
+  @Override
+  public PhotoViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_photo, parent, false);
+    return new PhotoViewHolder(view);
+  }
+
+  @Override
+  public void onBindViewHolder(@NonNull PhotoViewHolder holder, int position) {
+    long start = BIND_TIMER.start();
+    holder.bind(photos.get(position));
+    BIND_TIMER.stop(start);
+  }
+
+  @Override
+  public void onViewRecycled(@NonNull PhotoViewHolder holder) {
+    imageLoader.cancel(holder.ivPhoto);
+  }
+
+  @Override
+  public int getItemCount() {
+    return photos.size();
+  }
+
+  /**
+   * ViewHolder class for photo items
+   */
+  class PhotoViewHolder extends RecyclerView.ViewHolder {
+
+    private final ImageView ivPhoto;
+    private final TextView tvTitle;
+
+    PhotoViewHolder(@NonNull View itemView) {
+      super(itemView);
+
+      ivPhoto = itemView.findViewById(R.id.iv_photo);
+      tvTitle = itemView.findViewById(R.id.tv_photo_title);
+    }
+
+    void bind(Photo photo) {
+      tvTitle.setText(photo.getTitle());
+      if (cellSize <= 0) {
+        return; // Loaded once the grid knows its column width
+      }
+      ViewGroup.LayoutParams params = ivPhoto.getLayoutParams();
+      if (params.height != cellSize) {
+        params.height = cellSize;
+        ivPhoto.setLayoutParams(params);
+      }
+      imageLoader.into(ivPhoto, photo.getThumbnailUrl(), cellSize, cellSize);
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package com.example.hifzaa4.adapters;
 
+import android.content.res.ColorStateList;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,22 +15,77 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.hifzaa4.R;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.diff.PostDiff;
+import com.example.hifzaa4.metrics.AdapterWork;
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.metrics.Tracer;
 import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.models.PostColumnStore;
+import com.example.hifzaa4.utils.ThemeManager;
+import com.google.android.material.card.MaterialCardView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * PostAdapter - Custom RecyclerView adapter for displaying posts
  * Implements ViewHolder pattern and item click handling
+ * Rows are read straight from a PostColumnStore; a Post is only created for item actions.
+ * Comment counts and author names come in as maps (from a single aggregate query
+ * and the in-memory AuthorStore), so a bind never queries anything.
  */
 public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
 
-  private List<Post> posts = new ArrayList<>();
+  // Payload for re-styling bound rows after an in-place theme switch
+  private static final Object PAYLOAD_THEME = new Object();
+  // Payload for updating comment counts of bound rows
+  private static final Object PAYLOAD_COMMENTS = new Object();
+  // Payload for updating author names of bound rows
+  private static final Object PAYLOAD_AUTHORS = new Object();
+
+  // Lists up to this many rows (old + new) are diffed on the main thread, larger ones on the CPU pool
+  private static final int MAIN_THREAD_DIFF_ROWS = 2000;
+
+  // Row creation count and bind cost
+  private static final Counter CREATE_COUNTER = MetricsRegistry.get().counter("adapter.posts.create");
+  private static final Timer BIND_TIMER = MetricsRegistry.get().timer("adapter.posts.bind");
+
+  private final AdapterWork work = new AdapterWork();
+  private PostColumnStore posts = new PostColumnStore();
+  // View of the row being bound, moved from row to row instead of allocated per bind
+  private PostColumnStore.Row bindRow;
+  // Latest setPosts() call, and whether the shown list was edited while its diff was computed
+  private int listGeneration;
+  private boolean editedDuringDiff;
+  private SparseIntArray commentCounts = new SparseIntArray();
+  private SparseArray<String> authorNames = new SparseArray<>();
+  private ThemeManager.ThemeColors themeColors;
   private OnPostClickListener clickListener;
   private OnPostLongClickListener longClickListener;
   private OnPostMenuClickListener menuClickListener;
 
+  // Turns a list diff into item range notifications
+  private final PostDiff.Callback updateCallback = new PostDiff.Callback() {
+    @Override
+    public void onInserted(int position, int count) {
+      notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onChanged(int position, int count) {
+      notifyItemRangeChanged(position, count);
+    }
+  };
+
   /**
    * Interface for item click events
    */
@@ -82,8 +140,99 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
    * Update posts data
    */
   public void setPosts(List<Post> posts) {
-    this.posts = posts != null ? posts : new ArrayList<>();
-    notifyDataSetChanged();
+    setPosts(posts != null ? PostColumnStore.of(posts) : null);
+  }
+
+  /**
+   * Update posts data (the adapter reads the store directly, without copying it)
+   * Rows that were inserted, removed or edited since the previous list are
+   * notified individually, so a refresh does not rebind every visible row.
+   * Large lists are diffed on the CPU pool and shown once the diff is ready;
+   * until then the previous list stays. Call on the main thread.
+   */
+  public void setPosts(PostColumnStore posts) {
+    PostColumnStore previous = this.posts;
+    PostColumnStore next = posts != null ? posts : new PostColumnStore();
+    int generation = ++listGeneration;
+
+    if (previous == next || previous.isEmpty()) {
+      show(next, null);
+      return;
+    }
+    if (previous.size() + next.size() <= MAIN_THREAD_DIFF_ROWS) {
+      show(next, PostDiff.compute(previous, next));
+      return;
+    }
+
+    editedDuringDiff = false;
+    Futures.supply(AppExecutors.get().cpu(), Priority.HIGH, () -> PostDiff.compute(previous, next))
+        .whenCompleteAsync((diff, error) -> {
+          if (generation != listGeneration) {
+            return; // Replaced by a newer list
+          }
+          // A row edited meanwhile may have been read half-changed: refresh everything
+          show(next, error == null && !editedDuringDiff ? diff : null);
+        }, AppExecutors.get().main());
+  }
+
+  /**
+   * Switch to a list and notify its changes
+   *
+   * @param diff Changes from the list shown, or null to refresh everything
+   */
+  private void show(PostColumnStore next, PostDiff diff) {
+    if (next != posts) {
+      bindRow = null; // A Row reads the store it came from
+    }
+    posts = next;
+    if (diff != null) {
+      diff.dispatchTo(updateCallback);
+    } else {
+      notifyDataSetChanged();
+    }
+  }
+
+  /**
+   * Apply new theme colors to rows that are already bound
+   * Rows are re-styled through a payload bind instead of being re-inflated
+   */
+  public void setThemeColors(ThemeManager.ThemeColors colors) {
+    this.themeColors = colors;
+    notifyItemRangeChanged(0, posts.size(), PAYLOAD_THEME);
+  }
+
+  /**
+   * Show comment counts; posts missing from the map show none
+   *
+   * @param counts Comment count by post ID
+   */
+  public void setCommentCounts(SparseIntArray counts) {
+    this.commentCounts = counts != null ? counts : new SparseIntArray();
+    notifyItemRangeChanged(0, posts.size(), PAYLOAD_COMMENTS);
+  }
+
+  /**
+   * Show author names; posts whose author is unknown show the user ID
+   *
+   * @param names Author name by user ID (not modified by the adapter)
+   */
+  public void setAuthorNames(SparseArray<String> names) {
+    this.authorNames = names != null ? names : new SparseArray<>();
+    notifyItemRangeChanged(0, posts.size(), PAYLOAD_AUTHORS);
+  }
+
+  /**
+   * ID of the post at a position, or 0 if out of range
+   */
+  public int getPostIdAt(int position) {
+    return position >= 0 && position < posts.size() ? posts.getId(position) : 0;
+  }
+
+  /**
+   * Work done since the last frame (for JankMonitor)
+   */
+  public AdapterWork getWork() {
+    return work;
   }
 
   /**
@@ -91,7 +240,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
    */
   public Post getPostAt(int position) {
     if (position >= 0 && position < posts.size()) {
-      return posts.get(position);
+      return posts.toPost(position);
     }
     return null;
   }
@@ -101,6 +250,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
    */
   public void removePostAt(int position) {
     if (position >= 0 && position < posts.size()) {
+      editedDuringDiff = true;
       posts.remove(position);
       notifyItemRemoved(position);
     }
@@ -111,6 +261,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
    */
   public void updatePostAt(int position, Post post) {
     if (position >= 0 && position < posts.size()) {
+      editedDuringDiff = true;
       posts.set(position, post);
       notifyItemChanged(position);
     }
@@ -119,15 +270,58 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
   @NonNull
   @Override
   public PostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-    View view = LayoutInflater.from(parent.getContext())
-        .inflate(R.layout.item_post, parent, false);
-    return new PostViewHolder(view);
+    CREATE_COUNTER.increment();
+    work.onCreate();
+    Tracer.begin("PostAdapter.onCreateViewHolder");
+    try {
+      View view = LayoutInflater.from(parent.getContext())
+          .inflate(R.layout.item_post, parent, false);
+      return new PostViewHolder(view);
+    } finally {
+      Tracer.end();
+    }
   }
 
   @Override
   public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
-    Post post = posts.get(position);
-    holder.bind(post);
+    long start = BIND_TIMER.start();
+    Tracer.begin("PostAdapter.onBindViewHolder");
+    try {
+      if (bindRow == null) {
+        bindRow = posts.row(position);
+      } else {
+        bindRow.moveTo(position);
+      }
+      holder.bind(bindRow);
+      if (themeColors != null) {
+        holder.applyTheme(themeColors);
+      }
+    } finally {
+      Tracer.end();
+    }
+    long elapsed = System.nanoTime() - start;
+    BIND_TIMER.record(elapsed);
+    work.onBind(elapsed);
+  }
+
+  @Override
+  public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+    // Theme, comment count or author change only: keep the bound data, just update that part
+    boolean partial = !payloads.isEmpty();
+    for (Object payload : payloads) {
+      if (payload == PAYLOAD_THEME && themeColors != null) {
+        holder.applyTheme(themeColors);
+      } else if (payload == PAYLOAD_COMMENTS) {
+        holder.bindCommentCount(posts.getId(position));
+      } else if (payload == PAYLOAD_AUTHORS) {
+        holder.bindAuthor(posts.getUserId(position));
+      } else {
+        partial = false;
+      }
+    }
+    if (!partial) {
+      onBindViewHolder(holder, position);
+    }
   }
 
   @Override
@@ -144,6 +338,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
     private final TextView tvBody;
     private final TextView tvUserId;
     private final TextView tvPostId;
+    private final TextView tvCommentCount;
     private final ImageView ivFavorite;
     private final ImageButton btnMore;
 
@@ -154,6 +349,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
       tvBody = itemView.findViewById(R.id.tv_post_body);
       tvUserId = itemView.findViewById(R.id.tv_user_id);
       tvPostId = itemView.findViewById(R.id.tv_post_id);
+      tvCommentCount = itemView.findViewById(R.id.tv_comment_count);
       ivFavorite = itemView.findViewById(R.id.iv_favorite);
       btnMore = itemView.findViewById(R.id.btn_more);
 
@@ -161,7 +357,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
       itemView.setOnClickListener(v -> {
         int position = getAdapterPosition();
         if (clickListener != null && position != RecyclerView.NO_POSITION) {
-          clickListener.onPostClick(posts.get(position), position);
+          clickListener.onPostClick(posts.toPost(position), position);
         }
       });
 
@@ -169,7 +365,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
       itemView.setOnLongClickListener(v -> {
         int position = getAdapterPosition();
         if (longClickListener != null && position != RecyclerView.NO_POSITION) {
-          longClickListener.onPostLongClick(posts.get(position), position, v);
+          longClickListener.onPostLongClick(posts.toPost(position), position, v);
           return true;
         }
         return false;
@@ -179,22 +375,59 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
       btnMore.setOnClickListener(v -> {
         int position = getAdapterPosition();
         if (position != RecyclerView.NO_POSITION) {
-          showPopupMenu(v, posts.get(position), position);
+          showPopupMenu(v, posts.toPost(position), position);
         }
       });
     }
 
     /**
-     * Bind post data to views
+     * Bind row data to views
      */
-    void bind(Post post) {
-      tvTitle.setText(post.getTitle());
-      tvBody.setText(post.getBody());
-      tvUserId.setText(itemView.getContext().getString(R.string.label_user_id, post.getUserId()));
-      tvPostId.setText(itemView.getContext().getString(R.string.label_post_id, post.getId()));
+    void bind(PostColumnStore.Row row) {
+      tvTitle.setText(row.getTitle());
+      tvBody.setText(row.getBodySnippet());
+      bindAuthor(row.getUserId());
+      tvPostId.setText(itemView.getContext().getString(R.string.label_post_id, row.getId()));
 
       // Show favorite icon if favorited
-      ivFavorite.setVisibility(post.isFavorite() ? View.VISIBLE : View.GONE);
+      ivFavorite.setVisibility(row.isFavorite() ? View.VISIBLE : View.GONE);
+      bindCommentCount(row.getId());
+    }
+
+    /**
+     * Show the author's name, or the user ID while the name is not known
+     */
+    void bindAuthor(int userId) {
+      String name = authorNames.get(userId);
+      tvUserId.setText(name != null ? name : itemView.getContext().getString(R.string.label_user_id, userId));
+    }
+
+    /**
+     * Show the post's comment count, if its comments are cached
+     */
+    void bindCommentCount(int postId) {
+      int count = commentCounts.get(postId, -1);
+      if (count < 0) {
+        tvCommentCount.setVisibility(View.GONE);
+        return;
+      }
+      tvCommentCount.setText(itemView.getResources().getQuantityString(R.plurals.comment_count, count, count));
+      tvCommentCount.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Re-style the row with theme colors (mirrors the attributes in item_post.xml)
+     */
+    void applyTheme(ThemeManager.ThemeColors colors) {
+      if (itemView instanceof MaterialCardView) {
+        ((MaterialCardView) itemView).setCardBackgroundColor(colors.surface);
+      }
+      tvPostId.setTextColor(colors.primary);
+      tvUserId.setTextColor(colors.onSurface);
+      tvUserId.setBackgroundTintList(ColorStateList.valueOf(colors.primary));
+      tvTitle.setTextColor(colors.onSurface);
+      tvBody.setTextColor(colors.onSurface);
+      tvCommentCount.setTextColor(colors.onSurface);
     }
 
     /**
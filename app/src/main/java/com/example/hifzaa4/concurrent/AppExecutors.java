@@ -0,0 +1,105 @@
+package com.example.hifzaa4.concurrent;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AppExecutors - The app's background threads, in one place
+ * - io: network and disk reads; bounded so repeated refreshes queue instead of adding threads
+ * - dbWrite: one thread, so local writes are applied in the order they were made
+ * - cpu: parsing, diffing and other computation, one thread per core
+ * - decode: image decoding, kept to a few threads since each decode holds a full bitmap
+ * - main: delivers results to the UI thread
+ * Delayed work goes through schedule(), whose timer thread only hands tasks to a pool.
+ */
+public class AppExecutors {
+
+  // Enough for a sync with its prefetch window, the outbox requests and a screen load at once
+  private static final int IO_THREADS = 8;
+  private static final int DECODE_THREADS = 2;
+
+  private static final AppExecutors INSTANCE = new AppExecutors(MetricsRegistry.get());
+
+  private final TaskExecutor io;
+  private final TaskExecutor dbWrite;
+  private final TaskExecutor cpu;
+  private final TaskExecutor decode;
+  private volatile Executor main;
+  private ScheduledExecutorService timer;
+
+  /**
+   * Get the app-wide executors
+   */
+  public static AppExecutors get() {
+    return INSTANCE;
+  }
+
+  private AppExecutors(MetricsRegistry metrics) {
+    io = new TaskExecutor("io", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND, metrics);
+    dbWrite = new TaskExecutor("db-write", 1, Process.THREAD_PRIORITY_BACKGROUND, metrics);
+    cpu = new TaskExecutor("cpu", Math.max(2, Runtime.getRuntime().availableProcessors()),
+        Process.THREAD_PRIORITY_DEFAULT, metrics);
+    decode = new TaskExecutor("decode", DECODE_THREADS, Process.THREAD_PRIORITY_BACKGROUND, metrics);
+  }
+
+  public TaskExecutor io() {
+    return io;
+  }
+
+  public TaskExecutor dbWrite() {
+    return dbWrite;
+  }
+
+  public TaskExecutor cpu() {
+    return cpu;
+  }
+
+  public TaskExecutor decode() {
+    return decode;
+  }
+
+  /**
+   * Executor that posts to the main thread
+   */
+  public Executor main() {
+    Executor executor = main;
+    if (executor == null) {
+      Handler handler = new Handler(Looper.getMainLooper());
+      executor = handler::post;
+      main = executor;
+    }
+    return executor;
+  }
+
+  /**
+   * Run a task on an executor after a delay
+   *
+   * @param executor    Executor that runs the task
+   * @param task        Task to run
+   * @param delayMillis Delay in milliseconds
+   * @return Future to cancel the task before it is handed to the executor
+   */
+  public ScheduledFuture<?> schedule(Executor executor, Runnable task, long delayMillis) {
+    return timer().schedule(() -> executor.execute(task), delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized ScheduledExecutorService timer() {
+    if (timer == null) {
+      timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "timer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return timer;
+  }
+}
@@ -0,0 +1,171 @@
+package com.example.hifzaa4.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Futures - CompletableFuture helpers that run on the app's pools
+ * Every stage names the executor it runs on (never the common pool), and
+ * cancelling the last future of a chain cancels the stages it is waiting on,
+ * down to the queued or running TaskExecutor task.
+ */
+public final class Futures {
+
+  private Futures() {
+  }
+
+  /**
+   * Run work on a pool
+   * Cancelling the future skips the task if it is still queued and interrupts it if it runs
+   *
+   * @param executor Pool that runs the work
+   * @param priority Priority of the work
+   * @param work     Work to run
+   * @return Future completed with the result, or with the exception the work threw
+   */
+  public static <T> CompletableFuture<T> supply(TaskExecutor executor, Priority priority, Callable<T> work) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Future<?> task = executor.submit(priority, () -> {
+      if (result.isDone()) {
+        return;
+      }
+      try {
+        result.complete(work.call());
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    });
+    return link(result, task);
+  }
+
+  /**
+   * Transform the result of a future on an executor
+   */
+  public static <T, R> CompletableFuture<R> map(CompletableFuture<T> source, Function<? super T, ? extends R> fn,
+      Executor executor) {
+    return link(source.thenApplyAsync(fn, executor), source);
+  }
+
+  /**
+   * Start the next future from the result of a future
+   * Cancelling the returned future cancels the source and, once started, the next future
+   *
+   * @param source   First future
+   * @param fn       Starts the next future from the result (runs on executor)
+   * @param executor Executor fn runs on
+   * @return Future completed like the next future
+   */
+  public static <T, R> CompletableFuture<R> flatMap(CompletableFuture<T> source,
+      Function<? super T, ? extends CompletableFuture<R>> fn, Executor executor) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    AtomicReference<CompletableFuture<R>> next = new AtomicReference<>();
+    source.whenCompleteAsync((value, error) -> {
+      if (result.isDone()) {
+        return;
+      }
+      if (error != null) {
+        result.completeExceptionally(unwrap(error));
+        return;
+      }
+      CompletableFuture<R> started;
+      try {
+        started = fn.apply(value);
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+        return;
+      }
+      next.set(started);
+      forward(started, result);
+      if (result.isCancelled()) {
+        started.cancel(true);
+      }
+    }, executor);
+    result.whenComplete((value, error) -> {
+      if (result.isCancelled()) {
+        source.cancel(true);
+        CompletableFuture<R> started = next.get();
+        if (started != null) {
+          started.cancel(true);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Wait for several futures that run at the same time
+   * Fails as soon as one of them fails, and then cancels the others;
+   * cancelling the returned future cancels all of them.
+   *
+   * @param futures Futures to wait for
+   * @return Future completed once all futures have completed
+   */
+  public static CompletableFuture<Void> all(CompletableFuture<?>... futures) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    CompletableFuture.allOf(futures).whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(null);
+      }
+    });
+    for (CompletableFuture<?> future : futures) {
+      future.whenComplete((value, error) -> {
+        if (error != null) {
+          result.completeExceptionally(unwrap(error));
+        }
+      });
+    }
+    result.whenComplete((value, error) -> {
+      if (error != null) {
+        for (CompletableFuture<?> future : futures) {
+          future.cancel(true);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Cancel upstream futures when a future is cancelled
+   *
+   * @param future   Future handed to the caller
+   * @param upstream Futures it depends on
+   * @return future
+   */
+  public static <T> CompletableFuture<T> link(CompletableFuture<T> future, Future<?>... upstream) {
+    future.whenComplete((value, error) -> {
+      if (future.isCancelled()) {
+        for (Future<?> source : upstream) {
+          source.cancel(true);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * The exception a stage actually failed with, without CompletionException wrappers
+   */
+  public static Throwable unwrap(Throwable error) {
+    while ((error instanceof CompletionException || error instanceof ExecutionException)
+        && error.getCause() != null) {
+      error = error.getCause();
+    }
+    return error;
+  }
+
+  private static <T> void forward(CompletableFuture<T> from, CompletableFuture<T> to) {
+    from.whenComplete((value, error) -> {
+      if (error != null) {
+        to.completeExceptionally(unwrap(error));
+      } else {
+        to.complete(value);
+      }
+    });
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.hifzaa4.concurrent;
+
+/**
+ * Priority - Order in which queued tasks of a TaskExecutor are started
+ */
+public enum Priority {
+  // The user is waiting on the result (screen loads, saves)
+  HIGH,
+  // Background work that should not wait long (sync, outbox)
+  NORMAL,
+  // Work nobody is waiting on (prefetch, snapshots, logs)
+  LOW
+}
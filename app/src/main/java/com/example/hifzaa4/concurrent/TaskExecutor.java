@@ -0,0 +1,229 @@
+package com.example.hifzaa4.concurrent;
+
+import com.example.hifzaa4.metrics.Histogram;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TaskExecutor - Named thread pool with a fixed maximum number of threads
+ * Queued tasks start by Priority, then in submission order. Each pool records how
+ * long tasks wait in the queue ("executor.<name>.wait"), how long they run
+ * ("executor.<name>.run") and the queue depth each new task finds ("executor.<name>.queue").
+ */
+public class TaskExecutor implements Executor {
+
+  // Idle threads exit after this long
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private final String name;
+  private final ThreadPoolExecutor pool;
+  private final AtomicLong sequence = new AtomicLong();
+  private final Timer waitTimer;
+  private final Timer runTimer;
+  private final Histogram queueDepth;
+
+  /**
+   * Constructor
+   *
+   * @param name           Pool name, used for thread names and metrics
+   * @param threads        Maximum number of threads
+   * @param threadPriority android.os.Process thread priority of the pool threads
+   * @param metrics        Where wait time, run time and queue depth are recorded
+   */
+  public TaskExecutor(String name, int threads, int threadPriority, MetricsRegistry metrics) {
+    this.name = name;
+    pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new PriorityBlockingQueue<>(), threadFactory(name, threads, threadPriority));
+    pool.allowCoreThreadTimeOut(true);
+
+    String prefix = "executor." + name + ".";
+    waitTimer = metrics.timer(prefix + "wait");
+    runTimer = metrics.timer(prefix + "run");
+    queueDepth = metrics.histogram(prefix + "queue");
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Number of tasks waiting for a thread
+   */
+  public int getQueueDepth() {
+    return pool.getQueue().size();
+  }
+
+  /**
+   * Run a task with NORMAL priority
+   * An exception thrown by the task goes to the thread's uncaught exception handler
+   */
+  @Override
+  public void execute(Runnable task) {
+    execute(Priority.NORMAL, task);
+  }
+
+  /**
+   * Run a task
+   * An exception thrown by the task goes to the thread's uncaught exception handler
+   */
+  public void execute(Priority priority, Runnable task) {
+    enqueue(new Task<>(priority, task, null, true));
+  }
+
+  /**
+   * Run a task and get its result through a Future
+   * Cancelling the Future skips a queued task and interrupts a running one
+   */
+  public <T> Future<T> submit(Priority priority, Callable<T> task) {
+    return enqueue(new Task<>(priority, task, false));
+  }
+
+  /**
+   * Run a task and wait for it through a Future
+   */
+  public Future<?> submit(Priority priority, Runnable task) {
+    return enqueue(new Task<>(priority, task, null, false));
+  }
+
+  /**
+   * Executor that runs its tasks one at a time, in order, on this pool
+   *
+   * @param priority Priority of the tasks
+   */
+  public Executor serial(Priority priority) {
+    return new SerialExecutor(this, priority);
+  }
+
+  /**
+   * Wait for a submitted task
+   * A task that has not started yet runs on the calling thread instead, so a pool
+   * thread that waits on work queued behind it cannot deadlock the pool.
+   */
+  public static <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+    if (future instanceof TaskExecutor.Task) {
+      ((TaskExecutor.Task<?>) future).run();
+    }
+    return future.get();
+  }
+
+  private <T> Task<T> enqueue(Task<T> task) {
+    queueDepth.record(pool.getQueue().size());
+    pool.execute(task);
+    return task;
+  }
+
+  private static ThreadFactory threadFactory(String name, int threads, int threadPriority) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      String threadName = threads == 1 ? name : name + "-" + count.incrementAndGet();
+      return new Thread(() -> {
+        android.os.Process.setThreadPriority(threadPriority);
+        runnable.run();
+      }, threadName);
+    };
+  }
+
+  /**
+   * Queued task, ordered by priority and then by submission
+   */
+  private final class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+    private final Priority priority;
+    private final long order = sequence.getAndIncrement();
+    private final long enqueuedNanos = System.nanoTime();
+    private final boolean reportErrors;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    Task(Priority priority, Callable<T> callable, boolean reportErrors) {
+      super(callable);
+      this.priority = priority;
+      this.reportErrors = reportErrors;
+    }
+
+    Task(Priority priority, Runnable runnable, T result, boolean reportErrors) {
+      super(runnable, result);
+      this.priority = priority;
+      this.reportErrors = reportErrors;
+    }
+
+    @Override
+    public void run() {
+      // Runs once, whether from the pool or from await()
+      if (isDone() || !started.compareAndSet(false, true)) {
+        return;
+      }
+      long start = System.nanoTime();
+      waitTimer.record(start - enqueuedNanos);
+      try {
+        super.run();
+      } finally {
+        runTimer.stop(start);
+      }
+      if (reportErrors && !isCancelled()) {
+        try {
+          get();
+        } catch (ExecutionException e) {
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt(); // Not reached: the task is done
+        }
+      }
+    }
+
+    @Override
+    public int compareTo(Task<?> other) {
+      int byPriority = priority.compareTo(other.priority);
+      return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+    }
+  }
+
+  /**
+   * Runs tasks one after another on a pool, like a single-thread executor without its own thread
+   */
+  private static class SerialExecutor implements Executor {
+    private final TaskExecutor pool;
+    private final Priority priority;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private Runnable active;
+
+    SerialExecutor(TaskExecutor pool, Priority priority) {
+      this.pool = pool;
+      this.priority = priority;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+      tasks.add(() -> {
+        try {
+          task.run();
+        } finally {
+          scheduleNext();
+        }
+      });
+      if (active == null) {
+        scheduleNext();
+      }
+    }
+
+    private synchronized void scheduleNext() {
+      active = tasks.poll();
+      if (active != null) {
+        pool.execute(priority, active);
+      }
+    }
+  }
+}
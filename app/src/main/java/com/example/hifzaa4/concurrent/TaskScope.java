@@ -0,0 +1,198 @@
+package com.example.hifzaa4.concurrent;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * TaskScope - Background work of one screen, with results delivered on the main thread
+ * When the owner is destroyed, loads started with run() or bind() are cancelled and no result
+ * of the scope is delivered any more. Writes started with commit() still finish.
+ */
+public class TaskScope implements LifecycleEventObserver {
+
+  private static final String TAG = "TaskScope";
+
+  private final Executor main;
+  private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+  private volatile boolean cancelled;
+
+  /**
+   * Create a scope that is cancelled when the owner is destroyed
+   * Call on the main thread (e.g. from onCreate)
+   *
+   * @param owner Activity or other lifecycle owner
+   * @return New scope
+   */
+  public static TaskScope of(LifecycleOwner owner) {
+    TaskScope scope = new TaskScope(AppExecutors.get().main());
+    owner.getLifecycle().addObserver(scope);
+    return scope;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param main Executor results are delivered on
+   */
+  TaskScope(Executor main) {
+    this.main = main;
+  }
+
+  @Override
+  public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+    if (event == Lifecycle.Event.ON_DESTROY) {
+      source.getLifecycle().removeObserver(this);
+      cancel();
+    }
+  }
+
+  /**
+   * Load something in the background and hand it to the main thread
+   * Failures are logged
+   */
+  public <T> Future<T> run(TaskExecutor executor, Priority priority, Callable<T> work, Consumer<? super T> onResult) {
+    return run(executor, priority, work, onResult, null);
+  }
+
+  /**
+   * Load something in the background and hand it, or the failure, to the main thread
+   * Cancelled along with the scope
+   *
+   * @param executor Executor that runs the work
+   * @param priority Priority of the work
+   * @param work     Background work
+   * @param onResult Called on the main thread with the result
+   * @param onError  Called on the main thread if the work throws; null to only log
+   * @return Future of the work, or null if the scope was already cancelled
+   */
+  public <T> Future<T> run(TaskExecutor executor, Priority priority, Callable<T> work, Consumer<? super T> onResult,
+      Consumer<? super Exception> onError) {
+    if (cancelled) {
+      return null;
+    }
+    AtomicReference<Future<T>> self = new AtomicReference<>();
+    Future<T> future = executor.submit(priority, () -> {
+      try {
+        return complete(work, onResult, onError);
+      } finally {
+        Future<T> done = self.get();
+        if (done != null) {
+          tasks.remove(done);
+        }
+      }
+    });
+    self.set(future);
+    tasks.add(future);
+    if (future.isDone()) {
+      tasks.remove(future);
+    }
+    if (cancelled) {
+      future.cancel(true);
+    }
+    return future;
+  }
+
+  /**
+   * Write something in the background and hand the result to the main thread
+   * The write always runs to completion; only the result is dropped once the scope is cancelled
+   *
+   * @param executor Executor that runs the work
+   * @param priority Priority of the work
+   * @param work     Background work
+   * @param onResult Called on the main thread with the result
+   */
+  public <T> void commit(TaskExecutor executor, Priority priority, Callable<T> work, Consumer<? super T> onResult) {
+    executor.execute(priority, () -> complete(work, onResult, null));
+  }
+
+  /**
+   * Hand the outcome of a composed future to the main thread
+   * The future is cancelled along with the scope, which cancels the stages it
+   * waits on (see Futures)
+   *
+   * @param future   Future to observe
+   * @param onResult Called on the main thread with the result
+   * @param onError  Called on the main thread with the failure (unwrapped); null to only log
+   * @return future, already cancelled if the scope was
+   */
+  public <T> CompletableFuture<T> bind(CompletableFuture<T> future, Consumer<? super T> onResult,
+      Consumer<? super Throwable> onError) {
+    if (cancelled) {
+      future.cancel(true);
+      return future;
+    }
+    tasks.add(future);
+    future.whenComplete((result, error) -> {
+      tasks.remove(future);
+      if (error == null) {
+        deliver(() -> onResult.accept(result));
+      } else if (!cancelled && !future.isCancelled()) {
+        Throwable cause = Futures.unwrap(error);
+        Log.w(TAG, "Background work failed", cause);
+        if (onError != null) {
+          deliver(() -> onError.accept(cause));
+        }
+      }
+    });
+    if (cancelled) {
+      future.cancel(true);
+    }
+    return future;
+  }
+
+  /**
+   * Cancel running and queued loads and stop delivering results
+   */
+  public void cancel() {
+    cancelled = true;
+    for (Future<?> task : tasks) {
+      task.cancel(true);
+    }
+    tasks.clear();
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Run the work and post its outcome to the main thread
+   */
+  private <T> T complete(Callable<T> work, Consumer<? super T> onResult, Consumer<? super Exception> onError) {
+    T result;
+    try {
+      result = work.call();
+    } catch (Exception e) {
+      if (!cancelled) {
+        Log.w(TAG, "Background work failed", e);
+        if (onError != null) {
+          deliver(() -> onError.accept(e));
+        }
+      }
+      return null;
+    }
+    deliver(() -> onResult.accept(result));
+    return result;
+  }
+
+  private void deliver(Runnable callback) {
+    main.execute(() -> {
+      if (!cancelled) {
+        callback.run();
+      }
+    });
+  }
+}
@@ -0,0 +1,128 @@
+package com.example.hifzaa4.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.models.Author;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AuthorRepository - Local copy of the API's users, the authors of posts
+ * Stored in their own table (the users table holds the local logins) together
+ * with the ETag they were fetched with, so refreshing them is a conditional request.
+ */
+public class AuthorRepository {
+
+  private static final String[] COLUMNS = {
+      DatabaseHelper.COLUMN_ID,
+      DatabaseHelper.COLUMN_NAME,
+      DatabaseHelper.COLUMN_USERNAME,
+      DatabaseHelper.COLUMN_EMAIL
+  };
+
+  private static final Timer QUERY_TIMER = MetricsRegistry.get().timer("db.authors.query");
+  private static final Timer WRITE_TIMER = MetricsRegistry.get().timer("db.authors.write");
+
+  private final DatabaseHelper dbHelper;
+
+  /**
+   * Constructor
+   *
+   * @param context Application context
+   */
+  public AuthorRepository(Context context) {
+    dbHelper = DatabaseHelper.getInstance(context);
+  }
+
+  /**
+   * Get all stored authors
+   *
+   * @return Authors in ID order (empty if they were never fetched)
+   */
+  public List<Author> getAuthors() {
+    long start = QUERY_TIMER.start();
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.query(DatabaseHelper.TABLE_AUTHORS, COLUMNS, null, null,
+        null, null, DatabaseHelper.COLUMN_ID);
+
+    try {
+      List<Author> authors = new ArrayList<>(cursor.getCount());
+      int id = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+      int name = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NAME);
+      int username = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USERNAME);
+      int email = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EMAIL);
+      while (cursor.moveToNext()) {
+        authors.add(new Author(cursor.getInt(id), cursor.getString(name), cursor.getString(username),
+            cursor.getString(email)));
+      }
+      return authors;
+    } finally {
+      cursor.close();
+      QUERY_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * Replace the stored authors with a fetched set, and remember its ETag
+   * Both are written in one transaction, so the ETag always describes the stored rows.
+   *
+   * @param resource API path the authors were fetched from
+   * @param authors  Fetched authors
+   * @param etag     ETag of the response, or null if the server sent none
+   */
+  public void replaceAuthors(String resource, List<Author> authors, String etag) {
+    long start = WRITE_TIMER.start();
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      db.delete(DatabaseHelper.TABLE_AUTHORS, null, null);
+      ContentValues values = new ContentValues();
+      for (Author author : authors) {
+        values.clear();
+        values.put(DatabaseHelper.COLUMN_ID, author.getId());
+        values.put(DatabaseHelper.COLUMN_NAME, author.getName());
+        values.put(DatabaseHelper.COLUMN_USERNAME, author.getUsername());
+        values.put(DatabaseHelper.COLUMN_EMAIL, author.getEmail());
+        db.insertWithOnConflict(DatabaseHelper.TABLE_AUTHORS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+      }
+
+      String[] resourceArgs = { resource };
+      if (etag == null) {
+        db.delete(DatabaseHelper.TABLE_VALIDATORS, DatabaseHelper.COLUMN_RESOURCE + " = ?", resourceArgs);
+      } else {
+        values.clear();
+        values.put(DatabaseHelper.COLUMN_RESOURCE, resource);
+        values.put(DatabaseHelper.COLUMN_ETAG, etag);
+        db.insertWithOnConflict(DatabaseHelper.TABLE_VALIDATORS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+      WRITE_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * Get the ETag the stored copy of a resource was fetched with
+   *
+   * @param resource API path
+   * @return ETag, or null if there is none
+   */
+  public String getEtag(String resource) {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.query(DatabaseHelper.TABLE_VALIDATORS, new String[] { DatabaseHelper.COLUMN_ETAG },
+        DatabaseHelper.COLUMN_RESOURCE + " = ?", new String[] { resource }, null, null, null);
+
+    try {
+      return cursor.moveToFirst() ? cursor.getString(0) : null;
+    } finally {
+      cursor.close();
+    }
+  }
+}
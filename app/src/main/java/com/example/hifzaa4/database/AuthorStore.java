@@ -0,0 +1,150 @@
+package com.example.hifzaa4.database;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.models.Author;
+import com.example.hifzaa4.network.ApiService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AuthorStore - Names of post authors, held in memory
+ * The authors are read from SQLite once and kept as an immutable snapshot, so
+ * list rows and screens look names up without touching the database or the
+ * network. refresh() revalidates them with a conditional request; an unchanged
+ * set costs a 304 and no write.
+ */
+public class AuthorStore {
+
+  private final AuthorRepository repository;
+  private final ApiService apiService;
+
+  // Snapshots, replaced as a whole and never modified once published
+  private volatile SparseArray<String> names = new SparseArray<>();
+  private volatile List<Author> authors = Collections.emptyList();
+  private boolean loaded; // Guarded by this
+
+  // Singleton instance
+  private static AuthorStore instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return AuthorStore instance
+   */
+  public static synchronized AuthorStore getInstance(Context context) {
+    if (instance == null) {
+      instance = new AuthorStore(new AuthorRepository(context.getApplicationContext()), new ApiService());
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param repository Local copy of the authors
+   * @param apiService API the authors come from
+   */
+  AuthorStore(AuthorRepository repository, ApiService apiService) {
+    this.repository = repository;
+    this.apiService = apiService;
+  }
+
+  /**
+   * Get an author's name from memory
+   *
+   * @param userId User ID of a post
+   * @return Name, or null if the author is not known (yet)
+   */
+  public String getName(int userId) {
+    return names.get(userId);
+  }
+
+  /**
+   * Get all known names by user ID; do not modify the returned array
+   */
+  public SparseArray<String> getNames() {
+    return names;
+  }
+
+  /**
+   * Get all known authors in ID order (empty until loaded)
+   */
+  public List<Author> getAuthors() {
+    return authors;
+  }
+
+  /**
+   * Read the stored authors into memory on the IO pool, the first time only
+   *
+   * @return Future of the names by user ID
+   */
+  public CompletableFuture<SparseArray<String>> loadAsync() {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, () -> {
+      ensureLoaded();
+      return names;
+    });
+  }
+
+  /**
+   * Revalidate the authors against the API
+   * The stored ETag is sent as If-None-Match; only a changed set is written
+   * (on the DB write thread) and replaces the snapshot.
+   *
+   * @return Future of whether any name changed; fails with the request's IOException
+   */
+  public CompletableFuture<Boolean> refresh() {
+    return Futures.flatMap(Futures.supply(AppExecutors.get().io(), Priority.LOW, () -> {
+      ensureLoaded();
+      return apiService.fetchUsersBlocking(repository.getEtag(ApiService.USERS_ENDPOINT));
+    }), response -> {
+      if (response.isNotModified()) {
+        return CompletableFuture.completedFuture(false);
+      }
+      return Futures.supply(AppExecutors.get().dbWrite(), Priority.NORMAL, () -> {
+        repository.replaceAuthors(ApiService.USERS_ENDPOINT, response.body, response.etag);
+        return publish(response.body);
+      });
+    }, Runnable::run);
+  }
+
+  private synchronized void ensureLoaded() {
+    if (!loaded) {
+      publish(repository.getAuthors());
+      loaded = true;
+    }
+  }
+
+  /**
+   * Replace the snapshots
+   *
+   * @return Whether any name changed
+   */
+  private synchronized boolean publish(List<Author> fresh) {
+    SparseArray<String> freshNames = new SparseArray<>(fresh.size());
+    for (Author author : fresh) {
+      freshNames.put(author.getId(), author.getName());
+    }
+    SparseArray<String> old = names;
+    boolean changed = old.size() != freshNames.size();
+    for (int i = 0; !changed && i < old.size(); i++) {
+      changed = old.keyAt(i) != freshNames.keyAt(i) || !Objects.equals(old.valueAt(i), freshNames.valueAt(i));
+    }
+
+    List<Author> sorted = new ArrayList<>(fresh);
+    sorted.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+    names = freshNames;
+    authors = Collections.unmodifiableList(sorted);
+    loaded = true;
+    return changed;
+  }
+}
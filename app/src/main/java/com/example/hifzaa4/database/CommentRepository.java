@@ -0,0 +1,210 @@
+package com.example.hifzaa4.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.SparseIntArray;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.models.Comment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CommentRepository - Local cache of server comments
+ * Comments are stored per post together with the time they were fetched, so a
+ * post without comments is told apart from one that was never fetched.
+ */
+public class CommentRepository {
+
+  private static final String[] COLUMNS = {
+      DatabaseHelper.COLUMN_ID,
+      DatabaseHelper.COLUMN_POST_ID,
+      DatabaseHelper.COLUMN_NAME,
+      DatabaseHelper.COLUMN_EMAIL,
+      DatabaseHelper.COLUMN_BODY
+  };
+
+  private static final Timer QUERY_TIMER = MetricsRegistry.get().timer("db.comments.query");
+  private static final Timer WRITE_TIMER = MetricsRegistry.get().timer("db.comments.write");
+
+  private final DatabaseHelper dbHelper;
+
+  /**
+   * Constructor
+   *
+   * @param context Application context
+   */
+  public CommentRepository(Context context) {
+    dbHelper = DatabaseHelper.getInstance(context);
+  }
+
+  /**
+   * Get the cached comments of a post
+   *
+   * @param postId Post ID
+   * @return Comments in ID order (empty if none are cached)
+   */
+  public List<Comment> getComments(int postId) {
+    long start = QUERY_TIMER.start();
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.query(DatabaseHelper.TABLE_COMMENTS, COLUMNS,
+        DatabaseHelper.COLUMN_POST_ID + " = ?", new String[] { String.valueOf(postId) },
+        null, null, DatabaseHelper.COLUMN_ID);
+
+    try {
+      return readComments(cursor);
+    } finally {
+      cursor.close();
+      QUERY_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * Replace the cached comments of some posts with a fetched set
+   * Posts whose comments did not change are not rewritten; all of them get the new fetch time.
+   *
+   * @param postIds   Posts the comments were fetched for
+   * @param comments  Fetched comments of those posts
+   * @param fetchedAt Fetch time (System.currentTimeMillis())
+   * @return IDs of the posts whose comments changed
+   */
+  public Set<Integer> replaceComments(Collection<Integer> postIds, List<Comment> comments, long fetchedAt) {
+    Map<Integer, List<Comment>> byPost = new HashMap<>();
+    for (Integer postId : postIds) {
+      byPost.put(postId, new ArrayList<>());
+    }
+    for (Comment comment : comments) {
+      List<Comment> postComments = byPost.get(comment.getPostId());
+      if (postComments != null) {
+        postComments.add(comment);
+      }
+    }
+
+    long start = WRITE_TIMER.start();
+    Set<Integer> changed = new HashSet<>();
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      ContentValues values = new ContentValues();
+      for (Map.Entry<Integer, List<Comment>> entry : byPost.entrySet()) {
+        int postId = entry.getKey();
+        List<Comment> fresh = entry.getValue();
+        fresh.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        if (!fresh.equals(getComments(postId))) {
+          String[] postArgs = { String.valueOf(postId) };
+          db.delete(DatabaseHelper.TABLE_COMMENTS, DatabaseHelper.COLUMN_POST_ID + " = ?", postArgs);
+          for (Comment comment : fresh) {
+            values.clear();
+            values.put(DatabaseHelper.COLUMN_ID, comment.getId());
+            values.put(DatabaseHelper.COLUMN_POST_ID, comment.getPostId());
+            values.put(DatabaseHelper.COLUMN_NAME, comment.getName());
+            values.put(DatabaseHelper.COLUMN_EMAIL, comment.getEmail());
+            values.put(DatabaseHelper.COLUMN_BODY, comment.getBody());
+            db.insertWithOnConflict(DatabaseHelper.TABLE_COMMENTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+          }
+          changed.add(postId);
+        }
+
+        values.clear();
+        values.put(DatabaseHelper.COLUMN_POST_ID, postId);
+        values.put(DatabaseHelper.COLUMN_FETCHED_AT, fetchedAt);
+        db.insertWithOnConflict(DatabaseHelper.TABLE_COMMENT_FETCHES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+      WRITE_TIMER.stop(start);
+    }
+    return changed;
+  }
+
+  /**
+   * Get the number of comments of every post whose comments were fetched
+   * One aggregate query over the post_id index, instead of a query per row
+   *
+   * @return Comment count by post ID; posts that were never fetched are missing
+   */
+  public SparseIntArray getCommentCounts() {
+    long start = QUERY_TIMER.start();
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.rawQuery(
+        "SELECT f." + DatabaseHelper.COLUMN_POST_ID + ", COUNT(c." + DatabaseHelper.COLUMN_ID + ")" +
+            " FROM " + DatabaseHelper.TABLE_COMMENT_FETCHES + " f" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_COMMENTS + " c" +
+            " ON c." + DatabaseHelper.COLUMN_POST_ID + " = f." + DatabaseHelper.COLUMN_POST_ID +
+            " GROUP BY f." + DatabaseHelper.COLUMN_POST_ID,
+        null);
+
+    try {
+      SparseIntArray counts = new SparseIntArray(cursor.getCount());
+      while (cursor.moveToNext()) {
+        counts.append(cursor.getInt(0), cursor.getInt(1));
+      }
+      return counts;
+    } finally {
+      cursor.close();
+      QUERY_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * Filter posts down to those whose comments were not fetched since a time
+   *
+   * @param postIds       Candidate posts
+   * @param fetchedBefore Comments fetched before this time count as stale
+   * @return Candidates never fetched or fetched before the time, in the given order
+   */
+  public List<Integer> getStalePostIds(List<Integer> postIds, long fetchedBefore) {
+    List<Integer> stale = new ArrayList<>(postIds);
+    if (postIds.isEmpty()) {
+      return stale;
+    }
+
+    StringBuilder placeholders = new StringBuilder();
+    String[] args = new String[postIds.size() + 1];
+    args[0] = String.valueOf(fetchedBefore);
+    for (int i = 0; i < postIds.size(); i++) {
+      placeholders.append(i == 0 ? "?" : ", ?");
+      args[i + 1] = String.valueOf(postIds.get(i));
+    }
+
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.rawQuery(
+        "SELECT " + DatabaseHelper.COLUMN_POST_ID + " FROM " + DatabaseHelper.TABLE_COMMENT_FETCHES +
+            " WHERE " + DatabaseHelper.COLUMN_FETCHED_AT + " >= ?" +
+            " AND " + DatabaseHelper.COLUMN_POST_ID + " IN (" + placeholders + ")",
+        args);
+
+    try {
+      while (cursor.moveToNext()) {
+        stale.remove(Integer.valueOf(cursor.getInt(0)));
+      }
+    } finally {
+      cursor.close();
+    }
+    return stale;
+  }
+
+  private List<Comment> readComments(Cursor cursor) {
+    List<Comment> comments = new ArrayList<>(cursor.getCount());
+    int id = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+    int postId = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_POST_ID);
+    int name = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NAME);
+    int email = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EMAIL);
+    int body = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_BODY);
+    while (cursor.moveToNext()) {
+      comments.add(new Comment(cursor.getInt(id), cursor.getInt(postId), cursor.getString(name),
+          cursor.getString(email), cursor.getString(body)));
+    }
+    return comments;
+  }
+}
@@ -0,0 +1,140 @@
+package com.example.hifzaa4.database;
+
+import android.content.Context;
+import android.util.SparseIntArray;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.models.Comment;
+import com.example.hifzaa4.network.ApiService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommentStore - Comments of posts, served from SQLite and revalidated from the API
+ * The detail screen reads the cached comments first and refreshes them in the
+ * background; the list prefetches the comments of the rows around the visible
+ * ones in batched requests, which also fills in their comment counts.
+ * Local posts (negative IDs) have no server comments and are never fetched.
+ */
+public class CommentStore {
+
+  // Prefetched comments younger than this are not fetched again
+  private static final long PREFETCH_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  // Posts per comments request, to keep the URL short
+  static final int MAX_BATCH = 50;
+
+  private final CommentRepository repository;
+  private final ApiService apiService;
+
+  // Posts with a prefetch in flight, so scrolling back and forth does not repeat requests
+  private final Set<Integer> prefetching = ConcurrentHashMap.newKeySet();
+
+  // Singleton instance
+  private static CommentStore instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return CommentStore instance
+   */
+  public static synchronized CommentStore getInstance(Context context) {
+    if (instance == null) {
+      instance = new CommentStore(new CommentRepository(context.getApplicationContext()), new ApiService());
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param repository Local comment cache
+   * @param apiService API the comments come from
+   */
+  CommentStore(CommentRepository repository, ApiService apiService) {
+    this.repository = repository;
+    this.apiService = apiService;
+  }
+
+  /**
+   * Get the cached comments of a post on the IO pool
+   *
+   * @param postId Post ID
+   * @return Future of the cached comments (empty if none are cached)
+   */
+  public CompletableFuture<List<Comment>> getCommentsAsync(int postId) {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, () -> repository.getComments(postId));
+  }
+
+  /**
+   * Fetch the comments of a post and store them
+   *
+   * @param postId Post ID
+   * @return Future of the new comments, or of null if they did not change
+   */
+  public CompletableFuture<List<Comment>> refreshComments(int postId) {
+    if (postId <= 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    List<Integer> postIds = Collections.singletonList(postId);
+    return Futures.flatMap(apiService.fetchCommentsAsync(postIds, Priority.HIGH),
+        comments -> Futures.supply(AppExecutors.get().dbWrite(), Priority.NORMAL, () -> {
+          Set<Integer> changed = repository.replaceComments(postIds, comments, System.currentTimeMillis());
+          return changed.isEmpty() ? null : repository.getComments(postId);
+        }), Runnable::run);
+  }
+
+  /**
+   * Fetch the comments of posts the user is likely to open next
+   * Posts fetched within the last hour, or already being prefetched, are skipped;
+   * the rest are fetched MAX_BATCH posts per request, with LOW priority.
+   *
+   * @param postIds Posts in the order they should be fetched
+   * @return Future of whether any cached comments (and so counts) changed
+   */
+  public CompletableFuture<Boolean> prefetch(List<Integer> postIds) {
+    List<Integer> candidates = new ArrayList<>();
+    for (Integer postId : postIds) {
+      if (postId > 0 && prefetching.add(postId)) {
+        candidates.add(postId);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    CompletableFuture<Boolean> result = Futures.supply(AppExecutors.get().io(), Priority.LOW, () -> {
+      long fetchedBefore = System.currentTimeMillis() - PREFETCH_MAX_AGE_MILLIS;
+      List<Integer> stale = repository.getStalePostIds(candidates, fetchedBefore);
+      boolean changed = false;
+      for (int from = 0; from < stale.size(); from += MAX_BATCH) {
+        List<Integer> batch = stale.subList(from, Math.min(stale.size(), from + MAX_BATCH));
+        List<Comment> comments = apiService.fetchCommentsBlocking(batch);
+        Set<Integer> changedPosts = Futures.supply(AppExecutors.get().dbWrite(), Priority.LOW,
+            () -> repository.replaceComments(batch, comments, System.currentTimeMillis())).get();
+        changed |= !changedPosts.isEmpty();
+      }
+      return changed;
+    });
+    result.whenComplete((changed, error) -> prefetching.removeAll(candidates));
+    return result;
+  }
+
+  /**
+   * Get the comment count of every post whose comments are cached, on the IO pool
+   *
+   * @return Future of comment counts by post ID
+   */
+  public CompletableFuture<SparseIntArray> getCommentCountsAsync() {
+    return Futures.supply(AppExecutors.get().io(), Priority.NORMAL, repository::getCommentCounts);
+  }
+}
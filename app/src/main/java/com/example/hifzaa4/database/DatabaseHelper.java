@@ -4,6 +4,8 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.example.hifzaa4.models.Post;
+
 /**
  * DatabaseHelper - SQLite database creation and version management
  * Handles table creation and database upgrades
@@ -12,11 +14,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
   // Database info
   private static final String DATABASE_NAME = "data_viewer.db";
-  private static final int DATABASE_VERSION = 2; // Incremented version
+  private static final int DATABASE_VERSION = 9; // Incremented version
 
   // Table names
   public static final String TABLE_POSTS = "posts";
   public static final String TABLE_USERS = "users";
+  public static final String TABLE_OUTBOX = "outbox";
+  public static final String TABLE_CONFLICTS = "conflicts";
+  public static final String TABLE_COMMENTS = "comments";
+  public static final String TABLE_COMMENT_FETCHES = "comment_fetches";
+  public static final String TABLE_AUTHORS = "authors"; // API users; "users" holds the local logins
+  public static final String TABLE_VALIDATORS = "validators";
+  public static final String TABLE_LOCAL_IDS = "local_ids"; // Counter of local post IDs
 
   // Posts Column names
   public static final String COLUMN_ID = "id";
@@ -24,18 +33,54 @@ public class DatabaseHelper extends SQLiteOpenHelper {
   public static final String COLUMN_TITLE = "title";
   public static final String COLUMN_BODY = "body";
   public static final String COLUMN_IS_FAVORITE = "is_favorite";
+  public static final String COLUMN_BODY_SNIPPET = "body_snippet"; // List preview, filled at write time
+  public static final String COLUMN_CREATED_LOCALLY = "created_locally"; // 1 until a server list contained the post
 
   // Users Column names
   public static final String COLUMN_USERNAME = "username";
   public static final String COLUMN_PASSWORD = "password";
 
+  // Outbox Column names (pending mutations to push to the API)
+  public static final String COLUMN_POST_ID = "post_id";
+  public static final String COLUMN_OPERATION = "operation";
+  public static final String COLUMN_PAYLOAD = "payload";
+  public static final String COLUMN_IDEMPOTENCY_KEY = "idempotency_key";
+  public static final String COLUMN_ATTEMPTS = "attempts";
+  public static final String COLUMN_NEXT_ATTEMPT_AT = "next_attempt_at";
+  public static final String COLUMN_IN_FLIGHT = "in_flight";
+  // The server version the change was made to (the post as stored when it was queued)
+  public static final String COLUMN_BASE_USER_ID = "base_user_id";
+  public static final String COLUMN_BASE_TITLE = "base_title";
+  public static final String COLUMN_BASE_BODY = "base_body";
+
+  // Conflicts Column names (server changes to posts with unsent local edits)
+  public static final String COLUMN_SERVER_USER_ID = "server_user_id";
+  public static final String COLUMN_SERVER_TITLE = "server_title";
+  public static final String COLUMN_SERVER_BODY = "server_body";
+  public static final String COLUMN_DETECTED_AT = "detected_at";
+
+  // Comments Column names (server comments cached per post; id, post_id and body as above)
+  public static final String COLUMN_NAME = "name";
+  public static final String COLUMN_EMAIL = "email";
+
+  // Comment fetches Column names (when the comments of a post were last fetched)
+  public static final String COLUMN_FETCHED_AT = "fetched_at";
+
+  // Authors use id, name, username and email as above
+
+  // Validators Column names (ETag of the cached copy of an API resource)
+  public static final String COLUMN_RESOURCE = "resource";
+  public static final String COLUMN_ETAG = "etag";
+
   // Table creation SQL statements
   private static final String CREATE_TABLE_POSTS = "CREATE TABLE " + TABLE_POSTS + " (" +
       COLUMN_ID + " INTEGER PRIMARY KEY, " +
       COLUMN_USER_ID + " INTEGER NOT NULL, " +
       COLUMN_TITLE + " TEXT NOT NULL, " +
       COLUMN_BODY + " TEXT NOT NULL, " +
-      COLUMN_IS_FAVORITE + " INTEGER DEFAULT 0" +
+      COLUMN_IS_FAVORITE + " INTEGER DEFAULT 0, " +
+      COLUMN_BODY_SNIPPET + " TEXT, " +
+      COLUMN_CREATED_LOCALLY + " INTEGER NOT NULL DEFAULT 0" +
       ");";
 
   private static final String CREATE_TABLE_USERS = "CREATE TABLE " + TABLE_USERS + " (" +
@@ -44,6 +89,64 @@ public class DatabaseHelper extends SQLiteOpenHelper {
       COLUMN_PASSWORD + " TEXT NOT NULL" +
       ");";
 
+  private static final String CREATE_TABLE_OUTBOX = "CREATE TABLE " + TABLE_OUTBOX + " (" +
+      COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " + // Also the send order
+      COLUMN_POST_ID + " INTEGER NOT NULL, " +
+      COLUMN_OPERATION + " TEXT NOT NULL, " +
+      COLUMN_PAYLOAD + " TEXT, " +
+      COLUMN_IDEMPOTENCY_KEY + " TEXT NOT NULL, " +
+      COLUMN_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+      COLUMN_NEXT_ATTEMPT_AT + " INTEGER NOT NULL DEFAULT 0, " +
+      COLUMN_IN_FLIGHT + " INTEGER NOT NULL DEFAULT 0, " +
+      COLUMN_BASE_USER_ID + " INTEGER, " +
+      COLUMN_BASE_TITLE + " TEXT, " +
+      COLUMN_BASE_BODY + " TEXT" +
+      ");";
+
+  private static final String CREATE_INDEX_OUTBOX_POST = "CREATE INDEX outbox_post_id ON " +
+      TABLE_OUTBOX + " (" + COLUMN_POST_ID + ")";
+
+  private static final String CREATE_TABLE_CONFLICTS = "CREATE TABLE " + TABLE_CONFLICTS + " (" +
+      COLUMN_POST_ID + " INTEGER PRIMARY KEY, " + // Latest server version per post
+      COLUMN_SERVER_USER_ID + " INTEGER NOT NULL, " +
+      COLUMN_SERVER_TITLE + " TEXT NOT NULL, " +
+      COLUMN_SERVER_BODY + " TEXT NOT NULL, " +
+      COLUMN_DETECTED_AT + " INTEGER NOT NULL" +
+      ");";
+
+  private static final String CREATE_TABLE_COMMENTS = "CREATE TABLE " + TABLE_COMMENTS + " (" +
+      COLUMN_ID + " INTEGER PRIMARY KEY, " + // Server ID
+      COLUMN_POST_ID + " INTEGER NOT NULL, " +
+      COLUMN_NAME + " TEXT, " +
+      COLUMN_EMAIL + " TEXT, " +
+      COLUMN_BODY + " TEXT NOT NULL" +
+      ");";
+
+  private static final String CREATE_INDEX_COMMENTS_POST = "CREATE INDEX comments_post_id ON " +
+      TABLE_COMMENTS + " (" + COLUMN_POST_ID + ")";
+
+  private static final String CREATE_TABLE_COMMENT_FETCHES = "CREATE TABLE " + TABLE_COMMENT_FETCHES + " (" +
+      COLUMN_POST_ID + " INTEGER PRIMARY KEY, " + // Also posts with no comments
+      COLUMN_FETCHED_AT + " INTEGER NOT NULL" +
+      ");";
+
+  private static final String CREATE_TABLE_AUTHORS = "CREATE TABLE " + TABLE_AUTHORS + " (" +
+      COLUMN_ID + " INTEGER PRIMARY KEY, " + // Server ID, the user_id of posts
+      COLUMN_NAME + " TEXT NOT NULL, " +
+      COLUMN_USERNAME + " TEXT, " +
+      COLUMN_EMAIL + " TEXT" +
+      ");";
+
+  private static final String CREATE_TABLE_VALIDATORS = "CREATE TABLE " + TABLE_VALIDATORS + " (" +
+      COLUMN_RESOURCE + " TEXT PRIMARY KEY, " + // API path, e.g. /users
+      COLUMN_ETAG + " TEXT NOT NULL" +
+      ");";
+
+  // Rows are inserted and deleted again; AUTOINCREMENT never hands out an ID twice
+  private static final String CREATE_TABLE_LOCAL_IDS = "CREATE TABLE " + TABLE_LOCAL_IDS + " (" +
+      COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT" +
+      ");";
+
   // Singleton instance
   private static DatabaseHelper instance;
 
@@ -60,6 +163,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     return instance;
   }
 
+  /**
+   * Close and drop the singleton so the next getInstance() opens a fresh helper (used by tests)
+   */
+  public static synchronized void resetInstance() {
+    if (instance != null) {
+      instance.close();
+      instance = null;
+    }
+  }
+
   /**
    * Private constructor (use getInstance())
    * 
@@ -74,19 +187,89 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     // Create tables
     db.execSQL(CREATE_TABLE_POSTS);
     db.execSQL(CREATE_TABLE_USERS);
+    db.execSQL(CREATE_TABLE_OUTBOX);
+    db.execSQL(CREATE_INDEX_OUTBOX_POST);
+    db.execSQL(CREATE_TABLE_CONFLICTS);
+    createCommentTables(db);
+    createAuthorTables(db);
+    db.execSQL(CREATE_TABLE_LOCAL_IDS);
   }
 
   @Override
   public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-    // Simple upgrade strategy: drop and recreate
-    // For production, implement proper migration
+    if (oldVersion < 2) {
+      // Versions before 2 had no users table: drop and recreate
+      recreate(db);
+      return;
+    }
+
+    // Incremental migrations keep local posts, edits and favorites
+    if (oldVersion < 3) {
+      db.execSQL("ALTER TABLE " + TABLE_POSTS + " ADD COLUMN " + COLUMN_BODY_SNIPPET + " TEXT");
+      db.execSQL("UPDATE " + TABLE_POSTS + " SET " + COLUMN_BODY_SNIPPET +
+          " = substr(" + COLUMN_BODY + ", 1, " + Post.SNIPPET_LENGTH + ")");
+    }
+    if (oldVersion < 4) {
+      db.execSQL(CREATE_TABLE_OUTBOX);
+      db.execSQL(CREATE_INDEX_OUTBOX_POST);
+    }
+    if (oldVersion < 5) {
+      db.execSQL(CREATE_TABLE_CONFLICTS);
+    }
+    if (oldVersion < 6) {
+      createCommentTables(db);
+    }
+    if (oldVersion < 7) {
+      createAuthorTables(db);
+    }
+    if (oldVersion < 8) {
+      if (oldVersion >= 4) {
+        db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN " + COLUMN_BASE_USER_ID + " INTEGER");
+        db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN " + COLUMN_BASE_TITLE + " TEXT");
+        db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN " + COLUMN_BASE_BODY + " TEXT");
+      }
+      db.execSQL(CREATE_TABLE_LOCAL_IDS);
+      // Continue below the local IDs in use, including those of deleted posts still in the outbox
+      db.execSQL("INSERT INTO " + TABLE_LOCAL_IDS + " (" + COLUMN_ID + ") SELECT MAX(0," +
+          " -COALESCE((SELECT MIN(" + COLUMN_ID + ") FROM " + TABLE_POSTS + "), 0)," +
+          " -COALESCE((SELECT MIN(" + COLUMN_POST_ID + ") FROM " + TABLE_OUTBOX + "), 0))");
+      db.execSQL("DELETE FROM " + TABLE_LOCAL_IDS);
+    }
+    if (oldVersion < 9) {
+      db.execSQL("ALTER TABLE " + TABLE_POSTS + " ADD COLUMN " + COLUMN_CREATED_LOCALLY +
+          " INTEGER NOT NULL DEFAULT 0");
+    }
+  }
+
+  @Override
+  public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    recreate(db);
+  }
+
+  /**
+   * Drop and recreate all tables
+   */
+  private void recreate(SQLiteDatabase db) {
     db.execSQL("DROP TABLE IF EXISTS " + TABLE_POSTS);
     db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_OUTBOX);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_CONFLICTS);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_COMMENTS);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_COMMENT_FETCHES);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_AUTHORS);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_VALIDATORS);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_LOCAL_IDS);
     onCreate(db);
   }
 
-  @Override
-  public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-    onUpgrade(db, oldVersion, newVersion);
+  private void createCommentTables(SQLiteDatabase db) {
+    db.execSQL(CREATE_TABLE_COMMENTS);
+    db.execSQL(CREATE_INDEX_COMMENTS_POST);
+    db.execSQL(CREATE_TABLE_COMMENT_FETCHES);
+  }
+
+  private void createAuthorTables(SQLiteDatabase db) {
+    db.execSQL(CREATE_TABLE_AUTHORS);
+    db.execSQL(CREATE_TABLE_VALIDATORS);
   }
 }
@@ -0,0 +1,367 @@
+package com.example.hifzaa4.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.hifzaa4.json.JsonFormatException;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.models.Post;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * OutboxRepository - Persistent queue of local post changes for the API
+ * Changes are coalesced per post as they are queued; mutations for one post
+ * are handed out one at a time, oldest first, so they reach the server in order
+ */
+public class OutboxRepository {
+
+  private static final String TAG = "OutboxRepository";
+
+  private static final String[] COLUMNS = {
+      DatabaseHelper.COLUMN_ID,
+      DatabaseHelper.COLUMN_POST_ID,
+      DatabaseHelper.COLUMN_OPERATION,
+      DatabaseHelper.COLUMN_PAYLOAD,
+      DatabaseHelper.COLUMN_IDEMPOTENCY_KEY,
+      DatabaseHelper.COLUMN_ATTEMPTS,
+      DatabaseHelper.COLUMN_IN_FLIGHT,
+      DatabaseHelper.COLUMN_NEXT_ATTEMPT_AT
+  };
+
+  private final DatabaseHelper dbHelper;
+  private final PostSnapshot snapshot;
+
+  /**
+   * Constructor
+   *
+   * @param context Application context
+   */
+  public OutboxRepository(Context context) {
+    dbHelper = DatabaseHelper.getInstance(context);
+    snapshot = PostSnapshot.getInstance(context);
+  }
+
+  /**
+   * Queue a mutation, merging it into the post's latest queued mutation when
+   * that one has not been tried yet
+   * Call before the local write: a new row records the post as stored now as the
+   * version the change is based on (a merged row keeps its own), so a merge can
+   * tell a real server change from the local edit (see PostMerger)
+   *
+   * @param mutation New mutation
+   */
+  public void enqueue(PendingMutation mutation) {
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      PendingMutation latest = null;
+      boolean latestIdle = false;
+      Cursor cursor = db.query(DatabaseHelper.TABLE_OUTBOX, COLUMNS,
+          DatabaseHelper.COLUMN_POST_ID + " = ?",
+          new String[] { String.valueOf(mutation.getPostId()) },
+          null, null, DatabaseHelper.COLUMN_ID + " DESC", "1");
+      try {
+        if (cursor.moveToFirst()) {
+          latest = readMutation(cursor);
+          latestIdle = cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IN_FLIGHT)) == 0;
+        }
+      } finally {
+        cursor.close();
+      }
+
+      if (latest != null && latestIdle && latest.getAttempts() == 0) {
+        // Never sent, so it can still be rewritten
+        PendingMutation merged = PendingMutation.coalesce(latest, mutation);
+        String[] rowArgs = { String.valueOf(latest.getRowId()) };
+        if (merged == null) {
+          db.delete(DatabaseHelper.TABLE_OUTBOX, DatabaseHelper.COLUMN_ID + " = ?", rowArgs);
+        } else {
+          ContentValues values = new ContentValues();
+          values.put(DatabaseHelper.COLUMN_OPERATION, merged.getOperation().name());
+          values.put(DatabaseHelper.COLUMN_PAYLOAD, merged.getPayload());
+          values.put(DatabaseHelper.COLUMN_IDEMPOTENCY_KEY, merged.getIdempotencyKey());
+          db.update(DatabaseHelper.TABLE_OUTBOX, values, DatabaseHelper.COLUMN_ID + " = ?", rowArgs);
+        }
+      } else {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_POST_ID, mutation.getPostId());
+        values.put(DatabaseHelper.COLUMN_OPERATION, mutation.getOperation().name());
+        values.put(DatabaseHelper.COLUMN_PAYLOAD, mutation.getPayload());
+        values.put(DatabaseHelper.COLUMN_IDEMPOTENCY_KEY, mutation.getIdempotencyKey());
+        putBase(db, mutation.getPostId(), values);
+        db.insert(DatabaseHelper.TABLE_OUTBOX, null, values);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  /**
+   * Claim mutations that are due, at most one per post, and mark them in flight
+   * A post with a mutation already in flight is skipped until that one settles
+   *
+   * @param limit Maximum number of mutations
+   * @param now   Current time (ms)
+   * @return Claimed mutations in queue order
+   */
+  public List<PendingMutation> claimBatch(int limit, long now) {
+    List<PendingMutation> batch = new ArrayList<>();
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      Set<Integer> seenPosts = new HashSet<>();
+      Cursor cursor = db.query(DatabaseHelper.TABLE_OUTBOX, COLUMNS,
+          null, null, null, null, DatabaseHelper.COLUMN_ID + " ASC");
+      try {
+        int inFlightIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IN_FLIGHT);
+        int nextAttemptIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NEXT_ATTEMPT_AT);
+        while (batch.size() < limit && cursor.moveToNext()) {
+          PendingMutation mutation = readMutation(cursor);
+          // Only the oldest mutation of each post is eligible
+          if (!seenPosts.add(mutation.getPostId())) {
+            continue;
+          }
+          if (cursor.getInt(inFlightIndex) == 0 && cursor.getLong(nextAttemptIndex) <= now) {
+            batch.add(mutation);
+          }
+        }
+      } finally {
+        cursor.close();
+      }
+
+      ContentValues values = new ContentValues();
+      values.put(DatabaseHelper.COLUMN_IN_FLIGHT, 1);
+      for (PendingMutation mutation : batch) {
+        db.update(DatabaseHelper.TABLE_OUTBOX, values, DatabaseHelper.COLUMN_ID + " = ?",
+            new String[] { String.valueOf(mutation.getRowId()) });
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    return batch;
+  }
+
+  /**
+   * Remove a mutation once the server accepted it (or it was given up on)
+   *
+   * @param rowId Outbox row ID
+   */
+  public void remove(long rowId) {
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.delete(DatabaseHelper.TABLE_OUTBOX, DatabaseHelper.COLUMN_ID + " = ?",
+        new String[] { String.valueOf(rowId) });
+  }
+
+  /**
+   * Settle a CREATE the server accepted, moving the post to the ID it assigned
+   * The mutation is removed, and the post row and the post's queued mutations
+   * (path and payload) are renumbered, in one transaction. The renumbered row is
+   * marked as created locally, so a complete merge keeps it until a server list
+   * has contained it (see PostMerger). The post keeps its ID if the server sent
+   * none or if the new ID is already taken locally; its later edits are then sent
+   * as new posts again (see OutboxSender).
+   *
+   * @param create   The sent CREATE
+   * @param serverId ID in the server's response, or 0 if none
+   * @return true if the post was renumbered
+   */
+  public boolean completeCreate(PendingMutation create, int serverId) {
+    int localId = create.getPostId();
+    boolean renumbered = false;
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      db.delete(DatabaseHelper.TABLE_OUTBOX, DatabaseHelper.COLUMN_ID + " = ?",
+          new String[] { String.valueOf(create.getRowId()) });
+      if (serverId > 0 && serverId != localId && !postExists(db, serverId)) {
+        ContentValues postValues = new ContentValues();
+        postValues.put(DatabaseHelper.COLUMN_ID, serverId);
+        postValues.put(DatabaseHelper.COLUMN_CREATED_LOCALLY, 1);
+        db.update(DatabaseHelper.TABLE_POSTS, postValues, DatabaseHelper.COLUMN_ID + " = ?",
+            new String[] { String.valueOf(localId) });
+        renumberMutations(db, localId, serverId);
+        renumbered = true;
+      } else if (serverId != localId) {
+        Log.w(TAG, "Post " + localId + " keeps its ID, the server assigned " + serverId);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    if (renumbered) {
+      snapshot.invalidate(); // Committed only now
+    }
+    return renumbered;
+  }
+
+  /**
+   * Queue an update again as a CREATE, for a post the server no longer has
+   * The mutation gets a fresh idempotency key and is due at once; the post
+   * keeps its ID until the server assigns a new one (see completeCreate())
+   *
+   * @param update The UPDATE that got a 404
+   */
+  public void resendAsCreate(PendingMutation update) {
+    PendingMutation create = update.asCreate();
+    ContentValues values = new ContentValues();
+    values.put(DatabaseHelper.COLUMN_OPERATION, create.getOperation().name());
+    values.put(DatabaseHelper.COLUMN_IDEMPOTENCY_KEY, create.getIdempotencyKey());
+    values.put(DatabaseHelper.COLUMN_ATTEMPTS, 0);
+    values.put(DatabaseHelper.COLUMN_IN_FLIGHT, 0);
+    values.put(DatabaseHelper.COLUMN_NEXT_ATTEMPT_AT, 0);
+    dbHelper.getWritableDatabase().update(DatabaseHelper.TABLE_OUTBOX, values,
+        DatabaseHelper.COLUMN_ID + " = ?", new String[] { String.valueOf(create.getRowId()) });
+  }
+
+  /**
+   * Record a failed attempt and when to try again
+   *
+   * @param rowId         Outbox row ID
+   * @param nextAttemptAt Earliest time for the next attempt (ms)
+   */
+  public void markFailed(long rowId, long nextAttemptAt) {
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.execSQL("UPDATE " + DatabaseHelper.TABLE_OUTBOX + " SET " +
+        DatabaseHelper.COLUMN_ATTEMPTS + " = " + DatabaseHelper.COLUMN_ATTEMPTS + " + 1, " +
+        DatabaseHelper.COLUMN_IN_FLIGHT + " = 0, " +
+        DatabaseHelper.COLUMN_NEXT_ATTEMPT_AT + " = ? WHERE " + DatabaseHelper.COLUMN_ID + " = ?",
+        new Object[] { nextAttemptAt, rowId });
+  }
+
+  /**
+   * Return mutations left in flight by a previous process to the queue
+   * They may have reached the server, so each counts as an attempt: enqueue()
+   * then no longer merges new changes into a request sent under the same key
+   */
+  public void releaseInFlight() {
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.execSQL("UPDATE " + DatabaseHelper.TABLE_OUTBOX + " SET " +
+        DatabaseHelper.COLUMN_ATTEMPTS + " = " + DatabaseHelper.COLUMN_ATTEMPTS + " + 1, " +
+        DatabaseHelper.COLUMN_IN_FLIGHT + " = 0 WHERE " + DatabaseHelper.COLUMN_IN_FLIGHT + " = 1");
+  }
+
+  /**
+   * Earliest time a queued mutation may be sent
+   *
+   * @return Time in ms, or -1 if nothing is waiting
+   */
+  public long getNextAttemptTime() {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.rawQuery("SELECT MIN(" + DatabaseHelper.COLUMN_NEXT_ATTEMPT_AT + ") FROM " +
+        DatabaseHelper.TABLE_OUTBOX + " WHERE " + DatabaseHelper.COLUMN_IN_FLIGHT + " = 0", null);
+    try {
+      return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : -1;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Check if a post has changes waiting to be sent
+   *
+   * @param postId Post ID
+   * @return true if the outbox holds a mutation for the post
+   */
+  public boolean hasPending(int postId) {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.query(DatabaseHelper.TABLE_OUTBOX, new String[] { DatabaseHelper.COLUMN_ID },
+        DatabaseHelper.COLUMN_POST_ID + " = ?", new String[] { String.valueOf(postId) }, null, null, null, "1");
+    try {
+      return cursor.moveToFirst();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Get number of queued mutations
+   */
+  public int getPendingCount() {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_OUTBOX, null);
+    try {
+      return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Add the stored version of a post as the base of a new mutation (none for a post not stored yet)
+   */
+  private static void putBase(SQLiteDatabase db, int postId, ContentValues values) {
+    Cursor cursor = db.query(DatabaseHelper.TABLE_POSTS,
+        new String[] { DatabaseHelper.COLUMN_USER_ID, DatabaseHelper.COLUMN_TITLE, DatabaseHelper.COLUMN_BODY },
+        DatabaseHelper.COLUMN_ID + " = ?", new String[] { String.valueOf(postId) }, null, null, null);
+    try {
+      if (cursor.moveToFirst()) {
+        values.put(DatabaseHelper.COLUMN_BASE_USER_ID, cursor.getInt(0));
+        values.put(DatabaseHelper.COLUMN_BASE_TITLE, cursor.getString(1));
+        values.put(DatabaseHelper.COLUMN_BASE_BODY, cursor.getString(2));
+      }
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static boolean postExists(SQLiteDatabase db, int postId) {
+    Cursor cursor = db.query(DatabaseHelper.TABLE_POSTS, new String[] { DatabaseHelper.COLUMN_ID },
+        DatabaseHelper.COLUMN_ID + " = ?", new String[] { String.valueOf(postId) }, null, null, null);
+    try {
+      return cursor.moveToFirst();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Point a post's queued mutations at its new ID, including the ID in their payloads
+   */
+  private static void renumberMutations(SQLiteDatabase db, int oldId, int newId) {
+    List<PendingMutation> mutations = new ArrayList<>();
+    Cursor cursor = db.query(DatabaseHelper.TABLE_OUTBOX, COLUMNS, DatabaseHelper.COLUMN_POST_ID + " = ?",
+        new String[] { String.valueOf(oldId) }, null, null, null);
+    try {
+      while (cursor.moveToNext()) {
+        mutations.add(readMutation(cursor));
+      }
+    } finally {
+      cursor.close();
+    }
+
+    for (PendingMutation mutation : mutations) {
+      ContentValues values = new ContentValues();
+      values.put(DatabaseHelper.COLUMN_POST_ID, newId);
+      if (mutation.getPayload() != null) {
+        try {
+          Post post = PostJsonCodec.decode(mutation.getPayload());
+          post.setId(newId);
+          values.put(DatabaseHelper.COLUMN_PAYLOAD, PostJsonCodec.encode(post));
+        } catch (JsonFormatException e) {
+          Log.w(TAG, "Cannot renumber the payload of " + mutation, e);
+        }
+      }
+      db.update(DatabaseHelper.TABLE_OUTBOX, values, DatabaseHelper.COLUMN_ID + " = ?",
+          new String[] { String.valueOf(mutation.getRowId()) });
+    }
+  }
+
+  private static PendingMutation readMutation(Cursor cursor) {
+    return new PendingMutation(
+        cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)),
+        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_POST_ID)),
+        PendingMutation.Operation.valueOf(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_OPERATION))),
+        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_PAYLOAD)),
+        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IDEMPOTENCY_KEY)),
+        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ATTEMPTS)));
+  }
+}
@@ -0,0 +1,157 @@
+package com.example.hifzaa4.database;
+
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.models.Post;
+
+import java.util.UUID;
+
+/**
+ * PendingMutation - A local change waiting in the outbox to be pushed to the API
+ * Consecutive changes to one post are coalesced before they are sent
+ */
+public class PendingMutation {
+
+  /**
+   * Kind of change and the HTTP method it is sent with
+   * Edits are sent as a PUT of the whole post (HttpURLConnection has no PATCH)
+   */
+  public enum Operation {
+    CREATE("POST"),
+    UPDATE("PUT"),
+    DELETE("DELETE");
+
+    public final String method;
+
+    Operation(String method) {
+      this.method = method;
+    }
+  }
+
+  private final long rowId;
+  private final int postId;
+  private final Operation operation;
+  private final String payload;
+  private final String idempotencyKey;
+  private final int attempts;
+
+  /**
+   * Constructor
+   *
+   * @param rowId          Outbox row ID (0 if not stored yet)
+   * @param postId         Post ID
+   * @param operation      Operation
+   * @param payload        JSON body, or null for deletes
+   * @param idempotencyKey Key sent with every attempt of this mutation
+   * @param attempts       Failed send attempts so far
+   */
+  public PendingMutation(long rowId, int postId, Operation operation, String payload,
+      String idempotencyKey, int attempts) {
+    this.rowId = rowId;
+    this.postId = postId;
+    this.operation = operation;
+    this.payload = payload;
+    this.idempotencyKey = idempotencyKey;
+    this.attempts = attempts;
+  }
+
+  public static PendingMutation create(Post post) {
+    return new PendingMutation(0, post.getId(), Operation.CREATE, PostJsonCodec.encode(post), newKey(), 0);
+  }
+
+  public static PendingMutation update(Post post) {
+    return new PendingMutation(0, post.getId(), Operation.UPDATE, PostJsonCodec.encode(post), newKey(), 0);
+  }
+
+  public static PendingMutation delete(int postId) {
+    return new PendingMutation(0, postId, Operation.DELETE, null, newKey(), 0);
+  }
+
+  /**
+   * Combine an unsent mutation with a newer one for the same post
+   * - create + update = create with the new data
+   * - create + delete = nothing (the server never saw the post)
+   * - update + update = the last update
+   * - update + delete = delete
+   * - delete + create/update = update (the post exists on the server)
+   * The result keeps the pending mutation's row. It keeps the idempotency key
+   * only if the operation is unchanged: a key stands for one request, so a
+   * delete that turned into an update is sent with a fresh key.
+   *
+   * @param pending Mutation already in the outbox, never attempted
+   * @param next    Newer mutation for the same post
+   * @return Combined mutation, or null if the two cancel out
+   */
+  public static PendingMutation coalesce(PendingMutation pending, PendingMutation next) {
+    Operation operation;
+    switch (pending.operation) {
+      case CREATE:
+        if (next.operation == Operation.DELETE) {
+          return null;
+        }
+        operation = Operation.CREATE;
+        break;
+      case UPDATE:
+        operation = next.operation == Operation.DELETE ? Operation.DELETE : Operation.UPDATE;
+        break;
+      default:
+        operation = next.operation == Operation.DELETE ? Operation.DELETE : Operation.UPDATE;
+        break;
+    }
+    String key = operation == pending.operation ? pending.idempotencyKey : newKey();
+    return new PendingMutation(pending.rowId, pending.postId, operation, next.payload, key, pending.attempts);
+  }
+
+  /**
+   * The same post data as a CREATE with a fresh idempotency key, for a post the
+   * server no longer has
+   *
+   * @return New mutation for the same outbox row, not attempted yet
+   */
+  public PendingMutation asCreate() {
+    return new PendingMutation(rowId, postId, Operation.CREATE, payload, newKey(), 0);
+  }
+
+  /**
+   * Request path relative to the API base URL
+   */
+  public String getPath() {
+    return operation == Operation.CREATE ? "/posts" : "/posts/" + postId;
+  }
+
+  public long getRowId() {
+    return rowId;
+  }
+
+  public int getPostId() {
+    return postId;
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  public String getPayload() {
+    return payload;
+  }
+
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  private static String newKey() {
+    return UUID.randomUUID().toString();
+  }
+
+  @Override
+  public String toString() {
+    return "PendingMutation{" +
+        "postId=" + postId +
+        ", operation=" + operation +
+        ", attempts=" + attempts +
+        '}';
+  }
+}
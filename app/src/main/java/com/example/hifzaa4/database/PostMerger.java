@@ -0,0 +1,246 @@
+package com.example.hifzaa4.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.hifzaa4.models.Post;
+
+import java.util.List;
+
+/**
+ * PostMerger - Merges a server refresh into the local posts table
+ * Runs as a few set-based statements in one transaction:
+ * - server fields (user, title, body) are written only for new or changed rows
+ * - local-only fields (favorite) are kept
+ * - posts with queued outbox changes are left alone; if the server's version
+ *   differs from the version the local edit was based on, it is recorded in the
+ *   conflicts table (and dropped again once the edit has been pushed); a post
+ *   showing it reads it with getConflict()
+ * - local posts (negative IDs) are never touched, and posts created here are
+ *   not deleted as missing until a server list has contained them
+ * Server rows are staged in a temp table and joined on the primary key, so the
+ * work done on the posts table is proportional to the rows that changed.
+ */
+public class PostMerger {
+
+  private static final String STAGING = "incoming_posts";
+
+  // Rows in the refresh whose server fields differ from (or are missing in) the local table
+  private static final String CHANGED =
+      " FROM " + STAGING + " i LEFT JOIN " + DatabaseHelper.TABLE_POSTS + " p ON p." +
+          DatabaseHelper.COLUMN_ID + " = i." + DatabaseHelper.COLUMN_ID +
+          " WHERE (p." + DatabaseHelper.COLUMN_ID + " IS NULL" +
+          " OR p." + DatabaseHelper.COLUMN_USER_ID + " IS NOT i." + DatabaseHelper.COLUMN_USER_ID +
+          " OR p." + DatabaseHelper.COLUMN_TITLE + " IS NOT i." + DatabaseHelper.COLUMN_TITLE +
+          " OR p." + DatabaseHelper.COLUMN_BODY + " IS NOT i." + DatabaseHelper.COLUMN_BODY + ")";
+
+  private static final String PENDING_IDS =
+      "SELECT " + DatabaseHelper.COLUMN_POST_ID + " FROM " + DatabaseHelper.TABLE_OUTBOX;
+
+  // Staged rows that still match the version one of their queued changes was based on
+  private static final String MATCHES_BASE =
+      "EXISTS (SELECT 1 FROM " + DatabaseHelper.TABLE_OUTBOX + " o WHERE o." + DatabaseHelper.COLUMN_POST_ID +
+          " = i." + DatabaseHelper.COLUMN_ID +
+          " AND o." + DatabaseHelper.COLUMN_BASE_USER_ID + " IS i." + DatabaseHelper.COLUMN_USER_ID +
+          " AND o." + DatabaseHelper.COLUMN_BASE_TITLE + " IS i." + DatabaseHelper.COLUMN_TITLE +
+          " AND o." + DatabaseHelper.COLUMN_BASE_BODY + " IS i." + DatabaseHelper.COLUMN_BODY + ")";
+
+  /**
+   * Counts of what a merge changed
+   */
+  public static class Result {
+    public final int written;
+    public final int deleted;
+    public final int conflicts;
+
+    Result(int written, int deleted, int conflicts) {
+      this.written = written;
+      this.deleted = deleted;
+      this.conflicts = conflicts;
+    }
+
+    /**
+     * Check if the merge changed the posts table
+     */
+    public boolean hasChanges() {
+      return written > 0 || deleted > 0;
+    }
+
+    @Override
+    public String toString() {
+      return "written=" + written + ", deleted=" + deleted + ", conflicts=" + conflicts;
+    }
+  }
+
+  private final DatabaseHelper dbHelper;
+  private final PostSnapshot snapshot;
+
+  /**
+   * Constructor
+   *
+   * @param context Application context
+   */
+  public PostMerger(Context context) {
+    dbHelper = DatabaseHelper.getInstance(context);
+    snapshot = PostSnapshot.getInstance(context);
+  }
+
+  /**
+   * Merge server posts into the local table
+   *
+   * @param serverPosts Posts from the API
+   * @param complete    true if serverPosts is the full server list, so local
+   *                    server rows missing from it were deleted on the server
+   * @return What changed
+   */
+  public Result merge(List<Post> serverPosts, boolean complete) {
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    Result result;
+
+    db.beginTransaction();
+    try {
+      stage(db, serverPosts);
+
+      // Server changes to posts with unsent local edits become conflicts, unless the
+      // server still has the version the edit was made to
+      int conflicts = executeUpdateDelete(db,
+          "INSERT OR REPLACE INTO " + DatabaseHelper.TABLE_CONFLICTS + " (" +
+              DatabaseHelper.COLUMN_POST_ID + ", " + DatabaseHelper.COLUMN_SERVER_USER_ID + ", " +
+              DatabaseHelper.COLUMN_SERVER_TITLE + ", " + DatabaseHelper.COLUMN_SERVER_BODY + ", " +
+              DatabaseHelper.COLUMN_DETECTED_AT + ")" +
+              " SELECT i." + DatabaseHelper.COLUMN_ID + ", i." + DatabaseHelper.COLUMN_USER_ID +
+              ", i." + DatabaseHelper.COLUMN_TITLE + ", i." + DatabaseHelper.COLUMN_BODY + ", ?" +
+              CHANGED + " AND p." + DatabaseHelper.COLUMN_ID + " IS NOT NULL" +
+              " AND i." + DatabaseHelper.COLUMN_ID + " IN (" + PENDING_IDS + ")" +
+              " AND NOT " + MATCHES_BASE,
+          System.currentTimeMillis());
+      db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_CONFLICTS +
+          " WHERE " + DatabaseHelper.COLUMN_POST_ID + " NOT IN (" + PENDING_IDS + ")");
+
+      // New and changed rows; the favorite flag is carried over from the local row
+      int written = executeUpdateDelete(db,
+          "INSERT OR REPLACE INTO " + DatabaseHelper.TABLE_POSTS + " (" +
+              DatabaseHelper.COLUMN_ID + ", " + DatabaseHelper.COLUMN_USER_ID + ", " +
+              DatabaseHelper.COLUMN_TITLE + ", " + DatabaseHelper.COLUMN_BODY + ", " +
+              DatabaseHelper.COLUMN_BODY_SNIPPET + ", " + DatabaseHelper.COLUMN_IS_FAVORITE + ")" +
+              " SELECT i." + DatabaseHelper.COLUMN_ID + ", i." + DatabaseHelper.COLUMN_USER_ID +
+              ", i." + DatabaseHelper.COLUMN_TITLE + ", i." + DatabaseHelper.COLUMN_BODY +
+              ", i." + DatabaseHelper.COLUMN_BODY_SNIPPET +
+              ", COALESCE(p." + DatabaseHelper.COLUMN_IS_FAVORITE + ", 0)" +
+              CHANGED + " AND i." + DatabaseHelper.COLUMN_ID + " NOT IN (" + PENDING_IDS + ")");
+
+      // Posts created here are server posts from now on
+      db.execSQL("UPDATE " + DatabaseHelper.TABLE_POSTS + " SET " + DatabaseHelper.COLUMN_CREATED_LOCALLY + " = 0" +
+          " WHERE " + DatabaseHelper.COLUMN_CREATED_LOCALLY + " = 1" +
+          " AND " + DatabaseHelper.COLUMN_ID + " IN (SELECT " + DatabaseHelper.COLUMN_ID + " FROM " + STAGING + ")");
+
+      // Server rows that are gone from the server (local posts have negative IDs); a
+      // post created here may be missing from a list fetched before it reached the
+      // server, or from a server that does not store new posts
+      int deleted = 0;
+      if (complete) {
+        deleted = executeUpdateDelete(db,
+            "DELETE FROM " + DatabaseHelper.TABLE_POSTS +
+                " WHERE " + DatabaseHelper.COLUMN_ID + " > 0" +
+                " AND " + DatabaseHelper.COLUMN_CREATED_LOCALLY + " = 0" +
+                " AND " + DatabaseHelper.COLUMN_ID + " NOT IN (SELECT " + DatabaseHelper.COLUMN_ID + " FROM " + STAGING + ")" +
+                " AND " + DatabaseHelper.COLUMN_ID + " NOT IN (" + PENDING_IDS + ")");
+      }
+
+      db.execSQL("DELETE FROM " + STAGING);
+      db.setTransactionSuccessful();
+      result = new Result(written, deleted, conflicts);
+    } finally {
+      db.endTransaction();
+    }
+
+    if (result.hasChanges()) {
+      snapshot.invalidate();
+    }
+    return result;
+  }
+
+  /**
+   * Get number of recorded conflicts
+   */
+  public int getConflictCount() {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_CONFLICTS, null);
+    try {
+      return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Get the server version recorded for a post with unsent local edits
+   *
+   * @param postId Post ID
+   * @return Server version, or null if there is no conflict
+   */
+  public Post getConflict(int postId) {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    Cursor cursor = db.query(DatabaseHelper.TABLE_CONFLICTS,
+        new String[] { DatabaseHelper.COLUMN_SERVER_USER_ID, DatabaseHelper.COLUMN_SERVER_TITLE,
+            DatabaseHelper.COLUMN_SERVER_BODY },
+        DatabaseHelper.COLUMN_POST_ID + " = ?", new String[] { String.valueOf(postId) }, null, null, null);
+    try {
+      if (cursor.moveToFirst()) {
+        return new Post(postId, cursor.getInt(0), cursor.getString(1), cursor.getString(2), false);
+      }
+    } finally {
+      cursor.close();
+    }
+    return null;
+  }
+
+  /**
+   * Load the server posts into a temp table on the transaction's connection
+   */
+  private static void stage(SQLiteDatabase db, List<Post> serverPosts) {
+    db.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + STAGING + " (" +
+        DatabaseHelper.COLUMN_ID + " INTEGER PRIMARY KEY, " +
+        DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+        DatabaseHelper.COLUMN_TITLE + " TEXT NOT NULL, " +
+        DatabaseHelper.COLUMN_BODY + " TEXT NOT NULL, " +
+        DatabaseHelper.COLUMN_BODY_SNIPPET + " TEXT)");
+    db.execSQL("DELETE FROM " + STAGING);
+
+    SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + STAGING + " VALUES (?, ?, ?, ?, ?)");
+    try {
+      for (Post post : serverPosts) {
+        insert.bindLong(1, post.getId());
+        insert.bindLong(2, post.getUserId());
+        insert.bindString(3, nonNull(post.getTitle()));
+        insert.bindString(4, nonNull(post.getBody()));
+        insert.bindString(5, nonNull(Post.makeSnippet(post.getBody())));
+        insert.executeInsert();
+      }
+    } finally {
+      insert.close();
+    }
+  }
+
+  /**
+   * Run one statement and return the number of rows it changed
+   */
+  private static int executeUpdateDelete(SQLiteDatabase db, String sql, Object... bindArgs) {
+    SQLiteStatement statement = db.compileStatement(sql);
+    try {
+      for (int i = 0; i < bindArgs.length; i++) {
+        DatabaseUtils.bindObjectToProgram(statement, i + 1, bindArgs[i]);
+      }
+      return statement.executeUpdateDelete();
+    } finally {
+      statement.close();
+    }
+  }
+
+  private static String nonNull(String value) {
+    return value != null ? value : "";
+  }
+}
@@ -5,18 +5,47 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.metrics.Tracer;
 import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.models.PostColumnStore;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * PostRepository - Repository class for Post CRUD operations
  * Provides data access layer for Posts table
+ * The ...Async variants run reads on the IO pool and writes on the db-write
+ * thread, for composing with network calls (see Futures).
  */
 public class PostRepository {
 
+  // List projection: everything but the full body, which is loaded only for the detail screen
+  private static final String[] LIST_COLUMNS = {
+      DatabaseHelper.COLUMN_ID,
+      DatabaseHelper.COLUMN_USER_ID,
+      DatabaseHelper.COLUMN_TITLE,
+      DatabaseHelper.COLUMN_IS_FAVORITE,
+      "COALESCE(" + DatabaseHelper.COLUMN_BODY_SNIPPET + ", substr(" + DatabaseHelper.COLUMN_BODY +
+          ", 1, " + Post.SNIPPET_LENGTH + ")) AS " + DatabaseHelper.COLUMN_BODY_SNIPPET
+  };
+
+  // Timings of the hot paths
+  private static final Timer QUERY_TIMER = MetricsRegistry.get().timer("db.posts.query");
+  private static final Timer INSERT_TIMER = MetricsRegistry.get().timer("db.posts.insert");
+  private static final Timer WRITE_TIMER = MetricsRegistry.get().timer("db.posts.write");
+  private static final Counter SNAPSHOT_HITS = MetricsRegistry.get().counter("cache.snapshot.hit");
+  private static final Counter SNAPSHOT_MISSES = MetricsRegistry.get().counter("cache.snapshot.miss");
+
   private final DatabaseHelper dbHelper;
+  private final PostSnapshot snapshot;
 
   /**
    * Constructor
@@ -25,6 +54,7 @@ public class PostRepository {
    */
   public PostRepository(Context context) {
     dbHelper = DatabaseHelper.getInstance(context);
+    snapshot = PostSnapshot.getInstance(context);
   }
 
   /**
@@ -34,15 +64,21 @@ public class PostRepository {
    * @return Row ID of inserted post, or -1 if error
    */
   public long insertPost(Post post) {
+    long start = INSERT_TIMER.start();
     SQLiteDatabase db = dbHelper.getWritableDatabase();
     ContentValues values = createContentValues(post);
 
-    // Use REPLACE to handle conflicts (update if exists)
-    return db.insertWithOnConflict(
-        DatabaseHelper.TABLE_POSTS,
-        null,
-        values,
-        SQLiteDatabase.CONFLICT_REPLACE);
+    try {
+      // Use REPLACE to handle conflicts (update if exists)
+      return db.insertWithOnConflict(
+          DatabaseHelper.TABLE_POSTS,
+          null,
+          values,
+          SQLiteDatabase.CONFLICT_REPLACE);
+    } finally {
+      snapshot.invalidate();
+      INSERT_TIMER.stop(start);
+    }
   }
 
   /**
@@ -51,9 +87,11 @@ public class PostRepository {
    * @param posts List of posts to insert
    */
   public void insertPosts(List<Post> posts) {
+    long start = INSERT_TIMER.start();
     SQLiteDatabase db = dbHelper.getWritableDatabase();
     db.beginTransaction();
 
+    Tracer.begin("PostRepository.insertPosts");
     try {
       for (Post post : posts) {
         ContentValues values = createContentValues(post);
@@ -66,6 +104,9 @@ public class PostRepository {
       db.setTransactionSuccessful();
     } finally {
       db.endTransaction();
+      snapshot.invalidate();
+      Tracer.end();
+      INSERT_TIMER.stop(start);
     }
   }
 
@@ -75,24 +116,125 @@ public class PostRepository {
    * @return List of all posts
    */
   public List<Post> getAllPosts() {
+    long start = QUERY_TIMER.start();
+    List<Post> posts = new ArrayList<>();
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+    Tracer.begin("PostRepository.getAllPosts");
+    Cursor cursor = null;
+    try {
+      cursor = db.query(
+          DatabaseHelper.TABLE_POSTS,
+          null,
+          null,
+          null,
+          null,
+          null,
+          DatabaseHelper.COLUMN_ID + " DESC");
+      readPosts(cursor, posts);
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+      Tracer.end();
+      QUERY_TIMER.stop(start);
+    }
+
+    return posts;
+  }
+
+  /**
+   * Get all posts for the list screen
+   * Loads a body snippet instead of the full body; use getPostById() for the full post
+   * 
+   * @return List of posts with isBodyLoaded() == false
+   */
+  public List<Post> getPostSummaries() {
+    long start = QUERY_TIMER.start();
     List<Post> posts = new ArrayList<>();
     SQLiteDatabase db = dbHelper.getReadableDatabase();
 
     Cursor cursor = db.query(
         DatabaseHelper.TABLE_POSTS,
+        LIST_COLUMNS,
         null,
         null,
         null,
         null,
+        DatabaseHelper.COLUMN_ID + " DESC");
+
+    try {
+      readPosts(cursor, posts);
+    } finally {
+      cursor.close();
+      QUERY_TIMER.stop(start);
+    }
+
+    return posts;
+  }
+
+  /**
+   * Get all posts for the list straight into a column store, newest first
+   * Rows go from the cursor into the columns without a Post per row
+   *
+   * @return Column store of list rows
+   */
+  public PostColumnStore getPostSummaryColumns() {
+    long start = QUERY_TIMER.start();
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+    Cursor cursor = db.query(
+        DatabaseHelper.TABLE_POSTS,
+        LIST_COLUMNS,
+        null,
+        null,
+        null,
         null,
         DatabaseHelper.COLUMN_ID + " DESC");
 
     try {
+      PostColumnStore store = new PostColumnStore(cursor.getCount());
+      PostRowMapper mapper = new PostRowMapper(cursor);
       while (cursor.moveToNext()) {
-        posts.add(cursorToPost(cursor));
+        mapper.addTo(cursor, store);
       }
+      store.trimToSize();
+      return store;
+    } finally {
+      cursor.close();
+      QUERY_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * Get one page of list posts, newest first (keyset pagination)
+   * The cursor window is sized to the page instead of the default 2 MB
+   * 
+   * @param beforeId Return posts with an ID below this (Integer.MAX_VALUE for the first page)
+   * @param pageSize Maximum number of posts
+   * @return Page of posts with isBodyLoaded() == false
+   */
+  public List<Post> getPostSummaryPage(int beforeId, int pageSize) {
+    long start = QUERY_TIMER.start();
+    List<Post> posts = new ArrayList<>(pageSize);
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+    Cursor cursor = db.query(
+        DatabaseHelper.TABLE_POSTS,
+        LIST_COLUMNS,
+        DatabaseHelper.COLUMN_ID + " < ?",
+        new String[] { String.valueOf(beforeId) },
+        null,
+        null,
+        DatabaseHelper.COLUMN_ID + " DESC",
+        String.valueOf(pageSize));
+
+    try {
+      PostRowMapper.fitWindowToPage(cursor, pageSize);
+      readPosts(cursor, posts);
     } finally {
       cursor.close();
+      QUERY_TIMER.stop(start);
     }
 
     return posts;
@@ -105,6 +247,7 @@ public class PostRepository {
    * @return Post or null if not found
    */
   public Post getPostById(int postId) {
+    long start = QUERY_TIMER.start();
     SQLiteDatabase db = dbHelper.getReadableDatabase();
 
     Cursor cursor = db.query(
@@ -118,10 +261,11 @@ public class PostRepository {
 
     try {
       if (cursor.moveToFirst()) {
-        return cursorToPost(cursor);
+        return new PostRowMapper(cursor).map(cursor);
       }
     } finally {
       cursor.close();
+      QUERY_TIMER.stop(start);
     }
 
     return null;
@@ -134,14 +278,20 @@ public class PostRepository {
    * @return Number of rows affected
    */
   public int updatePost(Post post) {
+    long start = WRITE_TIMER.start();
     SQLiteDatabase db = dbHelper.getWritableDatabase();
     ContentValues values = createContentValues(post);
 
-    return db.update(
-        DatabaseHelper.TABLE_POSTS,
-        values,
-        DatabaseHelper.COLUMN_ID + " = ?",
-        new String[] { String.valueOf(post.getId()) });
+    try {
+      return db.update(
+          DatabaseHelper.TABLE_POSTS,
+          values,
+          DatabaseHelper.COLUMN_ID + " = ?",
+          new String[] { String.valueOf(post.getId()) });
+    } finally {
+      snapshot.invalidate();
+      WRITE_TIMER.stop(start);
+    }
   }
 
   /**
@@ -151,12 +301,18 @@ public class PostRepository {
    * @return Number of rows affected
    */
   public int deletePost(int postId) {
+    long start = WRITE_TIMER.start();
     SQLiteDatabase db = dbHelper.getWritableDatabase();
 
-    return db.delete(
-        DatabaseHelper.TABLE_POSTS,
-        DatabaseHelper.COLUMN_ID + " = ?",
-        new String[] { String.valueOf(postId) });
+    try {
+      return db.delete(
+          DatabaseHelper.TABLE_POSTS,
+          DatabaseHelper.COLUMN_ID + " = ?",
+          new String[] { String.valueOf(postId) });
+    } finally {
+      snapshot.invalidate();
+      WRITE_TIMER.stop(start);
+    }
   }
 
   /**
@@ -164,7 +320,11 @@ public class PostRepository {
    */
   public void deleteAllPosts() {
     SQLiteDatabase db = dbHelper.getWritableDatabase();
-    db.delete(DatabaseHelper.TABLE_POSTS, null, null);
+    try {
+      db.delete(DatabaseHelper.TABLE_POSTS, null, null);
+    } finally {
+      snapshot.invalidate();
+    }
   }
 
   /**
@@ -189,12 +349,34 @@ public class PostRepository {
     return 0;
   }
 
+  /**
+   * Get an ID for a post created on this device
+   * Local posts use negative IDs so they never collide with server IDs. The IDs
+   * come from a persisted counter, so the ID of a deleted local post (which may
+   * still have mutations in the outbox) is never handed out again.
+   *
+   * @return Next free local ID
+   */
+  public int nextLocalPostId() {
+    SQLiteDatabase db = dbHelper.getWritableDatabase();
+    db.beginTransaction();
+    try {
+      long id = db.insertOrThrow(DatabaseHelper.TABLE_LOCAL_IDS, DatabaseHelper.COLUMN_ID, new ContentValues());
+      db.delete(DatabaseHelper.TABLE_LOCAL_IDS, null, null);
+      db.setTransactionSuccessful();
+      return (int) -id;
+    } finally {
+      db.endTransaction();
+    }
+  }
+
   /**
    * Get favorite posts
    * 
    * @return List of favorite posts
    */
   public List<Post> getFavoritePosts() {
+    long start = QUERY_TIMER.start();
     List<Post> posts = new ArrayList<>();
     SQLiteDatabase db = dbHelper.getReadableDatabase();
 
@@ -208,11 +390,10 @@ public class PostRepository {
         DatabaseHelper.COLUMN_ID + " DESC");
 
     try {
-      while (cursor.moveToNext()) {
-        posts.add(cursorToPost(cursor));
-      }
+      readPosts(cursor, posts);
     } finally {
       cursor.close();
+      QUERY_TIMER.stop(start);
     }
 
     return posts;
@@ -229,11 +410,94 @@ public class PostRepository {
     ContentValues values = new ContentValues();
     values.put(DatabaseHelper.COLUMN_IS_FAVORITE, isFavorite ? 1 : 0);
 
-    db.update(
-        DatabaseHelper.TABLE_POSTS,
-        values,
-        DatabaseHelper.COLUMN_ID + " = ?",
-        new String[] { String.valueOf(postId) });
+    try {
+      db.update(
+          DatabaseHelper.TABLE_POSTS,
+          values,
+          DatabaseHelper.COLUMN_ID + " = ?",
+          new String[] { String.valueOf(postId) });
+    } finally {
+      snapshot.invalidate();
+    }
+  }
+
+  /**
+   * Invalidate the first-screen snapshot
+   * The writes above do this once their statement returns; a caller that wraps them
+   * in its own transaction calls this again after that transaction ends
+   */
+  public void invalidateSnapshot() {
+    snapshot.invalidate();
+  }
+
+  /**
+   * Read the first-screen snapshot without opening the database
+   * 
+   * @return Snapshot posts, or null if there is no valid snapshot
+   */
+  public List<Post> readSnapshot() {
+    List<Post> posts = snapshot.read();
+    (posts != null ? SNAPSHOT_HITS : SNAPSHOT_MISSES).increment();
+    return posts;
+  }
+
+  /**
+   * Get the snapshot generation
+   * Capture this before loading the posts passed to writeSnapshot()
+   * 
+   * @return Current snapshot generation
+   */
+  public long getSnapshotGeneration() {
+    return snapshot.getGeneration();
+  }
+
+  /**
+   * Write the first-screen snapshot
+   * Dropped if any post changed since the generation was captured
+   * 
+   * @param posts      Posts in display order
+   * @param generation Generation captured before the posts were loaded
+   */
+  public void writeSnapshot(List<Post> posts, long generation) {
+    snapshot.write(posts, generation);
+  }
+
+  /**
+   * getPostById() on the IO pool
+   */
+  public CompletableFuture<Post> getPostByIdAsync(int postId) {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, () -> getPostById(postId));
+  }
+
+  /**
+   * getPostSummaries() on the IO pool
+   */
+  public CompletableFuture<List<Post>> getPostSummariesAsync() {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, this::getPostSummaries);
+  }
+
+  /**
+   * getFavoritePosts() on the IO pool
+   */
+  public CompletableFuture<List<Post>> getFavoritePostsAsync() {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, this::getFavoritePosts);
+  }
+
+  /**
+   * getPostCount() on the IO pool
+   */
+  public CompletableFuture<Integer> getPostCountAsync() {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, this::getPostCount);
+  }
+
+  /**
+   * toggleFavorite() on the db-write thread
+   */
+  public CompletableFuture<Void> toggleFavoriteAsync(int postId, boolean isFavorite) {
+    return Futures.supply(AppExecutors.get().dbWrite(), Priority.HIGH, () -> {
+      toggleFavorite(postId, isFavorite);
+      return null;
+    });
   }
 
   // Helper method to create ContentValues from Post
@@ -243,17 +507,16 @@ public class PostRepository {
     values.put(DatabaseHelper.COLUMN_USER_ID, post.getUserId());
     values.put(DatabaseHelper.COLUMN_TITLE, post.getTitle());
     values.put(DatabaseHelper.COLUMN_BODY, post.getBody());
+    values.put(DatabaseHelper.COLUMN_BODY_SNIPPET, Post.makeSnippet(post.getBody()));
     values.put(DatabaseHelper.COLUMN_IS_FAVORITE, post.isFavorite() ? 1 : 0);
     return values;
   }
 
-  // Helper method to convert Cursor to Post
-  private Post cursorToPost(Cursor cursor) {
-    return new Post(
-        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)),
-        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID)),
-        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE)),
-        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_BODY)),
-        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_FAVORITE)) == 1);
+  // Helper method to map every row of a cursor (column indexes resolved once)
+  private void readPosts(Cursor cursor, List<Post> posts) {
+    PostRowMapper mapper = new PostRowMapper(cursor);
+    while (cursor.moveToNext()) {
+      posts.add(mapper.map(cursor));
+    }
   }
 }
@@ -0,0 +1,96 @@
+package com.example.hifzaa4.database;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.os.Build;
+
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.models.PostColumnStore;
+
+/**
+ * PostRowMapper - Maps cursor rows to Posts
+ * Column indexes are resolved once per cursor instead of once per row
+ */
+public class PostRowMapper {
+
+  // Bytes per row assumed when sizing a cursor window for a page
+  private static final int ESTIMATED_ROW_BYTES = 512;
+
+  // Smallest window worth allocating
+  private static final int MIN_WINDOW_BYTES = 16 * 1024;
+
+  private final int idIndex;
+  private final int userIdIndex;
+  private final int titleIndex;
+  private final int bodyIndex;
+  private final int snippetIndex;
+  private final int favoriteIndex;
+
+  /**
+   * Resolve column indexes for a cursor
+   * Works for both the full row and the list projection
+   *
+   * @param cursor Cursor over the posts table
+   */
+  public PostRowMapper(Cursor cursor) {
+    idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+    userIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID);
+    titleIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE);
+    favoriteIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_FAVORITE);
+    bodyIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_BODY);
+    snippetIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_BODY_SNIPPET);
+  }
+
+  /**
+   * Map the cursor's current row
+   *
+   * @param cursor Cursor positioned on a row
+   * @return Post for the row
+   */
+  public Post map(Cursor cursor) {
+    Post post = new Post(
+        cursor.getInt(idIndex),
+        cursor.getInt(userIdIndex),
+        cursor.getString(titleIndex),
+        bodyIndex != -1 ? cursor.getString(bodyIndex) : null,
+        cursor.getInt(favoriteIndex) == 1);
+    if (snippetIndex != -1) {
+      post.setBodySnippet(cursor.getString(snippetIndex));
+    }
+    return post;
+  }
+
+  /**
+   * Append the cursor's current row to a column store without creating a Post
+   *
+   * @param cursor Cursor positioned on a row
+   * @param store  Store to append to
+   */
+  public void addTo(Cursor cursor, PostColumnStore store) {
+    String snippet = snippetIndex != -1
+        ? cursor.getString(snippetIndex)
+        : Post.makeSnippet(bodyIndex != -1 ? cursor.getString(bodyIndex) : null);
+    store.add(
+        cursor.getInt(idIndex),
+        cursor.getInt(userIdIndex),
+        cursor.getString(titleIndex),
+        snippet,
+        cursor.getInt(favoriteIndex) == 1);
+  }
+
+  /**
+   * Size the cursor window so one page of rows fills it
+   * Avoids the default 2 MB window for small pages (API 28+; no-op before)
+   *
+   * @param cursor   Query cursor, before the first move
+   * @param pageSize Rows per page
+   */
+  public static void fitWindowToPage(Cursor cursor, int pageSize) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P || !(cursor instanceof AbstractWindowedCursor)) {
+      return;
+    }
+    long bytes = Math.max(MIN_WINDOW_BYTES, (long) pageSize * ESTIMATED_ROW_BYTES);
+    ((AbstractWindowedCursor) cursor).setWindow(new CursorWindow("posts_page", bytes));
+  }
+}
@@ -0,0 +1,197 @@
+package com.example.hifzaa4.database;
+
+import android.content.Context;
+
+import com.example.hifzaa4.models.Post;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostSnapshot - Compact binary snapshot of the first visible posts
+ * Lets the list render before SQLite is opened. The file is written
+ * atomically (temp file + rename) and read through a memory-mapped channel.
+ *
+ * Layout (big-endian):
+ * int magic, int version, int count, then per post:
+ * int id, int userId, byte flags, int titleLength, title (UTF-8), int snippetLength, body snippet (UTF-8)
+ */
+public class PostSnapshot {
+
+  // Number of posts kept in the snapshot (roughly one screen plus a little)
+  public static final int MAX_POSTS = 30;
+
+  private static final String FILE_NAME = "posts.snapshot";
+  private static final int MAGIC = 0x50534E50; // "PSNP"
+  private static final int VERSION = 2; // 2: stores the body snippet instead of the full body
+  private static final int FLAG_FAVORITE = 1;
+
+  private final File file;
+
+  // Bumped on every invalidation so writes based on older data are dropped (guarded by this)
+  private long generation;
+
+  // Singleton instance
+  private static PostSnapshot instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return PostSnapshot instance
+   */
+  public static synchronized PostSnapshot getInstance(Context context) {
+    if (instance == null) {
+      instance = new PostSnapshot(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param file Snapshot file
+   */
+  public PostSnapshot(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Get the current generation
+   * Capture this before loading the data that will be written
+   *
+   * @return Current generation
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Invalidate the snapshot after local data changed
+   * Call once the change is committed: invalidating earlier lets a load read the
+   * old rows under the new generation and write them as a valid snapshot
+   */
+  public synchronized void invalidate() {
+    generation++;
+    file.delete();
+  }
+
+  /**
+   * Write the first posts of a list atomically
+   *
+   * @param posts      Posts in display order
+   * @param generation Generation captured when the posts were loaded
+   * @return true if written, false if the data was invalidated meanwhile or writing failed
+   */
+  public boolean write(List<Post> posts, long generation) {
+    byte[] bytes;
+    try {
+      bytes = encode(posts);
+    } catch (IOException e) {
+      return false;
+    }
+
+    File temp = new File(file.getPath() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp)) {
+      out.write(bytes);
+      out.getFD().sync();
+    } catch (IOException e) {
+      temp.delete();
+      return false;
+    }
+
+    synchronized (this) {
+      if (generation != this.generation || !temp.renameTo(file)) {
+        temp.delete();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read the snapshot through a memory-mapped channel
+   *
+   * @return Posts in display order, or null if there is no valid snapshot
+   */
+  public List<Post> read() {
+    if (!file.exists()) {
+      return null;
+    }
+
+    try (FileInputStream in = new FileInputStream(file);
+        FileChannel channel = in.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return null;
+      }
+
+      int count = buffer.getInt();
+      if (count < 0 || count > MAX_POSTS) {
+        return null;
+      }
+
+      List<Post> posts = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int id = buffer.getInt();
+        int userId = buffer.getInt();
+        byte flags = buffer.get();
+        String title = readString(buffer);
+        String snippet = readString(buffer);
+        Post post = new Post(id, userId, title, null, (flags & FLAG_FAVORITE) != 0);
+        post.setBodySnippet(snippet);
+        posts.add(post);
+      }
+      return posts;
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      // Missing or corrupt snapshot - the database is the source of truth
+      return null;
+    }
+  }
+
+  private static byte[] encode(List<Post> posts) throws IOException {
+    int count = Math.min(posts.size(), MAX_POSTS);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * 256);
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(count);
+    for (int i = 0; i < count; i++) {
+      Post post = posts.get(i);
+      out.writeInt(post.getId());
+      out.writeInt(post.getUserId());
+      out.writeByte(post.isFavorite() ? FLAG_FAVORITE : 0);
+      writeString(out, post.getTitle());
+      writeString(out, post.getBodySnippet());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] utf8 = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Bad string length " + length);
+    }
+    byte[] utf8 = new byte[length];
+    buffer.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+}
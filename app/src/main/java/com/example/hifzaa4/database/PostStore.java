@@ -0,0 +1,211 @@
+package com.example.hifzaa4.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.hifzaa4.cache.PostCache;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.network.OutboxSender;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PostStore - Shared in-process store for posts
+ * Serves posts from memory first and falls back to SQLite, so screens can be
+ * opened with just a post ID instead of a parcelled Post.
+ * Creates, edits and deletes are queued in the outbox in the same transaction
+ * as the local write, and pushed to the API by OutboxSender.
+ */
+public class PostStore {
+
+  // Intent extra carrying the post ID between activities
+  public static final String EXTRA_POST_ID = "post_id";
+
+  // Maximum number of posts kept in memory
+  private static final int MAX_CACHED_POSTS = 500;
+
+  // Memory cache hit rate of getPost()
+  private static final Counter CACHE_HITS = MetricsRegistry.get().counter("cache.post.hit");
+  private static final Counter CACHE_MISSES = MetricsRegistry.get().counter("cache.post.miss");
+
+  private final Context context;
+  private final PostRepository repository;
+  private final OutboxRepository outbox;
+  private final PostMerger merger;
+  private final PostCache cache = new PostCache(MAX_CACHED_POSTS);
+
+  // Singleton instance
+  private static PostStore instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return PostStore instance
+   */
+  public static synchronized PostStore getInstance(Context context) {
+    if (instance == null) {
+      instance = new PostStore(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /**
+   * Private constructor (use getInstance())
+   *
+   * @param context Application context
+   */
+  private PostStore(Context context) {
+    this.context = context;
+    repository = new PostRepository(context);
+    outbox = new OutboxRepository(context);
+    merger = new PostMerger(context);
+    // A created post moves to its server ID; the copy cached under the local ID is stale
+    OutboxSender.getInstance(context).setPostIdListener((localId, serverId) -> cache.remove(localId));
+  }
+
+  /**
+   * Get a post by ID - memory first, then SQLite
+   * List posts only carry a body snippet, so the full body is loaded here on first use
+   *
+   * @param postId Post ID
+   * @return Post with its full body, or null if not found
+   */
+  public Post getPost(int postId) {
+    Post post = cache.get(postId);
+    if (post != null && post.isBodyLoaded()) {
+      CACHE_HITS.increment();
+      return post;
+    }
+
+    CACHE_MISSES.increment();
+    post = repository.getPostById(postId);
+    if (post != null) {
+      cache.put(post);
+    }
+    return post;
+  }
+
+  /**
+   * getPost() on the IO pool
+   *
+   * @param postId Post ID
+   * @return Future of the post, or of null if not found
+   */
+  public CompletableFuture<Post> getPostAsync(int postId) {
+    return Futures.supply(AppExecutors.get().io(), Priority.HIGH, () -> getPost(postId));
+  }
+
+  /**
+   * Merge the server's copy of one post into the local table
+   * Unsent local edits win, as in a full sync (see PostMerger). Call on the db-write thread.
+   *
+   * @param serverPost Post from the API
+   * @return The post as now stored, or null if the merge changed nothing
+   */
+  public Post mergeServerPost(Post serverPost) {
+    if (!merger.merge(Collections.singletonList(serverPost), false).hasChanges()) {
+      return null;
+    }
+    cache.remove(serverPost.getId());
+    return getPost(serverPost.getId());
+  }
+
+  /**
+   * Cache posts that are already loaded (e.g. the list currently shown)
+   * A full post already in the cache is not replaced by a list summary
+   *
+   * @param posts Posts to cache
+   */
+  public void putAll(List<Post> posts) {
+    cache.putAll(posts);
+  }
+
+  /**
+   * Insert a new post
+   *
+   * @param post Post to insert
+   */
+  public void insertPost(Post post) {
+    writeThrough(() -> repository.insertPost(post), PendingMutation.create(post));
+    cache.put(post);
+  }
+
+  /**
+   * Update an existing post
+   *
+   * @param post Post with updated data
+   */
+  public void updatePost(Post post) {
+    writeThrough(() -> repository.updatePost(post), PendingMutation.update(post));
+    cache.put(post);
+  }
+
+  /**
+   * Delete a post
+   *
+   * @param postId Post ID to delete
+   */
+  public void deletePost(int postId) {
+    writeThrough(() -> repository.deletePost(postId), PendingMutation.delete(postId));
+    cache.remove(postId);
+  }
+
+  /**
+   * Set favorite status of a post
+   * Favorites are local only, so nothing is queued for the API
+   *
+   * @param postId     Post ID
+   * @param isFavorite New favorite status
+   */
+  public void setFavorite(int postId, boolean isFavorite) {
+    repository.toggleFavorite(postId, isFavorite);
+    Post cached = cache.get(postId);
+    if (cached != null) {
+      cached.setFavorite(isFavorite);
+    }
+  }
+
+  /**
+   * Apply a local write and queue its mutation atomically, then wake the sender
+   * The mutation is queued first, so it records the version the write replaces
+   */
+  private void writeThrough(Runnable write, PendingMutation mutation) {
+    SQLiteDatabase db = DatabaseHelper.getInstance(context).getWritableDatabase();
+    db.beginTransaction();
+    try {
+      outbox.enqueue(mutation);
+      write.run();
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+      repository.invalidateSnapshot(); // Committed only now
+    }
+    OutboxSender.getInstance(context).requestSend();
+  }
+
+  /**
+   * Get the server version of a post that changed while a local edit of it was unsent
+   * Call off the main thread
+   *
+   * @param postId Post ID
+   * @return Server version, or null if there is no conflict
+   */
+  public Post getConflict(int postId) {
+    return merger.getConflict(postId);
+  }
+
+  /**
+   * Drop all cached posts (e.g. after the table was replaced by a sync)
+   */
+  public void clear() {
+    cache.clear();
+  }
+}
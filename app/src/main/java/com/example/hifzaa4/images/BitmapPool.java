@@ -0,0 +1,110 @@
+package com.example.hifzaa4.images;
+
+import android.graphics.Bitmap;
+
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * BitmapPool - Bitmaps no longer shown, kept to decode new images into
+ * Decoding into an existing bitmap (BitmapFactory.Options.inBitmap) saves the
+ * allocation and the garbage collection of a large pixel buffer per image,
+ * which is most of the GC churn of a scrolling photo grid. Any mutable bitmap
+ * with enough bytes can be reused; the pool is bounded by bytes and drops the
+ * bitmaps it received first.
+ */
+public class BitmapPool {
+
+  private static final Counter HIT_COUNTER = MetricsRegistry.get().counter("images.pool.hit");
+  private static final Counter MISS_COUNTER = MetricsRegistry.get().counter("images.pool.miss");
+
+  private final long maxBytes;
+  private final ArrayDeque<Bitmap> bitmaps = new ArrayDeque<>(); // Guarded by this
+  private long bytes; // Guarded by this
+
+  /**
+   * Constructor
+   *
+   * @param maxBytes Most pixel bytes to keep
+   */
+  public BitmapPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Hand over a bitmap nothing shows or holds any more
+   * Immutable and recycled bitmaps cannot be decoded into and are ignored.
+   */
+  public synchronized void put(Bitmap bitmap) {
+    if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+        || bitmap.getAllocationByteCount() > maxBytes) {
+      return;
+    }
+    bitmaps.addLast(bitmap);
+    bytes += bitmap.getAllocationByteCount();
+    while (bytes > maxBytes) {
+      bytes -= bitmaps.removeFirst().getAllocationByteCount();
+    }
+  }
+
+  /**
+   * Take a bitmap to decode an image of a size into
+   * The smallest pooled bitmap that is large enough is taken, so small
+   * thumbnails do not use up the buffers of large images.
+   *
+   * @param width  Decoded width
+   * @param height Decoded height
+   * @param config Decoded pixel format
+   * @return A bitmap with enough bytes, or null if the pool has none
+   */
+  public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+    long needed = (long) width * height * bytesPerPixel(config);
+    Bitmap best = null;
+    for (Bitmap bitmap : bitmaps) {
+      int size = bitmap.getAllocationByteCount();
+      if (size >= needed && (best == null || size < best.getAllocationByteCount())) {
+        best = bitmap;
+      }
+    }
+    if (best == null) {
+      MISS_COUNTER.increment();
+      return null;
+    }
+    for (Iterator<Bitmap> it = bitmaps.iterator(); it.hasNext(); ) {
+      if (it.next() == best) {
+        it.remove();
+        break;
+      }
+    }
+    bytes -= best.getAllocationByteCount();
+    HIT_COUNTER.increment();
+    return best;
+  }
+
+  /**
+   * Pixel bytes held by the pool
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Drop all pooled bitmaps (e.g. when the system is low on memory)
+   */
+  public synchronized void clear() {
+    bitmaps.clear();
+    bytes = 0;
+  }
+
+  private static int bytesPerPixel(Bitmap.Config config) {
+    if (config == Bitmap.Config.ALPHA_8) {
+      return 1;
+    } else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+      return 2;
+    }
+    return 4;
+  }
+}
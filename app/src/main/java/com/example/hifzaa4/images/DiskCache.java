@@ -0,0 +1,195 @@
+package com.example.hifzaa4.images;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DiskCache - Downloaded responses on disk (encoded images, post pages), least recently used dropped first
+ * One file per URL, named by its hash. Files are written to a temporary name
+ * and renamed, so a reader never sees half a file; use order survives
+ * restarts through the files' modification times. Bounded by bytes.
+ */
+public class DiskCache {
+
+  private static final String TAG = "DiskCache";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final File directory;
+  private final long maxBytes;
+
+  // File name -> size, in use order (oldest first); guarded by this
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long bytes; // Guarded by this
+  private boolean opened; // Guarded by this
+
+  /**
+   * Constructor; the directory is read on first use, not here
+   *
+   * @param directory Directory owned by the cache
+   * @param maxBytes  Most bytes to keep
+   */
+  public DiskCache(File directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Read the cached bytes of a URL (call off the main thread)
+   *
+   * @return Bytes, or null if they are not cached
+   */
+  public byte[] get(String url) {
+    String name = fileName(url);
+    synchronized (this) {
+      open();
+      if (entries.get(name) == null) {
+        return null;
+      }
+    }
+    File file = new File(directory, name);
+    try (InputStream in = new FileInputStream(file)) {
+      byte[] data = readFully(in, (int) file.length());
+      file.setLastModified(System.currentTimeMillis());
+      return data;
+    } catch (IOException e) {
+      // Dropped by a concurrent trim, or unreadable: a miss either way
+      synchronized (this) {
+        remove(name);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Store the bytes of a URL (call off the main thread)
+   * Failures are logged; the bytes are then just not cached.
+   */
+  public void put(String url, byte[] data) {
+    if (data.length > maxBytes) {
+      return;
+    }
+    String name = fileName(url);
+    File temp = new File(directory, name + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+    synchronized (this) {
+      open();
+    }
+    try (OutputStream out = new FileOutputStream(temp)) {
+      out.write(data);
+    } catch (IOException e) {
+      Log.w(TAG, "Cannot cache " + url, e);
+      temp.delete();
+      return;
+    }
+
+    synchronized (this) {
+      if (!temp.renameTo(new File(directory, name))) {
+        Log.w(TAG, "Cannot cache " + url);
+        temp.delete();
+        return;
+      }
+      Long old = entries.put(name, (long) data.length);
+      bytes += data.length - (old != null ? old : 0);
+      trim();
+    }
+  }
+
+  /**
+   * Check whether a URL is cached, without reading it
+   */
+  public synchronized boolean contains(String url) {
+    open();
+    return entries.containsKey(fileName(url));
+  }
+
+  /**
+   * Bytes of all cached files
+   */
+  public synchronized long getBytes() {
+    open();
+    return bytes;
+  }
+
+  /**
+   * Load the index from the directory, oldest files first; drop leftover temporary files
+   */
+  private void open() {
+    if (opened) {
+      return;
+    }
+    opened = true;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Cannot create " + directory);
+    }
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    for (File file : files) {
+      if (file.getName().endsWith(TEMP_SUFFIX)) {
+        file.delete();
+      } else if (file.isFile()) {
+        entries.put(file.getName(), file.length());
+        bytes += file.length();
+      }
+    }
+    trim();
+  }
+
+  private void trim() {
+    Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+    while (bytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> eldest = it.next();
+      new File(directory, eldest.getKey()).delete();
+      bytes -= eldest.getValue();
+      it.remove();
+    }
+  }
+
+  private void remove(String name) {
+    Long size = entries.remove(name);
+    if (size != null) {
+      bytes -= size;
+      new File(directory, name).delete();
+    }
+  }
+
+  private static String fileName(String url) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+      StringBuilder name = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return name.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // Every platform has SHA-1
+    }
+  }
+
+  static byte[] readFully(InputStream in, int sizeHint) throws IOException {
+    byte[] buffer = new byte[Math.max(8192, sizeHint)];
+    int length = 0;
+    int read;
+    while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+}
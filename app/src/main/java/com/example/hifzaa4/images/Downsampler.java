@@ -0,0 +1,79 @@
+package com.example.hifzaa4.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Downsampler - Decodes images at about the size they are shown at
+ * The bounds are read first and the image is decoded with the largest
+ * power-of-two sample size that keeps it at least as large as the target,
+ * so a 600px photo in a 150px cell costs a sixteenth of the memory.
+ * Decodes into a pooled bitmap when one is large enough.
+ */
+final class Downsampler {
+
+  private Downsampler() {
+  }
+
+  /**
+   * Decode an encoded image
+   *
+   * @param data   Encoded bytes (PNG, JPEG, WebP, ...)
+   * @param width  Target width; 0 for no limit
+   * @param height Target height; 0 for no limit
+   * @param pool   Bitmaps to decode into, or null
+   * @return Mutable bitmap, or null if the bytes are not an image
+   */
+  static Bitmap decode(byte[] data, int width, int height, BitmapPool pool) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return null;
+    }
+
+    int sampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
+    options.inMutable = true; // Needed to reuse the bitmap later
+    options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    if (pool != null) {
+      // Rounded up: decoders differ in how they round sampled sizes
+      options.inBitmap = pool.get(ceilDiv(options.outWidth, sampleSize), ceilDiv(options.outHeight, sampleSize),
+          options.inPreferredConfig);
+    }
+
+    try {
+      return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    } catch (IllegalArgumentException e) {
+      // The pooled bitmap did not fit after all; decode into a new one
+      options.inBitmap = null;
+      return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+  }
+
+  /**
+   * Largest power of two to divide an image by and still cover the target
+   *
+   * @param sourceWidth  Image width
+   * @param sourceHeight Image height
+   * @param width        Target width; 0 for no limit
+   * @param height       Target height; 0 for no limit
+   * @return Sample size, 1 for no downsampling
+   */
+  static int sampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+    if (width <= 0 && height <= 0) {
+      return 1;
+    }
+    int sampleSize = 1;
+    while (sourceWidth / (sampleSize * 2) >= Math.max(1, width)
+        && sourceHeight / (sampleSize * 2) >= Math.max(1, height)) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private static int ceilDiv(int value, int divisor) {
+    return (value + divisor - 1) / divisor;
+  }
+}
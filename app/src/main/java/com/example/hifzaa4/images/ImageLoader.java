@@ -0,0 +1,452 @@
+package com.example.hifzaa4.images;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.example.hifzaa4.R;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.NetworkPolicy;
+import com.example.hifzaa4.network.NetworkQualityEstimator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * ImageLoader - Loads images from URLs into views, off the main thread
+ * - memory: decoded bitmaps per URL and target size, an LRU bounded by bytes
+ * - disk: encoded bytes per URL (DiskCache), so a restart does not download again
+ * - network: downloaded on the IO pool, decoded and downsampled on the decode pool
+ * Requests for the same URL (and size) at the same time share one download
+ * (and decode); a request is only cancelled once all its callers cancelled.
+ * Views get their image with into() and give it back with cancel() when their
+ * row is recycled; bitmaps no view shows any more are decoded into again once
+ * they leave the memory cache (BitmapPool).
+ */
+public class ImageLoader {
+
+  private static final String TAG = "ImageLoader";
+
+  private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+
+  private static final Counter MEMORY_HIT_COUNTER = MetricsRegistry.get().counter("images.memory.hit");
+  private static final Counter DISK_HIT_COUNTER = MetricsRegistry.get().counter("images.disk.hit");
+  private static final Counter DOWNLOAD_COUNTER = MetricsRegistry.get().counter("images.download");
+  private static final Counter MERGED_COUNTER = MetricsRegistry.get().counter("images.merged");
+  private static final Timer DOWNLOAD_TIMER = MetricsRegistry.get().timer("images.download");
+  private static final Timer DECODE_TIMER = MetricsRegistry.get().timer("images.decode");
+
+  private final DiskCache disk;
+  private final BitmapPool pool;
+  private final LruCache<String, Bitmap> memory;
+
+  // Requests in flight, by URL (download) and by URL and size (decode); guarded by themselves
+  private final Map<String, Shared<byte[]>> downloads = new HashMap<>();
+  private final Map<String, Shared<Bitmap>> decodes = new HashMap<>();
+
+  // Bitmaps views show or are about to show, and shown ones still cached; guarded by this
+  private final Map<Bitmap, Pin> pins = new IdentityHashMap<>();
+  private final Set<Bitmap> released = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  // Singleton instance
+  private static ImageLoader instance;
+
+  /**
+   * Get singleton instance
+   * An eighth of the app's memory class holds decoded bitmaps, and half as much more is
+   * kept for reuse.
+   *
+   * @param context Application context
+   * @return ImageLoader instance
+   */
+  public static synchronized ImageLoader getInstance(Context context) {
+    if (instance == null) {
+      Context app = context.getApplicationContext();
+      ActivityManager activityManager = (ActivityManager) app.getSystemService(Context.ACTIVITY_SERVICE);
+      int memoryBytes = activityManager.getMemoryClass() * 1024 * 1024 / 8;
+      instance = new ImageLoader(new DiskCache(new File(app.getCacheDir(), "images"), DISK_CACHE_BYTES),
+          memoryBytes, new BitmapPool(memoryBytes / 2));
+    }
+    return instance;
+  }
+
+  /**
+   * Free memory when the system asks for it (from Application.onTrimMemory)
+   * Does nothing if no image was loaded yet.
+   *
+   * @param level ComponentCallbacks2 trim level
+   */
+  public static void trimMemory(int level) {
+    ImageLoader loader;
+    synchronized (ImageLoader.class) {
+      loader = instance;
+    }
+    if (loader == null) {
+      return;
+    }
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      loader.memory.evictAll();
+      loader.pool.clear();
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      loader.memory.trimToSize(loader.memory.maxSize() / 2);
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param disk        Cache of encoded images
+   * @param memoryBytes Most bytes of decoded bitmaps to keep
+   * @param pool        Where bitmaps go when nothing uses them any more
+   */
+  ImageLoader(DiskCache disk, int memoryBytes, BitmapPool pool) {
+    this.disk = disk;
+    this.pool = pool;
+    this.memory = new LruCache<String, Bitmap>(memoryBytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+      }
+
+      @Override
+      protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+        onRemovedFromMemory(oldValue);
+      }
+    };
+  }
+
+  /**
+   * Load an image, from memory, disk or network
+   * The bitmap may be reused for another image once it has left the memory cache,
+   * if a view showed it through into() before; copy it to keep it longer.
+   *
+   * @param url    Image URL
+   * @param width  Width it is shown at; 0 for the full size
+   * @param height Height it is shown at; 0 for the full size
+   * @return Future of the bitmap; fails with an IOException (ServerException for
+   *         non-200 responses) or if the bytes are not an image
+   */
+  public CompletableFuture<Bitmap> load(String url, int width, int height) {
+    String key = key(url, width, height);
+    Bitmap cached = memory.get(key);
+    if (cached != null) {
+      MEMORY_HIT_COUNTER.increment();
+      return CompletableFuture.completedFuture(cached);
+    }
+    return join(decodes, key, () -> Futures.flatMap(fetch(url),
+        data -> Futures.supply(AppExecutors.get().decode(), Priority.NORMAL, () -> decode(key, data, width, height)),
+        Runnable::run));
+  }
+
+  /**
+   * Show an image in a view, sized to the view
+   * Uses the view's size if it was laid out, else its layout size; with neither the
+   * image is decoded at full size.
+   */
+  public void into(ImageView view, String url) {
+    int width = view.getWidth();
+    int height = view.getHeight();
+    if ((width <= 0 || height <= 0) && view.getLayoutParams() != null) {
+      width = Math.max(0, view.getLayoutParams().width);
+      height = Math.max(0, view.getLayoutParams().height);
+    }
+    into(view, url, width, height);
+  }
+
+  /**
+   * Show an image in a view (call on the main thread, e.g. from onBindViewHolder)
+   * Replaces what the view showed or was loading; a cached image is shown at once.
+   *
+   * @param view   View to show the image in
+   * @param url    Image URL
+   * @param width  Width it is shown at
+   * @param height Height it is shown at
+   */
+  public void into(ImageView view, String url, int width, int height) {
+    Binding current = (Binding) view.getTag(R.id.image_loader_binding);
+    if (current != null && current.key.equals(key(url, width, height))
+        && (current.future == null || !current.future.isCompletedExceptionally())) {
+      return; // Already shown or on its way
+    }
+    cancel(view);
+
+    Binding binding = new Binding(key(url, width, height));
+    view.setTag(R.id.image_loader_binding, binding);
+    Bitmap cached;
+    synchronized (this) {
+      cached = memory.get(binding.key);
+      if (cached != null) {
+        pin(cached, binding.key);
+        binding.bitmap = cached;
+      }
+    }
+    if (cached != null) {
+      MEMORY_HIT_COUNTER.increment();
+      view.setImageBitmap(cached);
+      return;
+    }
+
+    view.setImageDrawable(null);
+    binding.future = load(url, width, height);
+    binding.future.whenComplete((bitmap, error) -> {
+      if (error != null) {
+        if (!(Futures.unwrap(error) instanceof CancellationException)) {
+          Log.w(TAG, "Cannot load " + url, Futures.unwrap(error));
+        }
+        return;
+      }
+      // Pinned on the thread that completed, before another decode can evict and reuse it
+      synchronized (this) {
+        if (binding.cancelled) {
+          return;
+        }
+        pin(bitmap, binding.key);
+        binding.bitmap = bitmap;
+      }
+      AppExecutors.get().main().execute(() -> {
+        if (view.getTag(R.id.image_loader_binding) == binding) {
+          view.setImageBitmap(bitmap);
+        }
+      });
+    });
+  }
+
+  /**
+   * Stop loading into a view and give back the image it shows
+   * Call when its row is recycled (RecyclerView.Adapter.onViewRecycled)
+   */
+  public void cancel(ImageView view) {
+    Binding binding = (Binding) view.getTag(R.id.image_loader_binding);
+    if (binding == null) {
+      return;
+    }
+    view.setTag(R.id.image_loader_binding, null);
+    Bitmap bitmap;
+    synchronized (this) {
+      binding.cancelled = true;
+      bitmap = binding.bitmap;
+      binding.bitmap = null;
+    }
+    if (binding.future != null) {
+      binding.future.cancel(true);
+    }
+    if (bitmap != null) {
+      view.setImageDrawable(null); // Before the bitmap can be decoded into again
+      release(bitmap);
+    }
+  }
+
+  /**
+   * Bytes of decoded bitmaps in memory
+   */
+  public int getMemoryBytes() {
+    return memory.size();
+  }
+
+  BitmapPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Encoded bytes from disk, else from the network (then stored on disk), on the IO pool
+   */
+  private CompletableFuture<byte[]> fetch(String url) {
+    return join(downloads, url, () -> Futures.supply(AppExecutors.get().io(), Priority.NORMAL, () -> {
+      byte[] data = disk.get(url);
+      if (data != null) {
+        DISK_HIT_COUNTER.increment();
+        return data;
+      }
+      data = download(url);
+      disk.put(url, data);
+      return data;
+    }));
+  }
+
+  private Bitmap decode(String key, byte[] data, int width, int height) throws IOException {
+    long start = DECODE_TIMER.start();
+    Bitmap bitmap;
+    try {
+      bitmap = Downsampler.decode(data, width, height, pool);
+    } finally {
+      DECODE_TIMER.stop(start);
+    }
+    if (bitmap == null) {
+      throw new IOException("Not an image: " + key);
+    }
+    memory.put(key, bitmap);
+    return bitmap;
+  }
+
+  private byte[] download(String url) throws IOException {
+    DOWNLOAD_COUNTER.increment();
+    long start = DOWNLOAD_TIMER.start();
+    NetworkPolicy policy = NetworkQualityEstimator.get().getPolicy();
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try {
+      connection.setConnectTimeout(policy.connectTimeoutMillis);
+      connection.setReadTimeout(policy.readTimeoutMillis);
+      int responseCode = connection.getResponseCode();
+      if (responseCode != HttpURLConnection.HTTP_OK) {
+        throw new ApiService.ServerException(responseCode);
+      }
+      try (InputStream in = connection.getInputStream()) {
+        return DiskCache.readFully(in, Math.max(0, connection.getContentLength()));
+      }
+    } finally {
+      connection.disconnect();
+      DOWNLOAD_TIMER.stop(start);
+    }
+  }
+
+  /**
+   * Join the request in flight for a key, or start it
+   * Each caller gets its own future; cancelling it only cancels the request
+   * once every caller has cancelled.
+   */
+  private static <T> CompletableFuture<T> join(Map<String, Shared<T>> inFlight, String key,
+      Supplier<CompletableFuture<T>> start) {
+    Shared<T> shared;
+    synchronized (inFlight) {
+      shared = inFlight.get(key);
+      if (shared == null) {
+        shared = new Shared<>(start.get());
+        inFlight.put(key, shared);
+        Shared<T> started = shared;
+        started.source.whenComplete((value, error) -> {
+          synchronized (inFlight) {
+            inFlight.remove(key, started);
+          }
+        });
+      } else {
+        MERGED_COUNTER.increment();
+      }
+      shared.callers++;
+    }
+
+    Shared<T> joined = shared;
+    CompletableFuture<T> result = new CompletableFuture<>();
+    joined.source.whenComplete((value, error) -> {
+      if (error != null) {
+        result.completeExceptionally(Futures.unwrap(error));
+      } else {
+        result.complete(value);
+      }
+    });
+    result.whenComplete((value, error) -> {
+      boolean last;
+      synchronized (inFlight) {
+        last = --joined.callers == 0;
+        if (last && result.isCancelled()) {
+          inFlight.remove(key, joined);
+        }
+      }
+      if (last && result.isCancelled()) {
+        joined.source.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Pin a bitmap for a view; call holding this
+   */
+  private void pin(Bitmap bitmap, String key) {
+    released.remove(bitmap);
+    Pin pin = pins.get(bitmap);
+    if (pin == null) {
+      pins.put(bitmap, new Pin(key));
+    } else {
+      pin.count++;
+    }
+  }
+
+  /**
+   * A view no longer shows a bitmap: pool it if no other view does and it left the cache
+   */
+  private synchronized void release(Bitmap bitmap) {
+    Pin pin = pins.get(bitmap);
+    if (pin == null || --pin.count > 0) {
+      return;
+    }
+    pins.remove(bitmap);
+    if (memory.get(pin.key) == bitmap) {
+      released.add(bitmap);
+    } else {
+      pool.put(bitmap);
+    }
+  }
+
+  /**
+   * A bitmap left the memory cache: pool it if views showed it and none does any more
+   * Bitmaps no view showed may still be held by load() callers and are left alone.
+   */
+  private synchronized void onRemovedFromMemory(Bitmap bitmap) {
+    if (released.remove(bitmap)) {
+      pool.put(bitmap);
+    }
+  }
+
+  private static String key(String url, int width, int height) {
+    return url + "@" + width + "x" + height;
+  }
+
+  /**
+   * A request in flight and the number of callers waiting for it
+   */
+  private static class Shared<T> {
+    final CompletableFuture<T> source;
+    int callers; // Guarded by the in-flight map
+
+    Shared(CompletableFuture<T> source) {
+      this.source = source;
+    }
+  }
+
+  /**
+   * Number of views showing a bitmap, and its memory cache key
+   */
+  private static class Pin {
+    final String key;
+    int count = 1;
+
+    Pin(String key) {
+      this.key = key;
+    }
+  }
+
+  /**
+   * What a view shows or is loading (held in the view's tag)
+   */
+  private static class Binding {
+    final String key;
+    CompletableFuture<Bitmap> future;
+    Bitmap bitmap;     // Guarded by the loader
+    boolean cancelled; // Guarded by the loader
+
+    Binding(String key) {
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.hifzaa4.metrics;
+
+/**
+ * AdapterWork - Adapter work done since the last frame
+ * Updated by the adapter and read by JankMonitor, both on the main thread
+ */
+public class AdapterWork {
+
+  private int created;
+  private int bound;
+  private long bindNanos;
+
+  /**
+   * A view holder was created
+   */
+  public void onCreate() {
+    created++;
+  }
+
+  /**
+   * An item was bound
+   *
+   * @param nanos Time the bind took
+   */
+  public void onBind(long nanos) {
+    bound++;
+    bindNanos += nanos;
+  }
+
+  public int getCreated() {
+    return created;
+  }
+
+  public int getBound() {
+    return bound;
+  }
+
+  public long getBindNanos() {
+    return bindNanos;
+  }
+
+  /**
+   * Start counting for the next frame
+   */
+  public void clear() {
+    created = 0;
+    bound = 0;
+    bindNanos = 0;
+  }
+}
@@ -0,0 +1,28 @@
+package com.example.hifzaa4.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter - Monotonic event counter
+ * Backed by a striped LongAdder, so concurrent increments do not contend
+ */
+public class Counter {
+
+  private final LongAdder count = new LongAdder();
+
+  public void increment() {
+    count.increment();
+  }
+
+  public void add(long amount) {
+    count.add(amount);
+  }
+
+  public long get() {
+    return count.sum();
+  }
+
+  public void reset() {
+    count.reset();
+  }
+}
@@ -0,0 +1,149 @@
+package com.example.hifzaa4.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram - Fixed-bucket, log-scale histogram of non-negative values
+ * Each power of two is split into 4 buckets (at most 25% relative error).
+ * Recording is lock-free and allocation-free, so it can stay on in release builds;
+ * readers get an approximate snapshot while writers keep recording.
+ */
+public class Histogram {
+
+  // Sub-buckets per power of two (as a bit count)
+  private static final int SUB_BITS = 2;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+
+  // Enough buckets for any long value
+  static final int BUCKET_COUNT = bucketFor(Long.MAX_VALUE) + 1;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record a value (negative values count as 0)
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    buckets.incrementAndGet(bucketFor(value));
+    count.increment();
+    sum.add(value);
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Clear all recorded values
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  /**
+   * Summary of the values recorded so far
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    long maxValue = max.get();
+    return new Snapshot(total, total > 0 ? (double) sum.sum() / total : 0,
+        percentile(counts, total, 0.50, maxValue),
+        percentile(counts, total, 0.90, maxValue),
+        percentile(counts, total, 0.99, maxValue),
+        maxValue);
+  }
+
+  /**
+   * Upper bound of the bucket holding the given percentile, capped at the max
+   */
+  private static long percentile(long[] counts, long total, double fraction, long maxValue) {
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(total * fraction);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  /**
+   * Bucket of a value: values below SUB_COUNT get their own bucket, larger ones
+   * are grouped by their highest set bit and the SUB_BITS bits after it
+   */
+  static int bucketFor(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+    return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+  }
+
+  /**
+   * Largest value that falls into a bucket
+   */
+  static long upperBound(int bucket) {
+    if (bucket < SUB_COUNT) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+    long sub = bucket % SUB_COUNT;
+    long lower = (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    long width = 1L << (exponent - SUB_BITS);
+    return lower + (width - 1);
+  }
+
+  /**
+   * Point-in-time summary of a histogram
+   */
+  public static class Snapshot {
+    public final long count;
+    public final double mean;
+    public final long p50;
+    public final long p90;
+    public final long p99;
+    public final long max;
+
+    Snapshot(long count, double mean, long p50, long p90, long p99, long max) {
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.max = max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.US, "n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+          count, mean, p50, p90, p99, max);
+    }
+  }
+}
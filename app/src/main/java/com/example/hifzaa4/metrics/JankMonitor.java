@@ -0,0 +1,280 @@
+package com.example.hifzaa4.metrics;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * JankMonitor - Frame timings of a RecyclerView while it scrolls
+ * Uses Choreographer frame callbacks to time every frame while the list is
+ * dragged or flung, and FrameMetrics for the time each of those frames took to
+ * render. A frame that took more than 1.5 vsync intervals is janky; its adapter
+ * work (holders created, items bound, bind time) is recorded with it.
+ * Results go to the MetricsRegistry under "ui.<name>." and slow frames are
+ * appended to a log file.
+ */
+public class JankMonitor extends RecyclerView.OnScrollListener implements Choreographer.FrameCallback {
+
+  private static final String TAG = "JankMonitor";
+
+  private static final String LOG_FILE = "jank.log";
+
+  // Log is started over once it grows past this
+  private static final long MAX_LOG_BYTES = 256 * 1024;
+
+  // Frame metrics are delivered off the main thread (the framework needs a Handler, so not an AppExecutors pool)
+  private static HandlerThread frameMetricsThread;
+
+  private final AdapterWork work;
+  private final long frameIntervalNanos;
+  private final File logFile;
+  private final Executor logExecutor;
+  private final String name;
+
+  private final Counter frames;
+  private final Counter jankyFrames;
+  private final Counter droppedFrames;
+  private final Timer frameTimer;
+  private final Timer renderTimer;
+  private final Histogram jankCreated;
+  private final Histogram jankBound;
+  private final Timer jankBindTimer;
+
+  private final Window.OnFrameMetricsAvailableListener frameMetricsListener = this::onFrameMetrics;
+  private volatile boolean scrolling;
+  private boolean callbackPosted;
+  private long lastFrameNanos;
+  private Window window;
+
+  /**
+   * Constructor
+   *
+   * @param registry           Where frame metrics are recorded
+   * @param name               Name of the monitored list (metric prefix "ui.<name>.")
+   * @param work               Adapter work counters of the monitored list
+   * @param frameIntervalNanos Vsync interval of the display
+   * @param logFile            Slow frame log
+   * @param logExecutor        Executor that writes the log
+   */
+  JankMonitor(MetricsRegistry registry, String name, AdapterWork work, long frameIntervalNanos, File logFile,
+      Executor logExecutor) {
+    this.name = name;
+    this.work = work;
+    this.frameIntervalNanos = frameIntervalNanos;
+    this.logFile = logFile;
+    this.logExecutor = logExecutor;
+
+    String prefix = "ui." + name + ".";
+    frames = registry.counter(prefix + "frames");
+    jankyFrames = registry.counter(prefix + "jank");
+    droppedFrames = registry.counter(prefix + "dropped");
+    frameTimer = registry.timer(prefix + "frame");
+    renderTimer = registry.timer(prefix + "render");
+    jankCreated = registry.histogram(prefix + "jank.created");
+    jankBound = registry.histogram(prefix + "jank.bound");
+    jankBindTimer = registry.timer(prefix + "jank.bind");
+  }
+
+  /**
+   * Monitor a list of an activity while it scrolls
+   *
+   * @param activity     Activity showing the list
+   * @param recyclerView List to monitor
+   * @param name         Name used in metrics and the log
+   * @param work         Adapter work counters of the list
+   * @return Monitor, to be detached in onDestroy()
+   */
+  public static JankMonitor attach(Activity activity, RecyclerView recyclerView, String name, AdapterWork work) {
+    // getDisplay() on the activity is API 30+
+    float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+    long intervalNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+
+    JankMonitor monitor = new JankMonitor(MetricsRegistry.get(), name, work, intervalNanos,
+        getLogFile(activity), LogWriter.EXECUTOR);
+    recyclerView.addOnScrollListener(monitor);
+
+    monitor.window = activity.getWindow();
+    try {
+      monitor.window.addOnFrameMetricsAvailableListener(monitor.frameMetricsListener, frameMetricsHandler());
+    } catch (IllegalStateException e) {
+      // Not hardware accelerated: frame intervals are still recorded
+      monitor.window = null;
+    }
+    return monitor;
+  }
+
+  /**
+   * Stop monitoring
+   *
+   * @param recyclerView List passed to attach()
+   */
+  public void detach(RecyclerView recyclerView) {
+    recyclerView.removeOnScrollListener(this);
+    scrolling = false;
+    if (callbackPosted) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      callbackPosted = false;
+    }
+    if (window != null) {
+      window.removeOnFrameMetricsAvailableListener(frameMetricsListener);
+      window = null;
+    }
+  }
+
+  @Override
+  public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+    setScrolling(newState != RecyclerView.SCROLL_STATE_IDLE);
+  }
+
+  /**
+   * Start or stop timing frames
+   */
+  void setScrolling(boolean scrolling) {
+    if (scrolling && !this.scrolling) {
+      lastFrameNanos = 0;
+      work.clear();
+      if (!callbackPosted) {
+        callbackPosted = true;
+        Choreographer.getInstance().postFrameCallback(this);
+      }
+    }
+    this.scrolling = scrolling;
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    callbackPosted = false;
+    if (!scrolling) {
+      return;
+    }
+    onFrame(frameTimeNanos);
+    callbackPosted = true;
+    Choreographer.getInstance().postFrameCallback(this);
+  }
+
+  /**
+   * Time the frame that ended at this vsync
+   * The adapter work counted since the previous callback was done in that frame
+   *
+   * @param frameTimeNanos Vsync time of the new frame
+   */
+  void onFrame(long frameTimeNanos) {
+    if (lastFrameNanos > 0) {
+      long duration = frameTimeNanos - lastFrameNanos;
+      frames.increment();
+      frameTimer.record(duration);
+
+      if (duration * 2 > frameIntervalNanos * 3) {
+        long dropped = Math.max(1, Math.round((double) duration / frameIntervalNanos) - 1);
+        jankyFrames.increment();
+        droppedFrames.add(dropped);
+        jankCreated.record(work.getCreated());
+        jankBound.record(work.getBound());
+        jankBindTimer.record(work.getBindNanos());
+        logSlowFrame(duration, dropped, work.getCreated(), work.getBound(), work.getBindNanos());
+      }
+    }
+    work.clear();
+    lastFrameNanos = frameTimeNanos;
+  }
+
+  private void onFrameMetrics(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+    if (scrolling) {
+      renderTimer.record(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+    }
+  }
+
+  private void logSlowFrame(long durationNanos, long dropped, int created, int bound, long bindNanos) {
+    String line = String.format(Locale.US, "%s %s frame=%.1fms dropped=%d created=%d bound=%d bind=%.1fms%n",
+        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date()), name,
+        durationNanos / 1e6, dropped, created, bound, bindNanos / 1e6);
+    logExecutor.execute(() -> append(logFile, line));
+  }
+
+  private static void append(File file, String line) {
+    boolean append = file.length() < MAX_LOG_BYTES;
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)) {
+      writer.write(line);
+    } catch (IOException e) {
+      Log.w(TAG, "Could not write " + file, e);
+    }
+  }
+
+  /**
+   * Slow frame log of the app
+   */
+  public static File getLogFile(Context context) {
+    return new File(context.getApplicationContext().getFilesDir(), LOG_FILE);
+  }
+
+  /**
+   * Last lines of the slow frame log
+   *
+   * @param file     Log file
+   * @param maxLines Number of lines
+   * @return Lines joined with newlines, or "" if there is no log
+   */
+  public static String readRecent(File file, int maxLines) {
+    if (!file.exists()) {
+      return "";
+    }
+    Deque<String> lines = new ArrayDeque<>(maxLines);
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (lines.size() == maxLines) {
+          lines.removeFirst();
+        }
+        lines.addLast(line);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Could not read " + file, e);
+    }
+    StringBuilder recent = new StringBuilder();
+    for (String line : lines) {
+      recent.append(line).append('\n');
+    }
+    return recent.toString();
+  }
+
+  private static synchronized Handler frameMetricsHandler() {
+    if (frameMetricsThread == null) {
+      frameMetricsThread = new HandlerThread("frame-metrics");
+      frameMetricsThread.start();
+    }
+    return new Handler(frameMetricsThread.getLooper());
+  }
+
+  // Single writer for the log, created on first use
+  private static class LogWriter {
+    static final Executor EXECUTOR = AppExecutors.get().io().serial(Priority.LOW);
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.hifzaa4.metrics;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * MetricsRegistry - Named counters, histograms and timers for the whole app
+ * Metrics are created once (typically into static fields) and then recorded
+ * without locks or allocation, so they stay on in release builds.
+ * Names are dotted, e.g. "db.posts.query"; timers are in microseconds.
+ * Snapshots export as JSON for bug reports.
+ */
+public class MetricsRegistry {
+
+  private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+  private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+
+  // Process-wide instance
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  public static MetricsRegistry get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get (or create) a counter
+   */
+  public Counter counter(String name) {
+    Counter counter = counters.get(name);
+    return counter != null ? counter : counters.computeIfAbsent(name, key -> new Counter());
+  }
+
+  /**
+   * Get (or create) a histogram of arbitrary values (sizes, counts)
+   */
+  public Histogram histogram(String name) {
+    Histogram histogram = histograms.get(name);
+    return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new Histogram());
+  }
+
+  /**
+   * Get (or create) a timer
+   */
+  public Timer timer(String name) {
+    Timer timer = timers.get(name);
+    return timer != null ? timer : timers.computeIfAbsent(name, key -> new Timer());
+  }
+
+  /**
+   * Reset every metric (the metrics themselves stay registered)
+   */
+  public void reset() {
+    for (Counter counter : counters.values()) {
+      counter.reset();
+    }
+    for (Histogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+    for (Timer timer : timers.values()) {
+      timer.reset();
+    }
+  }
+
+  /**
+   * Snapshot of all metrics as JSON
+   * {"time": ms, "counters": {name: n}, "histograms": {name: {...}}, "timers_us": {name: {...}}}
+   */
+  public JSONObject toJson() throws JSONException {
+    JSONObject counterJson = new JSONObject();
+    for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+      counterJson.put(entry.getKey(), entry.getValue().get());
+    }
+    JSONObject histogramJson = new JSONObject();
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      histogramJson.put(entry.getKey(), toJson(entry.getValue().snapshot()));
+    }
+    JSONObject timerJson = new JSONObject();
+    for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+      timerJson.put(entry.getKey(), toJson(entry.getValue().getHistogram().snapshot()));
+    }
+
+    return new JSONObject()
+        .put("time", System.currentTimeMillis())
+        .put("counters", counterJson)
+        .put("histograms", histogramJson)
+        .put("timers_us", timerJson);
+  }
+
+  private static JSONObject toJson(Histogram.Snapshot snapshot) throws JSONException {
+    return new JSONObject()
+        .put("count", snapshot.count)
+        .put("mean", snapshot.mean)
+        .put("p50", snapshot.p50)
+        .put("p90", snapshot.p90)
+        .put("p99", snapshot.p99)
+        .put("max", snapshot.max);
+  }
+
+  /**
+   * Write the JSON snapshot to a file
+   *
+   * @param file Destination (overwritten)
+   * @throws IOException If the file cannot be written
+   */
+  public void writeJson(File file) throws IOException {
+    String json;
+    try {
+      json = toJson().toString(2);
+    } catch (JSONException e) {
+      throw new IOException(e);
+    }
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(json);
+    }
+  }
+
+  /**
+   * Human-readable summary of the metrics that have been recorded
+   */
+  public String format() {
+    StringBuilder report = new StringBuilder();
+    for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+      report.append(String.format(Locale.US, "%-32s %d%n", entry.getKey(), entry.getValue().get()));
+    }
+    for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+      Histogram.Snapshot snapshot = entry.getValue().getHistogram().snapshot();
+      if (snapshot.count > 0) {
+        report.append(String.format(Locale.US, "%-32s us  %s%n", entry.getKey(), snapshot));
+      }
+    }
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      Histogram.Snapshot snapshot = entry.getValue().snapshot();
+      if (snapshot.count > 0) {
+        report.append(String.format(Locale.US, "%-32s %s%n", entry.getKey(), snapshot));
+      }
+    }
+    return report.length() > 0 ? report.toString() : "No metrics recorded\n";
+  }
+}
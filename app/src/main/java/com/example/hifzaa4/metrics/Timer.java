@@ -0,0 +1,47 @@
+package com.example.hifzaa4.metrics;
+
+/**
+ * Timer - Histogram of durations in microseconds
+ * Usage, without allocating:
+ *   long start = timer.start();
+ *   try { ... } finally { timer.stop(start); }
+ */
+public class Timer {
+
+  private final Histogram histogram = new Histogram();
+
+  /**
+   * Start timing
+   *
+   * @return Start time to pass to stop()
+   */
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Record the time since start()
+   *
+   * @param startNanos Value returned by start()
+   */
+  public void stop(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Record a duration
+   *
+   * @param nanos Duration from System.nanoTime() differences
+   */
+  public void record(long nanos) {
+    histogram.record(nanos / 1000);
+  }
+
+  public Histogram getHistogram() {
+    return histogram;
+  }
+
+  public void reset() {
+    histogram.reset();
+  }
+}
@@ -0,0 +1,189 @@
+package com.example.hifzaa4.metrics;
+
+import android.os.Trace;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracer - Named sections on the hot paths
+ * Each section is an android.os.Trace section (visible in a system trace) and is
+ * also kept in an in-process ring buffer, so JVM tests can produce the same
+ * trace. The buffer exports to Chrome trace-event JSON (chrome://tracing, Perfetto).
+ *
+ * Usage (section names should be constants, so recording allocates nothing):
+ *   Tracer.begin("PostRepository.insertPosts");
+ *   try { ... } finally { Tracer.end(); }
+ *
+ * Off by default; when off, begin() and end() only read one volatile flag.
+ */
+public final class Tracer {
+
+  // Events kept in the ring buffer
+  static final int CAPACITY = 1 << 16;
+
+  private static final byte BEGIN = 'B';
+  private static final byte END = 'E';
+
+  private static volatile boolean enabled;
+
+  // Ring buffer; slots are claimed with one atomic increment
+  private static final AtomicLong next = new AtomicLong();
+  private static final String[] names = new String[CAPACITY];
+  private static final long[] timestamps = new long[CAPACITY];
+  private static final long[] threadIds = new long[CAPACITY];
+  private static final byte[] phases = new byte[CAPACITY];
+
+  private static final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+  private static final ThreadLocal<Long> threadId = new ThreadLocal<Long>() {
+    @Override
+    protected Long initialValue() {
+      Thread thread = Thread.currentThread();
+      threadNames.put(thread.getId(), thread.getName());
+      return thread.getId();
+    }
+  };
+
+  private Tracer() {
+  }
+
+  /**
+   * Turn tracing on or off
+   */
+  public static void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Begin a section on the current thread
+   *
+   * @param name Section name (at most 127 characters)
+   */
+  public static void begin(String name) {
+    if (!enabled) {
+      return;
+    }
+    Trace.beginSection(name);
+    record(BEGIN, name);
+  }
+
+  /**
+   * End the current thread's innermost section
+   */
+  public static void end() {
+    if (!enabled) {
+      return;
+    }
+    record(END, null);
+    Trace.endSection();
+  }
+
+  private static void record(byte phase, String name) {
+    long tid = threadId.get();
+    int slot = (int) (next.getAndIncrement() & (CAPACITY - 1));
+    timestamps[slot] = System.nanoTime();
+    threadIds[slot] = tid;
+    phases[slot] = phase;
+    names[slot] = name;
+  }
+
+  /**
+   * Drop all recorded events
+   */
+  public static synchronized void clear() {
+    next.set(0);
+    for (int i = 0; i < CAPACITY; i++) {
+      phases[i] = 0;
+      names[i] = null;
+    }
+  }
+
+  /**
+   * Number of events recorded since the last clear (including overwritten ones)
+   */
+  public static long getEventCount() {
+    return next.get();
+  }
+
+  /**
+   * Recorded events as Chrome trace-event JSON
+   * Ends whose begin was overwritten by the ring buffer are left out
+   */
+  public static synchronized JSONObject toChromeTrace() throws JSONException {
+    long end = next.get();
+    long start = Math.max(0, end - CAPACITY);
+
+    JSONArray events = new JSONArray();
+    Map<Long, Integer> depths = new HashMap<>();
+    for (long i = start; i < end; i++) {
+      int slot = (int) (i & (CAPACITY - 1));
+      byte phase = phases[slot];
+      long tid = threadIds[slot];
+      int depth = depths.containsKey(tid) ? depths.get(tid) : 0;
+      if (phase == BEGIN) {
+        depths.put(tid, depth + 1);
+      } else if (phase == END && depth > 0) {
+        depths.put(tid, depth - 1);
+      } else {
+        continue;
+      }
+
+      JSONObject event = new JSONObject()
+          .put("ph", String.valueOf((char) phase))
+          .put("ts", timestamps[slot] / 1000.0)
+          .put("pid", 1)
+          .put("tid", tid);
+      if (phase == BEGIN) {
+        event.put("name", names[slot]);
+      }
+      events.put(event);
+    }
+
+    for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+      events.put(new JSONObject()
+          .put("ph", "M")
+          .put("name", "thread_name")
+          .put("pid", 1)
+          .put("tid", thread.getKey())
+          .put("args", new JSONObject().put("name", thread.getValue())));
+    }
+
+    return new JSONObject()
+        .put("traceEvents", events)
+        .put("displayTimeUnit", "ms");
+  }
+
+  /**
+   * Write the Chrome trace to a file
+   *
+   * @param file Destination (overwritten)
+   * @throws IOException If the file cannot be written
+   */
+  public static void writeChromeTrace(File file) throws IOException {
+    String json;
+    try {
+      json = toChromeTrace().toString();
+    } catch (JSONException e) {
+      throw new IOException(e);
+    }
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(json);
+    }
+  }
+}
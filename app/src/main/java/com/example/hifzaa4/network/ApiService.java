@@ -1,41 +1,74 @@
 package com.example.hifzaa4.network;
 
-import android.os.Handler;
-import android.os.Looper;
-
+import com.example.hifzaa4.BuildConfig;
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskExecutor;
+import com.example.hifzaa4.json.AlbumJsonCodec;
+import com.example.hifzaa4.json.AuthorJsonCodec;
+import com.example.hifzaa4.json.CommentJsonCodec;
+import com.example.hifzaa4.json.JsonFormatException;
+import com.example.hifzaa4.json.PhotoJsonCodec;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.metrics.Tracer;
+import com.example.hifzaa4.models.Album;
+import com.example.hifzaa4.models.Author;
+import com.example.hifzaa4.models.Comment;
+import com.example.hifzaa4.models.Photo;
 import com.example.hifzaa4.models.Post;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
  * ApiService - Network layer for fetching data from JSONPlaceholder API
- * Uses HttpURLConnection for REST API calls
+ * Uses HttpURLConnection for REST API calls. Timeouts, page size, prefetch
+ * and compression follow the NetworkPolicy for the estimated connection
+ * quality, and every request feeds the NetworkQualityEstimator and the
+ * per-endpoint RequestMetrics.
+ * Each request is available as a callback, a CompletableFuture (to compose
+ * with other work) and a blocking call (for code already off the main thread).
  */
 public class ApiService {
 
-  // API base URL
-  private static final String BASE_URL = "https://jsonplaceholder.typicode.com";
+  // API base URL of this build (-PapiBaseUrl=..., see app/build.gradle.kts)
+  public static final String BASE_URL = BuildConfig.API_BASE_URL;
   private static final String POSTS_ENDPOINT = "/posts";
+  private static final String COMMENTS_ENDPOINT = "/comments";
+  public static final String USERS_ENDPOINT = "/users";
+  private static final String ALBUMS_ENDPOINT = "/albums";
+  private static final String PHOTOS_ENDPOINT = "/photos";
+
+  private final String baseUrl;
+  private final NetworkQualityEstimator estimator;
+  private final RequestMetrics.Endpoint postsMetrics;
+  private final RequestMetrics.Endpoint postMetrics;
+  private final RequestMetrics.Endpoint commentsMetrics;
+  private final RequestMetrics.Endpoint usersMetrics;
+  private final RequestMetrics.Endpoint albumsMetrics;
+  private final RequestMetrics.Endpoint photosMetrics;
 
-  // Connection settings
-  private static final int CONNECT_TIMEOUT = 10000; // 10 seconds
-  private static final int READ_TIMEOUT = 15000; // 15 seconds
+  // Requests and prefetched pages run on the shared IO pool; callbacks on the main thread
+  private final TaskExecutor executor = AppExecutors.get().io();
+  private final Executor mainExecutor = AppExecutors.get().main();
 
-  // Executor for background tasks
-  private final ExecutorService executor = Executors.newSingleThreadExecutor();
-  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  // Base URL for instances created from now on; null means BASE_URL
+  private static volatile String baseUrlOverride;
 
   /**
    * Callback interface for API responses
@@ -46,164 +79,481 @@ public class ApiService {
     void onError(String errorMessage);
   }
 
+  /**
+   * Constructor
+   */
+  public ApiService() {
+    this(getBaseUrl(), NetworkQualityEstimator.get(), RequestMetrics.get());
+  }
+
+  /**
+   * Point new ApiService and OutboxSender instances at another server
+   * (e.g. a local stand-in server in tests and benchmarks)
+   *
+   * @param baseUrl Base URL without a trailing slash, or null for BASE_URL
+   */
+  public static void setBaseUrl(String baseUrl) {
+    baseUrlOverride = baseUrl;
+  }
+
+  /**
+   * Base URL new instances connect to
+   */
+  public static String getBaseUrl() {
+    String override = baseUrlOverride;
+    return override != null ? override : BASE_URL;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param baseUrl   API base URL
+   * @param estimator Estimator that picks the request policy and receives samples
+   * @param metrics   Where request timings are recorded
+   */
+  ApiService(String baseUrl, NetworkQualityEstimator estimator, RequestMetrics metrics) {
+    this.baseUrl = baseUrl;
+    this.estimator = estimator;
+    this.postsMetrics = metrics.endpoint("GET " + POSTS_ENDPOINT);
+    this.postMetrics = metrics.endpoint("GET " + POSTS_ENDPOINT + "/{id}");
+    this.commentsMetrics = metrics.endpoint("GET " + COMMENTS_ENDPOINT);
+    this.usersMetrics = metrics.endpoint("GET " + USERS_ENDPOINT);
+    this.albumsMetrics = metrics.endpoint("GET " + ALBUMS_ENDPOINT);
+    this.photosMetrics = metrics.endpoint("GET " + PHOTOS_ENDPOINT);
+  }
+
+  /**
+   * Timings of the posts list endpoint (sync records its DB write here)
+   */
+  public RequestMetrics.Endpoint getPostsMetrics() {
+    return postsMetrics;
+  }
+
   /**
    * Fetch all posts from API
-   * 
+   *
    * @param callback Callback for results
    */
   public void fetchPosts(ApiCallback<List<Post>> callback) {
-    executor.execute(() -> {
-      HttpURLConnection connection = null;
-      BufferedReader reader = null;
+    deliver(fetchPostsAsync(), callback);
+  }
 
-      try {
-        // Create connection
-        URL url = new URL(BASE_URL + POSTS_ENDPOINT);
-        connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(CONNECT_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
-        connection.setRequestProperty("Accept", "application/json");
-
-        // Check response code
-        int responseCode = connection.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-          notifyError(callback, "Server error: " + responseCode);
-          return;
-        }
+  /**
+   * Fetch all posts on the IO pool
+   * Cancelling the future drops the request if it has not started yet
+   *
+   * @return Future of the posts; fails with the IOException of fetchPostsBlocking()
+   */
+  public CompletableFuture<List<Post>> fetchPostsAsync() {
+    return Futures.supply(executor, Priority.HIGH, this::fetchPostsBlocking);
+  }
 
-        // Read response
-        reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-          response.append(line);
-        }
+  /**
+   * Fetch all posts on the calling thread (for background sync)
+   * Posts are requested page by page; the current page and the prefetch window
+   * after it are requested together. A page no IO thread has picked up yet is
+   * fetched on the calling thread when it is needed.
+   *
+   * @return Posts from the API
+   * @throws IOException On network errors, a ServerException for non-200 responses,
+   *                     or a JsonFormatException if the response cannot be parsed
+   */
+  public List<Post> fetchPostsBlocking() throws IOException {
+    NetworkPolicy policy = estimator.getPolicy();
+    int pageSize = policy.pageSize;
+    int window = 1 + policy.prefetchWindow;
 
-        // Parse JSON
-        List<Post> posts = parsePostsJson(response.toString());
-        notifySuccess(callback, posts);
+    List<Post> posts = new ArrayList<>();
+    for (int start = 0; ; start += window * pageSize) {
+      List<Future<List<Post>>> pages = new ArrayList<>(window);
+      for (int i = 0; i < window; i++) {
+        int pageStart = start + i * pageSize;
+        Priority priority = i == 0 ? Priority.NORMAL : Priority.LOW;
+        pages.add(executor.submit(priority, () -> fetchPage(pageStart, pageSize, policy)));
+      }
 
-      } catch (IOException e) {
-        notifyError(callback, "Network error: " + e.getMessage());
-      } catch (JSONException e) {
-        notifyError(callback, "JSON parsing error: " + e.getMessage());
-      } finally {
-        // Clean up resources
-        if (reader != null) {
-          try {
-            reader.close();
-          } catch (IOException e) {
-            e.printStackTrace();
+      for (int i = 0; i < pages.size(); i++) {
+        List<Post> page = await(pages.get(i));
+        posts.addAll(page);
+        if (page.size() < pageSize) {
+          // Last page: drop any prefetched pages past the end
+          for (int j = i + 1; j < pages.size(); j++) {
+            pages.get(j).cancel(true);
           }
-        }
-        if (connection != null) {
-          connection.disconnect();
+          return posts;
         }
       }
-    });
+    }
+  }
+
+  /**
+   * Fetch one page of posts
+   *
+   * @param start  Index of the first post
+   * @param limit  Page size
+   * @param policy Request policy
+   * @return Posts of the page (fewer than limit on the last page)
+   */
+  List<Post> fetchPage(int start, int limit, NetworkPolicy policy) throws IOException {
+    String response = get(postsMetrics, POSTS_ENDPOINT + "?_start=" + start + "&_limit=" + limit, policy);
+    long parseStart = System.nanoTime();
+    try {
+      return parsePostsJson(response);
+    } finally {
+      postsMetrics.record(RequestMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+    }
   }
 
   /**
    * Fetch a single post by ID
-   * 
+   *
    * @param postId   Post ID
    * @param callback Callback for result
    */
   public void fetchPostById(int postId, ApiCallback<Post> callback) {
-    executor.execute(() -> {
-      HttpURLConnection connection = null;
-      BufferedReader reader = null;
+    deliver(fetchPostByIdAsync(postId), callback);
+  }
 
-      try {
-        URL url = new URL(BASE_URL + POSTS_ENDPOINT + "/" + postId);
-        connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(CONNECT_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
-        connection.setRequestProperty("Accept", "application/json");
-
-        int responseCode = connection.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-          notifyError(callback, "Server error: " + responseCode);
-          return;
-        }
+  /**
+   * Fetch a single post by ID on the IO pool
+   *
+   * @param postId Post ID
+   * @return Future of the post; fails with the IOException of fetchPostByIdBlocking()
+   */
+  public CompletableFuture<Post> fetchPostByIdAsync(int postId) {
+    return Futures.supply(executor, Priority.HIGH, () -> fetchPostByIdBlocking(postId));
+  }
 
-        reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-          response.append(line);
-        }
+  /**
+   * Fetch a single post by ID on the calling thread
+   *
+   * @param postId Post ID
+   * @return Post from the API
+   * @throws IOException On network errors, a ServerException for non-200 responses
+   *                     (404 for an unknown ID), or a JsonFormatException
+   */
+  public Post fetchPostByIdBlocking(int postId) throws IOException {
+    String response = get(postMetrics, POSTS_ENDPOINT + "/" + postId, estimator.getPolicy());
+    long parseStart = System.nanoTime();
+    try {
+      return PostJsonCodec.decode(response);
+    } finally {
+      postMetrics.record(RequestMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+    }
+  }
+
+  /**
+   * Fetch the JSON of a single post as the server sends it, on the calling thread,
+   * unless it is unchanged since the copy the ETag was received with
+   * For the post pages shown in WebViewActivity, which are cached as they are (PostPageCache)
+   *
+   * @param postId Post ID
+   * @param etag   ETag of the cached page, or null to always fetch it
+   * @return The page with its ETag, or a not-modified result with the given ETag
+   * @throws IOException On network errors, or a ServerException for other non-200 responses
+   */
+  public Validated<String> fetchPostPageBlocking(int postId, String etag) throws IOException {
+    return get(postMetrics, POSTS_ENDPOINT + "/" + postId, estimator.getPolicy(), etag);
+  }
+
+  /**
+   * URL of a single post on this service's server (what fetchPostPageBlocking() requests)
+   */
+  public String getPostUrl(int postId) {
+    return baseUrl + POSTS_ENDPOINT + "/" + postId;
+  }
+
+  /**
+   * Fetch the comments of some posts on the IO pool
+   *
+   * @param postIds  Post IDs
+   * @param priority HIGH when a screen waits for them, LOW for prefetching
+   * @return Future of the comments; fails with the IOException of fetchCommentsBlocking()
+   */
+  public CompletableFuture<List<Comment>> fetchCommentsAsync(Collection<Integer> postIds, Priority priority) {
+    return Futures.supply(executor, priority, () -> fetchCommentsBlocking(postIds));
+  }
+
+  /**
+   * Fetch the comments of some posts in one request, on the calling thread
+   * (json-server matches a repeated filter parameter against any of its values)
+   *
+   * @param postIds Post IDs; keep the batch small enough for a URL
+   * @return Comments of all the posts
+   * @throws IOException On network errors, a ServerException for non-200 responses,
+   *                     or a JsonFormatException
+   */
+  public List<Comment> fetchCommentsBlocking(Collection<Integer> postIds) throws IOException {
+    if (postIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    StringBuilder path = new StringBuilder(COMMENTS_ENDPOINT);
+    char separator = '?';
+    for (int postId : postIds) {
+      path.append(separator).append("postId=").append(postId);
+      separator = '&';
+    }
 
-        Post post = parsePostJson(new JSONObject(response.toString()));
-        notifySuccess(callback, post);
+    String response = get(commentsMetrics, path.toString(), estimator.getPolicy());
+    long parseStart = System.nanoTime();
+    try {
+      return CommentJsonCodec.decodeList(response);
+    } finally {
+      commentsMetrics.record(RequestMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+    }
+  }
+
+  /**
+   * Fetch all users (the authors of posts) on the calling thread, unless they
+   * are unchanged since the copy the ETag was received with
+   *
+   * @param etag ETag of the cached users, or null to always fetch them
+   * @return The users with their ETag, or a not-modified result with the given ETag
+   * @throws IOException On network errors, a ServerException for other non-200 responses,
+   *                     or a JsonFormatException
+   */
+  public Validated<List<Author>> fetchUsersBlocking(String etag) throws IOException {
+    Validated<String> response = get(usersMetrics, USERS_ENDPOINT, estimator.getPolicy(), etag);
+    if (response.isNotModified()) {
+      return new Validated<>(null, response.etag);
+    }
+    long parseStart = System.nanoTime();
+    try {
+      return new Validated<>(AuthorJsonCodec.decodeList(response.body), response.etag);
+    } finally {
+      usersMetrics.record(RequestMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+    }
+  }
 
-      } catch (IOException e) {
-        notifyError(callback, "Network error: " + e.getMessage());
-      } catch (JSONException e) {
-        notifyError(callback, "JSON parsing error: " + e.getMessage());
+  /**
+   * Fetch all albums on the IO pool
+   *
+   * @return Future of the albums; fails with an IOException as fetchPostByIdBlocking() does
+   */
+  public CompletableFuture<List<Album>> fetchAlbumsAsync() {
+    return Futures.supply(executor, Priority.HIGH, () -> {
+      String response = get(albumsMetrics, ALBUMS_ENDPOINT, estimator.getPolicy());
+      long parseStart = System.nanoTime();
+      try {
+        return AlbumJsonCodec.decodeList(response);
       } finally {
-        if (reader != null) {
-          try {
-            reader.close();
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        }
-        if (connection != null) {
-          connection.disconnect();
-        }
+        albumsMetrics.record(RequestMetrics.Phase.PARSE, System.nanoTime() - parseStart);
       }
     });
   }
 
   /**
-   * Parse JSON array into list of Posts
+   * Fetch the photos of an album on the IO pool
+   * Only the records; their images are loaded by ImageLoader
+   *
+   * @param albumId Album ID
+   * @return Future of the photos; fails with an IOException as fetchPostByIdBlocking() does
    */
-  private List<Post> parsePostsJson(String json) throws JSONException {
-    List<Post> posts = new ArrayList<>();
-    JSONArray jsonArray = new JSONArray(json);
+  public CompletableFuture<List<Photo>> fetchPhotosAsync(int albumId) {
+    return Futures.supply(executor, Priority.HIGH, () -> {
+      String response = get(photosMetrics, PHOTOS_ENDPOINT + "?albumId=" + albumId, estimator.getPolicy());
+      long parseStart = System.nanoTime();
+      try {
+        return PhotoJsonCodec.decodeList(response);
+      } finally {
+        photosMetrics.record(RequestMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+      }
+    });
+  }
+
+  /**
+   * GET a path and return the response body
+   */
+  private String get(RequestMetrics.Endpoint metrics, String path, NetworkPolicy policy) throws IOException {
+    return get(metrics, path, policy, null).body;
+  }
+
+  /**
+   * GET a path, conditionally if an ETag is given
+   * Records connect, first byte and download times for the endpoint, and time
+   * to first byte and throughput with the estimator (a 304 has no download)
+   *
+   * @param etag Sent as If-None-Match; null for an unconditional request
+   * @return The response body and ETag, or a not-modified result with the given ETag
+   */
+  private Validated<String> get(RequestMetrics.Endpoint metrics, String path, NetworkPolicy policy, String etag)
+      throws IOException {
+    HttpURLConnection connection = null;
+    InputStream in = null;
+    boolean ok = false;
+
+    Tracer.begin("ApiService.get");
+    try {
+      // Create connection
+      URL url = new URL(baseUrl + path);
+      connection = (HttpURLConnection) url.openConnection();
+      connection.setRequestMethod("GET");
+      connection.setConnectTimeout(policy.connectTimeoutMillis);
+      connection.setReadTimeout(policy.readTimeoutMillis);
+      connection.setRequestProperty("Accept", "application/json");
+      // Setting the header turns off transparent gzip, so decoding is done below
+      connection.setRequestProperty("Accept-Encoding", policy.compress ? "gzip" : "identity");
+      if (etag != null) {
+        connection.setRequestProperty("If-None-Match", etag);
+      }
+
+      // Connect, then check response code
+      long begin = System.nanoTime();
+      Tracer.begin("ApiService.connect");
+      try {
+        connection.connect();
+      } finally {
+        Tracer.end();
+      }
+      long connected = System.nanoTime();
+      int responseCode;
+      Tracer.begin("ApiService.ttfb");
+      try {
+        responseCode = connection.getResponseCode();
+      } finally {
+        Tracer.end();
+      }
+      long firstByte = System.nanoTime();
+      metrics.record(RequestMetrics.Phase.CONNECT, connected - begin);
+      metrics.record(RequestMetrics.Phase.TTFB, firstByte - connected);
+      if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && etag != null) {
+        ok = true;
+        return new Validated<>(null, etag);
+      }
+      if (responseCode != HttpURLConnection.HTTP_OK) {
+        throw new ServerException(responseCode);
+      }
+
+      // Read response
+      in = connection.getInputStream();
+      byte[] body;
+      Tracer.begin("ApiService.download");
+      try {
+        body = readFully(in);
+      } finally {
+        Tracer.end();
+      }
+      long downloaded = System.nanoTime();
+      metrics.record(RequestMetrics.Phase.DOWNLOAD, downloaded - firstByte);
+      metrics.recordBytes(body.length);
+      estimator.recordRequest(TimeUnit.NANOSECONDS.toMillis(firstByte - connected), body.length,
+          TimeUnit.NANOSECONDS.toMillis(downloaded - firstByte));
 
-    for (int i = 0; i < jsonArray.length(); i++) {
-      JSONObject jsonObject = jsonArray.getJSONObject(i);
-      posts.add(parsePostJson(jsonObject));
+      if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+        body = readFully(new GZIPInputStream(new ByteArrayInputStream(body)));
+      }
+      ok = true;
+      return new Validated<>(new String(body, StandardCharsets.UTF_8), connection.getHeaderField("ETag"));
+
+    } finally {
+      if (!ok) {
+        metrics.recordError();
+      }
+      // Clean up resources
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      if (connection != null) {
+        connection.disconnect();
+      }
+      Tracer.end();
     }
+  }
 
-    return posts;
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  private static <T> T await(Future<T> future) throws IOException {
+    try {
+      return TaskExecutor.await(future);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
   }
 
   /**
-   * Parse JSON object into Post
+   * Non-200 response from the API
    */
-  private Post parsePostJson(JSONObject jsonObject) throws JSONException {
-    return new Post(
-        jsonObject.getInt("id"),
-        jsonObject.getInt("userId"),
-        jsonObject.getString("title"),
-        jsonObject.getString("body"),
-        false // Default not favorite
-    );
+  public static class ServerException extends IOException {
+    public final int responseCode;
+
+    public ServerException(int responseCode) {
+      super("Server error: " + responseCode);
+      this.responseCode = responseCode;
+    }
   }
 
   /**
-   * Notify success on main thread
+   * Response to a conditional request: a fresh body and its ETag, or "not modified"
    */
-  private <T> void notifySuccess(ApiCallback<T> callback, T result) {
-    mainHandler.post(() -> callback.onSuccess(result));
+  public static class Validated<T> {
+    public final T body;     // null if not modified
+    public final String etag; // null if the server sent none
+
+    public Validated(T body, String etag) {
+      this.body = body;
+      this.etag = etag;
+    }
+
+    public boolean isNotModified() {
+      return body == null;
+    }
   }
 
   /**
-   * Notify error on main thread
+   * Parse JSON array into list of Posts
+   */
+  private List<Post> parsePostsJson(String json) throws JsonFormatException {
+    Tracer.begin("ApiService.parsePostsJson");
+    try {
+      return PostJsonCodec.decodeList(json);
+    } finally {
+      Tracer.end();
+    }
+  }
+
+  /**
+   * Hand the outcome of a request to a callback on the main thread
    */
-  private <T> void notifyError(ApiCallback<T> callback, String error) {
-    mainHandler.post(() -> callback.onError(error));
+  private <T> void deliver(CompletableFuture<T> future, ApiCallback<T> callback) {
+    future.whenCompleteAsync((result, error) -> {
+      if (error == null) {
+        callback.onSuccess(result);
+      } else {
+        callback.onError(errorMessage(Futures.unwrap(error)));
+      }
+    }, mainExecutor);
   }
 
   /**
-   * Shutdown executor service
+   * User-facing message for a failed request
    */
-  public void shutdown() {
-    executor.shutdown();
+  public static String errorMessage(Throwable error) {
+    if (error instanceof ServerException) {
+      return error.getMessage();
+    } else if (error instanceof JsonFormatException) {
+      return "JSON parsing error: " + error.getMessage();
+    } else if (error instanceof IOException) {
+      return "Network error: " + error.getMessage();
+    }
+    return "Unexpected error: " + error;
   }
 }
@@ -0,0 +1,50 @@
+package com.example.hifzaa4.network;
+
+/**
+ * NetworkPolicy - Request settings tuned to the estimated connection quality
+ */
+public class NetworkPolicy {
+
+  public final NetworkQualityEstimator.Quality quality;
+  public final int connectTimeoutMillis;
+  public final int readTimeoutMillis;
+  public final int pageSize;        // Posts per list request
+  public final int prefetchWindow;  // Extra pages requested ahead of the one being read
+  public final boolean compress;    // Ask for gzip responses
+
+  NetworkPolicy(NetworkQualityEstimator.Quality quality, int connectTimeoutMillis, int readTimeoutMillis,
+      int pageSize, int prefetchWindow, boolean compress) {
+    this.quality = quality;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.readTimeoutMillis = readTimeoutMillis;
+    this.pageSize = pageSize;
+    this.prefetchWindow = prefetchWindow;
+    this.compress = compress;
+  }
+
+  /**
+   * Policy for a quality class
+   * Slow links get longer timeouts, small pages, no prefetch and gzip; fast links
+   * get short timeouts, large pages and uncompressed bodies (less CPU to decode)
+   */
+  public static NetworkPolicy forQuality(NetworkQualityEstimator.Quality quality) {
+    switch (quality) {
+      case POOR:
+        return new NetworkPolicy(quality, 20000, 30000, 10, 0, true);
+      case GOOD:
+        return new NetworkPolicy(quality, 10000, 15000, 50, 2, true);
+      case EXCELLENT:
+        return new NetworkPolicy(quality, 5000, 10000, 100, 3, false);
+      case MODERATE:
+      default:
+        // Also used before anything has been measured
+        return new NetworkPolicy(quality, 15000, 20000, 25, 1, true);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return quality + " (timeouts " + connectTimeoutMillis + "/" + readTimeoutMillis +
+        " ms, page " + pageSize + ", prefetch " + prefetchWindow + ", gzip " + compress + ")";
+  }
+}
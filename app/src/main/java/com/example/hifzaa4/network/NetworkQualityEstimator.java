@@ -0,0 +1,194 @@
+package com.example.hifzaa4.network;
+
+import com.example.hifzaa4.utils.NetworkUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NetworkQualityEstimator - Rolling estimate of connection quality from real requests
+ * Keeps the last samples of round-trip time (time to first byte) and download
+ * throughput per network type, and classifies the current network from their
+ * medians. The network layer turns the class into a NetworkPolicy.
+ */
+public class NetworkQualityEstimator {
+
+  /**
+   * Connection quality classes, slowest first
+   */
+  public enum Quality {
+    UNKNOWN, POOR, MODERATE, GOOD, EXCELLENT
+  }
+
+  // Samples kept per network type
+  private static final int WINDOW = 20;
+
+  // Bodies smaller than this say little about throughput
+  static final long MIN_THROUGHPUT_BYTES = 2 * 1024;
+
+  private final Map<String, Samples> samplesByType = new HashMap<>();
+  private volatile String networkType = NetworkUtils.TYPE_UNKNOWN;
+
+  // Process-wide instance
+  private static final NetworkQualityEstimator INSTANCE = new NetworkQualityEstimator();
+
+  public static NetworkQualityEstimator get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Set the type of the current network (see NetworkUtils.TYPE_*)
+   */
+  public void setNetworkType(String networkType) {
+    this.networkType = networkType;
+  }
+
+  public String getNetworkType() {
+    return networkType;
+  }
+
+  /**
+   * Record a finished request on the current network
+   *
+   * @param ttfbMillis     Time from sending the request to the first response byte
+   * @param bytes          Body bytes received
+   * @param downloadMillis Time spent reading the body
+   */
+  public void recordRequest(long ttfbMillis, long bytes, long downloadMillis) {
+    recordRequest(networkType, ttfbMillis, bytes, downloadMillis);
+  }
+
+  /**
+   * Record a finished request on a given network type
+   */
+  public void recordRequest(String networkType, long ttfbMillis, long bytes, long downloadMillis) {
+    long kbps = bytes >= MIN_THROUGHPUT_BYTES ? bytes * 8 / Math.max(1, downloadMillis) : -1;
+    synchronized (samplesByType) {
+      Samples samples = samplesByType.get(networkType);
+      if (samples == null) {
+        samples = new Samples();
+        samplesByType.put(networkType, samples);
+      }
+      samples.add(ttfbMillis, kbps);
+    }
+  }
+
+  /**
+   * Quality of the current network
+   */
+  public Quality getQuality() {
+    return getQuality(networkType);
+  }
+
+  /**
+   * Quality of a network type
+   */
+  public Quality getQuality(String networkType) {
+    return classify(getRttMillis(networkType), getThroughputKbps(networkType));
+  }
+
+  /**
+   * Request policy for the current network
+   */
+  public NetworkPolicy getPolicy() {
+    return NetworkPolicy.forQuality(getQuality());
+  }
+
+  /**
+   * Median round-trip time for a network type
+   *
+   * @return Milliseconds, or -1 without samples
+   */
+  public long getRttMillis(String networkType) {
+    synchronized (samplesByType) {
+      Samples samples = samplesByType.get(networkType);
+      return samples != null ? samples.medianRtt() : -1;
+    }
+  }
+
+  /**
+   * Median download throughput for a network type
+   *
+   * @return Kilobits per second, or -1 without samples
+   */
+  public long getThroughputKbps(String networkType) {
+    synchronized (samplesByType) {
+      Samples samples = samplesByType.get(networkType);
+      return samples != null ? samples.medianKbps() : -1;
+    }
+  }
+
+  /**
+   * Forget all samples
+   */
+  public void reset() {
+    synchronized (samplesByType) {
+      samplesByType.clear();
+    }
+  }
+
+  /**
+   * Classify a connection; a missing throughput estimate (-1) is judged on RTT alone
+   *
+   * @param rttMillis  Median RTT, or -1 if unknown
+   * @param kbps       Median throughput, or -1 if unknown
+   * @return Quality class
+   */
+  static Quality classify(long rttMillis, long kbps) {
+    if (rttMillis < 0) {
+      return Quality.UNKNOWN;
+    }
+    boolean noThroughput = kbps < 0;
+    if (rttMillis <= 100 && (noThroughput || kbps >= 5000)) {
+      return Quality.EXCELLENT;
+    }
+    if (rttMillis <= 300 && (noThroughput || kbps >= 1000)) {
+      return Quality.GOOD;
+    }
+    if (rttMillis <= 1000 && (noThroughput || kbps >= 150)) {
+      return Quality.MODERATE;
+    }
+    return Quality.POOR;
+  }
+
+  /**
+   * Ring buffers of the latest samples for one network type
+   */
+  private static class Samples {
+    private final long[] rtt = new long[WINDOW];
+    private final long[] kbps = new long[WINDOW];
+    private int rttCount;
+    private int rttNext;
+    private int kbpsCount;
+    private int kbpsNext;
+
+    void add(long rttMillis, long throughputKbps) {
+      rtt[rttNext] = rttMillis;
+      rttNext = (rttNext + 1) % WINDOW;
+      rttCount = Math.min(rttCount + 1, WINDOW);
+      if (throughputKbps >= 0) {
+        kbps[kbpsNext] = throughputKbps;
+        kbpsNext = (kbpsNext + 1) % WINDOW;
+        kbpsCount = Math.min(kbpsCount + 1, WINDOW);
+      }
+    }
+
+    long medianRtt() {
+      return median(rtt, rttCount);
+    }
+
+    long medianKbps() {
+      return median(kbps, kbpsCount);
+    }
+
+    private static long median(long[] values, int count) {
+      if (count == 0) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(values, count);
+      Arrays.sort(sorted);
+      return sorted[count / 2];
+    }
+  }
+}
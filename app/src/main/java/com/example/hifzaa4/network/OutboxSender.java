@@ -0,0 +1,377 @@
+package com.example.hifzaa4.network;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskExecutor;
+import com.example.hifzaa4.database.OutboxRepository;
+import com.example.hifzaa4.database.PendingMutation;
+import com.example.hifzaa4.json.JsonFormatException;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OutboxSender - Pushes queued local changes to the API
+ * Sends the outbox in batches with a bounded number of concurrent requests,
+ * on the shared IO pool; sends run one at a time.
+ * Every attempt of a mutation carries the same Idempotency-Key header; failed
+ * attempts are retried with exponential backoff and jitter.
+ * A created post is renumbered to the ID the server assigned; an edit of a post
+ * the server does not have (deleted there, or a local post whose assigned ID was
+ * already taken here) is sent again as a new post.
+ */
+public class OutboxSender {
+
+  private static final String TAG = "OutboxSender";
+
+  // Requests sent at the same time
+  private static final int MAX_CONCURRENT_REQUESTS = 3;
+
+  // Mutations claimed from the outbox per round
+  private static final int BATCH_SIZE = 20;
+
+  // Attempts before a mutation is given up on
+  static final int MAX_ATTEMPTS = 8;
+
+  // Retry backoff
+  private static final long BASE_BACKOFF_MS = 2000;
+  private static final long MAX_BACKOFF_MS = 10 * 60 * 1000;
+
+  // Mutations given up on, and edits re-sent as new posts
+  private static final Counter DROPPED_COUNTER = MetricsRegistry.get().counter("outbox.dropped");
+  private static final Counter RECREATED_COUNTER = MetricsRegistry.get().counter("outbox.recreated");
+
+  /**
+   * Outcome of one send attempt
+   * GONE: the server has no such post (404 on an update)
+   */
+  enum Result {
+    SENT, RETRY, DROP, GONE
+  }
+
+  /**
+   * Listener for posts renumbered after the server accepted their creation
+   */
+  public interface PostIdListener {
+    void onPostIdAssigned(int localId, int serverId);
+  }
+
+  /**
+   * Outcome of one send attempt, with the ID the server assigned to a created post
+   */
+  static class Outcome {
+    final Result result;
+    final int serverId; // 0 if none
+
+    Outcome(Result result, int serverId) {
+      this.result = result;
+      this.serverId = serverId;
+    }
+  }
+
+  private final OutboxRepository outbox;
+  private final String baseUrl;
+  private final long baseBackoffMillis;
+  private final int maxConcurrent;
+  private final TaskExecutor requestExecutor = AppExecutors.get().io();
+  private final Executor coordinator = requestExecutor.serial(Priority.NORMAL);
+  private final AtomicBoolean sendRequested = new AtomicBoolean();
+  private final Random random = new Random();
+  private volatile ScheduledFuture<?> retry;
+  private volatile PostIdListener postIdListener;
+  private volatile boolean stopped;
+
+  // Singleton instance
+  private static OutboxSender instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return OutboxSender instance
+   */
+  public static synchronized OutboxSender getInstance(Context context) {
+    if (instance == null) {
+      OutboxRepository outbox = new OutboxRepository(context.getApplicationContext());
+      instance = new OutboxSender(outbox, ApiService.getBaseUrl(), MAX_CONCURRENT_REQUESTS, BASE_BACKOFF_MS);
+      instance.coordinator.execute(outbox::releaseInFlight);
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param outbox            Outbox to drain
+   * @param baseUrl           API base URL
+   * @param maxConcurrent     Requests sent at the same time
+   * @param baseBackoffMillis Delay before the first retry, doubled for each further attempt
+   */
+  OutboxSender(OutboxRepository outbox, String baseUrl, int maxConcurrent, long baseBackoffMillis) {
+    this.outbox = outbox;
+    this.baseUrl = baseUrl;
+    this.baseBackoffMillis = baseBackoffMillis;
+    this.maxConcurrent = maxConcurrent;
+  }
+
+  /**
+   * Set the listener told about renumbered posts (called on a background thread)
+   */
+  public void setPostIdListener(PostIdListener listener) {
+    this.postIdListener = listener;
+  }
+
+  /**
+   * Ask for the outbox to be sent in the background
+   * Requests made while a send is already queued are merged into it
+   */
+  public void requestSend() {
+    if (!stopped && sendRequested.compareAndSet(false, true)) {
+      coordinator.execute(() -> {
+        sendRequested.set(false);
+        sendPending();
+        scheduleRetry();
+      });
+    }
+  }
+
+  /**
+   * Send everything that is due, on the calling thread
+   *
+   * @return Number of mutations the server accepted
+   */
+  int sendPending() {
+    int sent = 0;
+    List<PendingMutation> batch;
+    while (!(batch = outbox.claimBatch(BATCH_SIZE, System.currentTimeMillis())).isEmpty()) {
+      Outcome[] outcomes = sendAll(batch);
+
+      for (int i = 0; i < batch.size(); i++) {
+        PendingMutation mutation = batch.get(i);
+        Outcome outcome = outcomes[i];
+        Result result = outcome != null ? outcome.result : Result.RETRY;
+        if (result == Result.SENT) {
+          sent++;
+          if (mutation.getOperation() == PendingMutation.Operation.CREATE) {
+            complete(mutation, outcome.serverId);
+          } else {
+            outbox.remove(mutation.getRowId());
+          }
+        } else if (result == Result.GONE) {
+          // Deleted on the server while edited here, or a local post that never got a
+          // server ID: the local edit wins, as in a merge
+          Log.w(TAG, "Post " + mutation.getPostId() + " is not on the server, sending it as a new post");
+          RECREATED_COUNTER.increment();
+          outbox.resendAsCreate(mutation);
+        } else if (result == Result.DROP || mutation.getAttempts() + 1 >= MAX_ATTEMPTS) {
+          Log.w(TAG, "Giving up on " + mutation + " (" + result + ")");
+          DROPPED_COUNTER.increment();
+          outbox.remove(mutation.getRowId());
+        } else {
+          outbox.markFailed(mutation.getRowId(), System.currentTimeMillis() + backoff(mutation.getAttempts()));
+        }
+      }
+    }
+    return sent;
+  }
+
+  /**
+   * Remove a sent CREATE and move the post to the ID the server assigned
+   */
+  private void complete(PendingMutation create, int serverId) {
+    if (outbox.completeCreate(create, serverId)) {
+      PostIdListener listener = postIdListener;
+      if (listener != null) {
+        listener.onPostIdAssigned(create.getPostId(), serverId);
+      }
+    }
+  }
+
+  /**
+   * Send a batch with at most maxConcurrent requests in flight
+   * Each sender task takes the next unsent mutation until the batch is done
+   *
+   * @return Outcome per mutation (null if its sender failed)
+   */
+  private Outcome[] sendAll(List<PendingMutation> batch) {
+    Outcome[] results = new Outcome[batch.size()];
+    AtomicInteger next = new AtomicInteger();
+    List<Future<?>> senders = new ArrayList<>(maxConcurrent);
+    for (int i = 0; i < Math.min(maxConcurrent, batch.size()); i++) {
+      senders.add(requestExecutor.submit(Priority.NORMAL, () -> {
+        int index;
+        while ((index = next.getAndIncrement()) < results.length) {
+          results[index] = send(batch.get(index));
+        }
+      }));
+    }
+    for (Future<?> sender : senders) {
+      await(sender);
+    }
+    return results;
+  }
+
+  /**
+   * Wake up again when the earliest failed mutation is due
+   */
+  private void scheduleRetry() {
+    long next = outbox.getNextAttemptTime();
+    if (next >= 0 && !stopped) {
+      long delay = Math.max(0, next - System.currentTimeMillis());
+      retry = AppExecutors.get().schedule(requestExecutor, this::requestSend, delay);
+    }
+  }
+
+  /**
+   * Send one mutation
+   */
+  Outcome send(PendingMutation mutation) {
+    HttpURLConnection connection = null;
+    try {
+      URL url = new URL(baseUrl + mutation.getPath());
+      connection = (HttpURLConnection) url.openConnection();
+      connection.setRequestMethod(mutation.getOperation().method);
+      NetworkPolicy policy = NetworkQualityEstimator.get().getPolicy();
+      connection.setConnectTimeout(policy.connectTimeoutMillis);
+      connection.setReadTimeout(policy.readTimeoutMillis);
+      connection.setRequestProperty("Accept", "application/json");
+      connection.setRequestProperty("Idempotency-Key", mutation.getIdempotencyKey());
+
+      if (mutation.getPayload() != null) {
+        byte[] body = mutation.getPayload().getBytes(StandardCharsets.UTF_8);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        try (OutputStream out = connection.getOutputStream()) {
+          out.write(body);
+        }
+      }
+
+      int responseCode = connection.getResponseCode();
+      boolean created = mutation.getOperation() == PendingMutation.Operation.CREATE
+          && responseCode >= 200 && responseCode < 300;
+      String body = read(connection, responseCode, created);
+      return new Outcome(classify(mutation, responseCode), created ? parseId(body) : 0);
+
+    } catch (IOException e) {
+      return new Outcome(Result.RETRY, 0);
+    } finally {
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  /**
+   * Map a response code to an outcome
+   */
+  static Result classify(PendingMutation mutation, int responseCode) {
+    if (responseCode >= 200 && responseCode < 300) {
+      return Result.SENT;
+    }
+    if (responseCode == HttpURLConnection.HTTP_NOT_FOUND
+        && mutation.getOperation() == PendingMutation.Operation.DELETE) {
+      return Result.SENT; // Already gone
+    }
+    if (responseCode == HttpURLConnection.HTTP_NOT_FOUND
+        && mutation.getOperation() == PendingMutation.Operation.UPDATE) {
+      return Result.GONE;
+    }
+    if (responseCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT || responseCode == 429 || responseCode >= 500) {
+      return Result.RETRY;
+    }
+    return Result.DROP; // Other client errors will not succeed on retry
+  }
+
+  /**
+   * Backoff before the next attempt: base * 2^attempts, capped, plus up to 50% jitter
+   */
+  private long backoff(int attempts) {
+    long delay = Math.min(MAX_BACKOFF_MS, baseBackoffMillis << Math.min(attempts, 20));
+    return delay + (delay > 0 ? (long) (random.nextDouble() * delay / 2) : 0);
+  }
+
+  /**
+   * ID of the post in a CREATE response
+   *
+   * @return Post ID, or 0 if the body is not a post
+   */
+  static int parseId(String body) {
+    if (body == null || body.isEmpty()) {
+      return 0;
+    }
+    try {
+      return PostJsonCodec.decode(body).getId();
+    } catch (JsonFormatException e) {
+      Log.w(TAG, "No post in the CREATE response", e);
+      return 0;
+    }
+  }
+
+  /**
+   * Read the response body so the connection can be reused
+   *
+   * @param keep true to return the body, false to discard it
+   * @return Body, or null if discarded or empty
+   */
+  private static String read(HttpURLConnection connection, int responseCode, boolean keep) throws IOException {
+    InputStream in = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+    if (in == null) {
+      return null;
+    }
+    ByteArrayOutputStream body = keep ? new ByteArrayOutputStream() : null;
+    try {
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        if (body != null) {
+          body.write(buffer, 0, read);
+        }
+      }
+    } finally {
+      in.close();
+    }
+    return body != null ? new String(body.toByteArray(), StandardCharsets.UTF_8) : null;
+  }
+
+  private static void await(Future<?> future) {
+    try {
+      TaskExecutor.await(future);
+    } catch (ExecutionException e) {
+      Log.w(TAG, "Sender failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stop sending; a retry that is already scheduled is cancelled
+   */
+  public void shutdown() {
+    stopped = true;
+    ScheduledFuture<?> pending = retry;
+    if (pending != null) {
+      pending.cancel(false);
+    }
+  }
+}
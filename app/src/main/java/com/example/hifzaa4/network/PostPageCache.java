@@ -0,0 +1,322 @@
+package com.example.hifzaa4.network;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.database.OutboxRepository;
+import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.images.DiskCache;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.models.Post;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * PostPageCache - Post pages (GET /posts/{id}) for the WebView, served without waiting for the network
+ * A cached page is served at once and revalidated in the background with its
+ * ETag; a page that is not cached is fetched and stored; if that fails (e.g.
+ * offline), the post is served from the posts table instead. A post with local
+ * changes not sent yet is always served from the posts table, so the page shows
+ * the edit. The pages of favorite posts are prefetched, so they open offline too.
+ * A page is fetched once at a time; a request for a page being fetched waits for it.
+ * Served pages are counted as cache.page.hit, .miss, .offline and .local (see getHitRate()).
+ */
+public class PostPageCache {
+
+  private static final String TAG = "PostPageCache";
+
+  private static final long DISK_CACHE_BYTES = 2L * 1024 * 1024;
+
+  private static final String MIME_TYPE = "application/json";
+  private static final String ENCODING = "UTF-8";
+
+  private static final Counter HIT_COUNTER = MetricsRegistry.get().counter("cache.page.hit");
+  private static final Counter MISS_COUNTER = MetricsRegistry.get().counter("cache.page.miss");
+  private static final Counter OFFLINE_COUNTER = MetricsRegistry.get().counter("cache.page.offline");
+  private static final Counter LOCAL_COUNTER = MetricsRegistry.get().counter("cache.page.local");
+
+  private final DiskCache disk;
+  private final PostRepository repository;
+  private final OutboxRepository outbox;
+  private final ApiService apiService;
+  private final String urlPrefix;
+
+  // Fetches in flight by post, so a page is not fetched twice at once
+  private final Map<Integer, CompletableFuture<Page>> fetches = new ConcurrentHashMap<>();
+
+  // Singleton instance
+  private static PostPageCache instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return PostPageCache instance
+   */
+  public static synchronized PostPageCache getInstance(Context context) {
+    if (instance == null) {
+      Context app = context.getApplicationContext();
+      instance = new PostPageCache(new DiskCache(new File(app.getCacheDir(), "pages"), DISK_CACHE_BYTES),
+          new PostRepository(app), new OutboxRepository(app), new ApiService());
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param disk       Where pages are stored, with their ETags
+   * @param repository Posts served when a page is neither cached nor reachable
+   * @param outbox     Local changes; a post with unsent changes is served from the repository
+   * @param apiService API the pages come from
+   */
+  PostPageCache(DiskCache disk, PostRepository repository, OutboxRepository outbox, ApiService apiService) {
+    this.disk = disk;
+    this.repository = repository;
+    this.outbox = outbox;
+    this.apiService = apiService;
+    String url = apiService.getPostUrl(0);
+    urlPrefix = url.substring(0, url.length() - 1);
+  }
+
+  /**
+   * URL of the page of a post; open this in the WebView so intercept() serves it
+   */
+  public String getPageUrl(int postId) {
+    return apiService.getPostUrl(postId);
+  }
+
+  /**
+   * Serve a WebView request from the cache or the posts table
+   * Blocks on the network only for a page that is not cached (or waits for the
+   * fetch of it already running); call from WebViewClient.shouldInterceptRequest
+   * (a WebView background thread).
+   *
+   * @param url Requested URL
+   * @return Response, or null to let the WebView load the URL itself (not a post page,
+   * or a post that is neither cached, reachable nor stored)
+   */
+  public WebResourceResponse intercept(String url) {
+    int postId = parsePostId(url);
+    if (postId == 0) {
+      return null;
+    }
+
+    // The server's page would not show an edit that is still in the outbox
+    if (outbox.hasPending(postId)) {
+      return serveStored(postId, LOCAL_COUNTER);
+    }
+
+    Page cached = read(url);
+    if (cached != null) {
+      HIT_COUNTER.increment();
+      revalidate(postId, cached);
+      return response(cached.body);
+    }
+
+    if (postId > 0) {
+      try {
+        // A running revalidation answers null (not modified) if the page was evicted meanwhile
+        Page fetched = fetchOnce(postId);
+        Page page = fetched != null ? fetched : read(url);
+        if (page != null) {
+          MISS_COUNTER.increment();
+          return response(page.body);
+        }
+      } catch (IOException e) {
+        Log.w(TAG, "Cannot fetch " + url + ", serving the stored post", e);
+      }
+    }
+    return serveStored(postId, OFFLINE_COUNTER);
+  }
+
+  /**
+   * Fetch the pages of favorite posts that are not cached yet, with LOW priority
+   *
+   * @return Future of the number of pages fetched
+   */
+  public CompletableFuture<Integer> prefetchFavorites() {
+    return Futures.supply(AppExecutors.get().io(), Priority.LOW, () -> {
+      int fetched = 0;
+      List<Post> favorites = repository.getFavoritePosts();
+      for (Post post : favorites) {
+        int postId = post.getId();
+        if (postId <= 0 || disk.contains(getPageUrl(postId)) || fetches.containsKey(postId)) {
+          continue;
+        }
+        fetchOnce(postId);
+        fetched++;
+      }
+      return fetched;
+    });
+  }
+
+  /**
+   * Share of served pages that came from the cache
+   *
+   * @return Hits per served page, or 0 if none was served yet
+   */
+  public static double getHitRate() {
+    long hits = HIT_COUNTER.get();
+    long served = hits + MISS_COUNTER.get() + OFFLINE_COUNTER.get() + LOCAL_COUNTER.get();
+    return served > 0 ? (double) hits / served : 0;
+  }
+
+  /**
+   * Post ID of a page URL
+   *
+   * @return Post ID, or 0 if the URL is not the page of a post
+   */
+  int parsePostId(String url) {
+    if (url == null || !url.startsWith(urlPrefix)) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(url.substring(urlPrefix.length()));
+    } catch (NumberFormatException e) {
+      return 0; // A query, a sub-resource such as /comments, or not a number
+    }
+  }
+
+  /**
+   * Serve a post from the posts table
+   *
+   * @param counter Counter of pages served this way
+   * @return Response, or null if the post is not stored
+   */
+  private WebResourceResponse serveStored(int postId, Counter counter) {
+    Post post = repository.getPostById(postId);
+    if (post == null) {
+      return null;
+    }
+    counter.increment();
+    return response(PostJsonCodec.encode(post).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Check a cached page with its ETag on the IO pool and store it if it changed
+   * Skipped while the page is being fetched anyway
+   */
+  private void revalidate(int postId, Page cached) {
+    CompletableFuture<Page> own = new CompletableFuture<>();
+    if (postId <= 0 || fetches.putIfAbsent(postId, own) != null) {
+      return;
+    }
+    Futures.supply(AppExecutors.get().io(), Priority.LOW, () -> fetch(postId, cached.etag))
+        .whenComplete((page, error) -> {
+          fetches.remove(postId, own);
+          if (error != null) {
+            Log.w(TAG, "Cannot revalidate the page of post " + postId, Futures.unwrap(error));
+            own.completeExceptionally(Futures.unwrap(error));
+          } else {
+            own.complete(page);
+          }
+        });
+  }
+
+  /**
+   * Fetch a page on the calling thread, or wait for the fetch of it already running
+   *
+   * @return The fetched page, or null if a running revalidation found the cached copy current
+   */
+  private Page fetchOnce(int postId) throws IOException {
+    CompletableFuture<Page> own = new CompletableFuture<>();
+    CompletableFuture<Page> running = fetches.putIfAbsent(postId, own);
+    if (running != null) {
+      return await(running);
+    }
+    try {
+      Page page = fetch(postId, null);
+      own.complete(page);
+      return page;
+    } catch (IOException | RuntimeException e) {
+      own.completeExceptionally(e);
+      throw e;
+    } finally {
+      fetches.remove(postId, own);
+    }
+  }
+
+  private static Page await(CompletableFuture<Page> fetch) throws IOException {
+    try {
+      return fetch.get();
+    } catch (ExecutionException e) {
+      Throwable cause = Futures.unwrap(e);
+      throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a page");
+    }
+  }
+
+  /**
+   * Fetch a page and store it, unless the server says the cached copy is current
+   *
+   * @param etag ETag of the cached copy, or null
+   * @return The fetched page, or null if not modified
+   */
+  private Page fetch(int postId, String etag) throws IOException {
+    ApiService.Validated<String> response = apiService.fetchPostPageBlocking(postId, etag);
+    if (response.isNotModified()) {
+      return null;
+    }
+    Page page = new Page(response.etag, response.body.getBytes(StandardCharsets.UTF_8));
+    disk.put(getPageUrl(postId), page.encode());
+    return page;
+  }
+
+  private Page read(String url) {
+    byte[] data = disk.get(url);
+    return data != null ? Page.decode(data) : null;
+  }
+
+  private static WebResourceResponse response(byte[] body) {
+    return new WebResourceResponse(MIME_TYPE, ENCODING, new ByteArrayInputStream(body));
+  }
+
+  /**
+   * A cached page: its ETag on the first line of the file, then the body as received
+   */
+  private static class Page {
+    final String etag; // null if the server sent none
+    final byte[] body;
+
+    Page(String etag, byte[] body) {
+      this.etag = etag;
+      this.body = body;
+    }
+
+    byte[] encode() {
+      byte[] header = ((etag != null ? etag : "") + "\n").getBytes(StandardCharsets.UTF_8);
+      byte[] data = Arrays.copyOf(header, header.length + body.length);
+      System.arraycopy(body, 0, data, header.length, body.length);
+      return data;
+    }
+
+    static Page decode(byte[] data) {
+      int newline = 0;
+      while (newline < data.length && data[newline] != '\n') {
+        newline++;
+      }
+      String etag = new String(data, 0, newline, StandardCharsets.UTF_8);
+      byte[] body = Arrays.copyOfRange(data, Math.min(newline + 1, data.length), data.length);
+      return new Page(etag.isEmpty() ? null : etag, body);
+    }
+  }
+}
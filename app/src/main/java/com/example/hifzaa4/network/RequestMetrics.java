@@ -0,0 +1,198 @@
+package com.example.hifzaa4.network;
+
+import com.example.hifzaa4.metrics.Counter;
+import com.example.hifzaa4.metrics.Histogram;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.metrics.Timer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RequestMetrics - Per-endpoint timings of API requests
+ * Every request records where its time went (connect, first byte, download,
+ * parse, and the DB write of a sync) into per-endpoint timers, in
+ * microseconds. Recording is a few lock-free increments per phase.
+ * The timers live in a MetricsRegistry as "api.<endpoint>.<phase>", so they
+ * are part of its JSON export.
+ */
+public class RequestMetrics {
+
+  /**
+   * Timed phases of a request
+   */
+  public enum Phase {
+    CONNECT("connect"),     // DNS lookup and connection setup
+    TTFB("ttfb"),           // Request sent until the first response byte
+    DOWNLOAD("download"),   // Reading the response body
+    PARSE("parse"),         // JSON to model objects
+    DB_WRITE("db write");   // Storing the result (sync only)
+
+    final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+  }
+
+  /**
+   * Timers of one endpoint
+   */
+  public static class Endpoint {
+    final String name;
+    private final Timer[] phases = new Timer[Phase.values().length];
+    private final Histogram bytes;
+    private final Counter errors;
+
+    Endpoint(MetricsRegistry registry, String name) {
+      this.name = name;
+      String prefix = "api." + name + ".";
+      for (Phase phase : Phase.values()) {
+        phases[phase.ordinal()] = registry.timer(prefix + phase.name().toLowerCase(Locale.US));
+      }
+      bytes = registry.histogram(prefix + "bytes");
+      errors = registry.counter(prefix + "errors");
+    }
+
+    /**
+     * Record the duration of a phase
+     *
+     * @param phase Phase
+     * @param nanos Duration from System.nanoTime() differences
+     */
+    public void record(Phase phase, long nanos) {
+      phases[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Record the body size of a response (bytes on the wire)
+     */
+    public void recordBytes(long count) {
+      bytes.record(count);
+    }
+
+    /**
+     * Count a failed request
+     */
+    public void recordError() {
+      errors.increment();
+    }
+
+    public Histogram getPhase(Phase phase) {
+      return phases[phase.ordinal()].getHistogram();
+    }
+
+    public Histogram getBytes() {
+      return bytes;
+    }
+
+    public long getErrorCount() {
+      return errors.get();
+    }
+
+    void reset() {
+      for (Timer timer : phases) {
+        timer.reset();
+      }
+      bytes.reset();
+      errors.reset();
+    }
+  }
+
+  private final MetricsRegistry registry;
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  // Process-wide instance
+  private static final RequestMetrics INSTANCE = new RequestMetrics(MetricsRegistry.get());
+
+  public static RequestMetrics get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param registry Registry that holds the endpoint timers
+   */
+  RequestMetrics(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Get (or create) the timers of an endpoint
+   *
+   * @param name Endpoint, e.g. "GET /posts"
+   * @return Endpoint timers
+   */
+  public Endpoint endpoint(String name) {
+    Endpoint endpoint = endpoints.get(name);
+    if (endpoint == null) {
+      endpoint = endpoints.computeIfAbsent(name, key -> new Endpoint(registry, key));
+    }
+    return endpoint;
+  }
+
+  /**
+   * Clear all recorded timings
+   */
+  public void reset() {
+    for (Endpoint endpoint : endpoints.values()) {
+      endpoint.reset();
+    }
+  }
+
+  /**
+   * Human-readable report of all endpoints
+   */
+  public String format() {
+    List<String> names = new ArrayList<>(endpoints.keySet());
+    Collections.sort(names);
+
+    StringBuilder report = new StringBuilder();
+    if (names.isEmpty()) {
+      report.append("No requests recorded\n");
+    }
+    for (String name : names) {
+      Endpoint endpoint = endpoints.get(name);
+      report.append(name).append("  (errors: ").append(endpoint.getErrorCount()).append(")\n");
+      for (Phase phase : Phase.values()) {
+        Histogram.Snapshot snapshot = endpoint.getPhase(phase).snapshot();
+        if (snapshot.count > 0) {
+          report.append(String.format(Locale.US, "  %-9s us  %s%n", phase.label, snapshot));
+        }
+      }
+      Histogram.Snapshot bytes = endpoint.getBytes().snapshot();
+      if (bytes.count > 0) {
+        report.append(String.format(Locale.US, "  %-9s B   %s%n", "body", bytes));
+      }
+      report.append('\n');
+    }
+    return report.toString();
+  }
+
+  /**
+   * Write the report to a file
+   *
+   * @param file Destination (overwritten)
+   * @throws IOException If the file cannot be written
+   */
+  public void dumpTo(File file) throws IOException {
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write("Request metrics " +
+          new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()) + "\n\n");
+      writer.write(format());
+    }
+  }
+}
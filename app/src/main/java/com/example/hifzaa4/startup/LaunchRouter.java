@@ -0,0 +1,80 @@
+package com.example.hifzaa4.startup;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+
+import com.example.hifzaa4.activities.MainActivity;
+import com.example.hifzaa4.utils.AppPreferences;
+
+import java.util.function.Consumer;
+
+/**
+ * LaunchRouter - Decides the first screen on launch
+ * An authenticated session goes straight to the posts screen without
+ * theming or inflating the login screen first. Routing never waits on the
+ * main thread for the preferences load: until it finishes, the destination
+ * is delivered later instead.
+ */
+public class LaunchRouter {
+
+  /**
+   * Launch destinations
+   */
+  public enum Destination {
+    LOGIN,
+    POSTS
+  }
+
+  /**
+   * Resolve the destination for the current session, if it is known yet
+   *
+   * @param context Any context
+   * @return Screen to open, or null while the startup preferences load is still running
+   */
+  public static Destination resolve(Context context) {
+    StartupInitializer initializer = StartupInitializer.getInstance(context);
+    AppPreferences preferences = initializer.peekPreferences();
+    if (preferences == null && initializer.isStarted()) {
+      return null;
+    }
+
+    StartupTrace trace = StartupTrace.get();
+    long begin = trace.begin();
+
+    // Not started (no background load to wait for): read them here
+    boolean loggedIn = (preferences != null ? preferences : initializer.getPreferences()).isLoggedIn();
+
+    trace.end(StartupTrace.PHASE_ROUTED, begin);
+    return loggedIn ? Destination.POSTS : Destination.LOGIN;
+  }
+
+  /**
+   * Resolve the destination for the current session on the main thread
+   * Delivered right away if the preferences are loaded, otherwise as soon as they are
+   *
+   * @param context    Any context
+   * @param onResolved Receives the screen to open
+   */
+  public static void resolve(Context context, Consumer<Destination> onResolved) {
+    Destination destination = resolve(context);
+    if (destination != null) {
+      onResolved.accept(destination);
+      return;
+    }
+    StartupInitializer.getInstance(context).runWhenPreferencesReady(() -> onResolved.accept(resolve(context)));
+  }
+
+  /**
+   * Open the posts screen and finish the launcher without a transition
+   *
+   * @param launcher Launcher activity
+   */
+  public static void openPosts(Activity launcher) {
+    Intent intent = new Intent(launcher, MainActivity.class);
+    intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+    launcher.startActivity(intent);
+    launcher.overridePendingTransition(0, 0);
+    launcher.finish();
+  }
+}
@@ -0,0 +1,233 @@
+package com.example.hifzaa4.startup;
+
+import android.content.Context;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.concurrent.Priority;
+import com.example.hifzaa4.concurrent.TaskExecutor;
+import com.example.hifzaa4.database.DatabaseHelper;
+import com.example.hifzaa4.network.NetworkQualityEstimator;
+import com.example.hifzaa4.utils.AppPreferences;
+import com.example.hifzaa4.utils.NetworkUtils;
+import com.example.hifzaa4.utils.ThemeManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StartupInitializer - Warms app state in parallel on background threads
+ * Opens the database, loads preferences and probes connectivity while the
+ * main thread is free to draw the first frame
+ */
+public class StartupInitializer {
+
+  private static final int TASK_COUNT = 3;
+
+  // Longest the main thread waits for the preferences load before reading them itself
+  private static final long PREFS_WAIT_MS = 500;
+
+  private final Context context;
+  private final TaskExecutor executor = AppExecutors.get().io();
+  private final Executor mainExecutor = AppExecutors.get().main();
+  private final AtomicInteger remainingTasks = new AtomicInteger(TASK_COUNT);
+  private final CountDownLatch prefsLatch = new CountDownLatch(1);
+  private final CountDownLatch readyLatch = new CountDownLatch(1);
+
+  // Callbacks waiting for initialization, and for the preferences alone (guarded by this)
+  private final List<Runnable> pendingCallbacks = new ArrayList<>();
+  private final List<Runnable> prefsCallbacks = new ArrayList<>();
+  private volatile boolean started;
+  private boolean ready;
+
+  // Warmed state
+  private volatile AppPreferences preferences;
+  private volatile boolean networkAvailable;
+
+  // Singleton instance
+  private static StartupInitializer instance;
+
+  /**
+   * Get singleton instance
+   *
+   * @param context Application context
+   * @return StartupInitializer instance
+   */
+  public static synchronized StartupInitializer getInstance(Context context) {
+    if (instance == null) {
+      instance = new StartupInitializer(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /**
+   * Drop the singleton so a new cold start can be simulated (used by tests)
+   */
+  public static synchronized void reset() {
+    instance = null;
+  }
+
+  private StartupInitializer(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Start warming database, preferences and connectivity in parallel
+   * Safe to call more than once; only the first call starts work
+   */
+  public void start() {
+    synchronized (this) {
+      if (started) {
+        return;
+      }
+      started = true;
+    }
+
+    StartupTrace trace = StartupTrace.get();
+
+    executor.execute(Priority.HIGH, () -> {
+      long begin = trace.begin();
+      AppPreferences prefs = new AppPreferences(context);
+      prefs.isLoggedIn(); // Forces the preferences file to load
+      ThemeManager.getSavedTheme(context);
+      List<Runnable> callbacks;
+      synchronized (this) {
+        preferences = prefs;
+        callbacks = new ArrayList<>(prefsCallbacks);
+        prefsCallbacks.clear();
+      }
+      trace.end(StartupTrace.PHASE_PREFS_READY, begin);
+      prefsLatch.countDown();
+      for (Runnable callback : callbacks) {
+        mainExecutor.execute(callback);
+      }
+      onTaskDone();
+    });
+
+    executor.execute(Priority.HIGH, () -> {
+      long begin = trace.begin();
+      DatabaseHelper.getInstance(context).getReadableDatabase();
+      trace.end(StartupTrace.PHASE_DATABASE_READY, begin);
+      onTaskDone();
+    });
+
+    executor.execute(Priority.HIGH, () -> {
+      long begin = trace.begin();
+      networkAvailable = NetworkUtils.isNetworkAvailable(context);
+      NetworkQualityEstimator.get().setNetworkType(NetworkUtils.getNetworkType(context));
+      trace.end(StartupTrace.PHASE_NETWORK_PROBED, begin);
+      onTaskDone();
+    });
+  }
+
+  /**
+   * Called by each background task when it completes
+   */
+  private void onTaskDone() {
+    if (remainingTasks.decrementAndGet() > 0) {
+      return;
+    }
+
+    StartupTrace.get().mark(StartupTrace.PHASE_INIT_READY);
+    List<Runnable> callbacks;
+    synchronized (this) {
+      ready = true;
+      callbacks = new ArrayList<>(pendingCallbacks);
+      pendingCallbacks.clear();
+    }
+    for (Runnable callback : callbacks) {
+      mainExecutor.execute(callback);
+    }
+    readyLatch.countDown();
+  }
+
+  /**
+   * Run a callback on the main thread once initialization has finished
+   *
+   * @param callback Callback to run
+   */
+  public void runWhenReady(Runnable callback) {
+    synchronized (this) {
+      if (!ready) {
+        pendingCallbacks.add(callback);
+        return;
+      }
+    }
+    mainExecutor.execute(callback);
+  }
+
+  /**
+   * Run a callback on the main thread once the preferences are loaded
+   * (right away if they are, or if initialization was never started)
+   *
+   * @param callback Callback to run
+   */
+  public void runWhenPreferencesReady(Runnable callback) {
+    synchronized (this) {
+      if (started && preferences == null) {
+        prefsCallbacks.add(callback);
+        return;
+      }
+    }
+    mainExecutor.execute(callback);
+  }
+
+  /**
+   * Block until initialization has finished
+   *
+   * @param timeoutMillis Maximum time to wait
+   * @return true if ready, false on timeout
+   */
+  public boolean awaitReady(long timeoutMillis) throws InterruptedException {
+    return readyLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Get the warmed preferences
+   * Waits briefly for the background load; falls back to loading them on the
+   * caller's thread if initialization was never started. The main thread should
+   * check peekPreferences() or use runWhenPreferencesReady() instead of waiting.
+   */
+  public AppPreferences getPreferences() {
+    AppPreferences prefs = preferences;
+    if (prefs != null) {
+      return prefs;
+    }
+
+    if (started) {
+      try {
+        prefsLatch.await(PREFS_WAIT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      prefs = preferences;
+    }
+    return prefs != null ? prefs : new AppPreferences(context);
+  }
+
+  /**
+   * Get the warmed preferences without waiting
+   *
+   * @return Preferences, or null while the background load is still running
+   * (or if initialization was never started)
+   */
+  public AppPreferences peekPreferences() {
+    return preferences;
+  }
+
+  public boolean isStarted() {
+    return started;
+  }
+
+  /**
+   * Connectivity as probed during startup
+   * Only for decisions made at startup; screens opened later should ask
+   * SyncScheduler.isConnected(), which follows connectivity changes
+   */
+  public boolean isNetworkAvailable() {
+    return networkAvailable;
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.hifzaa4.startup;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StartupTrace - Records the timing of each cold-start phase
+ * Phases are marked from any thread; main-thread work is tracked separately
+ * so it can be checked against a frame budget
+ */
+public class StartupTrace {
+
+  private static final String TAG = "StartupTrace";
+
+  // Phase names, in the order they are expected to complete
+  public static final String PHASE_APP_CREATE = "app_create";
+  public static final String PHASE_PREFS_READY = "prefs_ready";
+  public static final String PHASE_DATABASE_READY = "database_ready";
+  public static final String PHASE_NETWORK_PROBED = "network_probed";
+  public static final String PHASE_INIT_READY = "init_ready";
+  public static final String PHASE_ROUTED = "routed";
+  public static final String PHASE_MAIN_CREATED = "main_created";
+  public static final String PHASE_FIRST_FRAME = "first_frame";
+
+  // Main-thread time allowed before the first frame
+  public static final long MAIN_THREAD_BUDGET_MS = 100;
+
+  /**
+   * A single recorded phase
+   */
+  public static class Phase {
+    public final String name;
+    public final long atMillis;       // Time since trace start
+    public final long durationMillis; // Time spent in the phase itself
+    public final boolean onMainThread;
+
+    Phase(String name, long atMillis, long durationMillis, boolean onMainThread) {
+      this.name = name;
+      this.atMillis = atMillis;
+      this.durationMillis = durationMillis;
+      this.onMainThread = onMainThread;
+    }
+  }
+
+  private final List<Phase> phases = new ArrayList<>();
+  private long startMillis = SystemClock.uptimeMillis();
+  private long mainThreadMillis;
+  private boolean finished;
+
+  // Singleton instance
+  private static volatile StartupTrace instance = new StartupTrace();
+
+  /**
+   * Get the process-wide trace
+   */
+  public static StartupTrace get() {
+    return instance;
+  }
+
+  /**
+   * Start a new trace (used by tests)
+   */
+  public static synchronized void reset() {
+    instance = new StartupTrace();
+  }
+
+  /**
+   * Mark a phase that completed just now
+   *
+   * @param name Phase name
+   */
+  public void mark(String name) {
+    end(name, SystemClock.uptimeMillis());
+  }
+
+  /**
+   * Get a start timestamp for a timed phase
+   *
+   * @return Start timestamp to pass to end()
+   */
+  public long begin() {
+    return SystemClock.uptimeMillis();
+  }
+
+  /**
+   * Record a timed phase started with begin()
+   *
+   * @param name        Phase name
+   * @param beginMillis Value returned by begin()
+   */
+  public synchronized void end(String name, long beginMillis) {
+    if (finished) {
+      return;
+    }
+    long now = SystemClock.uptimeMillis();
+    boolean onMain = Looper.myLooper() == Looper.getMainLooper();
+    long duration = now - beginMillis;
+    if (onMain) {
+      mainThreadMillis += duration;
+    }
+    phases.add(new Phase(name, now - startMillis, duration, onMain));
+  }
+
+  /**
+   * Finish the trace and log a summary of all phases
+   */
+  public synchronized void finish() {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    for (Phase phase : phases) {
+      Log.i(TAG, phase.name + " at " + phase.atMillis + " ms (took " + phase.durationMillis
+          + " ms on " + (phase.onMainThread ? "main" : "background") + ")");
+    }
+    Log.i(TAG, "Main thread time: " + mainThreadMillis + " ms (budget " + MAIN_THREAD_BUDGET_MS + " ms)");
+  }
+
+  /**
+   * Get recorded phases in completion order
+   */
+  public synchronized List<Phase> getPhases() {
+    return new ArrayList<>(phases);
+  }
+
+  /**
+   * Get a phase by name
+   *
+   * @return Phase or null if not recorded
+   */
+  public synchronized Phase getPhase(String name) {
+    for (Phase phase : phases) {
+      if (phase.name.equals(name)) {
+        return phase;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get total time spent in timed phases on the main thread
+   */
+  public synchronized long getMainThreadMillis() {
+    return mainThreadMillis;
+  }
+}
@@ -0,0 +1,14 @@
+package com.example.hifzaa4.sync;
+
+/**
+ * Clock - Source of wall-clock time, replaceable in tests
+ */
+public interface Clock {
+
+  Clock SYSTEM = System::currentTimeMillis;
+
+  /**
+   * Current time in milliseconds since the epoch
+   */
+  long currentTimeMillis();
+}
@@ -0,0 +1,24 @@
+package com.example.hifzaa4.sync;
+
+/**
+ * ConnectivitySource - Current connectivity and change notifications, replaceable in tests
+ */
+public interface ConnectivitySource {
+
+  /**
+   * Receives connectivity changes
+   */
+  interface Listener {
+    void onConnectivityChanged(boolean connected);
+  }
+
+  /**
+   * Check if there is a usable network right now
+   */
+  boolean isConnected();
+
+  /**
+   * Start delivering changes to a listener (null stops delivery)
+   */
+  void setListener(Listener listener);
+}
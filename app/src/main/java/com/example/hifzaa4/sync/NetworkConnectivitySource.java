@@ -0,0 +1,81 @@
+package com.example.hifzaa4.sync;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import com.example.hifzaa4.network.NetworkQualityEstimator;
+import com.example.hifzaa4.utils.NetworkUtils;
+
+/**
+ * NetworkConnectivitySource - Connectivity from ConnectivityManager.NetworkCallback
+ * Follows the default network, so changes are pushed instead of polled.
+ * Also tells the NetworkQualityEstimator which network type is current.
+ */
+public class NetworkConnectivitySource implements ConnectivitySource {
+
+  private final Context context;
+  private final ConnectivityManager connectivityManager;
+  private volatile Listener listener;
+  private volatile boolean connected;
+  private boolean registered;
+
+  private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+    @Override
+    public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+      NetworkQualityEstimator.get().setNetworkType(NetworkUtils.getNetworkType(capabilities));
+      update(capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET));
+    }
+
+    @Override
+    public void onLost(Network network) {
+      NetworkQualityEstimator.get().setNetworkType(NetworkUtils.TYPE_UNKNOWN);
+      update(false);
+    }
+  };
+
+  /**
+   * Constructor
+   *
+   * @param context Application context
+   */
+  public NetworkConnectivitySource(Context context) {
+    this.context = context.getApplicationContext();
+    this.connectivityManager = (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    this.connected = NetworkUtils.isNetworkAvailable(this.context);
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connected;
+  }
+
+  @Override
+  public synchronized void setListener(Listener listener) {
+    this.listener = listener;
+    if (connectivityManager == null) {
+      return;
+    }
+    if (listener != null && !registered) {
+      connected = NetworkUtils.isNetworkAvailable(context);
+      connectivityManager.registerDefaultNetworkCallback(callback);
+      registered = true;
+    } else if (listener == null && registered) {
+      connectivityManager.unregisterNetworkCallback(callback);
+      registered = false;
+    }
+  }
+
+  /**
+   * Record the new state and report it if it changed
+   */
+  private void update(boolean nowConnected) {
+    boolean changed = connected != nowConnected;
+    connected = nowConnected;
+    Listener current = listener;
+    if (changed && current != null) {
+      current.onConnectivityChanged(nowConnected);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.hifzaa4.sync;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+/**
+ * SyncJobService - Runs the periodic background sync scheduled by SyncScheduler
+ */
+public class SyncJobService extends JobService {
+
+  private SyncScheduler.SyncListener listener;
+
+  @Override
+  public boolean onStartJob(JobParameters params) {
+    SyncScheduler scheduler = SyncScheduler.getInstance(this);
+    if (!scheduler.isStale()) {
+      return false; // Synced recently (e.g. in the foreground)
+    }
+
+    listener = success -> {
+      scheduler.removeListener(listener);
+      jobFinished(params, !success);
+    };
+    scheduler.addListener(listener);
+
+    // Joins a sync that is already running instead of starting another
+    if (!scheduler.requestSync() && !scheduler.isRunning()) {
+      scheduler.removeListener(listener);
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean onStopJob(JobParameters params) {
+    if (listener != null) {
+      SyncScheduler.getInstance(this).removeListener(listener);
+    }
+    return true; // Retry later
+  }
+}
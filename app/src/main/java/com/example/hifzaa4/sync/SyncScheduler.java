@@ -0,0 +1,249 @@
+package com.example.hifzaa4.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.hifzaa4.concurrent.AppExecutors;
+import com.example.hifzaa4.database.PostMerger;
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.OutboxSender;
+import com.example.hifzaa4.network.RequestMetrics;
+import com.example.hifzaa4.utils.AppPreferences;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SyncScheduler - Decides when posts are synced with the API
+ * - resyncs when connectivity returns (if a sync was missed or the data is stale)
+ * - runs a periodic background job on unmetered networks while charging
+ * - collapses overlapping triggers into the run already in progress
+ * Screens read freshness from the last sync time and show local data right away.
+ */
+public class SyncScheduler implements ConnectivitySource.Listener {
+
+  private static final String TAG = "SyncScheduler";
+
+  // Local data older than this is refreshed in the background
+  public static final long STALE_AFTER_MS = 15 * 60 * 1000;
+
+  // Periodic background sync
+  static final int PERIODIC_JOB_ID = 4101;
+  static final long PERIODIC_INTERVAL_MS = 6 * 60 * 60 * 1000;
+
+  /**
+   * The work of one sync run
+   */
+  public interface SyncTask {
+    void sync() throws Exception;
+  }
+
+  /**
+   * Notified on the sync thread when a run finishes
+   */
+  public interface SyncListener {
+    void onSyncFinished(boolean success);
+  }
+
+  private final Clock clock;
+  private final ConnectivitySource connectivity;
+  private final SyncTask task;
+  private final Executor executor;
+  private final AppPreferences preferences;
+  private final List<SyncListener> listeners = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  // A trigger arrived while offline; run it when connectivity returns
+  private volatile boolean missedWhileOffline;
+
+  // Singleton instance
+  private static SyncScheduler instance;
+
+  /**
+   * Get singleton instance (listening for connectivity changes)
+   *
+   * @param context Application context
+   * @return SyncScheduler instance
+   */
+  public static synchronized SyncScheduler getInstance(Context context) {
+    if (instance == null) {
+      Context appContext = context.getApplicationContext();
+      ApiService apiService = new ApiService();
+      PostMerger merger = new PostMerger(appContext);
+      SyncTask task = () -> {
+        List<Post> posts = apiService.fetchPostsBlocking();
+        long writeStart = System.nanoTime();
+        merger.merge(posts, true);
+        apiService.getPostsMetrics().record(RequestMetrics.Phase.DB_WRITE, System.nanoTime() - writeStart);
+        OutboxSender.getInstance(appContext).requestSend();
+      };
+      instance = new SyncScheduler(Clock.SYSTEM, new NetworkConnectivitySource(appContext), task,
+          AppExecutors.get().io(), new AppPreferences(appContext));
+      instance.start();
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param clock        Time source
+   * @param connectivity Connectivity source
+   * @param task         Work of one sync run
+   * @param executor     Executor that runs syncs
+   * @param preferences  Where the last sync time is kept
+   */
+  public SyncScheduler(Clock clock, ConnectivitySource connectivity, SyncTask task, Executor executor,
+      AppPreferences preferences) {
+    this.clock = clock;
+    this.connectivity = connectivity;
+    this.task = task;
+    this.executor = executor;
+    this.preferences = preferences;
+  }
+
+  /**
+   * Start listening for connectivity changes
+   */
+  public void start() {
+    connectivity.setListener(this);
+  }
+
+  /**
+   * Stop listening for connectivity changes
+   */
+  public void stop() {
+    connectivity.setListener(null);
+  }
+
+  public void addListener(SyncListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(SyncListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Check if there is a usable network right now (kept current by the connectivity callback)
+   */
+  public boolean isConnected() {
+    return connectivity.isConnected();
+  }
+
+  /**
+   * Ask for a sync
+   * Offline, the request is remembered until connectivity returns; while a sync
+   * is running, the request is merged into it.
+   *
+   * @return true if a new run was started
+   */
+  public boolean requestSync() {
+    if (!connectivity.isConnected()) {
+      missedWhileOffline = true;
+      return false;
+    }
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    missedWhileOffline = false;
+    executor.execute(this::runSync);
+    return true;
+  }
+
+  /**
+   * Sync only if the local data is stale
+   *
+   * @return true if a new run was started
+   */
+  public boolean syncIfStale() {
+    return isStale() && requestSync();
+  }
+
+  /**
+   * Check if a sync is in progress
+   */
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  @Override
+  public void onConnectivityChanged(boolean connected) {
+    if (connected && (missedWhileOffline || isStale())) {
+      requestSync();
+    }
+  }
+
+  /**
+   * Time of the last successful sync
+   *
+   * @return Time in ms, or 0 if never synced
+   */
+  public long getLastSyncTime() {
+    return preferences.getLastSyncTime();
+  }
+
+  /**
+   * Age of the local data
+   *
+   * @return Milliseconds since the last successful sync, or Long.MAX_VALUE if never synced
+   */
+  public long getFreshnessMillis() {
+    long lastSync = getLastSyncTime();
+    return lastSync > 0 ? Math.max(0, clock.currentTimeMillis() - lastSync) : Long.MAX_VALUE;
+  }
+
+  /**
+   * Check if the local data is older than STALE_AFTER_MS
+   */
+  public boolean isStale() {
+    return getFreshnessMillis() >= STALE_AFTER_MS;
+  }
+
+  private void runSync() {
+    boolean success = false;
+    try {
+      task.sync();
+      preferences.setLastSyncTime(clock.currentTimeMillis());
+      success = true;
+    } catch (Exception e) {
+      Log.w(TAG, "Sync failed", e);
+      missedWhileOffline = true; // Try again when connectivity next comes back
+    } finally {
+      running.set(false);
+    }
+
+    for (SyncListener listener : listeners) {
+      listener.onSyncFinished(success);
+    }
+  }
+
+  /**
+   * Schedule the periodic background sync
+   * Runs on unmetered networks while charging (and, on API 26+, not on low battery)
+   *
+   * @param context Application context
+   */
+  public static void schedulePeriodic(Context context) {
+    JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    if (jobScheduler == null || jobScheduler.getPendingJob(PERIODIC_JOB_ID) != null) {
+      return;
+    }
+
+    JobInfo.Builder builder = new JobInfo.Builder(PERIODIC_JOB_ID, new ComponentName(context, SyncJobService.class))
+        .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+        .setRequiresCharging(true)
+        .setPeriodic(PERIODIC_INTERVAL_MS);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      builder.setRequiresBatteryNotLow(true);
+    }
+    jobScheduler.schedule(builder.build());
+  }
+}
@@ -12,6 +12,12 @@ import android.os.Build;
  */
 public class NetworkUtils {
 
+  // Network types used to group network quality samples
+  public static final String TYPE_WIFI = "wifi";
+  public static final String TYPE_CELLULAR = "cellular";
+  public static final String TYPE_ETHERNET = "ethernet";
+  public static final String TYPE_UNKNOWN = "unknown";
+
   /**
    * Check if the device has an active network connection
    * 
@@ -67,4 +73,61 @@ public class NetworkUtils {
       return wifiNetwork != null && wifiNetwork.isConnected();
     }
   }
+
+  /**
+   * Get the type of the active network
+   *
+   * @param context Application context
+   * @return One of the TYPE_* constants
+   */
+  public static String getNetworkType(Context context) {
+    ConnectivityManager connectivityManager = (ConnectivityManager) context
+        .getSystemService(Context.CONNECTIVITY_SERVICE);
+
+    if (connectivityManager == null) {
+      return TYPE_UNKNOWN;
+    }
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+      return getNetworkType(connectivityManager
+          .getNetworkCapabilities(connectivityManager.getActiveNetwork()));
+    } else {
+      NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+      if (activeNetwork == null) {
+        return TYPE_UNKNOWN;
+      }
+      switch (activeNetwork.getType()) {
+        case ConnectivityManager.TYPE_WIFI:
+          return TYPE_WIFI;
+        case ConnectivityManager.TYPE_MOBILE:
+          return TYPE_CELLULAR;
+        case ConnectivityManager.TYPE_ETHERNET:
+          return TYPE_ETHERNET;
+        default:
+          return TYPE_UNKNOWN;
+      }
+    }
+  }
+
+  /**
+   * Get the network type for a network's capabilities
+   *
+   * @param capabilities Network capabilities (may be null)
+   * @return One of the TYPE_* constants
+   */
+  public static String getNetworkType(NetworkCapabilities capabilities) {
+    if (capabilities == null) {
+      return TYPE_UNKNOWN;
+    }
+    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+      return TYPE_WIFI;
+    }
+    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+      return TYPE_CELLULAR;
+    }
+    if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+      return TYPE_ETHERNET;
+    }
+    return TYPE_UNKNOWN;
+  }
 }
@@ -3,6 +3,8 @@ package com.example.hifzaa4.utils;
 import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.util.TypedValue;
 
 import com.example.hifzaa4.R;
 
@@ -21,6 +23,15 @@ public class ThemeManager {
   private static final String PREF_NAME = "theme_prefs";
   private static final String KEY_THEME = "selected_theme";
 
+  // In-memory copy of the saved theme (-1 until first read)
+  private static volatile int cachedTheme = -1;
+
+  // Debug builds: switch by recreating the activity, to compare with the in-place switch
+  private static volatile boolean recreateOnSwitch;
+
+  // System.nanoTime() when a recreating switch started (0 if none is pending)
+  private static volatile long recreateStartNanos;
+
   /**
    * Apply the saved theme to an activity
    * Must be called before setContentView() in onCreate()
@@ -28,21 +39,39 @@ public class ThemeManager {
    * @param activity The activity to apply theme to
    */
   public static void applyTheme(Activity activity) {
-    int theme = getSavedTheme(activity);
+    activity.setTheme(getThemeStyle(getSavedTheme(activity)));
+  }
+
+  /**
+   * Get the style resource for a theme constant
+   * 
+   * @param theme Theme constant
+   * @return Style resource ID
+   */
+  public static int getThemeStyle(int theme) {
     switch (theme) {
       case THEME_DARK:
-        activity.setTheme(R.style.Theme_HifzaA4_Dark);
-        break;
+        return R.style.Theme_HifzaA4_Dark;
       case THEME_OCEAN:
-        activity.setTheme(R.style.Theme_HifzaA4_Ocean);
-        break;
+        return R.style.Theme_HifzaA4_Ocean;
       case THEME_LIGHT:
       default:
-        activity.setTheme(R.style.Theme_HifzaA4_Light);
-        break;
+        return R.style.Theme_HifzaA4_Light;
     }
   }
 
+  /**
+   * Get the overlay for popups (e.g. the toolbar overflow menu) under a theme
+   *
+   * @param theme Theme constant
+   * @return Style resource ID
+   */
+  public static int getPopupThemeStyle(int theme) {
+    return theme == THEME_DARK
+        ? com.google.android.material.R.style.ThemeOverlay_MaterialComponents_Dark
+        : com.google.android.material.R.style.ThemeOverlay_MaterialComponents_Light;
+  }
+
   /**
    * Save the selected theme to SharedPreferences
    * 
@@ -52,17 +81,24 @@ public class ThemeManager {
   public static void saveTheme(Context context, int theme) {
     SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
     prefs.edit().putInt(KEY_THEME, theme).apply();
+    cachedTheme = theme;
   }
 
   /**
    * Get the currently saved theme
+   * Served from memory after the first SharedPreferences read
    * 
    * @param context Application context
    * @return Theme constant (defaults to THEME_LIGHT if not set)
    */
   public static int getSavedTheme(Context context) {
-    SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-    return prefs.getInt(KEY_THEME, THEME_LIGHT);
+    int theme = cachedTheme;
+    if (theme < 0) {
+      SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+      theme = prefs.getInt(KEY_THEME, THEME_LIGHT);
+      cachedTheme = theme;
+    }
+    return theme;
   }
 
   /**
@@ -85,13 +121,110 @@ public class ThemeManager {
   }
 
   /**
-   * Change theme and recreate activity to apply changes
+   * Change theme in place without recreating the activity
+   * Switches the activity theme so new views inflate with it, and returns the
+   * resolved colors so the caller can re-style views that already exist
    * 
+   * @param activity The activity to re-theme
+   * @param theme    Theme constant
+   * @return Colors of the new theme
+   */
+  public static ThemeColors switchTheme(Activity activity, int theme) {
+    saveTheme(activity, theme);
+    activity.setTheme(getThemeStyle(theme));
+    // Resolved from a fresh theme: the activity theme still carries attributes of the old one
+    ThemeColors colors = ThemeColors.forTheme(activity, theme);
+
+    activity.getWindow().setStatusBarColor(colors.statusBar);
+    activity.getWindow().getDecorView().setBackgroundColor(colors.background);
+    return colors;
+  }
+
+  /**
+   * Change theme by recreating the activity, as before in-place switching
+   * Kept so debug builds can compare the latency of both (see takeRecreateStart())
+   *
    * @param activity The activity to recreate
    * @param theme    Theme constant
    */
-  public static void setThemeAndRecreate(Activity activity, int theme) {
+  public static void switchThemeByRecreating(Activity activity, int theme) {
+    recreateStartNanos = System.nanoTime();
     saveTheme(activity, theme);
     activity.recreate();
   }
+
+  /**
+   * Start of a recreating switch, for the recreated activity to measure; cleared by the call
+   *
+   * @return System.nanoTime() when the switch started, or 0 if none is pending
+   */
+  public static long takeRecreateStart() {
+    long start = recreateStartNanos;
+    recreateStartNanos = 0;
+    return start;
+  }
+
+  public static boolean isRecreateOnSwitch() {
+    return recreateOnSwitch;
+  }
+
+  public static void setRecreateOnSwitch(boolean recreate) {
+    recreateOnSwitch = recreate;
+  }
+
+  /**
+   * ThemeColors - Colors resolved from the current activity theme
+   * Used to re-style live views after an in-place theme switch
+   */
+  public static class ThemeColors {
+
+    public final int primary;
+    public final int onPrimary;
+    public final int secondary;
+    public final int background;
+    public final int surface;
+    public final int onSurface;
+    public final int statusBar;
+
+    private ThemeColors(Resources.Theme theme) {
+      TypedValue value = new TypedValue();
+      primary = resolveColor(theme, com.google.android.material.R.attr.colorPrimary, value);
+      onPrimary = resolveColor(theme, com.google.android.material.R.attr.colorOnPrimary, value);
+      secondary = resolveColor(theme, com.google.android.material.R.attr.colorSecondary, value);
+      background = resolveColor(theme, android.R.attr.colorBackground, value);
+      surface = resolveColor(theme, com.google.android.material.R.attr.colorSurface, value);
+      onSurface = resolveColor(theme, com.google.android.material.R.attr.colorOnSurface, value);
+      statusBar = resolveColor(theme, android.R.attr.statusBarColor, value);
+    }
+
+    /**
+     * Resolve colors from a context's current theme
+     * 
+     * @param context Themed context (usually the activity)
+     * @return Resolved colors
+     */
+    public static ThemeColors resolve(Context context) {
+      return new ThemeColors(context.getTheme());
+    }
+
+    /**
+     * Resolve colors of a theme constant, independent of any activity's current theme
+     *
+     * @param context Any context (for resources)
+     * @param theme   Theme constant
+     * @return Resolved colors
+     */
+    public static ThemeColors forTheme(Context context, int theme) {
+      Resources.Theme resolved = context.getResources().newTheme();
+      resolved.applyStyle(getThemeStyle(theme), true);
+      return new ThemeColors(resolved);
+    }
+
+    private static int resolveColor(Resources.Theme theme, int attr, TypedValue value) {
+      if (theme.resolveAttribute(attr, value, true)) {
+        return value.data;
+      }
+      return 0;
+    }
+  }
 }
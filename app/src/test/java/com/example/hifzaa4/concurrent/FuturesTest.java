@@ -0,0 +1,148 @@
+package com.example.hifzaa4.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+import android.os.Process;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Composition and cancellation of Futures
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class FuturesTest {
+
+  private TaskExecutor executor;
+
+  @Before
+  public void setUp() {
+    executor = new TaskExecutor("test", 2, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+  }
+
+  @Test
+  public void chainsRunOnTheGivenExecutors() throws Exception {
+    CompletableFuture<Integer> length = Futures.map(
+        Futures.supply(executor, Priority.HIGH, () -> "hello"), String::length, executor);
+    CompletableFuture<String> next = Futures.flatMap(length,
+        n -> Futures.supply(executor, Priority.HIGH, () -> Thread.currentThread().getName() + ":" + n), executor);
+
+    String result = next.get(5, TimeUnit.SECONDS);
+    assertTrue(result, result.startsWith("test-") && result.endsWith(":5"));
+  }
+
+  @Test
+  public void failuresArriveUnwrapped() throws Exception {
+    IOException failure = new IOException("offline");
+    CompletableFuture<Integer> chain = Futures.map(
+        Futures.supply(executor, Priority.HIGH, () -> {
+          throw failure;
+        }), value -> 1, executor);
+
+    try {
+      chain.get(5, TimeUnit.SECONDS);
+      fail("Expected the supplier's exception");
+    } catch (ExecutionException e) {
+      assertSame(failure, Futures.unwrap(e));
+    }
+  }
+
+  @Test
+  public void cancellingTheEndOfAChainCancelsQueuedWork() throws Exception {
+    TaskExecutor single = new TaskExecutor("single", 1, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+    CountDownLatch release = new CountDownLatch(1);
+    single.execute(Priority.HIGH, () -> awaitQuietly(release));
+
+    AtomicBoolean ran = new AtomicBoolean();
+    CompletableFuture<String> source = Futures.supply(single, Priority.NORMAL, () -> {
+      ran.set(true);
+      return "late";
+    });
+    CompletableFuture<Integer> chain = Futures.flatMap(Futures.map(source, String::length, executor),
+        n -> Futures.supply(executor, Priority.HIGH, () -> n), executor);
+
+    assertTrue(chain.cancel(true));
+    assertTrue(source.isCancelled());
+
+    release.countDown();
+    single.submit(Priority.LOW, () -> { }).get(5, TimeUnit.SECONDS);
+    assertFalse(ran.get());
+  }
+
+  @Test
+  public void cancellingAfterFlatMapStartedCancelsTheInnerFuture() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String>[] inner = new CompletableFuture[1];
+    CompletableFuture<String> chain = Futures.flatMap(CompletableFuture.completedFuture(1), n -> {
+      inner[0] = Futures.supply(executor, Priority.HIGH, () -> {
+        started.countDown();
+        release.await();
+        return "never";
+      });
+      return inner[0];
+    }, Runnable::run);
+
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    chain.cancel(true);
+    assertTrue(inner[0].isCancelled());
+    release.countDown();
+  }
+
+  @Test
+  public void allFailsFastAndCancelsTheRest() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> slow = Futures.supply(executor, Priority.HIGH, () -> {
+      release.await();
+      return "slow";
+    });
+    CompletableFuture<String> failing = Futures.supply(executor, Priority.HIGH, () -> {
+      throw new IOException("down");
+    });
+
+    CompletableFuture<Void> both = Futures.all(slow, failing);
+    try {
+      both.get(5, TimeUnit.SECONDS);
+      fail("Expected the failure");
+    } catch (ExecutionException e) {
+      assertEquals("down", Futures.unwrap(e).getMessage());
+    }
+    assertTrue(slow.isCancelled());
+    release.countDown();
+  }
+
+  @Test
+  public void allCompletesWhenEveryFutureDid() throws Exception {
+    CompletableFuture<Integer> a = Futures.supply(executor, Priority.HIGH, () -> 1);
+    CompletableFuture<Integer> b = Futures.supply(executor, Priority.LOW, () -> 2);
+
+    Futures.all(a, b).get(5, TimeUnit.SECONDS);
+    assertEquals(3, a.join() + b.join());
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
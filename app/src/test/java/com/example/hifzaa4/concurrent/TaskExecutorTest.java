@@ -0,0 +1,136 @@
+package com.example.hifzaa4.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.os.Process;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordering, inline waiting and metrics of TaskExecutor
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class TaskExecutorTest {
+
+  @Test
+  public void queuedTasksStartByPriorityThenInOrder() throws Exception {
+    TaskExecutor executor = new TaskExecutor("test", 1, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(Priority.HIGH, () -> awaitQuietly(release));
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    executor.execute(Priority.LOW, () -> order.add("low"));
+    executor.execute(Priority.NORMAL, () -> order.add("normal-1"));
+    executor.execute(Priority.HIGH, () -> order.add("high"));
+    Future<?> last = executor.submit(Priority.NORMAL, () -> order.add("normal-2"));
+    assertEquals(4, executor.getQueueDepth());
+
+    release.countDown();
+    last.get(5, TimeUnit.SECONDS);
+    executor.submit(Priority.LOW, () -> { }).get(5, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("high", "normal-1", "normal-2", "low"), order);
+  }
+
+  @Test
+  public void serialExecutorRunsOneAtATimeInOrder() throws Exception {
+    TaskExecutor executor = new TaskExecutor("test", 4, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+    Executor serial = executor.serial(Priority.NORMAL);
+
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    int[] running = new int[1];
+    boolean[] overlapped = new boolean[1];
+    CountDownLatch done = new CountDownLatch(50);
+    for (int i = 0; i < 50; i++) {
+      int task = i;
+      serial.execute(() -> {
+        synchronized (running) {
+          overlapped[0] |= ++running[0] > 1;
+        }
+        order.add(task);
+        synchronized (running) {
+          running[0]--;
+        }
+        done.countDown();
+      });
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertFalse(overlapped[0]);
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, (int) order.get(i));
+    }
+  }
+
+  @Test
+  public void awaitRunsQueuedTaskOnCallingThread() throws Exception {
+    TaskExecutor executor = new TaskExecutor("test", 1, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+
+    // The only pool thread waits on work queued behind itself
+    Future<String> outer = executor.submit(Priority.NORMAL, () -> {
+      Future<String> inner = executor.submit(Priority.LOW, () -> Thread.currentThread().getName());
+      return TaskExecutor.await(inner);
+    });
+
+    assertEquals("test", outer.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void cancelledTaskDoesNotRun() throws Exception {
+    TaskExecutor executor = new TaskExecutor("test", 1, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(Priority.HIGH, () -> awaitQuietly(release));
+
+    boolean[] ran = new boolean[1];
+    Future<?> cancelled = executor.submit(Priority.NORMAL, () -> ran[0] = true);
+    assertTrue(cancelled.cancel(false));
+
+    release.countDown();
+    executor.submit(Priority.LOW, () -> { }).get(5, TimeUnit.SECONDS);
+    assertFalse(ran[0]);
+  }
+
+  @Test
+  public void recordsWaitRunAndQueueDepth() throws Exception {
+    MetricsRegistry metrics = new MetricsRegistry();
+    TaskExecutor executor = new TaskExecutor("test", 1, Process.THREAD_PRIORITY_DEFAULT, metrics);
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(Priority.HIGH, () -> awaitQuietly(release));
+    Future<?> queued = executor.submit(Priority.NORMAL, () -> { });
+
+    release.countDown();
+    queued.get(5, TimeUnit.SECONDS);
+    // The run time is recorded after the Future completes; the next task on the thread waits for it
+    executor.submit(Priority.NORMAL, () -> { }).get(5, TimeUnit.SECONDS);
+
+    assertTrue(metrics.timer("executor.test.run").getHistogram().snapshot().count >= 2);
+    assertEquals(3, metrics.timer("executor.test.wait").getHistogram().snapshot().count);
+    assertEquals(3, metrics.histogram("executor.test.queue").snapshot().count);
+    assertTrue(metrics.histogram("executor.test.queue").snapshot().max <= 1);
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
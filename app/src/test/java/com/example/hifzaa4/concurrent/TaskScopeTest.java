@@ -0,0 +1,137 @@
+package com.example.hifzaa4.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.os.Process;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivery and cancellation of TaskScope
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class TaskScopeTest {
+
+  // Stands in for the main thread: callbacks run when the test drains the queue
+  private final LinkedBlockingQueue<Runnable> main = new LinkedBlockingQueue<>();
+  private TaskExecutor executor;
+  private TaskScope scope;
+
+  @Before
+  public void setUp() {
+    executor = new TaskExecutor("test", 1, Process.THREAD_PRIORITY_DEFAULT, new MetricsRegistry());
+    scope = new TaskScope(main::add);
+  }
+
+  @Test
+  public void resultIsDeliveredOnMainExecutor() throws Exception {
+    List<String> results = new ArrayList<>();
+    scope.run(executor, Priority.HIGH, () -> "loaded", results::add);
+
+    runNextCallback();
+    assertEquals(1, results.size());
+    assertEquals("loaded", results.get(0));
+  }
+
+  @Test
+  public void failureIsDeliveredToErrorCallback() throws Exception {
+    List<Exception> errors = new ArrayList<>();
+    scope.run(executor, Priority.HIGH, () -> {
+      throw new IllegalStateException("boom");
+    }, result -> { }, errors::add);
+
+    runNextCallback();
+    assertEquals(1, errors.size());
+    assertEquals("boom", errors.get(0).getMessage());
+  }
+
+  @Test
+  public void cancelDropsResultsAndSkipsQueuedLoads() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    executor.execute(Priority.HIGH, () -> {
+      started.countDown();
+      awaitQuietly(release);
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    AtomicBoolean ran = new AtomicBoolean();
+    List<String> results = new ArrayList<>();
+    Future<String> queued = scope.run(executor, Priority.NORMAL, () -> {
+      ran.set(true);
+      return "late";
+    }, results::add);
+
+    scope.cancel();
+    release.countDown();
+    executor.submit(Priority.LOW, () -> { }).get(5, TimeUnit.SECONDS);
+
+    assertTrue(scope.isCancelled());
+    assertTrue(queued.isCancelled());
+    assertFalse(ran.get());
+    drainCallbacks();
+    assertTrue(results.isEmpty());
+    assertNull(scope.run(executor, Priority.HIGH, () -> "ignored", results::add));
+  }
+
+  @Test
+  public void commitFinishesAfterCancelButIsNotDelivered() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    executor.execute(Priority.HIGH, () -> awaitQuietly(release));
+
+    AtomicBoolean written = new AtomicBoolean();
+    List<Boolean> results = new ArrayList<>();
+    scope.commit(executor, Priority.NORMAL, () -> {
+      written.set(true);
+      return true;
+    }, results::add);
+
+    scope.cancel();
+    release.countDown();
+    executor.submit(Priority.LOW, () -> { }).get(5, TimeUnit.SECONDS);
+
+    assertTrue(written.get());
+    drainCallbacks();
+    assertTrue(results.isEmpty());
+  }
+
+  private void runNextCallback() throws InterruptedException {
+    Runnable callback = main.poll(5, TimeUnit.SECONDS);
+    assertTrue(callback != null);
+    callback.run();
+  }
+
+  private void drainCallbacks() {
+    Runnable callback;
+    while ((callback = main.poll()) != null) {
+      callback.run();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.StandInApiServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthorStore against the local stand-in server: names in memory, revalidated with ETags
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class AuthorStoreTest {
+
+  private StandInApiServer server;
+  private AuthorRepository repository;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    server = new StandInApiServer();
+    ApiService.setBaseUrl(server.getBaseUrl());
+    repository = new AuthorRepository(context);
+  }
+
+  @After
+  public void tearDown() {
+    ApiService.setBaseUrl(null);
+    server.close();
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void unchangedAuthorsAreRevalidatedWithoutRewriting() throws Exception {
+    AuthorStore store = new AuthorStore(repository, new ApiService());
+    assertNull(store.getName(1));
+
+    assertTrue(store.refresh().get(5, TimeUnit.SECONDS));
+    assertEquals(10, store.getNames().size());
+    assertEquals("User 3", store.getName(3));
+    assertEquals(10, store.getAuthors().size());
+    assertEquals(1, store.getAuthors().get(0).getId());
+    String etag = repository.getEtag(ApiService.USERS_ENDPOINT);
+    assertTrue(etag != null && !etag.isEmpty());
+
+    // Same set: a 304, the stored ETag is kept
+    assertFalse(store.refresh().get(5, TimeUnit.SECONDS));
+    assertEquals(1, server.getNotModifiedCount());
+    assertEquals(etag, server.getRequests().get(1).ifNoneMatch);
+    assertEquals(etag, repository.getEtag(ApiService.USERS_ENDPOINT));
+    assertEquals("User 3", store.getName(3));
+  }
+
+  @Test
+  public void namesSurviveRestartWithoutNetwork() throws Exception {
+    new AuthorStore(repository, new ApiService()).refresh().get(5, TimeUnit.SECONDS);
+    server.close();
+
+    AuthorStore restarted = new AuthorStore(repository, new ApiService());
+    assertEquals(10, restarted.loadAsync().get(5, TimeUnit.SECONDS).size());
+    assertEquals("User 7", restarted.getName(7));
+  }
+
+  @Test
+  public void changedUsersAreFetchedAgain() throws Exception {
+    AuthorStore store = new AuthorStore(repository, new ApiService());
+    store.refresh().get(5, TimeUnit.SECONDS);
+
+    server.setUserCount(12);
+    assertTrue(store.refresh().get(5, TimeUnit.SECONDS));
+    assertEquals(0, server.getNotModifiedCount());
+    assertEquals(12, store.getAuthors().size());
+    assertEquals("User 12", store.getName(12));
+    assertEquals(12, repository.getAuthors().size());
+  }
+}
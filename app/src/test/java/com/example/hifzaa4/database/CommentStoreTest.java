@@ -0,0 +1,132 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.util.SparseIntArray;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.models.Comment;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.StandInApiServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommentRepository caching and counts, and CommentStore against the local stand-in server
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class CommentStoreTest {
+
+  private StandInApiServer server;
+  private CommentRepository repository;
+  private CommentStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    server = new StandInApiServer();
+    server.setPostCount(200);
+    ApiService.setBaseUrl(server.getBaseUrl());
+    repository = new CommentRepository(context);
+    store = new CommentStore(repository, new ApiService());
+  }
+
+  @After
+  public void tearDown() {
+    ApiService.setBaseUrl(null);
+    server.close();
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void replacesOnlyChangedPostsAndCountsInOneQuery() {
+    List<Comment> comments = Arrays.asList(
+        comment(1, 1, "a"), comment(2, 1, "b"), comment(3, 2, "c"));
+    Set<Integer> changed = repository.replaceComments(Arrays.asList(1, 2, 3), comments, 1000);
+    assertEquals(2, changed.size()); // Post 3 has no comments and had none
+    assertEquals(Arrays.asList(comment(1, 1, "a"), comment(2, 1, "b")), repository.getComments(1));
+
+    // Same comments again: nothing is rewritten; an edit changes only its post
+    assertTrue(repository.replaceComments(Arrays.asList(1, 2, 3), comments, 2000).isEmpty());
+    changed = repository.replaceComments(Arrays.asList(1, 2),
+        Arrays.asList(comment(1, 1, "a"), comment(2, 1, "b"), comment(3, 2, "edited")), 3000);
+    assertEquals(Collections.singleton(2), changed);
+
+    SparseIntArray counts = repository.getCommentCounts();
+    assertEquals(3, counts.size());
+    assertEquals(2, counts.get(1));
+    assertEquals(1, counts.get(2));
+    assertEquals(0, counts.get(3, -1)); // Fetched, but without comments
+    assertEquals(-1, counts.get(4, -1)); // Never fetched
+  }
+
+  @Test
+  public void staleIdsAreThoseNotFetchedSince() {
+    repository.replaceComments(Arrays.asList(1, 2), new ArrayList<>(), 1000);
+    repository.replaceComments(Collections.singletonList(3), new ArrayList<>(), 5000);
+
+    assertEquals(Arrays.asList(1, 2, 4), repository.getStalePostIds(Arrays.asList(1, 2, 3, 4), 2000));
+    assertEquals(Collections.singletonList(4), repository.getStalePostIds(Arrays.asList(1, 2, 3, 4), 1000));
+  }
+
+  @Test
+  public void prefetchBatchesRequestsAndSkipsFreshPosts() throws Exception {
+    List<Integer> postIds = new ArrayList<>();
+    for (int postId = 1; postId <= 120; postId++) {
+      postIds.add(postId);
+    }
+    postIds.add(-5); // Local post: not on the server
+
+    assertTrue(store.prefetch(postIds).get(10, TimeUnit.SECONDS));
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals((120 + CommentStore.MAX_BATCH - 1) / CommentStore.MAX_BATCH, requests.size());
+    for (StandInApiServer.Request request : requests) {
+      assertEquals("/comments", request.path);
+    }
+
+    SparseIntArray counts = store.getCommentCountsAsync().get(10, TimeUnit.SECONDS);
+    assertEquals(120, counts.size());
+    assertEquals(5, counts.get(120));
+
+    // Fetched a moment ago: no more requests
+    assertFalse(store.prefetch(postIds).get(10, TimeUnit.SECONDS));
+    assertEquals(requests.size(), server.getRequests().size());
+  }
+
+  @Test
+  public void refreshReturnsCommentsOnlyWhenTheyChanged() throws Exception {
+    List<Comment> first = store.refreshComments(42).get(10, TimeUnit.SECONDS);
+    assertEquals(5, first.size());
+    assertEquals(42, first.get(0).getPostId());
+    assertEquals(first, store.getCommentsAsync(42).get(10, TimeUnit.SECONDS));
+    assertEquals("postId=42", server.getRequests().get(0).query);
+
+    assertNull(store.refreshComments(42).get(10, TimeUnit.SECONDS));
+    assertNull(store.refreshComments(-1).get(10, TimeUnit.SECONDS));
+    assertEquals(2, server.getRequests().size());
+  }
+
+  private static Comment comment(int id, int postId, String body) {
+    return new Comment(id, postId, "Comment " + id, "reader@example.com", body);
+  }
+}
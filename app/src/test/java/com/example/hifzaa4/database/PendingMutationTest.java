@@ -0,0 +1,73 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.hifzaa4.database.PendingMutation.Operation;
+
+import org.junit.Test;
+
+/**
+ * Coalescing rules for queued mutations
+ */
+public class PendingMutationTest {
+
+  @Test
+  public void createThenUpdateStaysCreateWithNewData() {
+    PendingMutation merged = PendingMutation.coalesce(pending(Operation.CREATE, "v1"), next(Operation.UPDATE, "v2"));
+    assertEquals(Operation.CREATE, merged.getOperation());
+    assertEquals("v2", merged.getPayload());
+  }
+
+  @Test
+  public void createThenDeleteCancelsOut() {
+    assertNull(PendingMutation.coalesce(pending(Operation.CREATE, "v1"), next(Operation.DELETE, null)));
+  }
+
+  @Test
+  public void updatesCollapseToTheLast() {
+    PendingMutation merged = PendingMutation.coalesce(pending(Operation.UPDATE, "v1"), next(Operation.UPDATE, "v2"));
+    assertEquals(Operation.UPDATE, merged.getOperation());
+    assertEquals("v2", merged.getPayload());
+  }
+
+  @Test
+  public void updateThenDeleteIsDelete() {
+    PendingMutation merged = PendingMutation.coalesce(pending(Operation.UPDATE, "v1"), next(Operation.DELETE, null));
+    assertEquals(Operation.DELETE, merged.getOperation());
+    assertNull(merged.getPayload());
+  }
+
+  @Test
+  public void deleteThenCreateIsUpdate() {
+    PendingMutation merged = PendingMutation.coalesce(pending(Operation.DELETE, null), next(Operation.CREATE, "v2"));
+    assertEquals(Operation.UPDATE, merged.getOperation());
+    assertEquals("v2", merged.getPayload());
+  }
+
+  @Test
+  public void mergeKeepsRowAndIdempotencyKey() {
+    PendingMutation merged = PendingMutation.coalesce(pending(Operation.UPDATE, "v1"), next(Operation.UPDATE, "v2"));
+    assertEquals(5, merged.getRowId());
+    assertEquals("pending-key", merged.getIdempotencyKey());
+  }
+
+  @Test
+  public void changedOperationGetsAFreshIdempotencyKey() {
+    PendingMutation update = PendingMutation.coalesce(pending(Operation.DELETE, null), next(Operation.CREATE, "v2"));
+    PendingMutation delete = PendingMutation.coalesce(pending(Operation.UPDATE, "v1"), next(Operation.DELETE, null));
+    assertNotEquals("pending-key", update.getIdempotencyKey());
+    assertNotEquals("pending-key", delete.getIdempotencyKey());
+    assertNotEquals(update.getIdempotencyKey(), delete.getIdempotencyKey());
+    assertEquals(5, update.getRowId());
+  }
+
+  private static PendingMutation pending(Operation operation, String payload) {
+    return new PendingMutation(5, 1, operation, payload, "pending-key", 0);
+  }
+
+  private static PendingMutation next(Operation operation, String payload) {
+    return new PendingMutation(0, 1, operation, payload, "next-key", 0);
+  }
+}
@@ -0,0 +1,207 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostMerger behaviour, plus a refresh benchmark on a 100k-row table
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class PostMergerTest {
+
+  private static final int BENCH_ROWS = Integer.getInteger("bench.rows", 100_000);
+
+  private PostRepository repository;
+  private OutboxRepository outbox;
+  private PostMerger merger;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    repository = new PostRepository(context);
+    outbox = new OutboxRepository(context);
+    merger = new PostMerger(context);
+  }
+
+  @After
+  public void tearDown() {
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void serverFieldsUpdateAndFavoritesSurvive() {
+    merger.merge(serverPosts(3, "v1"), true);
+    repository.toggleFavorite(2, true);
+
+    PostMerger.Result result = merger.merge(serverPosts(3, "v2"), true);
+
+    assertEquals(3, result.written);
+    Post post = repository.getPostById(2);
+    assertEquals("Title 2 v2", post.getTitle());
+    assertTrue(post.isFavorite());
+    assertFalse(repository.getPostById(1).isFavorite());
+  }
+
+  @Test
+  public void unchangedRefreshWritesNothing() {
+    merger.merge(serverPosts(50, "v1"), true);
+
+    PostMerger.Result result = merger.merge(serverPosts(50, "v1"), true);
+
+    assertEquals(0, result.written);
+    assertEquals(0, result.deleted);
+    assertFalse(result.hasChanges());
+  }
+
+  @Test
+  public void pendingEditsAreProtectedAndConflictsRecorded() {
+    merger.merge(serverPosts(3, "v1"), true);
+    Post edited = new Post(1, 1, "Local edit", "Body 1", false);
+    // Queued before the write, as PostStore does, so the edit records v1 as its base
+    outbox.enqueue(PendingMutation.update(edited));
+    repository.updatePost(edited);
+    outbox.enqueue(PendingMutation.delete(3));
+    repository.deletePost(3);
+
+    // The server still has the version the edit was made to: no conflict
+    assertEquals(0, merger.merge(serverPosts(3, "v1"), true).conflicts);
+    assertNull(merger.getConflict(1));
+
+    PostMerger.Result result = merger.merge(serverPosts(3, "v2"), true);
+
+    assertEquals("Local edit", repository.getPostById(1).getTitle());
+    assertNull("Pending delete is not undone", repository.getPostById(3));
+    assertEquals("Title 2 v2", repository.getPostById(2).getTitle());
+    assertEquals(1, result.conflicts);
+    assertEquals(1, merger.getConflictCount());
+    assertEquals("Title 1 v2", merger.getConflict(1).getTitle());
+
+    // Once the edit is pushed, the next refresh applies the server version and clears the conflict
+    for (PendingMutation mutation : outbox.claimBatch(10, Long.MAX_VALUE)) {
+      outbox.remove(mutation.getRowId());
+    }
+    merger.merge(serverPosts(3, "v2"), true);
+    assertEquals("Title 1 v2", repository.getPostById(1).getTitle());
+    assertEquals(0, merger.getConflictCount());
+  }
+
+  @Test
+  public void localPostsAreKeptAndRemovedServerPostsDeleted() {
+    merger.merge(serverPosts(5, "v1"), true);
+    int localId = repository.nextLocalPostId();
+    assertTrue(localId < 0);
+    repository.insertPost(new Post(localId, 1, "Mine", "Local body", false));
+
+    PostMerger.Result partial = merger.merge(serverPosts(3, "v1"), false);
+    assertEquals(0, partial.deleted);
+    assertNotNull(repository.getPostById(5));
+
+    PostMerger.Result complete = merger.merge(serverPosts(3, "v1"), true);
+    assertEquals(2, complete.deleted);
+    assertNull(repository.getPostById(5));
+    assertEquals("Mine", repository.getPostById(localId).getTitle());
+    assertEquals(localId - 1, repository.nextLocalPostId());
+  }
+
+  @Test
+  public void createdPostsSurviveCompleteRefreshesUntilTheServerListsThem() {
+    merger.merge(serverPosts(100, "v1"), true);
+    int localId = repository.nextLocalPostId();
+    Post draft = new Post(localId, 1, "Mine", "Local body", false);
+    outbox.enqueue(PendingMutation.create(draft));
+    repository.insertPost(draft);
+
+    // Sent; the server assigned 101 (JSONPlaceholder does, without storing the post)
+    PendingMutation create = outbox.claimBatch(10, Long.MAX_VALUE).get(0);
+    assertTrue(outbox.completeCreate(create, 101));
+    assertEquals(0, outbox.getPendingCount());
+
+    // A list fetched before the create landed, or from a server that did not keep it
+    PostMerger.Result result = merger.merge(serverPosts(100, "v1"), true);
+    assertEquals(0, result.deleted);
+    assertEquals("Mine", repository.getPostById(101).getTitle());
+
+    // Once a server list has contained it, it is a server post like any other
+    merger.merge(serverPosts(101, "v1"), true);
+    assertEquals("Title 101 v1", repository.getPostById(101).getTitle());
+    assertEquals(1, merger.merge(serverPosts(100, "v1"), true).deleted);
+    assertNull(repository.getPostById(101));
+  }
+
+  @Test
+  public void localIdsAreNotReusedAfterDeletes() {
+    int first = repository.nextLocalPostId();
+    assertEquals(-1, first);
+    repository.insertPost(new Post(first, 1, "Mine", "Body", false));
+    outbox.enqueue(PendingMutation.delete(first));
+    repository.deletePost(first);
+
+    // The deleted post's mutation is still queued under its ID
+    DatabaseHelper.resetInstance();
+    repository = new PostRepository(ApplicationProvider.getApplicationContext());
+    assertEquals(first - 1, repository.nextLocalPostId());
+  }
+
+  @Test
+  public void mergeOn100kRowsIsProportionalToChanges() {
+    List<Post> initial = serverPosts(BENCH_ROWS, "v1");
+    merger.merge(initial, true);
+    for (int id = 1; id <= BENCH_ROWS; id += 97) {
+      repository.toggleFavorite(id, true);
+    }
+
+    // 1% of rows changed on the server
+    List<Post> refresh = new ArrayList<>(initial);
+    int changed = 0;
+    for (int i = 0; i < refresh.size(); i += 100) {
+      Post post = refresh.get(i);
+      refresh.set(i, new Post(post.getId(), post.getUserId(), post.getTitle() + " edited", post.getBody(), false));
+      changed++;
+    }
+
+    long start = System.nanoTime();
+    PostMerger.Result result = merger.merge(refresh, true);
+    long mergeMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // The old refresh: wipe the table and insert everything again
+    start = System.nanoTime();
+    repository.deleteAllPosts();
+    repository.insertPosts(refresh);
+    long replaceMillis = (System.nanoTime() - start) / 1_000_000;
+
+    System.out.println("Refresh of " + BENCH_ROWS + " rows, " + changed + " changed: merge " + mergeMillis
+        + " ms (" + result + "), delete + insert " + replaceMillis + " ms");
+    assertEquals(changed, result.written);
+    assertEquals(0, result.deleted);
+  }
+
+  private static List<Post> serverPosts(int count, String version) {
+    List<Post> posts = new ArrayList<>(count);
+    for (int id = 1; id <= count; id++) {
+      posts.add(new Post(id, id % 10 + 1, "Title " + id + " " + version, "Body " + id, false));
+    }
+    return posts;
+  }
+}
@@ -0,0 +1,226 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.json.JsonWriter;
+import com.example.hifzaa4.metrics.Histogram;
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * PostRepository throughput and latency on Robolectric's real SQLite
+ * Runs insert, scan, paged read, lookup, toggle, count and delete at each table size and
+ * writes the results as JSON for the checkRepositoryBenchmarks baseline task.
+ * Run with -PbenchmarkFullSizes (or -Dbench.repo.sizes=1000,100000,1000000) for the full sizes
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class PostRepositoryBenchmarkTest {
+
+  private static final String SIZES = System.getProperty("bench.repo.sizes", "1000,100000");
+  private static final File OUTPUT_DIR = new File(System.getProperty("bench.output.dir", "build/benchmarks"));
+
+  private static final int BATCH_SIZE = 250;
+  private static final int PAGE_SIZE = 50;
+  private static final int LOOKUPS = 5000;
+  private static final int PAGES = 1000;
+  private static final int WRITES = 1000;
+
+  private PostRepository repository;
+  private Random random;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    repository = new PostRepository(context);
+    random = new Random(42);
+  }
+
+  @After
+  public void tearDown() {
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void repositoryOperations() throws IOException {
+    // Warm up (class loading, JIT, SQLite page cache) on a small table
+    run(1000, new ArrayList<>());
+
+    List<Result> results = new ArrayList<>();
+    for (String size : SIZES.split(",")) {
+      run(Integer.parseInt(size.trim()), results);
+    }
+
+    for (Result result : results) {
+      System.out.println(result);
+    }
+    File output = write(results);
+    System.out.println("repository benchmark results: " + output.getAbsolutePath());
+  }
+
+  /**
+   * Measure every operation against a table of the given size
+   */
+  private void run(int rows, List<Result> results) {
+    repository.deleteAllPosts();
+
+    results.add(measure("insert", rows, "rows", (rows + BATCH_SIZE - 1) / BATCH_SIZE, i -> {
+      List<Post> batch = batch(i * BATCH_SIZE + 1, Math.min(rows, (i + 1) * BATCH_SIZE));
+      repository.insertPosts(batch);
+      return batch.size();
+    }));
+
+    results.add(measure("count", rows, "ops", rows >= 1_000_000 ? 20 : 200, i -> {
+      assertEquals(rows, repository.getPostCount());
+      return 1;
+    }));
+
+    // A few full scans at the largest sizes, enough for a latency spread at the small ones
+    int scans = Math.max(2, Math.min(20, 2_000_000 / rows));
+    results.add(measure("scan", rows, "rows", scans, i -> {
+      int scanned = repository.getPostSummaryColumns().size();
+      assertEquals(rows, scanned);
+      return scanned;
+    }));
+
+    results.add(measure("page", rows, "ops", PAGES, i -> {
+      int beforeId = 1 + random.nextInt(rows);
+      repository.getPostSummaryPage(beforeId, PAGE_SIZE);
+      return 1;
+    }));
+
+    results.add(measure("lookup", rows, "ops", LOOKUPS, i -> {
+      assertNotNull(repository.getPostById(1 + random.nextInt(rows)));
+      return 1;
+    }));
+
+    results.add(measure("toggle", rows, "ops", WRITES, i -> {
+      repository.toggleFavorite(1 + random.nextInt(rows), i % 2 == 0);
+      return 1;
+    }));
+
+    // Distinct IDs spread over the table
+    int deletes = Math.min(WRITES, rows / 2);
+    int stride = rows / deletes;
+    results.add(measure("delete", rows, "ops", deletes, i -> {
+      assertEquals(1, repository.deletePost(1 + i * stride));
+      return 1;
+    }));
+  }
+
+  private static Result measure(String operation, int rows, String unit, int calls, Operation body) {
+    Histogram latency = new Histogram();
+    long units = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < calls; i++) {
+      long callStart = System.nanoTime();
+      units += body.run(i);
+      latency.record(System.nanoTime() - callStart);
+    }
+    long elapsed = System.nanoTime() - start;
+    return new Result(operation, rows, unit, units, units * 1e9 / elapsed, latency.snapshot());
+  }
+
+  private static List<Post> batch(int firstId, int lastId) {
+    List<Post> posts = new ArrayList<>(lastId - firstId + 1);
+    for (int id = firstId; id <= lastId; id++) {
+      posts.add(new Post(id, id % 10 + 1, "Title " + id,
+          "Body text for post " + id + ", long enough to need a snippet in the list. "
+              + "Repository benchmarks use the same shape of data as the API.", false));
+    }
+    return posts;
+  }
+
+  /**
+   * Write the results as {"benchmark": ..., "results": [...]}
+   */
+  private static File write(List<Result> results) throws IOException {
+    JsonWriter json = new JsonWriter();
+    json.beginObject().name("benchmark").value("PostRepository").name("results").beginArray();
+    for (Result result : results) {
+      Histogram.Snapshot latency = result.latency;
+      json.beginObject()
+          .name("operation").value(result.operation)
+          .name("rows").value(result.rows)
+          .name("unit").value(result.unit)
+          .name("count").value(result.units)
+          .name("opsPerSecond").value(Math.round(result.unitsPerSecond))
+          .name("p50Nanos").value(latency.p50)
+          .name("p90Nanos").value(latency.p90)
+          .name("p99Nanos").value(latency.p99)
+          .name("maxNanos").value(latency.max)
+          .endObject();
+    }
+    json.endArray().endObject();
+
+    if (!OUTPUT_DIR.isDirectory() && !OUTPUT_DIR.mkdirs()) {
+      throw new IOException("Cannot create " + OUTPUT_DIR);
+    }
+    File file = new File(OUTPUT_DIR, "repository.json");
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(json.toString());
+    }
+    return file;
+  }
+
+  private interface Operation {
+    /**
+     * Run call i and return the number of units it handled
+     */
+    int run(int i);
+  }
+
+  private static class Result {
+    final String operation;
+    final int rows;
+    final String unit;
+    final long units;
+    final double unitsPerSecond;
+    final Histogram.Snapshot latency;
+
+    Result(String operation, int rows, String unit, long units, double unitsPerSecond,
+        Histogram.Snapshot latency) {
+      this.operation = operation;
+      this.rows = rows;
+      this.unit = unit;
+      this.units = units;
+      this.unitsPerSecond = unitsPerSecond;
+      this.latency = latency;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.US, "repository %-6s %8d rows: %,12.0f %s/s, latency p50 %s p90 %s p99 %s max %s",
+          operation, rows, unitsPerSecond, unit, micros(latency.p50), micros(latency.p90),
+          micros(latency.p99), micros(latency.max));
+    }
+
+    private static String micros(long nanos) {
+      return String.format(Locale.US, "%.0fus", nanos / 1e3);
+    }
+  }
+}
@@ -0,0 +1,391 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.metrics.Histogram;
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.models.PostColumnStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Randomized mixes of concurrent readers and writers against DatabaseHelper, PostRepository
+ * and PostMerger, the way the app uses them (sync thread, UI reads, favorite toggles, local edits)
+ * Checks that favorite flags are never lost, a sync is never partly visible, and counts match
+ * scans; reports throughput per operation and how much slower each is than uncontended.
+ * Run with -Dbench.stress.seed=N to replay a mix, -Dbench.stress.millis to run each mix longer
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class PostRepositoryStressTest {
+
+  private static final long SEED = Long.getLong("bench.stress.seed", 20240601L);
+  private static final long MIX_MILLIS = Long.getLong("bench.stress.millis", 1500L);
+  private static final int MIXES = 3;
+
+  private static final int SERVER_POSTS = 2000;
+  private static final int PAGE_SIZE = 50;
+  private static final String GENERATION = " gen ";
+
+  private Context context;
+  private PostRepository repository;
+  private PostMerger merger;
+
+  // Shared by the workers of a mix
+  private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger generation = new AtomicInteger();
+  private volatile boolean running;
+
+  @Before
+  public void setUp() {
+    context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    repository = new PostRepository(context);
+    merger = new PostMerger(context);
+  }
+
+  @After
+  public void tearDown() {
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void concurrentSingletonAccessSharesOneHelper() throws Exception {
+    DatabaseHelper.resetInstance();
+    int threads = 16;
+    DatabaseHelper[] helpers = new DatabaseHelper[threads];
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int index = t;
+      workers.add(start(() -> {
+        await(start);
+        helpers[index] = DatabaseHelper.getInstance(context);
+        helpers[index].getWritableDatabase();
+      }));
+    }
+    start.countDown();
+    join(workers);
+
+    for (DatabaseHelper helper : helpers) {
+      assertSame(helpers[0], helper);
+    }
+  }
+
+  @Test
+  public void randomizedReaderWriterMixesKeepInvariants() throws Exception {
+    Map<String, Long> solo = uncontendedLatency();
+    System.out.println("stress seed " + SEED + " (-Dbench.stress.seed to replay)");
+
+    Random random = new Random(SEED);
+    for (int mix = 0; mix < MIXES; mix++) {
+      runMix(mix, 1 + random.nextInt(4), 1 + random.nextInt(3), random.nextInt(3), random.nextLong(), solo);
+    }
+  }
+
+  /**
+   * One sync thread plus the given number of readers, favorite togglers and local writers
+   */
+  private void runMix(int mix, int readers, int togglers, int localWriters, long seed,
+      Map<String, Long> solo) throws Exception {
+    repository.deleteAllPosts();
+    sync();
+
+    Map<String, Histogram> latency = new LinkedHashMap<>();
+    for (String operation : new String[] { "sync", "scan", "count", "page", "lookup", "toggle", "insert", "delete" }) {
+      latency.put(operation, new Histogram());
+    }
+    List<Map<Integer, Boolean>> favorites = new ArrayList<>();
+    List<List<Integer>> localPosts = new ArrayList<>();
+    List<Runnable> workers = new ArrayList<>();
+
+    workers.add(() -> {
+      while (running) {
+        timed(latency.get("sync"), this::sync);
+      }
+    });
+    for (int t = 0; t < readers; t++) {
+      Random random = new Random(seed + t);
+      workers.add(() -> {
+        while (running) {
+          read(random, latency);
+        }
+      });
+    }
+    for (int t = 0; t < togglers; t++) {
+      // Each toggler owns the server posts with id % togglers == t, so the last value it wrote is the truth
+      int owner = t;
+      Random random = new Random(seed + 100 + t);
+      Map<Integer, Boolean> expected = new HashMap<>();
+      favorites.add(expected);
+      workers.add(() -> {
+        while (running) {
+          int postId = owner + 1 + random.nextInt(SERVER_POSTS / togglers) * togglers;
+          if (postId > SERVER_POSTS) {
+            continue;
+          }
+          boolean favorite = random.nextBoolean();
+          timed(latency.get("toggle"), () -> repository.toggleFavorite(postId, favorite));
+          expected.put(postId, favorite);
+        }
+      });
+    }
+    for (int t = 0; t < localWriters; t++) {
+      // Local posts live in a separate negative ID range per writer
+      int firstId = -1 - t * 1_000_000;
+      Random random = new Random(seed + 200 + t);
+      List<Integer> live = new ArrayList<>();
+      localPosts.add(live);
+      workers.add(() -> {
+        int nextId = firstId;
+        while (running) {
+          if (live.isEmpty() || (live.size() < 50 && random.nextBoolean())) {
+            Post post = new Post(nextId, 1, "Local " + nextId, "Written on this device", false);
+            timed(latency.get("insert"), () -> repository.insertPost(post));
+            live.add(nextId--);
+          } else {
+            int postId = live.remove(random.nextInt(live.size()));
+            timed(latency.get("delete"), () -> assertEquals(1, repository.deletePost(postId)));
+          }
+        }
+      });
+    }
+
+    long elapsedNanos = runFor(workers);
+    rethrowFailures();
+
+    // Quiescent checks: every toggle survived the syncs, and count, scan and writers agree
+    for (Map<Integer, Boolean> expected : favorites) {
+      for (Map.Entry<Integer, Boolean> entry : expected.entrySet()) {
+        assertEquals("favorite of post " + entry.getKey(),
+            entry.getValue(), repository.getPostById(entry.getKey()).isFavorite());
+      }
+    }
+    int local = 0;
+    for (List<Integer> live : localPosts) {
+      local += live.size();
+    }
+    PostColumnStore scan = repository.getPostSummaryColumns();
+    assertEquals(SERVER_POSTS + local, scan.size());
+    assertEquals(scan.size(), repository.getPostCount());
+    checkSingleGeneration(scan);
+
+    System.out.println(String.format(Locale.US, "stress mix %d: %d readers, %d togglers, %d local writers, %.1fs",
+        mix, readers, togglers, localWriters, elapsedNanos / 1e9));
+    for (Map.Entry<String, Histogram> entry : latency.entrySet()) {
+      Histogram.Snapshot snapshot = entry.getValue().snapshot();
+      if (snapshot.count == 0) {
+        continue;
+      }
+      Long soloP50 = solo.get(entry.getKey());
+      System.out.println(String.format(Locale.US,
+          "  %-6s %8.0f ops/s  p50 %6.0fus  p99 %7.0fus  max %7.0fus  contention x%.1f",
+          entry.getKey(), snapshot.count * 1e9 / elapsedNanos, snapshot.p50 / 1e3, snapshot.p99 / 1e3,
+          snapshot.max / 1e3, soloP50 != null ? (double) snapshot.p50 / Math.max(1, soloP50) : 1.0));
+    }
+  }
+
+  /**
+   * One random read, checking what the UI relies on
+   */
+  private void read(Random random, Map<String, Histogram> latency) {
+    switch (random.nextInt(4)) {
+      case 0: {
+        // A scan sees all of one sync and nothing of the next
+        long start = System.nanoTime();
+        PostColumnStore scan = repository.getPostSummaryColumns();
+        latency.get("scan").record(System.nanoTime() - start);
+        checkSingleGeneration(scan);
+        break;
+      }
+      case 1: {
+        long start = System.nanoTime();
+        int count = repository.getPostCount();
+        latency.get("count").record(System.nanoTime() - start);
+        assertTrue("count " + count, count >= SERVER_POSTS);
+        break;
+      }
+      case 2: {
+        int beforeId = 1 + random.nextInt(SERVER_POSTS);
+        long start = System.nanoTime();
+        List<Post> page = repository.getPostSummaryPage(beforeId, PAGE_SIZE);
+        latency.get("page").record(System.nanoTime() - start);
+        assertEquals(Math.min(PAGE_SIZE, beforeId - 1), countServerPosts(page));
+        for (int i = 1; i < page.size(); i++) {
+          assertTrue(page.get(i).getId() < page.get(i - 1).getId());
+        }
+        break;
+      }
+      default: {
+        int postId = 1 + random.nextInt(SERVER_POSTS);
+        long start = System.nanoTime();
+        Post post = repository.getPostById(postId);
+        latency.get("lookup").record(System.nanoTime() - start);
+        assertEquals(postId, post.getId());
+        break;
+      }
+    }
+  }
+
+  /**
+   * Every server post is present and they all come from the same sync
+   */
+  private static void checkSingleGeneration(PostColumnStore scan) {
+    String seen = null;
+    int serverPosts = 0;
+    for (int row = 0; row < scan.size(); row++) {
+      if (scan.getId(row) <= 0) {
+        continue;
+      }
+      String title = scan.getTitle(row);
+      String rowGeneration = title.substring(title.indexOf(GENERATION) + GENERATION.length());
+      if (seen == null) {
+        seen = rowGeneration;
+      }
+      assertEquals("partly visible sync at post " + scan.getId(row), seen, rowGeneration);
+      serverPosts++;
+    }
+    assertEquals(SERVER_POSTS, serverPosts);
+  }
+
+  private static int countServerPosts(List<Post> posts) {
+    int count = 0;
+    for (Post post : posts) {
+      if (post.getId() > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A full refresh where every server title changes
+   */
+  private void sync() {
+    int next = generation.incrementAndGet();
+    List<Post> posts = new ArrayList<>(SERVER_POSTS);
+    for (int id = 1; id <= SERVER_POSTS; id++) {
+      posts.add(new Post(id, id % 10 + 1, "Post " + id + GENERATION + next, "Body of post " + id, false));
+    }
+    merger.merge(posts, true);
+  }
+
+  /**
+   * p50 of each operation on its own, to express contention as a slowdown
+   */
+  private Map<String, Long> uncontendedLatency() {
+    repository.deleteAllPosts();
+    Map<String, Histogram> latency = new HashMap<>();
+    for (String operation : new String[] { "sync", "scan", "count", "page", "lookup", "toggle", "insert", "delete" }) {
+      latency.put(operation, new Histogram());
+    }
+    Random random = new Random(SEED);
+    for (int i = 0; i < 20; i++) {
+      timed(latency.get("sync"), this::sync);
+    }
+    for (int i = 0; i < 400; i++) {
+      read(random, latency);
+      int postId = 1 + random.nextInt(SERVER_POSTS);
+      timed(latency.get("toggle"), () -> repository.toggleFavorite(postId, random.nextBoolean()));
+      Post local = new Post(-1 - i, 1, "Local", "Body", false);
+      timed(latency.get("insert"), () -> repository.insertPost(local));
+      timed(latency.get("delete"), () -> repository.deletePost(local.getId()));
+    }
+
+    Map<String, Long> p50 = new HashMap<>();
+    for (Map.Entry<String, Histogram> entry : latency.entrySet()) {
+      p50.put(entry.getKey(), entry.getValue().snapshot().p50);
+    }
+    return p50;
+  }
+
+  private static void timed(Histogram histogram, Runnable operation) {
+    long start = System.nanoTime();
+    operation.run();
+    histogram.record(System.nanoTime() - start);
+  }
+
+  /**
+   * Start all workers together, stop them after MIX_MILLIS and return the elapsed time
+   */
+  private long runFor(List<Runnable> workers) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    running = true;
+    for (Runnable worker : workers) {
+      threads.add(start(() -> {
+        await(start);
+        worker.run();
+      }));
+    }
+    long startNanos = System.nanoTime();
+    start.countDown();
+    Thread.sleep(MIX_MILLIS);
+    running = false;
+    join(threads);
+    return System.nanoTime() - startNanos;
+  }
+
+  private Thread start(Runnable body) {
+    Thread thread = new Thread(() -> {
+      try {
+        body.run();
+      } catch (Throwable t) {
+        failures.add(t);
+        running = false;
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  private static void join(List<Thread> threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(60));
+      assertTrue("worker did not stop", !thread.isAlive());
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void rethrowFailures() throws Exception {
+    Throwable failure = failures.poll();
+    if (failure instanceof Exception) {
+      throw (Exception) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package com.example.hifzaa4.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the per-row column lookup mapper with PostRowMapper
+ * Checks that PostRowMapper looks column indexes up once per cursor and maps the same
+ * posts; reports rows/sec and bytes allocated per row. Run with -Dbench.rows=100000 for
+ * the full size
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class PostRowMapperBenchmarkTest {
+
+  private static final int ROWS = Integer.getInteger("bench.rows", 20_000);
+  private static final int ROUNDS = 5;
+
+  // Columns both mappers read, so they do the same work per row
+  private static final String[] COLUMNS = {
+      DatabaseHelper.COLUMN_ID,
+      DatabaseHelper.COLUMN_USER_ID,
+      DatabaseHelper.COLUMN_TITLE,
+      DatabaseHelper.COLUMN_BODY,
+      DatabaseHelper.COLUMN_IS_FAVORITE
+  };
+
+  private SQLiteDatabase db;
+
+  // Column index lookups during the last scan
+  private int lookups;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    db = DatabaseHelper.getInstance(context).getWritableDatabase();
+
+    List<Post> posts = new ArrayList<>(ROWS);
+    for (int i = 1; i <= ROWS; i++) {
+      posts.add(new Post(i, i % 10 + 1, "Title " + i, body(i), i % 7 == 0));
+    }
+    new PostRepository(context).insertPosts(posts);
+  }
+
+  @After
+  public void tearDown() {
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void rowMapperLooksUpColumnsOncePerCursor() {
+    // Warm up both paths
+    scan(false);
+    scan(true);
+
+    Result legacy = measure(false);
+    Result mapper = measure(true);
+
+    System.out.println(String.format("cursor mapping, %d rows: per-row lookups %.0f rows/s %.0f B/row | "
+        + "PostRowMapper %.0f rows/s %.0f B/row",
+        ROWS, legacy.rowsPerSecond, legacy.bytesPerRow, mapper.rowsPerSecond, mapper.bytesPerRow));
+
+    List<Post> expected = scan(false);
+    int legacyLookups = lookups;
+    List<Post> actual = scan(true);
+    assertEquals((long) COLUMNS.length * ROWS, legacyLookups);
+    assertTrue("PostRowMapper looked up " + lookups + " columns", lookups <= COLUMNS.length + 1);
+    assertEquals(ROWS, actual.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertEquals(expected.get(i).getId(), actual.get(i).getId());
+      assertEquals(expected.get(i).getBody(), actual.get(i).getBody());
+      assertEquals(expected.get(i).isFavorite(), actual.get(i).isFavorite());
+    }
+  }
+
+  private Result measure(boolean useMapper) {
+    long bytesBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int round = 0; round < ROUNDS; round++) {
+      scan(useMapper);
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = allocatedBytes() - bytesBefore;
+
+    long rows = (long) ROWS * ROUNDS;
+    return new Result(rows * 1e9 / elapsed, (double) bytes / rows);
+  }
+
+  private List<Post> scan(boolean useMapper) {
+    List<Post> posts = new ArrayList<>(ROWS);
+    lookups = 0;
+    try (Cursor cursor = new CountingCursor(
+        db.query(DatabaseHelper.TABLE_POSTS, COLUMNS, null, null, null, null, null))) {
+      if (useMapper) {
+        PostRowMapper mapper = new PostRowMapper(cursor);
+        while (cursor.moveToNext()) {
+          posts.add(mapper.map(cursor));
+        }
+      } else {
+        while (cursor.moveToNext()) {
+          posts.add(legacyMap(cursor));
+        }
+      }
+    }
+    return posts;
+  }
+
+  // The mapper PostRepository used before PostRowMapper
+  private static Post legacyMap(Cursor cursor) {
+    return new Post(
+        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)),
+        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID)),
+        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE)),
+        cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_BODY)),
+        cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_FAVORITE)) == 1);
+  }
+
+  private static String body(int i) {
+    StringBuilder body = new StringBuilder();
+    while (body.length() < 400) {
+      body.append("Body text for post ").append(i).append(". ");
+    }
+    return body.toString();
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Counts column index lookups by name
+   */
+  private class CountingCursor extends CursorWrapper {
+
+    CountingCursor(Cursor cursor) {
+      super(cursor);
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+      lookups++;
+      return super.getColumnIndex(columnName);
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+      lookups++;
+      return super.getColumnIndexOrThrow(columnName);
+    }
+  }
+
+  private static class Result {
+    final double rowsPerSecond;
+    final double bytesPerRow;
+
+    Result(double rowsPerSecond, double bytesPerRow) {
+      this.rowsPerSecond = rowsPerSecond;
+      this.bytesPerRow = bytesPerRow;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.example.hifzaa4.images;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Looper;
+import android.widget.ImageView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.StandInApiServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImageLoader, DiskCache and Downsampler against generated images of the local stand-in server
+ * (real decoding, so native graphics)
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ImageLoaderTest {
+
+  // One decoded 150x150 thumbnail
+  private static final int THUMBNAIL_BYTES = 150 * 150 * 4;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private StandInApiServer server;
+  private File diskDir;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new StandInApiServer();
+    diskDir = folder.newFolder("images");
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void downsamplesToTheTargetSizeAndKeepsItInMemory() throws Exception {
+    ImageLoader loader = newLoader(1024 * 1024);
+    String url = server.getImageUrl(1, 600);
+
+    Bitmap bitmap = loader.load(url, 100, 100).get(5, TimeUnit.SECONDS);
+    assertEquals(150, bitmap.getWidth()); // 600 / 4, the largest power of two still >= 100
+    assertEquals(150, bitmap.getHeight());
+
+    assertSame(bitmap, loader.load(url, 100, 100).get(5, TimeUnit.SECONDS));
+    assertEquals(1, server.getRequests().size());
+
+    // Another size of the same image is decoded again, from disk
+    assertEquals(300, loader.load(url, 300, 300).get(5, TimeUnit.SECONDS).getWidth());
+    assertEquals(1, server.getRequests().size());
+  }
+
+  @Test
+  public void mergesRequestsForTheSameImage() throws Exception {
+    ImageLoader loader = newLoader(1024 * 1024);
+    server.setLatencyMillis(200);
+    String url = server.getImageUrl(2, 150);
+
+    CompletableFuture<Bitmap> first = loader.load(url, 150, 150);
+    CompletableFuture<Bitmap> second = loader.load(url, 150, 150);
+    CompletableFuture<Bitmap> smaller = loader.load(url, 50, 50);
+
+    assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    assertEquals(75, smaller.get(5, TimeUnit.SECONDS).getWidth());
+    assertEquals(1, server.getRequests().size());
+  }
+
+  @Test
+  public void cancelsOnlyOnceEveryCallerCancelled() throws Exception {
+    ImageLoader loader = newLoader(1024 * 1024);
+    server.setLatencyMillis(300);
+    String url = server.getImageUrl(3, 150);
+
+    CompletableFuture<Bitmap> cancelled = loader.load(url, 150, 150);
+    CompletableFuture<Bitmap> kept = loader.load(url, 150, 150);
+    cancelled.cancel(true);
+    assertEquals(150, kept.get(5, TimeUnit.SECONDS).getWidth());
+
+    // With its only caller gone the request is dropped, and a new load starts over
+    String other = server.getImageUrl(4, 150);
+    loader.load(other, 150, 150).cancel(true);
+    server.awaitQuiet(100);
+    server.setLatencyMillis(0);
+    assertEquals(150, loader.load(other, 150, 150).get(5, TimeUnit.SECONDS).getWidth());
+  }
+
+  @Test
+  public void diskCacheServesANewLoaderWithoutNetwork() throws Exception {
+    String url = server.getImageUrl(5, 150);
+    newLoader(1024 * 1024).load(url, 150, 150).get(5, TimeUnit.SECONDS);
+    server.close();
+
+    Bitmap bitmap = newLoader(1024 * 1024).load(url, 150, 150).get(5, TimeUnit.SECONDS);
+    assertEquals(150, bitmap.getWidth());
+  }
+
+  @Test
+  public void failedDownloadsAreReported() throws Exception {
+    server.failNext(1, 503);
+    try {
+      newLoader(1024 * 1024).load(server.getImageUrl(6, 150), 150, 150).get(5, TimeUnit.SECONDS);
+      fail("Expected the load to fail");
+    } catch (ExecutionException e) {
+      assertTrue(Futures.unwrap(e) instanceof ApiService.ServerException);
+    }
+  }
+
+  @Test
+  public void recycledViewsGiveTheirBitmapBackForReuse() throws Exception {
+    // Room for one thumbnail in memory
+    ImageLoader loader = newLoader(THUMBNAIL_BYTES + 1000);
+    ImageView view = new ImageView(ApplicationProvider.getApplicationContext());
+
+    loader.into(view, server.getImageUrl(7, 150), 150, 150);
+    Bitmap shown = awaitBitmap(view);
+    assertEquals(150, shown.getWidth());
+
+    // Evicted while shown: not reusable yet
+    loader.load(server.getImageUrl(8, 150), 150, 150).get(5, TimeUnit.SECONDS);
+    assertEquals(0, loader.getPool().getBytes());
+
+    // Recycled: the view lets go of it and it goes to the pool...
+    loader.cancel(view);
+    assertNull(view.getDrawable());
+    assertEquals(shown.getAllocationByteCount(), loader.getPool().getBytes());
+
+    // ...and the next image is decoded into it
+    Bitmap next = loader.load(server.getImageUrl(9, 150), 150, 150).get(5, TimeUnit.SECONDS);
+    assertSame(shown, next);
+    assertEquals(0, loader.getPool().getBytes());
+  }
+
+  @Test
+  public void cachedImagesAreShownWithoutWaiting() throws Exception {
+    ImageLoader loader = newLoader(1024 * 1024);
+    String url = server.getImageUrl(10, 150);
+    Bitmap bitmap = loader.load(url, 150, 150).get(5, TimeUnit.SECONDS);
+
+    ImageView view = new ImageView(ApplicationProvider.getApplicationContext());
+    loader.into(view, url, 150, 150);
+    assertSame(bitmap, ((BitmapDrawable) view.getDrawable()).getBitmap());
+  }
+
+  @Test
+  public void diskCacheDropsLeastRecentlyUsedFiles() {
+    DiskCache cache = new DiskCache(diskDir, 250);
+    cache.put("a", new byte[100]);
+    cache.put("b", new byte[100]);
+    assertNotNull(cache.get("a"));
+    cache.put("c", new byte[100]);
+
+    assertNull(cache.get("b"));
+    assertEquals(200, cache.getBytes());
+
+    // The index is rebuilt from the directory
+    DiskCache reopened = new DiskCache(diskDir, 250);
+    assertArrayEquals(new byte[100], reopened.get("a"));
+    assertNotNull(reopened.get("c"));
+    assertEquals(200, reopened.getBytes());
+  }
+
+  @Test
+  public void sampleSizeKeepsTheImageAtLeastAsLargeAsTheTarget() {
+    assertEquals(1, Downsampler.sampleSize(600, 600, 0, 0));
+    assertEquals(1, Downsampler.sampleSize(600, 600, 400, 400));
+    assertEquals(2, Downsampler.sampleSize(600, 600, 300, 300));
+    assertEquals(4, Downsampler.sampleSize(600, 600, 150, 150));
+    assertEquals(2, Downsampler.sampleSize(600, 300, 150, 150)); // The short side decides
+  }
+
+  private ImageLoader newLoader(int memoryBytes) {
+    return new ImageLoader(new DiskCache(diskDir, 10 * 1024 * 1024), memoryBytes, new BitmapPool(memoryBytes));
+  }
+
+  /**
+   * Run main-thread callbacks until the view shows a bitmap
+   */
+  private static Bitmap awaitBitmap(ImageView view) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline) {
+      shadowOf(Looper.getMainLooper()).idle();
+      if (view.getDrawable() instanceof BitmapDrawable) {
+        return ((BitmapDrawable) view.getDrawable()).getBitmap();
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("No image shown");
+  }
+}
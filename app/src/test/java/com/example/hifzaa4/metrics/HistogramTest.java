@@ -0,0 +1,79 @@
+package com.example.hifzaa4.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Bucket layout and percentiles of Histogram
+ */
+public class HistogramTest {
+
+  @Test
+  public void bucketsCoverEveryValueInOrder() {
+    assertEquals(0, Histogram.bucketFor(0));
+    assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketFor(Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.BUCKET_COUNT - 1));
+
+    for (int bucket = 0; bucket < Histogram.BUCKET_COUNT - 1; bucket++) {
+      long upper = Histogram.upperBound(bucket);
+      assertEquals(bucket, Histogram.bucketFor(upper));
+      assertEquals(bucket + 1, Histogram.bucketFor(upper + 1));
+    }
+  }
+
+  @Test
+  public void percentilesAreWithinBucketError() {
+    Histogram histogram = new Histogram();
+    for (int value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+
+    Histogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(1000, snapshot.count);
+    assertEquals(500.5, snapshot.mean, 0.001);
+    assertEquals(1000, snapshot.max);
+    assertWithin(500, snapshot.p50);
+    assertWithin(900, snapshot.p90);
+    assertWithin(990, snapshot.p99);
+  }
+
+  @Test
+  public void resetClearsEverything() {
+    Histogram histogram = new Histogram();
+    histogram.record(42);
+    histogram.record(-5);
+    histogram.reset();
+
+    Histogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(0, snapshot.count);
+    assertEquals(0, snapshot.max);
+    assertEquals(0, snapshot.p99);
+  }
+
+  @Test
+  public void concurrentRecordsAreNotLost() throws Exception {
+    Histogram histogram = new Histogram();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          histogram.record(i);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(400_000, histogram.snapshot().count);
+    assertEquals(99_999, histogram.snapshot().max);
+  }
+
+  // Reported values are bucket upper bounds: at most 25% above the exact value
+  private static void assertWithin(long exact, long reported) {
+    assertTrue("expected ~" + exact + " but was " + reported, reported >= exact && reported <= exact * 1.25);
+  }
+}
@@ -0,0 +1,107 @@
+package com.example.hifzaa4.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+/**
+ * JankMonitor frame accounting with synthetic vsync times
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class JankMonitorTest {
+
+  private static final long FRAME = 16_666_667; // 60 Hz
+  private static final long MS = 1_000_000;
+
+  private MetricsRegistry registry;
+  private AdapterWork work;
+  private File logFile;
+  private JankMonitor monitor;
+
+  @Before
+  public void setUp() throws Exception {
+    registry = new MetricsRegistry();
+    work = new AdapterWork();
+    logFile = File.createTempFile("jank", ".log");
+    monitor = new JankMonitor(registry, "posts", work, FRAME, logFile, Runnable::run);
+  }
+
+  @After
+  public void tearDown() {
+    logFile.delete();
+  }
+
+  @Test
+  public void slowFramesAreLinkedToTheirAdapterWork() {
+    monitor.setScrolling(true);
+    long t = 1_000 * MS;
+    monitor.onFrame(t);
+
+    // Smooth frame: one bind
+    work.onBind(2 * MS);
+    monitor.onFrame(t += FRAME);
+
+    // Slow frame: 3 holders created, 5 binds of 6 ms each
+    for (int i = 0; i < 3; i++) {
+      work.onCreate();
+    }
+    for (int i = 0; i < 5; i++) {
+      work.onBind(6 * MS);
+    }
+    monitor.onFrame(t += 3 * FRAME);
+
+    assertEquals(2, registry.counter("ui.posts.frames").get());
+    assertEquals(1, registry.counter("ui.posts.jank").get());
+    assertEquals(2, registry.counter("ui.posts.dropped").get());
+    assertEquals(3, registry.histogram("ui.posts.jank.created").snapshot().max);
+    assertEquals(5, registry.histogram("ui.posts.jank.bound").snapshot().max);
+    assertEquals(30_000, registry.timer("ui.posts.jank.bind").getHistogram().snapshot().max);
+
+    String log = JankMonitor.readRecent(logFile, 10);
+    assertTrue(log, log.contains("posts frame=50.0ms dropped=2 created=3 bound=5 bind=30.0ms"));
+    assertEquals(1, log.split("\n").length);
+  }
+
+  @Test
+  public void framesAreOnlyCountedWhileScrolling() {
+    monitor.setScrolling(true);
+    monitor.doFrame(1_000 * MS);
+    monitor.doFrame(1_000 * MS + FRAME);
+    monitor.setScrolling(false);
+
+    // Idle frames, however long, are not counted
+    monitor.doFrame(2_000 * MS);
+    monitor.doFrame(3_000 * MS);
+    assertEquals(1, registry.counter("ui.posts.frames").get());
+    assertEquals(0, registry.counter("ui.posts.jank").get());
+
+    // A new scroll starts timing from its own first frame
+    work.onBind(MS);
+    monitor.setScrolling(true);
+    assertEquals(0, work.getBound());
+    monitor.doFrame(4_000 * MS);
+    monitor.doFrame(4_000 * MS + FRAME);
+    assertEquals(2, registry.counter("ui.posts.frames").get());
+    assertEquals(0, registry.counter("ui.posts.jank").get());
+  }
+
+  @Test
+  public void slightlyLateFramesAreNotJank() {
+    monitor.setScrolling(true);
+    monitor.onFrame(1_000 * MS);
+    monitor.onFrame(1_000 * MS + FRAME + FRAME / 3);
+    assertEquals(0, registry.counter("ui.posts.jank").get());
+    assertEquals("", JankMonitor.readRecent(logFile, 10));
+  }
+}
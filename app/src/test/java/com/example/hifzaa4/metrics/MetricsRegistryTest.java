@@ -0,0 +1,151 @@
+package com.example.hifzaa4.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.database.DatabaseHelper;
+import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.models.Post;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MetricsRegistry recording, export, and the timers around PostRepository
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class MetricsRegistryTest {
+
+  private static final int RECORDS = 1_000_000;
+
+  @Before
+  public void setUp() {
+    DatabaseHelper.resetInstance();
+    MetricsRegistry.get().reset();
+  }
+
+  @After
+  public void tearDown() {
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void namesResolveToOneMetric() {
+    MetricsRegistry registry = new MetricsRegistry();
+    assertSame(registry.counter("a"), registry.counter("a"));
+    assertSame(registry.timer("a"), registry.timer("a"));
+    assertSame(registry.histogram("a"), registry.histogram("a"));
+  }
+
+  @Test
+  public void concurrentCountsAreExact() throws Exception {
+    Counter counter = new MetricsRegistry().counter("events");
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          counter.increment();
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(800_000, counter.get());
+  }
+
+  @Test
+  public void recordingAllocatesNothing() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter counter = registry.counter("events");
+    Timer timer = registry.timer("work");
+
+    // Warm up
+    record(counter, timer, RECORDS / 10);
+
+    long bytesBefore = allocatedBytes();
+    long start = System.nanoTime();
+    record(counter, timer, RECORDS);
+    double nanosPerRecord = (double) (System.nanoTime() - start) / RECORDS;
+    double bytesPerRecord = (double) (allocatedBytes() - bytesBefore) / RECORDS;
+
+    System.out.println(String.format("metrics: counter increment + timed section, %d records: %.0f ns, %.2f B each",
+        RECORDS, nanosPerRecord, bytesPerRecord));
+    assertTrue(bytesPerRecord + " B", bytesPerRecord < 1);
+    assertEquals(RECORDS + RECORDS / 10, counter.get());
+  }
+
+  @Test
+  public void exportsJsonSnapshot() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("cache.post.hit").add(3);
+    registry.timer("db.posts.query").record(2_500_000); // 2.5 ms
+    registry.histogram("api.bytes").record(4096);
+
+    JSONObject json = registry.toJson();
+    assertEquals(3, json.getJSONObject("counters").getLong("cache.post.hit"));
+    JSONObject query = json.getJSONObject("timers_us").getJSONObject("db.posts.query");
+    assertEquals(1, query.getLong("count"));
+    assertEquals(2500, query.getLong("max"));
+    assertEquals(4096, json.getJSONObject("histograms").getJSONObject("api.bytes").getLong("max"));
+
+    registry.reset();
+    assertEquals(0, registry.toJson().getJSONObject("counters").getLong("cache.post.hit"));
+  }
+
+  @Test
+  public void repositoryCallsAreTimed() {
+    Context context = ApplicationProvider.getApplicationContext();
+    PostRepository repository = new PostRepository(context);
+    List<Post> posts = new ArrayList<>();
+    for (int i = 1; i <= 50; i++) {
+      posts.add(new Post(i, 1, "Title " + i, "Body " + i, false));
+    }
+
+    repository.insertPosts(posts);
+    repository.getPostSummaries();
+    repository.getPostById(7);
+    repository.readSnapshot();
+
+    MetricsRegistry registry = MetricsRegistry.get();
+    assertEquals(1, registry.timer("db.posts.insert").getHistogram().getCount());
+    assertEquals(2, registry.timer("db.posts.query").getHistogram().getCount());
+    assertEquals(1, registry.counter("cache.snapshot.miss").get());
+
+    // The text report lists the counter and the timers that recorded something
+    String report = registry.format();
+    assertTrue(report, report.matches("(?s).*(^|\\R)cache\\.snapshot\\.miss +1\\R.*"));
+    assertTrue(report, report.matches("(?s).*(^|\\R)db\\.posts\\.insert +us .*"));
+    assertTrue(report, report.matches("(?s).*(^|\\R)db\\.posts\\.query +us .*"));
+  }
+
+  private static void record(Counter counter, Timer timer, int count) {
+    for (int i = 0; i < count; i++) {
+      long start = timer.start();
+      counter.increment();
+      timer.stop(start);
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,178 @@
+package com.example.hifzaa4.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.database.DatabaseHelper;
+import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.models.Post;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracer ring buffer, Chrome trace export, and its cost when off
+ * The repository trace is written to build/traces/ for comparison between runs
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class TracerTest {
+
+  private static final int SECTIONS = 1_000_000;
+
+  @Before
+  public void setUp() {
+    DatabaseHelper.resetInstance();
+    Tracer.setEnabled(false);
+    Tracer.clear();
+  }
+
+  @After
+  public void tearDown() {
+    Tracer.setEnabled(false);
+    Tracer.clear();
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void disabledTracingRecordsAndAllocatesNothing() {
+    sections(SECTIONS / 10);
+
+    long bytesBefore = allocatedBytes();
+    long start = System.nanoTime();
+    sections(SECTIONS);
+    double offNanos = (double) (System.nanoTime() - start) / SECTIONS;
+    double offBytes = (double) (allocatedBytes() - bytesBefore) / SECTIONS;
+
+    Tracer.setEnabled(true);
+    sections(SECTIONS / 10);
+    bytesBefore = allocatedBytes();
+    start = System.nanoTime();
+    sections(SECTIONS);
+    double onNanos = (double) (System.nanoTime() - start) / SECTIONS;
+    double onBytes = (double) (allocatedBytes() - bytesBefore) / SECTIONS;
+
+    System.out.println(String.format("tracer, %d sections: off %.1f ns %.2f B, on %.0f ns %.2f B per section",
+        SECTIONS, offNanos, offBytes, onNanos, onBytes));
+    assertTrue(offBytes + " B", offBytes < 0.01);
+    assertEquals(2L * (SECTIONS + SECTIONS / 10), Tracer.getEventCount());
+  }
+
+  @Test
+  public void nestedSectionsExportAsChromeTrace() throws Exception {
+    Tracer.setEnabled(true);
+    Tracer.begin("outer");
+    Tracer.begin("inner");
+    Tracer.end();
+    Tracer.end();
+
+    Thread worker = new Thread(() -> {
+      Tracer.begin("worker");
+      Tracer.end();
+    }, "trace-worker");
+    worker.start();
+    worker.join();
+
+    JSONArray events = Tracer.toChromeTrace().getJSONArray("traceEvents");
+    List<String> main = new ArrayList<>();
+    Map<String, Long> threads = new HashMap<>();
+    long mainTid = Thread.currentThread().getId();
+    double lastTs = 0;
+    for (int i = 0; i < events.length(); i++) {
+      JSONObject event = events.getJSONObject(i);
+      String phase = event.getString("ph");
+      if ("M".equals(phase)) {
+        threads.put(event.getJSONObject("args").getString("name"), event.getLong("tid"));
+      } else if (event.getLong("tid") == mainTid) {
+        main.add(phase + (event.has("name") ? ":" + event.getString("name") : ""));
+        assertTrue(event.getDouble("ts") >= lastTs);
+        lastTs = event.getDouble("ts");
+      }
+    }
+
+    assertEquals(List.of("B:outer", "B:inner", "E", "E"), main);
+    assertEquals(Long.valueOf(worker.getId()), threads.get("trace-worker"));
+  }
+
+  @Test
+  public void wrappedBufferDropsEndsWithoutBegins() throws Exception {
+    Tracer.setEnabled(true);
+    // Odd number of events before the wrap so the oldest kept event is an end
+    Tracer.begin("first");
+    for (int i = 0; i < Tracer.CAPACITY; i++) {
+      Tracer.begin("outer");
+      Tracer.begin("inner");
+      Tracer.end();
+      Tracer.end();
+    }
+    Tracer.end();
+
+    JSONArray events = Tracer.toChromeTrace().getJSONArray("traceEvents");
+    int depth = 0;
+    for (int i = 0; i < events.length(); i++) {
+      String phase = events.getJSONObject(i).getString("ph");
+      if ("B".equals(phase)) {
+        depth++;
+      } else if ("E".equals(phase)) {
+        depth--;
+        assertTrue("end without begin at " + i, depth >= 0);
+      }
+    }
+    assertTrue(events.length() <= Tracer.CAPACITY + 1);
+  }
+
+  @Test
+  public void repositoryPathsAreTraced() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    PostRepository repository = new PostRepository(context);
+    List<Post> posts = new ArrayList<>();
+    for (int i = 1; i <= 500; i++) {
+      posts.add(new Post(i, 1, "Title " + i, "Body " + i, false));
+    }
+
+    Tracer.setEnabled(true);
+    repository.insertPosts(posts);
+    assertEquals(500, repository.getAllPosts().size());
+    Tracer.setEnabled(false);
+
+    File dir = new File("build/traces");
+    dir.mkdirs();
+    File file = new File(dir, "repository.json");
+    Tracer.writeChromeTrace(file);
+
+    String names = Tracer.toChromeTrace().getJSONArray("traceEvents").toString();
+    assertTrue(names.contains("\"PostRepository.insertPosts\""));
+    assertTrue(names.contains("\"PostRepository.getAllPosts\""));
+    System.out.println("Robolectric trace: " + file.getAbsolutePath());
+  }
+
+  private static void sections(int count) {
+    for (int i = 0; i < count; i++) {
+      Tracer.begin("section");
+      Tracer.end();
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
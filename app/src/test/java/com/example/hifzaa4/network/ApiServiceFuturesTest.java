@@ -0,0 +1,85 @@
+package com.example.hifzaa4.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+
+import com.example.hifzaa4.concurrent.Futures;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Future variants of ApiService against the local stand-in server
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class ApiServiceFuturesTest {
+
+  private static final long LATENCY_MILLIS = 300;
+
+  private StandInApiServer server;
+  private ApiService apiService;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new StandInApiServer();
+    server.setPostCount(100);
+    apiService = new ApiService(server.getBaseUrl(), new NetworkQualityEstimator(),
+        new RequestMetrics(new MetricsRegistry()));
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void independentRequestsRunAtTheSameTime() throws Exception {
+    server.setLatencyMillis(LATENCY_MILLIS);
+
+    long start = System.nanoTime();
+    CompletableFuture<Post> first = apiService.fetchPostByIdAsync(1);
+    CompletableFuture<Post> second = apiService.fetchPostByIdAsync(2);
+    CompletableFuture<Post> third = apiService.fetchPostByIdAsync(3);
+    Futures.all(first, second, third).get(10, TimeUnit.SECONDS);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertEquals(1, first.join().getId());
+    assertEquals(2, second.join().getId());
+    assertEquals(3, third.join().getId());
+    assertTrue(server.getMaxConcurrent() >= 2);
+    // One round trip for all three, not three after each other
+    assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 3 * LATENCY_MILLIS);
+  }
+
+  @Test
+  public void serverErrorsFailTheFuture() throws Exception {
+    try {
+      apiService.fetchPostByIdAsync(1000).get(10, TimeUnit.SECONDS);
+      fail("Expected a 404");
+    } catch (ExecutionException e) {
+      Throwable cause = Futures.unwrap(e);
+      assertTrue(cause instanceof ApiService.ServerException);
+      assertEquals(404, ((ApiService.ServerException) cause).responseCode);
+      assertEquals("Server error: 404", ApiService.errorMessage(cause));
+    }
+  }
+
+  @Test
+  public void fetchesAllPostsAsync() throws Exception {
+    assertEquals(100, apiService.fetchPostsAsync().get(10, TimeUnit.SECONDS).size());
+  }
+}
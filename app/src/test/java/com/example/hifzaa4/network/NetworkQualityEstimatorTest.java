@@ -0,0 +1,122 @@
+package com.example.hifzaa4.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.network.NetworkQualityEstimator.Quality;
+import com.example.hifzaa4.utils.NetworkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+/**
+ * NetworkQualityEstimator and the adaptive ApiService against a (throttled) local stand-in server
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class NetworkQualityEstimatorTest {
+
+  private StandInApiServer server;
+  private NetworkQualityEstimator estimator;
+  private ApiService apiService;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new StandInApiServer();
+    server.setPostCount(100);
+    estimator = new NetworkQualityEstimator();
+    apiService = new ApiService(server.getBaseUrl(), estimator, new RequestMetrics(new MetricsRegistry()));
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void classifiesFromRttAndThroughput() {
+    assertEquals(Quality.UNKNOWN, NetworkQualityEstimator.classify(-1, -1));
+    assertEquals(Quality.EXCELLENT, NetworkQualityEstimator.classify(40, -1));
+    assertEquals(Quality.EXCELLENT, NetworkQualityEstimator.classify(40, 20000));
+    assertEquals(Quality.GOOD, NetworkQualityEstimator.classify(40, 2000));
+    assertEquals(Quality.MODERATE, NetworkQualityEstimator.classify(600, 2000));
+    assertEquals(Quality.POOR, NetworkQualityEstimator.classify(600, 80));
+    assertEquals(Quality.POOR, NetworkQualityEstimator.classify(2500, -1));
+  }
+
+  @Test
+  public void keepsEstimatesPerNetworkType() {
+    estimator.recordRequest(NetworkUtils.TYPE_WIFI, 30, 200 * 1024, 100);
+    // 20 KB in 2 s is 80 kbps
+    estimator.recordRequest(NetworkUtils.TYPE_CELLULAR, 200, 20 * 1024, 2000);
+
+    assertEquals(Quality.EXCELLENT, estimator.getQuality(NetworkUtils.TYPE_WIFI));
+    assertEquals(Quality.POOR, estimator.getQuality(NetworkUtils.TYPE_CELLULAR));
+    assertEquals(Quality.UNKNOWN, estimator.getQuality(NetworkUtils.TYPE_ETHERNET));
+
+    estimator.setNetworkType(NetworkUtils.TYPE_CELLULAR);
+    assertEquals(10, estimator.getPolicy().pageSize);
+    estimator.setNetworkType(NetworkUtils.TYPE_WIFI);
+    assertEquals(100, estimator.getPolicy().pageSize);
+  }
+
+  @Test
+  public void fastServerGetsLargePagesWithoutCompression() throws Exception {
+    // First sync runs with the default policy and measures the link
+    assertEquals(100, apiService.fetchPostsBlocking().size());
+    Quality quality = estimator.getQuality();
+    assertTrue("quality " + quality, quality.compareTo(Quality.GOOD) >= 0);
+
+    // Prefetched pages past the end may still be on their way
+    server.awaitQuiet(200);
+    NetworkPolicy policy = estimator.getPolicy();
+    int before = server.getRequests().size();
+    List<Post> posts = apiService.fetchPostsBlocking();
+
+    assertEquals(100, posts.size());
+    assertEquals(1, posts.get(0).getId());
+    assertEquals(100, posts.get(99).getId());
+    for (StandInApiServer.Request request : server.getRequests().subList(before, server.getRequests().size())) {
+      assertTrue(request.query, request.query.endsWith("_limit=" + policy.pageSize));
+      assertEquals(policy.compress ? "gzip" : "identity", request.acceptEncoding);
+    }
+    System.out.println("Fast stand-in: " + policy + ", rtt " + estimator.getRttMillis(estimator.getNetworkType()) +
+        " ms, " + (server.getRequests().size() - before) + " requests");
+  }
+
+  @Test
+  public void throttledServerGetsSmallCompressedPages() throws Exception {
+    // Slow first byte and a ~10 KB/s body
+    server.setLatencyMillis(1200);
+    server.setBytesPerSecond(10 * 1024);
+
+    assertEquals(100, apiService.fetchPostsBlocking().size());
+    assertEquals(Quality.POOR, estimator.getQuality());
+
+    NetworkPolicy policy = estimator.getPolicy();
+    assertEquals(10, policy.pageSize);
+    assertEquals(0, policy.prefetchWindow);
+    assertTrue(policy.compress);
+    assertTrue(policy.readTimeoutMillis > NetworkPolicy.forQuality(Quality.GOOD).readTimeoutMillis);
+
+    // Next page request follows the new policy
+    server.setLatencyMillis(0);
+    int before = server.getRequests().size();
+    assertEquals(10, apiService.fetchPage(0, policy.pageSize, policy).size());
+    StandInApiServer.Request request = server.getRequests().get(before);
+    assertEquals("_start=0&_limit=10", request.query);
+    assertEquals("gzip", request.acceptEncoding);
+    System.out.println("Throttled stand-in: " + policy + ", rtt " +
+        estimator.getRttMillis(estimator.getNetworkType()) + " ms");
+  }
+}
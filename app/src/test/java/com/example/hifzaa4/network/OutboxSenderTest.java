@@ -0,0 +1,243 @@
+package com.example.hifzaa4.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.database.DatabaseHelper;
+import com.example.hifzaa4.database.OutboxRepository;
+import com.example.hifzaa4.database.PendingMutation;
+import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * OutboxSender against a local stand-in server
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class OutboxSenderTest {
+
+  private StandInApiServer server;
+  private OutboxRepository outbox;
+  private PostRepository posts;
+  private OutboxSender sender;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    server = new StandInApiServer();
+    outbox = new OutboxRepository(context);
+    posts = new PostRepository(context);
+    sender = new OutboxSender(outbox, server.getBaseUrl(), 3, 0);
+  }
+
+  @After
+  public void tearDown() {
+    sender.shutdown();
+    server.close();
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void burstyEditsAreCoalescedBeforeSending() {
+    int mutations = 0;
+
+    // 10 posts edited 20 times each
+    for (int edit = 0; edit < 20; edit++) {
+      for (int id = 1; id <= 10; id++) {
+        outbox.enqueue(PendingMutation.update(new Post(id, 1, "Title " + id + " v" + edit, "Body", false)));
+        mutations++;
+      }
+    }
+    // 5 local posts created, edited and deleted before they were ever sent
+    for (int id = 1001; id <= 1005; id++) {
+      outbox.enqueue(PendingMutation.create(new Post(id, 1, "Draft", "Body", false)));
+      outbox.enqueue(PendingMutation.update(new Post(id, 1, "Draft 2", "Body", false)));
+      outbox.enqueue(PendingMutation.delete(id));
+      mutations += 3;
+    }
+
+    assertEquals(10, outbox.getPendingCount());
+    assertEquals(10, sender.sendPending());
+
+    List<StandInApiServer.Request> requests = server.getRequests();
+    System.out.println("Outbox: " + mutations + " local mutations sent as " + requests.size() + " requests");
+    assertEquals(10, requests.size());
+    for (StandInApiServer.Request request : requests) {
+      assertEquals("PUT", request.method);
+      assertTrue("Last edit wins: " + request.body, request.body.contains(" v19"));
+    }
+    assertEquals(0, outbox.getPendingCount());
+  }
+
+  @Test
+  public void operationsUseMatchingMethodsAndPaths() {
+    outbox.enqueue(PendingMutation.create(new Post(1001, 1, "New", "Body", false)));
+    outbox.enqueue(PendingMutation.update(new Post(7, 1, "Edited", "Body", false)));
+    outbox.enqueue(PendingMutation.delete(8));
+
+    assertEquals(3, sender.sendPending());
+
+    Set<String> calls = new HashSet<>();
+    for (StandInApiServer.Request request : server.getRequests()) {
+      calls.add(request.method + " " + request.path);
+    }
+    assertEquals(Set.of("POST /posts", "PUT /posts/7", "DELETE /posts/8"), calls);
+  }
+
+  @Test
+  public void retriesKeepTheIdempotencyKey() {
+    server.failNext(2, 503);
+    outbox.enqueue(PendingMutation.update(new Post(1, 1, "Title", "Body", false)));
+
+    assertEquals(1, sender.sendPending());
+
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals(3, requests.size());
+    String key = requests.get(0).idempotencyKey;
+    for (StandInApiServer.Request request : requests) {
+      assertEquals(key, request.idempotencyKey);
+    }
+  }
+
+  @Test
+  public void editsDuringARetryAreSentAfterIt() {
+    server.failNext(1, 503);
+    outbox.enqueue(PendingMutation.update(new Post(1, 1, "First", "Body", false)));
+    // The first attempt fails; the row is no longer mergeable, so the next edit queues behind it
+    sender.send(outbox.claimBatch(1, Long.MAX_VALUE).get(0));
+    outbox.markFailed(1, 0);
+    outbox.enqueue(PendingMutation.update(new Post(1, 1, "Second", "Body", false)));
+    assertEquals(2, outbox.getPendingCount());
+
+    assertEquals(2, sender.sendPending());
+
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals(3, requests.size());
+    assertTrue(requests.get(1).body.contains("First"));
+    assertTrue(requests.get(2).body.contains("Second"));
+  }
+
+  @Test
+  public void createdPostsMoveToTheServerId() throws Exception {
+    server.setPostCount(100);
+    posts.insertPost(new Post(-3, 1, "Draft", "Body", false));
+    outbox.enqueue(PendingMutation.create(posts.getPostById(-3)));
+    // An edit made while the create is in flight is queued behind it, under the local ID
+    outbox.claimBatch(1, Long.MAX_VALUE);
+    outbox.enqueue(PendingMutation.update(new Post(-3, 1, "Draft 2", "Body", false)));
+    outbox.releaseInFlight();
+
+    assertEquals(2, sender.sendPending());
+
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals("POST /posts", requests.get(0).method + " " + requests.get(0).path);
+    assertEquals("PUT /posts/101", requests.get(1).method + " " + requests.get(1).path);
+    assertEquals(101, PostJsonCodec.decode(requests.get(1).body).getId());
+    assertNull(posts.getPostById(-3));
+    assertEquals("Draft", posts.getPostById(101).getTitle());
+    assertEquals(0, outbox.getPendingCount());
+  }
+
+  @Test
+  public void editsOfPostsGoneFromTheServerAreSentAsNewPosts() throws Exception {
+    server.setPostCount(100);
+    posts.insertPost(new Post(7, 1, "Edited", "Body", false));
+    server.failNext(1, 404);
+    outbox.enqueue(PendingMutation.update(posts.getPostById(7)));
+
+    assertEquals(1, sender.sendPending());
+
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals(2, requests.size());
+    assertEquals("PUT /posts/7", requests.get(0).method + " " + requests.get(0).path);
+    assertEquals("POST /posts", requests.get(1).method + " " + requests.get(1).path);
+    assertNotEquals(requests.get(0).idempotencyKey, requests.get(1).idempotencyKey);
+    assertNull(posts.getPostById(7));
+    assertEquals("Edited", posts.getPostById(101).getTitle());
+    assertEquals(0, outbox.getPendingCount());
+  }
+
+  @Test
+  public void editsOfLocalPostsWithoutAServerIdAreSentAsNewPosts() throws Exception {
+    server.setPostCount(100);
+    posts.insertPost(new Post(101, 1, "Server post", "Body", false));
+    posts.insertPost(new Post(-3, 1, "Draft", "Body", false));
+    outbox.enqueue(PendingMutation.create(posts.getPostById(-3)));
+
+    // The server assigns 101, which is taken here: the post keeps its local ID
+    assertEquals(1, sender.sendPending());
+    assertEquals("Draft", posts.getPostById(-3).getTitle());
+
+    Post edited = new Post(-3, 1, "Draft 2", "Body", false);
+    outbox.enqueue(PendingMutation.update(edited));
+    posts.updatePost(edited);
+    server.failNext(1, 404);
+
+    assertEquals(1, sender.sendPending());
+
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals(3, requests.size());
+    assertEquals("PUT /posts/-3", requests.get(1).method + " " + requests.get(1).path);
+    assertEquals("POST /posts", requests.get(2).method + " " + requests.get(2).path);
+    assertNull(posts.getPostById(-3));
+    assertEquals("Draft 2", posts.getPostById(102).getTitle());
+    assertEquals(0, outbox.getPendingCount());
+  }
+
+  @Test
+  public void mutationsLeftInFlightAreNotRewritten() {
+    outbox.enqueue(PendingMutation.update(new Post(1, 1, "First", "Body", false)));
+    // Claimed by a process that died before the response came back
+    outbox.claimBatch(1, Long.MAX_VALUE);
+    outbox.releaseInFlight();
+
+    outbox.enqueue(PendingMutation.update(new Post(1, 1, "Second", "Body", false)));
+
+    assertEquals(2, outbox.getPendingCount());
+    PendingMutation first = outbox.claimBatch(1, Long.MAX_VALUE).get(0);
+    assertEquals(1, first.getAttempts());
+    assertTrue(first.getPayload().contains("First"));
+  }
+
+  @Test
+  public void clientErrorsAreDroppedWithoutRetry() {
+    server.failNext(1, 400);
+    outbox.enqueue(PendingMutation.update(new Post(1, 1, "Title", "Body", false)));
+
+    assertEquals(0, sender.sendPending());
+    assertEquals(1, server.getRequests().size());
+    assertEquals(0, outbox.getPendingCount());
+  }
+
+  @Test
+  public void concurrencyIsBounded() {
+    server.setLatencyMillis(50);
+    for (int id = 1; id <= 12; id++) {
+      outbox.enqueue(PendingMutation.update(new Post(id, 1, "Title", "Body", false)));
+    }
+
+    assertEquals(12, sender.sendPending());
+    assertTrue("Max concurrent " + server.getMaxConcurrent(), server.getMaxConcurrent() <= 3);
+    assertTrue(server.getMaxConcurrent() > 1);
+  }
+}
@@ -0,0 +1,202 @@
+package com.example.hifzaa4.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.webkit.WebResourceResponse;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.database.DatabaseHelper;
+import com.example.hifzaa4.database.OutboxRepository;
+import com.example.hifzaa4.database.PendingMutation;
+import com.example.hifzaa4.database.PostRepository;
+import com.example.hifzaa4.images.DiskCache;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.metrics.MetricsRegistry;
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PostPageCache against the local stand-in server: cached, fetched, offline and locally edited
+ * pages, concurrent requests and prefetching
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class PostPageCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private StandInApiServer server;
+  private PostRepository repository;
+  private OutboxRepository outbox;
+  private File diskDir;
+  private PostPageCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    MetricsRegistry.get().reset();
+    server = new StandInApiServer();
+    server.setPostCount(20);
+    ApiService.setBaseUrl(server.getBaseUrl());
+    repository = new PostRepository(context);
+    outbox = new OutboxRepository(context);
+    diskDir = folder.newFolder("pages");
+    cache = newCache();
+  }
+
+  @After
+  public void tearDown() {
+    ApiService.setBaseUrl(null);
+    server.close();
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void cachedPagesAreServedAndRevalidatedInTheBackground() throws Exception {
+    String url = cache.getPageUrl(7);
+    String fetched = read(cache.intercept(url));
+    assertEquals(7, PostJsonCodec.decode(fetched).getId());
+    assertEquals(1, server.getRequests().size());
+
+    // A new cache over the same directory, as after a restart: served from disk,
+    // then checked with its ETag (not modified)
+    cache = newCache();
+    assertEquals(fetched, read(cache.intercept(url)));
+    server.awaitQuiet(200);
+    List<StandInApiServer.Request> requests = server.getRequests();
+    assertEquals(2, requests.size());
+    assertNotNull(requests.get(1).ifNoneMatch);
+    assertEquals(1, server.getNotModifiedCount());
+    assertEquals(0.5, PostPageCache.getHitRate(), 0.001);
+
+    // Changed on the server: the next open shows the revalidated copy
+    server.editPost(7, "Edited on the server");
+    assertEquals(fetched, read(cache.intercept(url)));
+    long deadline = System.currentTimeMillis() + 5000;
+    String title;
+    do {
+      Thread.sleep(20);
+      title = PostJsonCodec.decode(read(cache.intercept(url))).getTitle();
+    } while (!title.equals("Edited on the server") && System.currentTimeMillis() < deadline);
+    assertEquals("Edited on the server", title);
+  }
+
+  @Test
+  public void offlinePagesComeFromTheCacheOrThePostsTable() throws Exception {
+    repository.insertPost(new Post(3, 1, "Stored title", "Stored body", false));
+    repository.insertPost(new Post(-2, 1, "Local draft", "Not on the server", false));
+    String cachedPage = read(cache.intercept(cache.getPageUrl(5)));
+    server.close();
+
+    assertEquals(cachedPage, read(cache.intercept(cache.getPageUrl(5))));
+    assertEquals("Stored title", PostJsonCodec.decode(read(cache.intercept(cache.getPageUrl(3)))).getTitle());
+    assertEquals("Local draft", PostJsonCodec.decode(read(cache.intercept(cache.getPageUrl(-2)))).getTitle());
+    assertNull(cache.intercept(cache.getPageUrl(4))); // Neither cached nor stored
+    assertEquals(1, MetricsRegistry.get().counter("cache.page.hit").get());
+    assertEquals(2, MetricsRegistry.get().counter("cache.page.offline").get());
+  }
+
+  @Test
+  public void postsWithUnsentEditsAreServedFromThePostsTable() throws Exception {
+    String url = cache.getPageUrl(7);
+    read(cache.intercept(url)); // Cached from the server
+    Post edited = new Post(7, 1, "Edited here", "Not sent yet", false);
+    outbox.enqueue(PendingMutation.update(edited));
+    repository.insertPost(edited);
+
+    assertEquals("Edited here", PostJsonCodec.decode(read(cache.intercept(url))).getTitle());
+    assertEquals(1, server.getRequests().size()); // Neither fetched nor revalidated
+    assertEquals(1, MetricsRegistry.get().counter("cache.page.local").get());
+    assertEquals(0, MetricsRegistry.get().counter("cache.page.hit").get());
+  }
+
+  @Test
+  public void concurrentRequestsForAPageShareOneFetch() throws Exception {
+    server.setLatencyMillis(300);
+    String url = cache.getPageUrl(9);
+    ExecutorService threads = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = threads.submit(() -> read(cache.intercept(url)));
+      Thread.sleep(100);
+      Future<String> second = threads.submit(() -> read(cache.intercept(url)));
+
+      assertEquals(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+    } finally {
+      threads.shutdown();
+    }
+    assertEquals(1, server.getRequests().size());
+    assertEquals(2, MetricsRegistry.get().counter("cache.page.miss").get());
+    assertEquals(0, MetricsRegistry.get().counter("cache.page.offline").get());
+  }
+
+  @Test
+  public void onlyPostPagesAreIntercepted() {
+    assertEquals(12, cache.parsePostId(cache.getPageUrl(12)));
+    assertEquals(0, cache.parsePostId(cache.getPageUrl(12) + "/comments"));
+    assertEquals(0, cache.parsePostId(cache.getPageUrl(12) + "?x=1"));
+    assertEquals(0, cache.parsePostId("https://example.com/posts/12"));
+    assertNull(cache.intercept(server.getBaseUrl() + "/users"));
+    assertTrue(server.getRequests().isEmpty());
+  }
+
+  @Test
+  public void prefetchFetchesFavoritesNotCachedYet() throws Exception {
+    for (int id = 1; id <= 6; id++) {
+      repository.insertPost(new Post(id, 1, "Title " + id, "Body " + id, id % 2 == 0));
+    }
+    repository.insertPost(new Post(-1, 1, "Local favorite", "Body", true));
+    read(cache.intercept(cache.getPageUrl(2)));
+
+    assertEquals(2, (int) cache.prefetchFavorites().get(10, TimeUnit.SECONDS)); // 4 and 6
+    assertEquals(0, (int) cache.prefetchFavorites().get(10, TimeUnit.SECONDS));
+    assertEquals(3, server.getRequests().size());
+
+    server.close();
+    assertNotNull(cache.intercept(cache.getPageUrl(6)));
+    assertEquals(1, MetricsRegistry.get().counter("cache.page.hit").get());
+  }
+
+  private PostPageCache newCache() {
+    return new PostPageCache(new DiskCache(diskDir, 1024 * 1024), repository, outbox, new ApiService());
+  }
+
+  private static String read(WebResourceResponse response) throws IOException {
+    assertNotNull(response);
+    assertEquals("application/json", response.getMimeType());
+    try (InputStream in = response.getData()) {
+      byte[] data = new byte[64 * 1024];
+      int length = 0;
+      int read;
+      while ((read = in.read(data, length, data.length - length)) > 0) {
+        length += read;
+      }
+      return new String(data, 0, length, StandardCharsets.UTF_8);
+    }
+  }
+}
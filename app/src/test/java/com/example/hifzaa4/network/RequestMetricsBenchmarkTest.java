@@ -0,0 +1,103 @@
+package com.example.hifzaa4.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.hifzaa4.metrics.MetricsRegistry;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Cost of the instrumentation ApiService adds to each request
+ * Reports ns and bytes allocated per request; run with -Dbench.requests=5000000 for a longer run
+ */
+public class RequestMetricsBenchmarkTest {
+
+  private static final int REQUESTS = Integer.getInteger("bench.requests", 1_000_000);
+
+  // Budget per request (a few microseconds)
+  private static final long MAX_NANOS_PER_REQUEST = 3_000;
+
+  @Test
+  public void recordingARequestCostsAFewMicrosecondsAtMost() throws Exception {
+    RequestMetrics metrics = new RequestMetrics(new MetricsRegistry());
+    RequestMetrics.Endpoint endpoint = metrics.endpoint("GET /posts");
+
+    // Warm up
+    recordRequests(endpoint, REQUESTS / 10);
+    metrics.reset();
+
+    long bytesBefore = allocatedBytes();
+    long start = System.nanoTime();
+    recordRequests(endpoint, REQUESTS);
+    long elapsed = System.nanoTime() - start;
+    double bytesPerRequest = (double) (allocatedBytes() - bytesBefore) / REQUESTS;
+    double nanosPerRequest = (double) elapsed / REQUESTS;
+
+    // Four threads recording into the same endpoint (reported only: real requests are ms apart)
+    Thread[] threads = new Thread[4];
+    long concurrentStart = System.nanoTime();
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> recordRequests(endpoint, REQUESTS));
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    double concurrentNanos = (double) (System.nanoTime() - concurrentStart) / REQUESTS;
+
+    System.out.println(String.format("request instrumentation, %d requests: %.0f ns/request, %.2f B/request | "
+        + "4 threads: %.0f ns/request per thread", REQUESTS, nanosPerRequest, bytesPerRequest, concurrentNanos));
+
+    assertEquals(5L * REQUESTS, endpoint.getPhase(RequestMetrics.Phase.TTFB).getCount());
+    assertTrue(nanosPerRequest + " ns", nanosPerRequest < MAX_NANOS_PER_REQUEST);
+    assertTrue(bytesPerRequest + " B", bytesPerRequest < 1);
+  }
+
+  @Test
+  public void dumpWritesEveryEndpoint() throws Exception {
+    RequestMetrics metrics = new RequestMetrics(new MetricsRegistry());
+    metrics.endpoint("GET /posts").record(RequestMetrics.Phase.TTFB, 12_000_000);
+    metrics.endpoint("GET /posts").recordBytes(4096);
+    metrics.endpoint("GET /posts/{id}").recordError();
+
+    File file = File.createTempFile("request-metrics", ".txt");
+    try {
+      metrics.dumpTo(file);
+      String report = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+      assertTrue(report, report.contains("GET /posts  (errors: 0)"));
+      assertTrue(report, report.contains("ttfb"));
+      assertTrue(report, report.contains("max=12000"));
+      assertTrue(report, report.contains("GET /posts/{id}  (errors: 1)"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  // What ApiService and the sync task do around each request
+  private static void recordRequests(RequestMetrics.Endpoint endpoint, int count) {
+    for (int i = 0; i < count; i++) {
+      long begin = System.nanoTime();
+      long connected = System.nanoTime();
+      long firstByte = System.nanoTime();
+      endpoint.record(RequestMetrics.Phase.CONNECT, connected - begin);
+      endpoint.record(RequestMetrics.Phase.TTFB, firstByte - connected);
+      long downloaded = System.nanoTime();
+      endpoint.record(RequestMetrics.Phase.DOWNLOAD, downloaded - firstByte);
+      endpoint.recordBytes(2048 + (i & 1023));
+      long parsed = System.nanoTime();
+      endpoint.record(RequestMetrics.Phase.PARSE, parsed - downloaded);
+      endpoint.record(RequestMetrics.Phase.DB_WRITE, System.nanoTime() - parsed);
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,742 @@
+package com.example.hifzaa4.network;
+
+import com.example.hifzaa4.json.JsonFormatException;
+import com.example.hifzaa4.json.JsonWriter;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.models.Post;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.zip.GZIPOutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Local stand-in for the JSONPlaceholder API, for tests and benchmarks
+ *
+ * Serves a generated dataset of any size; records are computed from their ID
+ * when they are written, so millions of posts cost no memory:
+ * - GET /posts, /posts/{id}, /posts/{id}/comments   (filter: userId)
+ * - GET /comments, /comments/{id}                   (filter: postId, repeatable)
+ * - GET /users, /users/{id}
+ * - GET /albums, /albums/{id}, /albums/{id}/photos  (filter: userId)
+ * - GET /photos, /photos/{id}                       (filter: albumId, repeatable)
+ * - GET /images/{size}/{rrggbb}: a generated PNG, like the placeholder images
+ *   the photos of the real API link to (photo URLs point here)
+ * Lists take json-server's _start/_end/_limit/_page parameters, report
+ * X-Total-Count and are streamed. Writes (POST/PUT/DELETE) echo their body; a
+ * POST /posts gets a new ID after the generated posts, like on the real API.
+ *
+ * Faults and link conditions: fixed and random latency, a byte-rate cap,
+ * failing the next N requests or a random fraction of them. Responses carry an
+ * ETag for the dataset version (If-None-Match gets a 304) and are gzipped when
+ * the client accepts it; both can be turned off.
+ *
+ * Every request is recorded, with the number handled at the same time.
+ */
+public class StandInApiServer implements AutoCloseable {
+
+  /**
+   * A request as received by the server
+   */
+  public static class Request {
+    public final String method;
+    public final String path;
+    public final String idempotencyKey;
+    public final String query;
+    public final String acceptEncoding;
+    public final String ifNoneMatch;
+    public final String body;
+
+    Request(String method, String path, String query, String idempotencyKey, String acceptEncoding,
+        String ifNoneMatch, String body) {
+      this.method = method;
+      this.path = path;
+      this.query = query;
+      this.idempotencyKey = idempotencyKey;
+      this.acceptEncoding = acceptEncoding;
+      this.ifNoneMatch = ifNoneMatch;
+      this.body = body;
+    }
+  }
+
+  /**
+   * Response body; text is appended in pieces and streamed to the client
+   * whenever the flusher is called
+   */
+  private interface Body {
+    void writeTo(StringBuilder text, Flusher flusher) throws IOException;
+  }
+
+  private interface Flusher {
+    void flushIfFull() throws IOException;
+  }
+
+  private interface Record {
+    void write(JsonWriter writer, int id);
+  }
+
+  // Bytes collected before they are handed to the (gzip, throttle) stream
+  private static final int FLUSH_CHARS = 32 * 1024;
+
+  static {
+    // Headers and body are separate writes; without TCP_NODELAY every response
+    // can wait for the client's delayed ACK (~40 ms). Read once per JVM.
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<Request> requests = new ArrayList<>();
+  private final AtomicInteger concurrent = new AtomicInteger();
+  private final Set<HttpExchange> open = ConcurrentHashMap.newKeySet(); // Counted in concurrent
+  private final AtomicInteger maxConcurrent = new AtomicInteger();
+  private final AtomicInteger failuresLeft = new AtomicInteger();
+  private final AtomicInteger notModified = new AtomicInteger();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private volatile long lastActivityNanos = System.nanoTime();
+  private final Random random = new Random(42);
+  private final Map<Integer, String> editedTitles = new ConcurrentHashMap<>();
+  private final AtomicInteger createdPosts = new AtomicInteger();
+
+  // Link conditions and faults
+  private volatile int failureCode = 503;
+  private volatile double errorRate;
+  private volatile int errorRateCode = 500;
+  private volatile long latencyMillis;
+  private volatile long latencyJitterMillis;
+  private volatile long bytesPerSecond;
+  private volatile boolean gzipEnabled = true;
+  private volatile boolean etagsEnabled = true;
+
+  // Dataset
+  private volatile int postCount;
+  private volatile int userCount = 10;
+  private volatile int commentsPerPost = 5;
+  private volatile int photosPerAlbum = 50;
+  private final Map<String, byte[]> images = new ConcurrentHashMap<>();
+  private final AtomicInteger version = new AtomicInteger(1);
+
+  public StandInApiServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * Number of posts (IDs 1..count); 0 by default
+   */
+  public void setPostCount(int postCount) {
+    this.postCount = postCount;
+    version.incrementAndGet();
+  }
+
+  /**
+   * Number of users the posts are spread over; 10 by default, like the real API
+   */
+  public void setUserCount(int userCount) {
+    this.userCount = Math.max(1, userCount);
+    version.incrementAndGet();
+  }
+
+  /**
+   * Comments per post; 5 by default, like the real API
+   */
+  public void setCommentsPerPost(int commentsPerPost) {
+    this.commentsPerPost = Math.max(0, commentsPerPost);
+    version.incrementAndGet();
+  }
+
+  /**
+   * Photos per album; 50 by default, like the real API (which has 10 albums per user)
+   */
+  public void setPhotosPerAlbum(int photosPerAlbum) {
+    this.photosPerAlbum = Math.max(0, photosPerAlbum);
+    version.incrementAndGet();
+  }
+
+  /**
+   * URL of the generated image of a photo
+   *
+   * @param photoId Photo ID
+   * @param size    Width and height in pixels (600 for url, 150 for thumbnailUrl)
+   */
+  public String getImageUrl(int photoId, int size) {
+    return getBaseUrl() + "/images/" + size + "/" + String.format("%06x", colorOf(photoId));
+  }
+
+  /**
+   * Change a post's title on the server (a new dataset version)
+   */
+  public void editPost(int postId, String title) {
+    editedTitles.put(postId, title);
+    version.incrementAndGet();
+  }
+
+  /**
+   * Title of a generated post
+   */
+  public String getPostTitle(int postId) {
+    String title = editedTitles.get(postId);
+    return title != null ? title : "Post " + postId;
+  }
+
+  /**
+   * Answer the next requests with an error code
+   */
+  public void failNext(int count, int code) {
+    failureCode = code;
+    failuresLeft.set(count);
+  }
+
+  /**
+   * Answer a random fraction of requests with an error code (seeded, so runs repeat)
+   */
+  public void setErrorRate(double rate, int code) {
+    errorRate = rate;
+    errorRateCode = code;
+  }
+
+  /**
+   * Delay before each response is sent
+   */
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Random extra delay of up to the given time
+   */
+  public void setLatencyJitterMillis(long jitterMillis) {
+    this.latencyJitterMillis = jitterMillis;
+  }
+
+  /**
+   * Limit the response body rate; 0 sends it at full speed
+   */
+  public void setBytesPerSecond(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /**
+   * Gzip responses for clients that accept it (on by default)
+   */
+  public void setGzipEnabled(boolean enabled) {
+    gzipEnabled = enabled;
+  }
+
+  /**
+   * Send ETags and answer matching If-None-Match with 304 (on by default)
+   */
+  public void setEtagsEnabled(boolean enabled) {
+    etagsEnabled = enabled;
+  }
+
+  public synchronized List<Request> getRequests() {
+    return new ArrayList<>(requests);
+  }
+
+  public int getMaxConcurrent() {
+    return maxConcurrent.get();
+  }
+
+  /**
+   * Number of requests answered with 304 Not Modified
+   */
+  public int getNotModifiedCount() {
+    return notModified.get();
+  }
+
+  /**
+   * Response body bytes written (after compression)
+   */
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  /**
+   * Wait until no request has been open or arrived for a while
+   * e.g. for prefetches a client cancelled but had already sent
+   *
+   * @param quietMillis How long the server must have been idle
+   */
+  public void awaitQuiet(long quietMillis) throws InterruptedException {
+    while (concurrent.get() > 0 || System.nanoTime() - lastActivityNanos < quietMillis * 1_000_000L) {
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Echo of a created post with its new ID
+   */
+  private String created(String body) {
+    try {
+      Post post = PostJsonCodec.decode(body);
+      post.setId(postCount + createdPosts.incrementAndGet());
+      return PostJsonCodec.encode(post);
+    } catch (JsonFormatException e) {
+      return "{}";
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    lastActivityNanos = System.nanoTime();
+    int now = concurrent.incrementAndGet();
+    maxConcurrent.accumulateAndGet(now, Math::max);
+    open.add(exchange);
+    try {
+      String body;
+      try (InputStream in = exchange.getRequestBody()) {
+        body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      }
+      String method = exchange.getRequestMethod();
+      String path = exchange.getRequestURI().getPath();
+      String query = exchange.getRequestURI().getQuery();
+      String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+      synchronized (this) {
+        requests.add(new Request(method, path, query,
+            exchange.getRequestHeaders().getFirst("Idempotency-Key"), acceptEncoding, ifNoneMatch, body));
+      }
+
+      long delay = latencyMillis;
+      if (latencyJitterMillis > 0) {
+        synchronized (random) {
+          delay += (long) (random.nextDouble() * latencyJitterMillis);
+        }
+      }
+      if (delay > 0) {
+        Thread.sleep(delay);
+      }
+
+      int code = failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0 ? failureCode : 0;
+      if (code == 0 && errorRate > 0) {
+        synchronized (random) {
+          code = random.nextDouble() < errorRate ? errorRateCode : 0;
+        }
+      }
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      if (code != 0) {
+        send(exchange, code, acceptEncoding, (text, flusher) -> text.append("{\"error\":true}"));
+        return;
+      }
+
+      if (!"GET".equals(method)) {
+        String echo = "POST".equals(method) && "/posts".equals(path) ? created(body)
+            : body.isEmpty() ? "{}" : body;
+        send(exchange, "POST".equals(method) ? 201 : 200, acceptEncoding, (text, flusher) -> text.append(echo));
+        return;
+      }
+
+      if (path.startsWith("/images/")) {
+        sendImage(exchange, path);
+        return;
+      }
+
+      Body response = route(exchange, path, parseQuery(query));
+      if (response == null) {
+        send(exchange, 404, acceptEncoding, (text, flusher) -> text.append("{}"));
+        return;
+      }
+      if (etagsEnabled) {
+        String etag = "W/\"" + version.get() + "-" + Integer.toHexString((path + "?" + query).hashCode()) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(ifNoneMatch)) {
+          notModified.incrementAndGet();
+          finish(exchange);
+          exchange.sendResponseHeaders(304, -1);
+          return;
+        }
+      }
+      send(exchange, 200, acceptEncoding, response);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lastActivityNanos = System.nanoTime();
+      finish(exchange);
+      exchange.close();
+    }
+  }
+
+  /**
+   * Body for a GET, or null for an unknown resource
+   */
+  private Body route(HttpExchange exchange, String path, Map<String, String> query) {
+    String[] parts = path.split("/");
+    if (parts.length < 2 || parts.length > 4) {
+      return null;
+    }
+    String resource = parts[1];
+    int posts = postCount;
+    int users = userCount;
+    int perPost = commentsPerPost;
+    int albums = users * 10;
+    int perAlbum = photosPerAlbum;
+
+    if (parts.length == 2) {
+      switch (resource) {
+        case "posts": {
+          int userId = intParam(query, "userId", 0);
+          return list(exchange, query, posts, userId == 0 ? null : id -> userOf(id) == userId, this::writePost);
+        }
+        case "comments": {
+          Set<Integer> postIds = intParams(query, "postId");
+          return list(exchange, query, posts * perPost,
+              postIds.isEmpty() ? null : id -> postIds.contains(postOf(id)), this::writeComment);
+        }
+        case "users":
+          return list(exchange, query, users, null, this::writeUser);
+        case "albums": {
+          int userId = intParam(query, "userId", 0);
+          return list(exchange, query, albums, userId == 0 ? null : id -> albumUserOf(id) == userId,
+              this::writeAlbum);
+        }
+        case "photos": {
+          Set<Integer> albumIds = intParams(query, "albumId");
+          return list(exchange, query, albums * perAlbum,
+              albumIds.isEmpty() ? null : id -> albumIds.contains(albumOf(id)), this::writePhoto);
+        }
+        default:
+          return null;
+      }
+    }
+
+    int id = intParam(parts[2]);
+    if (parts.length == 4) {
+      // /posts/{id}/comments, /albums/{id}/photos
+      if ("albums".equals(resource) && "photos".equals(parts[3]) && id >= 1 && id <= albums) {
+        return list(exchange, query, albums * perAlbum, photo -> albumOf(photo) == id, this::writePhoto);
+      }
+      if (!"posts".equals(resource) || !"comments".equals(parts[3]) || id < 1 || id > posts) {
+        return null;
+      }
+      return list(exchange, query, posts * perPost, comment -> postOf(comment) == id, this::writeComment);
+    }
+    switch (resource) {
+      case "posts":
+        return id >= 1 && id <= posts ? (text, flusher) -> writePost(new JsonWriter(text), id) : null;
+      case "comments":
+        return id >= 1 && id <= posts * perPost ? (text, flusher) -> writeComment(new JsonWriter(text), id) : null;
+      case "users":
+        return id >= 1 && id <= users ? (text, flusher) -> writeUser(new JsonWriter(text), id) : null;
+      case "albums":
+        return id >= 1 && id <= albums ? (text, flusher) -> writeAlbum(new JsonWriter(text), id) : null;
+      case "photos":
+        return id >= 1 && id <= albums * perAlbum ? (text, flusher) -> writePhoto(new JsonWriter(text), id) : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Records with IDs 1..count that pass the filter, windowed by the paging parameters
+   */
+  private Body list(HttpExchange exchange, Map<String, String> query, int count, IntPredicate filter,
+      Record record) {
+    int total = count;
+    if (filter != null) {
+      total = 0;
+      for (int id = 1; id <= count; id++) {
+        if (filter.test(id)) {
+          total++;
+        }
+      }
+    }
+    exchange.getResponseHeaders().set("X-Total-Count", String.valueOf(total));
+
+    int start = intParam(query, "_start", 0);
+    int limit = intParam(query, "_limit", Integer.MAX_VALUE);
+    if (query.containsKey("_page")) {
+      int page = Math.max(1, intParam(query, "_page", 1));
+      limit = intParam(query, "_limit", 10);
+      start = (page - 1) * limit;
+    }
+    if (query.containsKey("_end")) {
+      limit = Math.max(0, intParam(query, "_end", 0) - start);
+    }
+    int from = Math.max(0, start);
+    int size = limit;
+
+    return (text, flusher) -> {
+      JsonWriter writer = new JsonWriter(text);
+      writer.beginArray();
+      int matched = 0;
+      int written = 0;
+      for (int id = 1; id <= count && written < size; id++) {
+        if (filter != null && !filter.test(id)) {
+          continue;
+        }
+        if (matched++ < from) {
+          continue;
+        }
+        record.write(writer, id);
+        written++;
+        flusher.flushIfFull();
+      }
+      writer.endArray();
+    };
+  }
+
+  private void writePost(JsonWriter writer, int id) {
+    writer.beginObject()
+        .name("userId").value(userOf(id))
+        .name("id").value(id)
+        .name("title").value(getPostTitle(id))
+        .name("body").value("Body of post " + id + " with enough text to look like a real post body.")
+        .endObject();
+  }
+
+  private void writeComment(JsonWriter writer, int id) {
+    writer.beginObject()
+        .name("postId").value(postOf(id))
+        .name("id").value(id)
+        .name("name").value("Comment " + id)
+        .name("email").value("reader" + (id % 97) + "@example.com")
+        .name("body").value("Comment " + id + " on post " + postOf(id) + ", long enough to wrap onto a second line.")
+        .endObject();
+  }
+
+  private void writeUser(JsonWriter writer, int id) {
+    writer.beginObject()
+        .name("id").value(id)
+        .name("name").value("User " + id)
+        .name("username").value("user" + id)
+        .name("email").value("user" + id + "@example.com")
+        .name("phone").value("555-01" + String.format("%02d", id % 100))
+        .name("website").value("user" + id + ".example.com")
+        .endObject();
+  }
+
+  private void writeAlbum(JsonWriter writer, int id) {
+    writer.beginObject()
+        .name("userId").value(albumUserOf(id))
+        .name("id").value(id)
+        .name("title").value("Album " + id)
+        .endObject();
+  }
+
+  private void writePhoto(JsonWriter writer, int id) {
+    writer.beginObject()
+        .name("albumId").value(albumOf(id))
+        .name("id").value(id)
+        .name("title").value("Photo " + id)
+        .name("url").value(getImageUrl(id, 600))
+        .name("thumbnailUrl").value(getImageUrl(id, 150))
+        .endObject();
+  }
+
+  private int albumUserOf(int albumId) {
+    return (albumId - 1) / 10 % userCount + 1;
+  }
+
+  private int albumOf(int photoId) {
+    return (photoId - 1) / Math.max(1, photosPerAlbum) + 1;
+  }
+
+  private static int colorOf(int photoId) {
+    return (photoId * 0x9E3779B1) >>> 8;
+  }
+
+  /**
+   * Send a generated square PNG of one color: /images/{size}/{rrggbb}
+   */
+  private void sendImage(HttpExchange exchange, String path) throws IOException {
+    String[] parts = path.split("/");
+    int size = parts.length == 4 ? intParam(parts[2]) : -1;
+    int color;
+    try {
+      color = parts.length == 4 ? Integer.parseInt(parts[3], 16) : -1;
+    } catch (NumberFormatException e) {
+      color = -1;
+    }
+    if (size < 1 || size > 2000 || color < 0) {
+      send(exchange, 404, null, (text, flusher) -> text.append("{}"));
+      return;
+    }
+
+    int rgb = color;
+    byte[] png = images.computeIfAbsent(size + "/" + rgb, key -> {
+      BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = image.createGraphics();
+      graphics.setColor(new Color(rgb));
+      graphics.fillRect(0, 0, size, size);
+      graphics.dispose();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        ImageIO.write(image, "png", out);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return out.toByteArray();
+    });
+
+    exchange.getResponseHeaders().set("Content-Type", "image/png");
+    exchange.sendResponseHeaders(200, png.length);
+    try (OutputStream out = new CountingThrottledStream(exchange.getResponseBody(), bytesPerSecond)) {
+      out.write(png, 0, png.length - 1);
+      finish(exchange);
+      out.write(png, png.length - 1, 1);
+    }
+  }
+
+  private int userOf(int postId) {
+    return 1 + postId % userCount;
+  }
+
+  private int postOf(int commentId) {
+    return (commentId - 1) / Math.max(1, commentsPerPost) + 1;
+  }
+
+  /**
+   * Stream a body: JSON text -> UTF-8 -> gzip (if accepted) -> throttle -> client
+   */
+  private void send(HttpExchange exchange, int code, String acceptEncoding, Body body) throws IOException {
+    boolean gzip = gzipEnabled && acceptEncoding != null && acceptEncoding.contains("gzip");
+    if (gzip) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    exchange.sendResponseHeaders(code, 0); // Chunked
+
+    // Buffered so gzip headers and trailers don't go out as tiny chunks (Nagle + delayed ACK stalls)
+    OutputStream out = new CountingThrottledStream(
+        new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024), bytesPerSecond);
+    if (gzip) {
+      out = new GZIPOutputStream(out, 8192);
+    }
+    try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      StringBuilder text = new StringBuilder(FLUSH_CHARS + 1024);
+      body.writeTo(text, () -> {
+        if (text.length() >= FLUSH_CHARS) {
+          writer.append(text);
+          text.setLength(0);
+        }
+      });
+      writer.append(text);
+      finish(exchange); // The client can only see the end once the writer is closed
+    }
+  }
+
+  /**
+   * Stop counting a request as in progress; called before its last bytes go out,
+   * so a client's next request never overlaps with it in getMaxConcurrent()
+   */
+  private void finish(HttpExchange exchange) {
+    if (open.remove(exchange)) {
+      concurrent.decrementAndGet();
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<>();
+    if (query != null) {
+      for (String param : query.split("&")) {
+        String[] pair = param.split("=", 2);
+        if (pair.length == 2) {
+          // A repeated parameter matches any of its values (kept comma-separated)
+          params.merge(pair[0], pair[1], (first, next) -> first + "," + next);
+        }
+      }
+    }
+    return params;
+  }
+
+  private static int intParam(Map<String, String> query, String name, int fallback) {
+    String value = query.get(name);
+    return value != null ? intParam(value) : fallback;
+  }
+
+  private static Set<Integer> intParams(Map<String, String> query, String name) {
+    Set<Integer> values = new HashSet<>();
+    String value = query.get(name);
+    if (value != null) {
+      for (String item : value.split(",")) {
+        values.add(intParam(item));
+      }
+    }
+    return values;
+  }
+
+  private static int intParam(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Counts body bytes and paces them to a byte rate, in 50 ms chunks
+   */
+  private class CountingThrottledStream extends FilterOutputStream {
+    private final long rate;
+
+    CountingThrottledStream(OutputStream out, long rate) {
+      super(out);
+      this.rate = rate;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      bytesSent.addAndGet(length);
+      if (rate <= 0) {
+        out.write(bytes, offset, length);
+        return;
+      }
+      int chunk = (int) Math.max(1, rate / 20);
+      for (int end = offset + length; offset < end; offset += chunk) {
+        int part = Math.min(chunk, end - offset);
+        out.write(bytes, offset, part);
+        out.flush();
+        try {
+          Thread.sleep(part * 1000L / rate);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,196 @@
+package com.example.hifzaa4.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.hifzaa4.json.JsonReader;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.models.Post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Routes, paging, ETags, compression and fault injection of the stand-in server
+ */
+public class StandInApiServerTest {
+
+  private StandInApiServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new StandInApiServer();
+    server.setPostCount(1_000_000);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void pagesThroughMillionsOfPosts() throws Exception {
+    Response response = get("/posts?_start=999990&_limit=50", null, null);
+    assertEquals(200, response.code);
+    assertEquals("1000000", response.connection.getHeaderField("X-Total-Count"));
+
+    List<Post> posts = PostJsonCodec.decodeList(response.body);
+    assertEquals(10, posts.size());
+    assertEquals(999_991, posts.get(0).getId());
+    assertEquals(1_000_000, posts.get(9).getId());
+
+    assertEquals(4, PostJsonCodec.decodeList(get("/posts?_page=2&_limit=3", null, null).body).get(0).getId());
+    assertEquals(5, PostJsonCodec.decodeList(get("/posts?_start=10&_end=15", null, null).body).size());
+  }
+
+  @Test
+  public void servesSingleRecordsAndRelatedLists() throws Exception {
+    server.editPost(42, "Edited on the server");
+    Post post = PostJsonCodec.decode(get("/posts/42", null, null).body);
+    assertEquals("Edited on the server", post.getTitle());
+    assertEquals(404, get("/posts/1000001", null, null).code);
+
+    // Five comments per post, like the real API
+    assertEquals(5, countArray(get("/posts/42/comments", null, null).body));
+    Response comments = get("/comments?postId=42", null, null);
+    assertEquals("5", comments.connection.getHeaderField("X-Total-Count"));
+    Response batch = get("/comments?postId=42&postId=7&postId=9", null, null);
+    assertEquals("15", batch.connection.getHeaderField("X-Total-Count"));
+
+    assertEquals(10, countArray(get("/users", null, null).body));
+    assertTrue(get("/users/3", null, null).body.contains("\"username\":\"user3\""));
+    assertEquals(100_000, countArray(get("/posts?userId=3", null, null).body));
+  }
+
+  @Test
+  public void servesAlbumsPhotosAndTheirImages() throws Exception {
+    // Ten albums per user and fifty photos per album, like the real API
+    assertEquals(100, countArray(get("/albums", null, null).body));
+    assertEquals(10, countArray(get("/albums?userId=2", null, null).body));
+    assertEquals(50, countArray(get("/albums/3/photos", null, null).body));
+    Response photos = get("/photos?albumId=3&albumId=4", null, null);
+    assertEquals("100", photos.connection.getHeaderField("X-Total-Count"));
+    assertTrue(photos.body.contains(server.getImageUrl(101, 150)));
+
+    Response image = get(server.getImageUrl(101, 150).substring(server.getBaseUrl().length()), null, null);
+    assertEquals(200, image.code);
+    assertEquals("image/png", image.connection.getHeaderField("Content-Type"));
+    assertEquals(404, get("/images/150/not-a-color", null, null).code);
+  }
+
+  @Test
+  public void answersMatchingEtagWithNotModified() throws Exception {
+    Response first = get("/users", null, null);
+    String etag = first.connection.getHeaderField("ETag");
+    assertNotNull(etag);
+
+    Response second = get("/users", etag, null);
+    assertEquals(304, second.code);
+    assertEquals(1, server.getNotModifiedCount());
+
+    // A change to the dataset invalidates the tag
+    server.setUserCount(12);
+    Response third = get("/users", etag, null);
+    assertEquals(200, third.code);
+    assertEquals(12, countArray(third.body));
+  }
+
+  @Test
+  public void gzipsWhenAcceptedAndEnabled() throws Exception {
+    Response plain = get("/posts?_limit=1000", null, "identity");
+    long plainBytes = server.getBytesSent();
+    Response gzipped = get("/posts?_limit=1000", null, "gzip");
+    long gzippedBytes = server.getBytesSent() - plainBytes;
+
+    assertEquals("gzip", gzipped.connection.getHeaderField("Content-Encoding"));
+    assertEquals(plain.body, gzipped.body);
+    assertTrue(gzippedBytes * 5 < plainBytes);
+
+    server.setGzipEnabled(false);
+    assertEquals(null, get("/posts?_limit=1", null, "gzip").connection.getHeaderField("Content-Encoding"));
+  }
+
+  @Test
+  public void injectsFaultsAndLatency() throws Exception {
+    server.failNext(2, 503);
+    assertEquals(503, get("/posts/1", null, null).code);
+    assertEquals(503, get("/posts/1", null, null).code);
+    assertEquals(200, get("/posts/1", null, null).code);
+
+    server.setErrorRate(0.5, 500);
+    int errors = 0;
+    for (int i = 0; i < 200; i++) {
+      if (get("/posts/1", null, null).code == 500) {
+        errors++;
+      }
+    }
+    assertTrue("errors " + errors, errors > 60 && errors < 140);
+    server.setErrorRate(0, 500);
+
+    server.setLatencyMillis(100);
+    server.setLatencyJitterMillis(50);
+    long start = System.nanoTime();
+    get("/posts/1", null, null);
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue("took " + millis, millis >= 100);
+  }
+
+  private static int countArray(String json) throws IOException {
+    JsonReader reader = new JsonReader(json);
+    int count = 0;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      reader.skipValue();
+      count++;
+    }
+    reader.endArray();
+    return count;
+  }
+
+  private Response get(String path, String ifNoneMatch, String acceptEncoding) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(server.getBaseUrl() + path).openConnection();
+    if (ifNoneMatch != null) {
+      connection.setRequestProperty("If-None-Match", ifNoneMatch);
+    }
+    if (acceptEncoding != null) {
+      connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+    }
+    int code = connection.getResponseCode();
+    InputStream in = code >= 400 ? connection.getErrorStream() : code == 304 ? null : connection.getInputStream();
+    String body = "";
+    if (in != null) {
+      if ("gzip".equals(connection.getHeaderField("Content-Encoding"))) {
+        in = new GZIPInputStream(in);
+      }
+      try (InputStream stream = in) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stream.transferTo(bytes);
+        body = bytes.toString(StandardCharsets.UTF_8.name());
+      }
+    }
+    return new Response(connection, code, body);
+  }
+
+  private static class Response {
+    final HttpURLConnection connection;
+    final int code;
+    final String body;
+
+    Response(HttpURLConnection connection, int code, String body) {
+      this.connection = connection;
+      this.code = code;
+      this.body = body;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.example.hifzaa4.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.utils.AppPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+/**
+ * Cold-start path: phase ordering, routing and main-thread time budget
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class StartupInitializerTest {
+
+  private Context context;
+
+  @Before
+  public void setUp() {
+    context = ApplicationProvider.getApplicationContext();
+    StartupTrace.reset();
+    StartupInitializer.reset();
+  }
+
+  @Test
+  public void phasesCompleteInOrder() throws Exception {
+    StartupTrace trace = StartupTrace.get();
+    StartupInitializer initializer = StartupInitializer.getInstance(context);
+
+    long begin = trace.begin();
+    initializer.start();
+    trace.end(StartupTrace.PHASE_APP_CREATE, begin);
+
+    // Route immediately, as the launcher does - it must not need the database,
+    // and is delivered once the preferences are loaded if they are not yet
+    LaunchRouter.Destination[] routed = new LaunchRouter.Destination[1];
+    LaunchRouter.resolve(context, destination -> routed[0] = destination);
+    assertTrue(initializer.awaitReady(5000));
+    shadowOf(Looper.getMainLooper()).idle();
+    assertEquals(LaunchRouter.Destination.LOGIN, routed[0]);
+
+    List<StartupTrace.Phase> phases = trace.getPhases();
+    StartupTrace.Phase appCreate = trace.getPhase(StartupTrace.PHASE_APP_CREATE);
+    for (StartupTrace.Phase phase : phases) {
+      assertTrue(phase.name + " started before app_create",
+          phase.atMillis - phase.durationMillis >= appCreate.atMillis - appCreate.durationMillis);
+    }
+
+    int ready = indexOf(phases, StartupTrace.PHASE_INIT_READY);
+    assertTrue(indexOf(phases, StartupTrace.PHASE_PREFS_READY) < ready);
+    assertTrue(indexOf(phases, StartupTrace.PHASE_DATABASE_READY) < ready);
+    assertTrue(indexOf(phases, StartupTrace.PHASE_NETWORK_PROBED) < ready);
+    assertTrue(indexOf(phases, StartupTrace.PHASE_PREFS_READY) < indexOf(phases, StartupTrace.PHASE_ROUTED));
+  }
+
+  @Test
+  public void warmupRunsOffTheMainThreadWithinBudget() throws Exception {
+    StartupTrace trace = StartupTrace.get();
+    StartupInitializer initializer = StartupInitializer.getInstance(context);
+
+    long begin = trace.begin();
+    initializer.start();
+    trace.end(StartupTrace.PHASE_APP_CREATE, begin);
+    assertTrue(initializer.awaitReady(5000));
+    LaunchRouter.resolve(context);
+
+    assertFalse(trace.getPhase(StartupTrace.PHASE_PREFS_READY).onMainThread);
+    assertFalse(trace.getPhase(StartupTrace.PHASE_DATABASE_READY).onMainThread);
+    assertFalse(trace.getPhase(StartupTrace.PHASE_NETWORK_PROBED).onMainThread);
+    assertTrue(trace.getPhase(StartupTrace.PHASE_ROUTED).onMainThread);
+    assertTrue("main thread took " + trace.getMainThreadMillis() + " ms",
+        trace.getMainThreadMillis() <= StartupTrace.MAIN_THREAD_BUDGET_MS);
+  }
+
+  @Test
+  public void readyCallbacksRunOnMainThread() throws Exception {
+    StartupInitializer initializer = StartupInitializer.getInstance(context);
+    boolean[] ran = new boolean[1];
+
+    initializer.runWhenReady(() -> ran[0] = Looper.myLooper() == Looper.getMainLooper());
+    initializer.start();
+    assertTrue(initializer.awaitReady(5000));
+    shadowOf(Looper.getMainLooper()).idle();
+
+    assertTrue(ran[0]);
+  }
+
+  @Test
+  public void authenticatedSessionRoutesToPosts() throws Exception {
+    new AppPreferences(context).login("hifza");
+    StartupInitializer initializer = StartupInitializer.getInstance(context);
+    initializer.start();
+    assertTrue(initializer.awaitReady(5000));
+
+    assertEquals(LaunchRouter.Destination.POSTS, LaunchRouter.resolve(context));
+    assertNotNull(StartupTrace.get().getPhase(StartupTrace.PHASE_ROUTED));
+  }
+
+  @Test
+  public void signedOutSessionRoutesToLogin() {
+    assertEquals(LaunchRouter.Destination.LOGIN, LaunchRouter.resolve(context));
+  }
+
+  private static int indexOf(List<StartupTrace.Phase> phases, String name) {
+    for (int i = 0; i < phases.size(); i++) {
+      if (phases.get(i).name.equals(name)) {
+        return i;
+      }
+    }
+    throw new AssertionError("Phase not recorded: " + name);
+  }
+}
@@ -0,0 +1,107 @@
+package com.example.hifzaa4.sync;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.database.DatabaseHelper;
+import com.example.hifzaa4.database.PostMerger;
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.network.ApiService;
+import com.example.hifzaa4.network.NetworkQualityEstimator;
+import com.example.hifzaa4.network.StandInApiServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+/**
+ * Refresh throughput (fetch + merge) against the local stand-in server
+ * Reports posts/sec for a first sync and for a sync that changes 1% of the
+ * posts; run with -Dbench.refresh.posts=1000000 for the full size
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class RefreshThroughputBenchmarkTest {
+
+  private static final int POSTS = Integer.getInteger("bench.refresh.posts", 20_000);
+
+  private StandInApiServer server;
+  private ApiService apiService;
+  private PostMerger merger;
+
+  @Before
+  public void setUp() throws Exception {
+    Context context = ApplicationProvider.getApplicationContext();
+    DatabaseHelper.resetInstance();
+    NetworkQualityEstimator.get().reset();
+
+    server = new StandInApiServer();
+    server.setPostCount(POSTS);
+    ApiService.setBaseUrl(server.getBaseUrl());
+    apiService = new ApiService();
+    merger = new PostMerger(context);
+  }
+
+  @After
+  public void tearDown() {
+    ApiService.setBaseUrl(null);
+    server.close();
+    DatabaseHelper.resetInstance();
+  }
+
+  @Test
+  public void refreshThroughput() throws Exception {
+    // Warm up (class loading, JIT) and let the estimator measure the link
+    apiService.fetchPostsBlocking();
+
+    Refresh first = refresh();
+    assertEquals(POSTS, first.result.written);
+
+    for (int id = 1; id <= POSTS; id += 100) {
+      server.editPost(id, "Edited " + id);
+    }
+    Refresh second = refresh();
+    assertEquals((POSTS + 99) / 100, second.result.written);
+    assertEquals(0, second.result.deleted);
+
+    System.out.println(String.format("refresh, %d posts (%s): first %s | 1%% changed %s",
+        POSTS, NetworkQualityEstimator.get().getPolicy(), first, second));
+  }
+
+  private Refresh refresh() throws Exception {
+    long start = System.nanoTime();
+    List<Post> posts = apiService.fetchPostsBlocking();
+    long fetched = System.nanoTime();
+    PostMerger.Result result = merger.merge(posts, true);
+    long merged = System.nanoTime();
+    assertEquals(POSTS, posts.size());
+    return new Refresh(result, fetched - start, merged - fetched);
+  }
+
+  private static class Refresh {
+    final PostMerger.Result result;
+    final long fetchNanos;
+    final long mergeNanos;
+
+    Refresh(PostMerger.Result result, long fetchNanos, long mergeNanos) {
+      this.result = result;
+      this.fetchNanos = fetchNanos;
+      this.mergeNanos = mergeNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("fetch %.0f posts/s, merge %.0f posts/s, total %.0f posts/s",
+          POSTS * 1e9 / fetchNanos, POSTS * 1e9 / mergeNanos, POSTS * 1e9 / (fetchNanos + mergeNanos));
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.example.hifzaa4.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.hifzaa4.utils.AppPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SyncScheduler with a fake clock and a fake connectivity source
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class SyncSchedulerTest {
+
+  private static final long START = 1_700_000_000_000L;
+
+  private final FakeClock clock = new FakeClock();
+  private final FakeConnectivity connectivity = new FakeConnectivity();
+  private final AtomicInteger runs = new AtomicInteger();
+  private AppPreferences preferences;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    preferences = new AppPreferences(context);
+    preferences.setLastSyncTime(0);
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void freshnessComesFromLastSyncTime() {
+    SyncScheduler scheduler = newScheduler(runs::incrementAndGet);
+    assertEquals(Long.MAX_VALUE, scheduler.getFreshnessMillis());
+    assertTrue(scheduler.isStale());
+
+    assertTrue(scheduler.requestSync());
+    assertEquals(START, scheduler.getLastSyncTime());
+
+    clock.advance(60_000);
+    assertEquals(60_000, scheduler.getFreshnessMillis());
+    assertFalse(scheduler.isStale());
+
+    clock.advance(SyncScheduler.STALE_AFTER_MS);
+    assertTrue(scheduler.isStale());
+  }
+
+  @Test
+  public void freshDataIsNotResynced() {
+    SyncScheduler scheduler = newScheduler(runs::incrementAndGet);
+    scheduler.requestSync();
+    clock.advance(60_000);
+
+    assertFalse(scheduler.syncIfStale());
+    connectivity.set(false);
+    connectivity.set(true);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void reconnectResyncsStaleData() {
+    SyncScheduler scheduler = newScheduler(runs::incrementAndGet);
+    scheduler.requestSync();
+    connectivity.set(false);
+
+    clock.advance(SyncScheduler.STALE_AFTER_MS + 1);
+    connectivity.set(true);
+
+    assertEquals(2, runs.get());
+    assertEquals(clock.now, scheduler.getLastSyncTime());
+  }
+
+  @Test
+  public void triggersWhileOfflineRunOnReconnect() {
+    SyncScheduler scheduler = newScheduler(runs::incrementAndGet);
+    scheduler.requestSync();
+    connectivity.set(false);
+
+    assertFalse(scheduler.requestSync());
+    assertFalse(scheduler.requestSync());
+    assertEquals(1, runs.get());
+
+    // Still fresh, but a sync was asked for while offline
+    clock.advance(1000);
+    connectivity.set(true);
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void failedSyncRetriesOnReconnect() {
+    AtomicInteger attempts = new AtomicInteger();
+    SyncScheduler scheduler = newScheduler(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new java.io.IOException("Connection reset");
+      }
+    });
+
+    scheduler.requestSync();
+    assertEquals(0, scheduler.getLastSyncTime());
+
+    connectivity.set(false);
+    connectivity.set(true);
+    assertEquals(2, attempts.get());
+    assertEquals(START, scheduler.getLastSyncTime());
+  }
+
+  @Test
+  public void overlappingTriggersCollapseIntoOneRun() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    executor = Executors.newFixedThreadPool(4);
+    SyncScheduler scheduler = new SyncScheduler(clock, connectivity, () -> {
+      runs.incrementAndGet();
+      started.countDown();
+      release.await();
+    }, executor, preferences);
+    scheduler.addListener(success -> finished.countDown());
+    scheduler.start();
+
+    assertTrue(scheduler.requestSync());
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // App open, manual refresh, reconnect and the periodic job all arrive mid-run
+    assertFalse(scheduler.requestSync());
+    assertFalse(scheduler.syncIfStale());
+    connectivity.set(false);
+    connectivity.set(true);
+    assertFalse(scheduler.requestSync());
+
+    release.countDown();
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(1, runs.get());
+    assertFalse(scheduler.isRunning());
+  }
+
+  private SyncScheduler newScheduler(SyncScheduler.SyncTask task) {
+    SyncScheduler scheduler = new SyncScheduler(clock, connectivity, task, Runnable::run, preferences);
+    scheduler.start();
+    return scheduler;
+  }
+
+  private static class FakeClock implements Clock {
+    long now = START;
+
+    void advance(long millis) {
+      now += millis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  private static class FakeConnectivity implements ConnectivitySource {
+    private boolean connected = true;
+    private Listener listener;
+
+    void set(boolean connected) {
+      boolean changed = this.connected != connected;
+      this.connected = connected;
+      if (changed && listener != null) {
+        listener.onConnectivityChanged(connected);
+      }
+    }
+
+    @Override
+    public boolean isConnected() {
+      return connected;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+      this.listener = listener;
+    }
+  }
+}
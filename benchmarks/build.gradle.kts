@@ -0,0 +1,33 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+// JMH benchmarks of the :core code on a plain JVM
+//   ./gradlew :benchmarks:jmh                          all benchmarks
+//   ./gradlew :benchmarks:jmh -Pbenchmarks=PostDiff    benchmarks matching a pattern
+// Results are written to build/results/jmh/results.json
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    jmhImplementation(project(":core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    providers.gradleProperty("benchmarks").orNull?.let { includes.add(it) }
+}
@@ -0,0 +1,60 @@
+package com.example.hifzaa4.benchmarks;
+
+import com.example.hifzaa4.models.Post;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * BenchmarkData - Deterministic posts shaped like the API's
+ * Titles of about 40 characters and bodies of about 200 (with newlines, like
+ * JSONPlaceholder), from a fixed seed so every run measures the same data.
+ */
+final class BenchmarkData {
+
+  private static final String[] WORDS = {
+      "sunt", "aut", "facere", "repellat", "provident", "occaecati", "excepturi", "optio",
+      "reprehenderit", "qui", "est", "esse", "ea", "molestias", "quasi", "exercitationem",
+      "dolorem", "eum", "magnam", "eius", "quia", "voluptatem", "rerum", "tempore"
+  };
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Posts with IDs 1..count
+   */
+  static List<Post> posts(int count) {
+    Random random = new Random(42);
+    List<Post> posts = new ArrayList<>(count);
+    for (int id = 1; id <= count; id++) {
+      posts.add(new Post(id, 1 + (id - 1) / 10, words(random, 6, ' '), words(random, 30, '\n'), false));
+    }
+    return posts;
+  }
+
+  /**
+   * A copy of the posts with new titles for every step-th post
+   */
+  static List<Post> edit(List<Post> posts, int step) {
+    List<Post> edited = new ArrayList<>(posts.size());
+    for (int i = 0; i < posts.size(); i++) {
+      Post post = posts.get(i);
+      String title = i % step == 0 ? post.getTitle() + " (edited)" : post.getTitle();
+      edited.add(new Post(post.getId(), post.getUserId(), title, post.getBody(), post.isFavorite()));
+    }
+    return edited;
+  }
+
+  private static String words(Random random, int count, char newlineEvery) {
+    StringBuilder text = new StringBuilder(count * 8);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        text.append(newlineEvery == '\n' && i % 8 == 0 ? '\n' : ' ');
+      }
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.hifzaa4.benchmarks;
+
+import com.example.hifzaa4.json.JsonFormatException;
+import com.example.hifzaa4.json.PostJsonCodec;
+import com.example.hifzaa4.models.Post;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonCodecBenchmark - Parsing and writing /posts responses
+ * A page of the posts endpoint is decoded on every sync; 100 is the API's
+ * full list, 10000 a large account.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonCodecBenchmark {
+
+  @Param({"100", "10000"})
+  public int size;
+
+  private List<Post> posts;
+  private String listJson;
+  private String postJson;
+
+  @Setup
+  public void setUp() {
+    posts = BenchmarkData.posts(size);
+    listJson = PostJsonCodec.encodeList(posts);
+    postJson = PostJsonCodec.encode(posts.get(0));
+  }
+
+  @Benchmark
+  public List<Post> decodeList() throws JsonFormatException {
+    return PostJsonCodec.decodeList(listJson);
+  }
+
+  @Benchmark
+  public Post decodePost() throws JsonFormatException {
+    return PostJsonCodec.decode(postJson);
+  }
+
+  @Benchmark
+  public String encodeList() {
+    return PostJsonCodec.encodeList(posts);
+  }
+}
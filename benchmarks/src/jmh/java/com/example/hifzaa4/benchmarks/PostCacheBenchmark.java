@@ -0,0 +1,69 @@
+package com.example.hifzaa4.benchmarks;
+
+import com.example.hifzaa4.cache.PostCache;
+import com.example.hifzaa4.models.Post;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PostCacheBenchmark - PostStore's memory cache (500 posts, as in the app)
+ * Lookups cycle through IDs so hits touch the whole cache; puts of IDs past
+ * the cache size evict on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PostCacheBenchmark {
+
+  private static final int MAX_SIZE = 500;
+
+  private PostCache cache;
+  private List<Post> posts;
+  private List<Post> summaries;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    posts = BenchmarkData.posts(MAX_SIZE * 4);
+    cache = new PostCache(MAX_SIZE);
+    cache.putAll(posts.subList(0, MAX_SIZE));
+
+    summaries = BenchmarkData.posts(MAX_SIZE);
+    for (Post post : summaries) {
+      post.setBodySnippet(Post.makeSnippet(post.getBody()));
+      post.setBody(null);
+    }
+  }
+
+  @Benchmark
+  public Post getHit() {
+    next = next == MAX_SIZE ? 1 : next + 1;
+    return cache.get(next);
+  }
+
+  @Benchmark
+  public Post getMiss() {
+    next = next == MAX_SIZE ? 1 : next + 1;
+    return cache.get(-next);
+  }
+
+  @Benchmark
+  public void putEvicting() {
+    next = next == posts.size() - 1 ? 0 : next + 1;
+    cache.put(posts.get(next));
+  }
+
+  @Benchmark
+  public void putAllSummaries() {
+    cache.putAll(summaries);
+  }
+}
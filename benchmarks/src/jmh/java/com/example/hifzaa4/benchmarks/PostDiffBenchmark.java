@@ -0,0 +1,64 @@
+package com.example.hifzaa4.benchmarks;
+
+import com.example.hifzaa4.diff.PostDiff;
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.models.PostColumnStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PostDiffBenchmark - Diffing the post list after a refresh
+ * - unchanged: a sync that found nothing new
+ * - synced: 1% of titles edited, 1% of rows removed and 1% inserted
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostDiffBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private PostColumnStore current;
+  private PostColumnStore unchanged;
+  private PostColumnStore synced;
+
+  @Setup
+  public void setUp() {
+    List<Post> posts = BenchmarkData.posts(size);
+    current = PostColumnStore.of(posts);
+    unchanged = PostColumnStore.of(posts);
+
+    List<Post> edited = BenchmarkData.edit(posts, 100);
+    for (int i = edited.size() - 50; i >= 0; i -= 100) {
+      edited.remove(i);
+    }
+    List<Post> inserted = BenchmarkData.posts(size / 100);
+    for (int i = 0; i < inserted.size(); i++) {
+      Post post = inserted.get(i);
+      post.setId(size + 1 + i);
+      edited.add(Math.min(i * 100 + 25, edited.size()), post);
+    }
+    synced = PostColumnStore.of(edited);
+  }
+
+  @Benchmark
+  public PostDiff unchanged() {
+    return PostDiff.compute(current, unchanged);
+  }
+
+  @Benchmark
+  public PostDiff synced() {
+    return PostDiff.compute(current, synced);
+  }
+}
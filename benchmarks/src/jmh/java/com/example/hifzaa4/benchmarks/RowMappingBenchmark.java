@@ -0,0 +1,67 @@
+package com.example.hifzaa4.benchmarks;
+
+import com.example.hifzaa4.models.Post;
+import com.example.hifzaa4.models.PostColumnStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RowMappingBenchmark - Moving list rows between Posts and the column store
+ * - load: rows appended to a store (what PostRowMapper.addTo does per cursor row)
+ * - readRows: a reused Row view over every row (what the adapter does on bind)
+ * - toPosts: rows materialized as Posts (item actions, snapshot writes)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMappingBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private List<Post> posts;
+  private PostColumnStore store;
+
+  @Setup
+  public void setUp() {
+    posts = BenchmarkData.posts(size);
+    store = PostColumnStore.of(posts);
+  }
+
+  @Benchmark
+  public PostColumnStore load() {
+    PostColumnStore loaded = new PostColumnStore();
+    for (Post post : posts) {
+      loaded.add(post.getId(), post.getUserId(), post.getTitle(), post.getBodySnippet(), post.isFavorite());
+    }
+    loaded.trimToSize();
+    return loaded;
+  }
+
+  @Benchmark
+  public void readRows(Blackhole blackhole) {
+    PostColumnStore.Row row = store.row(0);
+    for (int i = 0; i < store.size(); i++) {
+      row.moveTo(i);
+      blackhole.consume(row.getTitle());
+      blackhole.consume(row.getBodySnippet());
+      blackhole.consume(row.isFavorite());
+    }
+  }
+
+  @Benchmark
+  public List<Post> toPosts() {
+    return store.toPosts(0, store.size());
+  }
+}
@@ -0,0 +1,22 @@
+plugins {
+    `java-library`
+}
+
+// Plain Java code shared by :app and :benchmarks; nothing here may depend on Android
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+tasks.test {
+    // Footprint tests hold a million-row list in memory
+    maxHeapSize = "2g"
+}
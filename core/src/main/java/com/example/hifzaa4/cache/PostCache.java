@@ -0,0 +1,252 @@
+package com.example.hifzaa4.cache;
+
+import com.example.hifzaa4.models.Post;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PostCache - Least-recently-used cache of posts by ID
+ * Entries live in fixed slots: an open-addressing table maps IDs to slots and
+ * int links keep the recency order, so get() and put() do not allocate
+ * (no boxed keys or map entries, unlike a LinkedHashMap or android.util.LruCache).
+ * All methods are synchronized.
+ */
+public class PostCache {
+
+  private static final int NONE = -1;
+
+  private final int maxSize;
+
+  // Slot data
+  private final int[] ids;
+  private final Post[] posts;
+  private final int[] newer;
+  private final int[] older;
+
+  // ID -> slot + 1 (0 is empty)
+  private final int[] table;
+  private final int mask;
+
+  private int size;
+  private int used;        // Slots handed out so far
+  private int free = NONE; // Released slots, chained through older[]
+  private int newest = NONE;
+  private int oldest = NONE;
+
+  /**
+   * Constructor
+   *
+   * @param maxSize Maximum number of posts kept
+   */
+  public PostCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize <= 0");
+    }
+    this.maxSize = maxSize;
+    ids = new int[maxSize];
+    posts = new Post[maxSize];
+    newer = new int[maxSize];
+    older = new int[maxSize];
+    table = new int[Integer.highestOneBit(maxSize * 2 - 1) << 1];
+    mask = table.length - 1;
+  }
+
+  /**
+   * Get a post and mark it as most recently used
+   *
+   * @param postId Post ID
+   * @return Cached post, or null
+   */
+  public synchronized Post get(int postId) {
+    int position = find(postId);
+    if (position == NONE) {
+      return null;
+    }
+    int slot = table[position] - 1;
+    moveToNewest(slot);
+    return posts[slot];
+  }
+
+  /**
+   * Cache a post, evicting the least recently used one if the cache is full
+   */
+  public synchronized void put(Post post) {
+    int position = find(post.getId());
+    int slot;
+    if (position != NONE) {
+      slot = table[position] - 1;
+      moveToNewest(slot);
+    } else {
+      slot = allocate();
+      ids[slot] = post.getId();
+      insertIntoTable(slot);
+      linkNewest(slot);
+      size++;
+    }
+    posts[slot] = post;
+  }
+
+  /**
+   * Cache posts that are already loaded (e.g. the list currently shown)
+   * A full post already in the cache is not replaced by a list summary
+   *
+   * @param list Posts to cache
+   */
+  public synchronized void putAll(List<Post> list) {
+    for (Post post : list) {
+      if (!post.isBodyLoaded()) {
+        int position = find(post.getId());
+        if (position != NONE && posts[table[position] - 1].isBodyLoaded()) {
+          continue;
+        }
+      }
+      put(post);
+    }
+  }
+
+  /**
+   * Remove a post
+   *
+   * @param postId Post ID
+   * @return Removed post, or null if it was not cached
+   */
+  public synchronized Post remove(int postId) {
+    int position = find(postId);
+    if (position == NONE) {
+      return null;
+    }
+    int slot = table[position] - 1;
+    Post post = posts[slot];
+    release(slot, position);
+    return post;
+  }
+
+  /**
+   * Remove all posts
+   */
+  public synchronized void clear() {
+    Arrays.fill(table, 0);
+    Arrays.fill(posts, null);
+    size = 0;
+    used = 0;
+    free = NONE;
+    newest = NONE;
+    oldest = NONE;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Table position of a post ID, or NONE
+   */
+  private int find(int postId) {
+    int position = hash(postId) & mask;
+    int entry;
+    while ((entry = table[position]) != 0) {
+      if (ids[entry - 1] == postId) {
+        return position;
+      }
+      position = (position + 1) & mask;
+    }
+    return NONE;
+  }
+
+  private void insertIntoTable(int slot) {
+    int position = hash(ids[slot]) & mask;
+    while (table[position] != 0) {
+      position = (position + 1) & mask;
+    }
+    table[position] = slot + 1;
+  }
+
+  /**
+   * Clear a table position, shifting back later entries of the same probe run
+   */
+  private void removeFromTable(int gap) {
+    int position = (gap + 1) & mask;
+    int entry;
+    while ((entry = table[position]) != 0) {
+      int home = hash(ids[entry - 1]) & mask;
+      // The entry may fill the gap if the gap lies between its home and its position
+      if (((position - home) & mask) >= ((position - gap) & mask)) {
+        table[gap] = entry;
+        gap = position;
+      }
+      position = (position + 1) & mask;
+    }
+    table[gap] = 0;
+  }
+
+  /**
+   * Get a free slot, evicting the oldest entry if every slot is taken
+   */
+  private int allocate() {
+    if (free != NONE) {
+      int slot = free;
+      free = older[slot];
+      return slot;
+    }
+    if (used < maxSize) {
+      return used++;
+    }
+    int slot = oldest;
+    release(slot, find(ids[slot]));
+    free = older[slot];
+    return slot;
+  }
+
+  private void release(int slot, int position) {
+    removeFromTable(position);
+    unlink(slot);
+    posts[slot] = null;
+    older[slot] = free;
+    free = slot;
+    size--;
+  }
+
+  private void moveToNewest(int slot) {
+    if (slot != newest) {
+      unlink(slot);
+      linkNewest(slot);
+    }
+  }
+
+  private void linkNewest(int slot) {
+    newer[slot] = NONE;
+    older[slot] = newest;
+    if (newest != NONE) {
+      newer[newest] = slot;
+    }
+    newest = slot;
+    if (oldest == NONE) {
+      oldest = slot;
+    }
+  }
+
+  private void unlink(int slot) {
+    int before = older[slot];
+    int after = newer[slot];
+    if (before != NONE) {
+      newer[before] = after;
+    } else {
+      oldest = after;
+    }
+    if (after != NONE) {
+      older[after] = before;
+    } else {
+      newest = before;
+    }
+  }
+
+  private static int hash(int id) {
+    int h = id * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,199 @@
+package com.example.hifzaa4.diff;
+
+import com.example.hifzaa4.models.PostColumnStore;
+
+import java.util.Arrays;
+
+/**
+ * PostDiff - Row-level changes between two versions of the post list
+ * Rows are matched by post ID in one linear pass, so a refresh that inserts,
+ * removes or edits rows (what a sync does to a list sorted by a stable key)
+ * becomes a few ranged updates instead of a full rebind. Rows whose relative
+ * order changed are not tracked: compute() returns null and the caller
+ * refreshes everything.
+ *
+ * Usage:
+ *   PostDiff diff = PostDiff.compute(oldPosts, newPosts);
+ *   if (diff != null) diff.dispatchTo(callback); else refreshAll();
+ */
+public final class PostDiff {
+
+  /**
+   * Receives the changes in order; positions are in the list as updated so far
+   * (the same contract as RecyclerView's ListUpdateCallback)
+   */
+  public interface Callback {
+    void onInserted(int position, int count);
+
+    void onRemoved(int position, int count);
+
+    void onChanged(int position, int count);
+  }
+
+  private static final int INSERT = 0;
+  private static final int REMOVE = 1;
+  private static final int CHANGE = 2;
+
+  // (type, position, count) triples
+  private int[] ops = new int[24];
+  private int size;
+
+  private int inserted;
+  private int removed;
+  private int changed;
+
+  private PostDiff() {
+  }
+
+  /**
+   * Compute the changes from one list to another
+   *
+   * @param oldList List currently shown
+   * @param newList List to show
+   * @return Changes, or null if rows present in both lists changed their order
+   */
+  public static PostDiff compute(PostColumnStore oldList, PostColumnStore newList) {
+    int oldSize = oldList.size();
+    int newSize = newList.size();
+    IdIndex oldIds = new IdIndex(oldList);
+    IdIndex newIds = new IdIndex(newList);
+
+    PostDiff diff = new PostDiff();
+    int i = 0;
+    int j = 0;
+    int position = 0;
+    while (i < oldSize || j < newSize) {
+      if (i < oldSize && !newIds.contains(oldList.getId(i))) {
+        diff.add(REMOVE, position);
+        diff.removed++;
+        i++;
+      } else if (j < newSize && !oldIds.contains(newList.getId(j))) {
+        diff.add(INSERT, position);
+        diff.inserted++;
+        position++;
+        j++;
+      } else {
+        // Both rows are in both lists, so they must be the same row
+        if (i == oldSize || j == newSize || oldList.getId(i) != newList.getId(j)) {
+          return null;
+        }
+        if (!oldList.sameRow(i, newList, j)) {
+          diff.add(CHANGE, position);
+          diff.changed++;
+        }
+        position++;
+        i++;
+        j++;
+      }
+    }
+    return diff;
+  }
+
+  /**
+   * Append a one-row change, extending the previous range if it is adjacent
+   */
+  private void add(int type, int position) {
+    if (size > 0 && ops[size - 3] == type) {
+      int start = ops[size - 2];
+      int count = ops[size - 1];
+      if (type == REMOVE ? start == position : start + count == position) {
+        ops[size - 1] = count + 1;
+        return;
+      }
+    }
+    if (size + 3 > ops.length) {
+      ops = Arrays.copyOf(ops, ops.length * 2);
+    }
+    ops[size++] = type;
+    ops[size++] = position;
+    ops[size++] = 1;
+  }
+
+  /**
+   * Report the changes in order
+   */
+  public void dispatchTo(Callback callback) {
+    for (int k = 0; k < size; k += 3) {
+      switch (ops[k]) {
+        case INSERT:
+          callback.onInserted(ops[k + 1], ops[k + 2]);
+          break;
+        case REMOVE:
+          callback.onRemoved(ops[k + 1], ops[k + 2]);
+          break;
+        default:
+          callback.onChanged(ops[k + 1], ops[k + 2]);
+          break;
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Number of ranged updates dispatchTo() reports
+   */
+  public int getUpdateCount() {
+    return size / 3;
+  }
+
+  public int getInserted() {
+    return inserted;
+  }
+
+  public int getRemoved() {
+    return removed;
+  }
+
+  public int getChanged() {
+    return changed;
+  }
+
+  @Override
+  public String toString() {
+    return "PostDiff{inserted=" + inserted + ", removed=" + removed + ", changed=" + changed +
+        ", updates=" + getUpdateCount() + '}';
+  }
+
+  /**
+   * Open-addressing set of the post IDs of a store
+   * Slots hold row + 1 (0 is empty), so every int is a valid ID
+   */
+  private static class IdIndex {
+    private final PostColumnStore list;
+    private final int[] slots;
+    private final int mask;
+
+    IdIndex(PostColumnStore list) {
+      this.list = list;
+      int capacity = Integer.highestOneBit(Math.max(list.size(), 1) * 2 - 1) << 1;
+      slots = new int[capacity];
+      mask = capacity - 1;
+      for (int row = 0; row < list.size(); row++) {
+        int slot = hash(list.getId(row)) & mask;
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+      }
+    }
+
+    boolean contains(int id) {
+      int slot = hash(id) & mask;
+      while (slots[slot] != 0) {
+        if (list.getId(slots[slot] - 1) == id) {
+          return true;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return false;
+    }
+
+    private static int hash(int id) {
+      int h = id * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.hifzaa4.json;
+
+import com.example.hifzaa4.models.Album;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AlbumJsonCodec - Albums from the API's JSON
+ * {"userId": 1, "id": 1, "title": "..."}
+ * Unknown fields are skipped; id and userId are required.
+ */
+public final class AlbumJsonCodec {
+
+  private AlbumJsonCodec() {
+  }
+
+  /**
+   * Decode a JSON array of albums
+   *
+   * @param json Response body
+   * @return Albums in array order
+   * @throws JsonFormatException If the JSON is malformed or an album is incomplete
+   */
+  public static List<Album> decodeList(String json) throws JsonFormatException {
+    JsonReader reader = new JsonReader(json);
+    List<Album> albums = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      albums.add(read(reader));
+    }
+    reader.endArray();
+    reader.peek(); // Nothing may follow the array
+    return albums;
+  }
+
+  /**
+   * Read one album object
+   */
+  public static Album read(JsonReader reader) throws JsonFormatException {
+    int id = 0;
+    int userId = 0;
+    String title = null;
+    int seen = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextInt();
+          seen |= 1;
+          break;
+        case "userId":
+          userId = reader.nextInt();
+          seen |= 2;
+          break;
+        case "title":
+          title = reader.nextStringOrNull();
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (seen != 3) {
+      throw new JsonFormatException("No value for " + ((seen & 1) == 0 ? "id" : "userId"));
+    }
+    return new Album(id, userId, title);
+  }
+}
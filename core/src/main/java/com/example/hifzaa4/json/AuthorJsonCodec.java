@@ -0,0 +1,76 @@
+package com.example.hifzaa4.json;
+
+import com.example.hifzaa4.models.Author;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AuthorJsonCodec - Authors from the API's /users JSON
+ * {"id": 1, "name": "...", "username": "...", "email": "...", "address": {...}, ...}
+ * Only id, name, username and email are kept; id and name are required.
+ */
+public final class AuthorJsonCodec {
+
+  private AuthorJsonCodec() {
+  }
+
+  /**
+   * Decode a JSON array of users
+   *
+   * @param json Response body
+   * @return Authors in array order
+   * @throws JsonFormatException If the JSON is malformed or a user is incomplete
+   */
+  public static List<Author> decodeList(String json) throws JsonFormatException {
+    JsonReader reader = new JsonReader(json);
+    List<Author> authors = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      authors.add(read(reader));
+    }
+    reader.endArray();
+    reader.peek(); // Nothing may follow the array
+    return authors;
+  }
+
+  /**
+   * Read one user object
+   */
+  public static Author read(JsonReader reader) throws JsonFormatException {
+    int id = 0;
+    String name = null;
+    String username = null;
+    String email = null;
+    int seen = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextInt();
+          seen |= 1;
+          break;
+        case "name":
+          name = reader.nextString();
+          seen |= 2;
+          break;
+        case "username":
+          username = reader.nextStringOrNull();
+          break;
+        case "email":
+          email = reader.nextStringOrNull();
+          break;
+        default:
+          reader.skipValue(); // address, company, ...
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (seen != 3) {
+      throw new JsonFormatException("No value for " + ((seen & 1) == 0 ? "id" : "name"));
+    }
+    return new Author(id, name, username, email);
+  }
+}
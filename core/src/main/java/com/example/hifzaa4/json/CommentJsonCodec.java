@@ -0,0 +1,82 @@
+package com.example.hifzaa4.json;
+
+import com.example.hifzaa4.models.Comment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CommentJsonCodec - Comments from the API's JSON
+ * {"postId": 1, "id": 1, "name": "...", "email": "...", "body": "..."}
+ * Unknown fields are skipped; id, postId and body are required.
+ */
+public final class CommentJsonCodec {
+
+  private CommentJsonCodec() {
+  }
+
+  /**
+   * Decode a JSON array of comments
+   *
+   * @param json Response body
+   * @return Comments in array order
+   * @throws JsonFormatException If the JSON is malformed or a comment is incomplete
+   */
+  public static List<Comment> decodeList(String json) throws JsonFormatException {
+    JsonReader reader = new JsonReader(json);
+    List<Comment> comments = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      comments.add(read(reader));
+    }
+    reader.endArray();
+    reader.peek(); // Nothing may follow the array
+    return comments;
+  }
+
+  /**
+   * Read one comment object
+   */
+  public static Comment read(JsonReader reader) throws JsonFormatException {
+    int id = 0;
+    int postId = 0;
+    String name = null;
+    String email = null;
+    String body = null;
+    int seen = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextInt();
+          seen |= 1;
+          break;
+        case "postId":
+          postId = reader.nextInt();
+          seen |= 2;
+          break;
+        case "name":
+          name = reader.nextStringOrNull();
+          break;
+        case "email":
+          email = reader.nextStringOrNull();
+          break;
+        case "body":
+          body = reader.nextStringOrNull();
+          seen |= 4;
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (seen != 7) {
+      throw new JsonFormatException("No value for " + ((seen & 1) == 0 ? "id"
+          : (seen & 2) == 0 ? "postId" : "body"));
+    }
+    return new Comment(id, postId, name, email, body);
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.hifzaa4.json;
+
+import java.io.IOException;
+
+/**
+ * JsonFormatException - Malformed JSON, or JSON that does not match the expected shape
+ */
+public class JsonFormatException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public JsonFormatException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,477 @@
+package com.example.hifzaa4.json;
+
+import java.util.Arrays;
+
+/**
+ * JsonReader - Pull parser over a JSON document held in a String
+ * Reads tokens in place, without building a tree; unescaped strings are
+ * returned as substrings and integers are parsed without an intermediate String.
+ * The API follows android.util.JsonReader, which is not available off Android.
+ *
+ * Usage:
+ *   reader.beginObject();
+ *   while (reader.hasNext()) {
+ *     switch (reader.nextName()) {
+ *       case "id": id = reader.nextInt(); break;
+ *       default: reader.skipValue();
+ *     }
+ *   }
+ *   reader.endObject();
+ */
+public class JsonReader {
+
+  /**
+   * Kind of the next token
+   */
+  public enum Token {
+    BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+  }
+
+  // Scopes on the nesting stack
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_ARRAY = 2;
+  private static final int NONEMPTY_ARRAY = 3;
+  private static final int EMPTY_OBJECT = 4;
+  private static final int DANGLING_NAME = 5;
+  private static final int NONEMPTY_OBJECT = 6;
+
+  private final String in;
+  private final int length;
+  private int pos;
+
+  private int[] stack = new int[16];
+  private int depth = 1;
+
+  // Token found by peek() and not consumed yet; pos is at its first character
+  private Token peeked;
+
+  /**
+   * Constructor
+   *
+   * @param json Complete JSON document
+   */
+  public JsonReader(String json) {
+    this.in = json;
+    this.length = json.length();
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Kind of the next token, without consuming it
+   */
+  public Token peek() throws JsonFormatException {
+    if (peeked == null) {
+      peeked = doPeek();
+    }
+    return peeked;
+  }
+
+  public void beginArray() throws JsonFormatException {
+    expect(Token.BEGIN_ARRAY);
+    pos++;
+    push(EMPTY_ARRAY);
+  }
+
+  public void endArray() throws JsonFormatException {
+    expect(Token.END_ARRAY);
+    pos++;
+    depth--;
+  }
+
+  public void beginObject() throws JsonFormatException {
+    expect(Token.BEGIN_OBJECT);
+    pos++;
+    push(EMPTY_OBJECT);
+  }
+
+  public void endObject() throws JsonFormatException {
+    expect(Token.END_OBJECT);
+    pos++;
+    depth--;
+  }
+
+  /**
+   * Check if the current array or object has another element
+   */
+  public boolean hasNext() throws JsonFormatException {
+    Token token = peek();
+    return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+  }
+
+  public String nextName() throws JsonFormatException {
+    expect(Token.NAME);
+    return readQuoted();
+  }
+
+  /**
+   * Next string value; numbers are returned as their literal text
+   */
+  public String nextString() throws JsonFormatException {
+    Token token = peek();
+    if (token == Token.STRING) {
+      peeked = null;
+      return readQuoted();
+    }
+    if (token == Token.NUMBER) {
+      peeked = null;
+      int start = pos;
+      skipNumber();
+      return in.substring(start, pos);
+    }
+    throw error("Expected a string but was " + token);
+  }
+
+  /**
+   * Next string value, or null for a JSON null
+   */
+  public String nextStringOrNull() throws JsonFormatException {
+    if (peek() == Token.NULL) {
+      nextNull();
+      return null;
+    }
+    return nextString();
+  }
+
+  public int nextInt() throws JsonFormatException {
+    long value = nextLong();
+    if (value != (int) value) {
+      throw error("Expected an int but was " + value);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Next number as a long; quoted numbers are accepted like org.json does
+   */
+  public long nextLong() throws JsonFormatException {
+    Token token = peek();
+    if (token == Token.STRING) {
+      String text = nextString();
+      try {
+        return Long.parseLong(text);
+      } catch (NumberFormatException e) {
+        throw error("Expected a long but was \"" + text + "\"");
+      }
+    }
+    if (token != Token.NUMBER) {
+      throw error("Expected a number but was " + token);
+    }
+    peeked = null;
+
+    // Fast path: plain integer
+    int start = pos;
+    boolean negative = in.charAt(pos) == '-';
+    if (negative) {
+      pos++;
+    }
+    long value = 0;
+    int digits = 0;
+    while (pos < length && digits < 18) {
+      char c = in.charAt(pos);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      value = value * 10 + (c - '0');
+      pos++;
+      digits++;
+    }
+    if (digits > 0 && (pos == length || !isNumberChar(in.charAt(pos)))) {
+      return negative ? -value : value;
+    }
+
+    // Fractions, exponents and very long literals
+    pos = start;
+    skipNumber();
+    String text = in.substring(start, pos);
+    try {
+      double d = Double.parseDouble(text);
+      if (d != Math.rint(d) || Math.abs(d) >= 0x1p63) {
+        throw error("Expected a long but was " + text);
+      }
+      return (long) d;
+    } catch (NumberFormatException e) {
+      throw error("Malformed number " + text);
+    }
+  }
+
+  public double nextDouble() throws JsonFormatException {
+    String text = nextString();
+    try {
+      return Double.parseDouble(text);
+    } catch (NumberFormatException e) {
+      throw error("Expected a double but was " + text);
+    }
+  }
+
+  public boolean nextBoolean() throws JsonFormatException {
+    expect(Token.BOOLEAN);
+    if (in.startsWith("true", pos)) {
+      pos += 4;
+      return true;
+    }
+    pos += 5;
+    return false;
+  }
+
+  public void nextNull() throws JsonFormatException {
+    expect(Token.NULL);
+    pos += 4;
+  }
+
+  /**
+   * Skip the next value, including everything nested in it
+   */
+  public void skipValue() throws JsonFormatException {
+    int nested = 0;
+    do {
+      switch (peek()) {
+        case BEGIN_ARRAY:
+          beginArray();
+          nested++;
+          break;
+        case BEGIN_OBJECT:
+          beginObject();
+          nested++;
+          break;
+        case END_ARRAY:
+          endArray();
+          nested--;
+          break;
+        case END_OBJECT:
+          endObject();
+          nested--;
+          break;
+        case NAME:
+          nextName();
+          break;
+        case STRING:
+        case NUMBER:
+          nextString();
+          break;
+        case BOOLEAN:
+          nextBoolean();
+          break;
+        case NULL:
+          nextNull();
+          break;
+        default:
+          throw error("Unexpected end of document");
+      }
+    } while (nested > 0);
+  }
+
+  /**
+   * Find the next token, consuming the separator before it
+   */
+  private Token doPeek() throws JsonFormatException {
+    int scope = stack[depth - 1];
+    char c;
+    switch (scope) {
+      case EMPTY_ARRAY:
+        stack[depth - 1] = NONEMPTY_ARRAY;
+        if (nextNonWhitespace() == ']') {
+          return Token.END_ARRAY;
+        }
+        break;
+      case NONEMPTY_ARRAY:
+        c = nextNonWhitespace();
+        if (c == ']') {
+          return Token.END_ARRAY;
+        }
+        if (c != ',') {
+          throw error("Expected ',' or ']'");
+        }
+        pos++;
+        break;
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT:
+        c = nextNonWhitespace();
+        if (c == '}') {
+          return Token.END_OBJECT;
+        }
+        if (scope == NONEMPTY_OBJECT) {
+          if (c != ',') {
+            throw error("Expected ',' or '}'");
+          }
+          pos++;
+          c = nextNonWhitespace();
+        }
+        if (c != '"') {
+          throw error("Expected a name");
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        return Token.NAME;
+      case DANGLING_NAME:
+        if (nextNonWhitespace() != ':') {
+          throw error("Expected ':'");
+        }
+        pos++;
+        stack[depth - 1] = NONEMPTY_OBJECT;
+        break;
+      case EMPTY_DOCUMENT:
+        stack[depth - 1] = NONEMPTY_DOCUMENT;
+        break;
+      default:
+        skipWhitespace();
+        if (pos == length) {
+          return Token.END_DOCUMENT;
+        }
+        throw error("Trailing data after the document");
+    }
+
+    c = nextNonWhitespace();
+    switch (c) {
+      case '[':
+        return Token.BEGIN_ARRAY;
+      case '{':
+        return Token.BEGIN_OBJECT;
+      case '"':
+        return Token.STRING;
+      case 't':
+        return literal("true", Token.BOOLEAN);
+      case 'f':
+        return literal("false", Token.BOOLEAN);
+      case 'n':
+        return literal("null", Token.NULL);
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return Token.NUMBER;
+        }
+        throw error("Unexpected character '" + c + "'");
+    }
+  }
+
+  private Token literal(String word, Token token) throws JsonFormatException {
+    if (!in.startsWith(word, pos)) {
+      throw error("Unexpected literal");
+    }
+    return token;
+  }
+
+  /**
+   * Read the quoted string at pos (names and values)
+   */
+  private String readQuoted() throws JsonFormatException {
+    int start = ++pos;
+    while (pos < length) {
+      char c = in.charAt(pos);
+      if (c == '"') {
+        return in.substring(start, pos++);
+      }
+      if (c == '\\') {
+        return readEscaped(start);
+      }
+      pos++;
+    }
+    throw error("Unterminated string");
+  }
+
+  /**
+   * Slow path of readQuoted() for strings with escapes
+   */
+  private String readEscaped(int start) throws JsonFormatException {
+    StringBuilder builder = new StringBuilder(pos - start + 16);
+    builder.append(in, start, pos);
+    while (pos < length) {
+      char c = in.charAt(pos++);
+      if (c == '"') {
+        return builder.toString();
+      }
+      if (c != '\\') {
+        builder.append(c);
+        continue;
+      }
+      if (pos == length) {
+        break;
+      }
+      char escaped = in.charAt(pos++);
+      switch (escaped) {
+        case 'b':
+          builder.append('\b');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'u':
+          if (pos + 4 > length) {
+            throw error("Truncated \\u escape");
+          }
+          int code = 0;
+          for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(in.charAt(pos++), 16);
+            if (digit < 0) {
+              throw error("Malformed \\u escape");
+            }
+            code = (code << 4) | digit;
+          }
+          builder.append((char) code);
+          break;
+        default:
+          // \" \\ \/ and anything else stand for themselves
+          builder.append(escaped);
+          break;
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private void skipNumber() {
+    while (pos < length && isNumberChar(in.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private static boolean isNumberChar(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+  }
+
+  private char nextNonWhitespace() throws JsonFormatException {
+    skipWhitespace();
+    if (pos == length) {
+      throw error("Unexpected end of document");
+    }
+    return in.charAt(pos);
+  }
+
+  private void skipWhitespace() {
+    while (pos < length) {
+      char c = in.charAt(pos);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  /**
+   * Consume the peeked token, which must be of the given kind
+   */
+  private void expect(Token token) throws JsonFormatException {
+    Token actual = peek();
+    if (actual != token) {
+      throw error("Expected " + token + " but was " + actual);
+    }
+    peeked = null;
+  }
+
+  private void push(int scope) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+    stack[depth++] = scope;
+  }
+
+  private JsonFormatException error(String message) {
+    return new JsonFormatException(message + " at offset " + pos);
+  }
+}
@@ -0,0 +1,127 @@
+package com.example.hifzaa4.json;
+
+/**
+ * JsonWriter - Appends compact JSON to a StringBuilder
+ * Commas are inserted automatically; callers are trusted to nest correctly.
+ *
+ * Usage:
+ *   String json = new JsonWriter().beginObject().name("id").value(1).endObject().toString();
+ */
+public class JsonWriter {
+
+  private final StringBuilder out;
+
+  // True when the next name or value is the first in its array or object
+  private boolean first = true;
+
+  public JsonWriter() {
+    this(new StringBuilder());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param out Buffer to append to
+   */
+  public JsonWriter(StringBuilder out) {
+    this.out = out;
+  }
+
+  public JsonWriter beginArray() {
+    separate();
+    out.append('[');
+    first = true;
+    return this;
+  }
+
+  public JsonWriter endArray() {
+    out.append(']');
+    first = false;
+    return this;
+  }
+
+  public JsonWriter beginObject() {
+    separate();
+    out.append('{');
+    first = true;
+    return this;
+  }
+
+  public JsonWriter endObject() {
+    out.append('}');
+    first = false;
+    return this;
+  }
+
+  public JsonWriter name(String name) {
+    separate();
+    quote(name);
+    out.append(':');
+    first = true; // The value follows without a comma
+    return this;
+  }
+
+  public JsonWriter value(String value) {
+    separate();
+    if (value == null) {
+      out.append("null");
+    } else {
+      quote(value);
+    }
+    first = false;
+    return this;
+  }
+
+  public JsonWriter value(long value) {
+    separate();
+    out.append(value);
+    first = false;
+    return this;
+  }
+
+  public JsonWriter value(boolean value) {
+    separate();
+    out.append(value);
+    first = false;
+    return this;
+  }
+
+  private void separate() {
+    if (!first) {
+      out.append(',');
+    }
+  }
+
+  private void quote(String value) {
+    out.append('"');
+    int length = value.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      String escaped;
+      if (c == '"') {
+        escaped = "\\\"";
+      } else if (c == '\\') {
+        escaped = "\\\\";
+      } else if (c == '\n') {
+        escaped = "\\n";
+      } else if (c == '\r') {
+        escaped = "\\r";
+      } else if (c == '\t') {
+        escaped = "\\t";
+      } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+        escaped = String.format("\\u%04x", (int) c);
+      } else {
+        continue;
+      }
+      out.append(value, start, i).append(escaped);
+      start = i + 1;
+    }
+    out.append(value, start, length).append('"');
+  }
+
+  @Override
+  public String toString() {
+    return out.toString();
+  }
+}
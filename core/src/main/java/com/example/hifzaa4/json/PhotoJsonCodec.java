@@ -0,0 +1,82 @@
+package com.example.hifzaa4.json;
+
+import com.example.hifzaa4.models.Photo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PhotoJsonCodec - Photos from the API's JSON
+ * {"albumId": 1, "id": 1, "title": "...", "url": "...", "thumbnailUrl": "..."}
+ * Unknown fields are skipped; id, albumId and thumbnailUrl are required.
+ */
+public final class PhotoJsonCodec {
+
+  private PhotoJsonCodec() {
+  }
+
+  /**
+   * Decode a JSON array of photos
+   *
+   * @param json Response body
+   * @return Photos in array order
+   * @throws JsonFormatException If the JSON is malformed or a photo is incomplete
+   */
+  public static List<Photo> decodeList(String json) throws JsonFormatException {
+    JsonReader reader = new JsonReader(json);
+    List<Photo> photos = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      photos.add(read(reader));
+    }
+    reader.endArray();
+    reader.peek(); // Nothing may follow the array
+    return photos;
+  }
+
+  /**
+   * Read one photo object
+   */
+  public static Photo read(JsonReader reader) throws JsonFormatException {
+    int id = 0;
+    int albumId = 0;
+    String title = null;
+    String url = null;
+    String thumbnailUrl = null;
+    int seen = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextInt();
+          seen |= 1;
+          break;
+        case "albumId":
+          albumId = reader.nextInt();
+          seen |= 2;
+          break;
+        case "title":
+          title = reader.nextStringOrNull();
+          break;
+        case "url":
+          url = reader.nextStringOrNull();
+          break;
+        case "thumbnailUrl":
+          thumbnailUrl = reader.nextString();
+          seen |= 4;
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (seen != 7) {
+      throw new JsonFormatException("No value for " + ((seen & 1) == 0 ? "id"
+          : (seen & 2) == 0 ? "albumId" : "thumbnailUrl"));
+    }
+    return new Photo(id, albumId, title, url, thumbnailUrl);
+  }
+}
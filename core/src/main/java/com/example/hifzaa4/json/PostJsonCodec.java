@@ -0,0 +1,131 @@
+package com.example.hifzaa4.json;
+
+import com.example.hifzaa4.models.Post;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostJsonCodec - Posts to and from the API's JSON
+ * {"userId": 1, "id": 1, "title": "...", "body": "..."}
+ * Unknown fields are skipped; id, userId, title and body are required.
+ * Decoded posts are not favorites (that flag is local only).
+ */
+public final class PostJsonCodec {
+
+  private PostJsonCodec() {
+  }
+
+  /**
+   * Decode a JSON array of posts
+   *
+   * @param json Response body
+   * @return Posts in array order
+   * @throws JsonFormatException If the JSON is malformed or a post is incomplete
+   */
+  public static List<Post> decodeList(String json) throws JsonFormatException {
+    JsonReader reader = new JsonReader(json);
+    List<Post> posts = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      posts.add(read(reader));
+    }
+    reader.endArray();
+    reader.peek(); // Nothing may follow the array
+    return posts;
+  }
+
+  /**
+   * Decode a single JSON post
+   *
+   * @param json Response body
+   * @return Post
+   * @throws JsonFormatException If the JSON is malformed or the post is incomplete
+   */
+  public static Post decode(String json) throws JsonFormatException {
+    JsonReader reader = new JsonReader(json);
+    Post post = read(reader);
+    reader.peek();
+    return post;
+  }
+
+  /**
+   * Read one post object
+   */
+  public static Post read(JsonReader reader) throws JsonFormatException {
+    int id = 0;
+    int userId = 0;
+    String title = null;
+    String body = null;
+    int seen = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextInt();
+          seen |= 1;
+          break;
+        case "userId":
+          userId = reader.nextInt();
+          seen |= 2;
+          break;
+        case "title":
+          title = reader.nextStringOrNull();
+          seen |= 4;
+          break;
+        case "body":
+          body = reader.nextStringOrNull();
+          seen |= 8;
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (seen != 15) {
+      throw new JsonFormatException("No value for " + ((seen & 1) == 0 ? "id"
+          : (seen & 2) == 0 ? "userId" : (seen & 4) == 0 ? "title" : "body"));
+    }
+    return new Post(id, userId, title, body, false);
+  }
+
+  /**
+   * Encode a post the way the API expects it
+   *
+   * @param post Post
+   * @return JSON object
+   */
+  public static String encode(Post post) {
+    return write(new JsonWriter(), post).toString();
+  }
+
+  /**
+   * Encode posts as a JSON array
+   *
+   * @param posts Posts
+   * @return JSON array
+   */
+  public static String encodeList(List<Post> posts) {
+    JsonWriter writer = new JsonWriter(new StringBuilder(posts.size() * 256));
+    writer.beginArray();
+    for (Post post : posts) {
+      write(writer, post);
+    }
+    return writer.endArray().toString();
+  }
+
+  /**
+   * Write one post object
+   */
+  public static JsonWriter write(JsonWriter writer, Post post) {
+    return writer.beginObject()
+        .name("id").value(post.getId())
+        .name("userId").value(post.getUserId())
+        .name("title").value(post.getTitle())
+        .name("body").value(post.getBody())
+        .endObject();
+  }
+}
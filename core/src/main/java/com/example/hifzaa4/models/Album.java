@@ -0,0 +1,42 @@
+package com.example.hifzaa4.models;
+
+/**
+ * Album - A user's photo album from the API (/albums)
+ */
+public class Album {
+
+  // Fields matching JSONPlaceholder API structure
+  private final int id;
+  private final int userId;
+  private final String title;
+
+  /**
+   * Full constructor
+   */
+  public Album(int id, int userId, String title) {
+    this.id = id;
+    this.userId = userId;
+    this.title = title;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public int getUserId() {
+    return userId;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  @Override
+  public String toString() {
+    return "Album{" +
+        "id=" + id +
+        ", userId=" + userId +
+        ", title='" + title + '\'' +
+        '}';
+  }
+}
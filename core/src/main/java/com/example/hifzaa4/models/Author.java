@@ -0,0 +1,50 @@
+package com.example.hifzaa4.models;
+
+/**
+ * Author - A user of the API (/users), shown as the author of posts
+ * Not to be confused with the accounts of the local login, which live in
+ * their own table and never come from the API.
+ */
+public class Author {
+
+  // Fields of JSONPlaceholder's users the app shows
+  private final int id;
+  private final String name;
+  private final String username;
+  private final String email;
+
+  /**
+   * Full constructor
+   */
+  public Author(int id, String name, String username, String email) {
+    this.id = id;
+    this.name = name;
+    this.username = username;
+    this.email = email;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  @Override
+  public String toString() {
+    return "Author{" +
+        "id=" + id +
+        ", name='" + name + '\'' +
+        ", username='" + username + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,77 @@
+package com.example.hifzaa4.models;
+
+import java.util.Objects;
+
+/**
+ * Comment - Data model for API comments
+ * Comments belong to a post and are read-only in the app, so they are
+ * immutable and compared by value (to tell whether a refresh changed them).
+ */
+public class Comment {
+
+  // Fields matching JSONPlaceholder API structure
+  private final int id;
+  private final int postId;
+  private final String name;
+  private final String email;
+  private final String body;
+
+  /**
+   * Full constructor
+   */
+  public Comment(int id, int postId, String name, String email, String body) {
+    this.id = id;
+    this.postId = postId;
+    this.name = name;
+    this.email = email;
+    this.body = body;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public int getPostId() {
+    return postId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Comment)) {
+      return false;
+    }
+    Comment other = (Comment) o;
+    return id == other.id && postId == other.postId && Objects.equals(name, other.name)
+        && Objects.equals(email, other.email) && Objects.equals(body, other.body);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, postId, name, email, body);
+  }
+
+  @Override
+  public String toString() {
+    return "Comment{" +
+        "id=" + id +
+        ", postId=" + postId +
+        ", name='" + name + '\'' +
+        ", email='" + email + '\'' +
+        '}';
+  }
+}
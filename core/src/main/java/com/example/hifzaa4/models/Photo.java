@@ -0,0 +1,61 @@
+package com.example.hifzaa4.models;
+
+/**
+ * Photo - A photo of an album from the API (/photos)
+ * The image itself is not part of the record: url and thumbnailUrl point at it.
+ */
+public class Photo {
+
+  // Fields matching JSONPlaceholder API structure
+  private final int id;
+  private final int albumId;
+  private final String title;
+  private final String url;
+  private final String thumbnailUrl;
+
+  /**
+   * Full constructor
+   */
+  public Photo(int id, int albumId, String title, String url, String thumbnailUrl) {
+    this.id = id;
+    this.albumId = albumId;
+    this.title = title;
+    this.url = url;
+    this.thumbnailUrl = thumbnailUrl;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public int getAlbumId() {
+    return albumId;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Full-size image (600x600 on the real API)
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Small image (150x150 on the real API)
+   */
+  public String getThumbnailUrl() {
+    return thumbnailUrl;
+  }
+
+  @Override
+  public String toString() {
+    return "Photo{" +
+        "id=" + id +
+        ", albumId=" + albumId +
+        ", title='" + title + '\'' +
+        '}';
+  }
+}
@@ -1,13 +1,14 @@
 package com.example.hifzaa4.models;
 
-import android.os.Parcel;
-import android.os.Parcelable;
-
 /**
  * Post - Data model for API posts
- * Implements Parcelable for passing between activities via Intent
+ * Plain Java so it can be used (and benchmarked) off Android; screens pass
+ * posts to each other by ID (PostStore.EXTRA_POST_ID), not as parcels.
  */
-public class Post implements Parcelable {
+public class Post {
+
+  // Length of the body preview shown in the list
+  public static final int SNIPPET_LENGTH = 160;
 
   // Fields matching JSONPlaceholder API structure
   private int id;
@@ -18,6 +19,9 @@ public class Post implements Parcelable {
   // Additional local fields
   private boolean isFavorite;
 
+  // List preview of the body; list queries load only this and leave body null
+  private String bodySnippet;
+
   /**
    * Default constructor
    */
@@ -45,41 +49,6 @@ public class Post implements Parcelable {
     this.isFavorite = false;
   }
 
-  // Parcelable implementation
-  protected Post(Parcel in) {
-    id = in.readInt();
-    userId = in.readInt();
-    title = in.readString();
-    body = in.readString();
-    isFavorite = in.readByte() != 0;
-  }
-
-  public static final Creator<Post> CREATOR = new Creator<Post>() {
-    @Override
-    public Post createFromParcel(Parcel in) {
-      return new Post(in);
-    }
-
-    @Override
-    public Post[] newArray(int size) {
-      return new Post[size];
-    }
-  };
-
-  @Override
-  public int describeContents() {
-    return 0;
-  }
-
-  @Override
-  public void writeToParcel(Parcel dest, int flags) {
-    dest.writeInt(id);
-    dest.writeInt(userId);
-    dest.writeString(title);
-    dest.writeString(body);
-    dest.writeByte((byte) (isFavorite ? 1 : 0));
-  }
-
   // Getters and Setters
   public int getId() {
     return id;
@@ -111,6 +80,42 @@ public class Post implements Parcelable {
 
   public void setBody(String body) {
     this.body = body;
+    this.bodySnippet = null;
+  }
+
+  /**
+   * Check if the full body is loaded (list queries only load the snippet)
+   */
+  public boolean isBodyLoaded() {
+    return body != null;
+  }
+
+  /**
+   * Get the body preview for the list
+   */
+  public String getBodySnippet() {
+    return bodySnippet != null ? bodySnippet : makeSnippet(body);
+  }
+
+  public void setBodySnippet(String bodySnippet) {
+    this.bodySnippet = bodySnippet;
+  }
+
+  /**
+   * Build the list preview of a body
+   * 
+   * @param body Full body
+   * @return First SNIPPET_LENGTH characters of the body
+   */
+  public static String makeSnippet(String body) {
+    if (body == null || body.length() <= SNIPPET_LENGTH) {
+      return body;
+    }
+    int end = SNIPPET_LENGTH;
+    if (Character.isHighSurrogate(body.charAt(end - 1))) {
+      end--; // Don't split a surrogate pair
+    }
+    return body.substring(0, end);
   }
 
   public boolean isFavorite() {
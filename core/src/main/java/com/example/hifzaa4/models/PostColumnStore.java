@@ -0,0 +1,462 @@
+package com.example.hifzaa4.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PostColumnStore - Column-oriented list of posts
+ * Keeps ids and user ids in int arrays, favorites in a packed bitset and
+ * titles/body snippets as UTF-8 ranges of shared byte buffers, so a large list
+ * costs a handful of arrays instead of one Post plus two Strings per row.
+ * Text is decoded only when a row is read.
+ *
+ * The body column holds the list preview (Post.getBodySnippet()), like the list query.
+ */
+public class PostColumnStore {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int size;
+  private int[] ids;
+  private int[] userIds;
+  private long[] favorites;
+  private final TextColumn titles;
+  private final TextColumn snippets;
+
+  /**
+   * Constructor
+   */
+  public PostColumnStore() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param capacity Expected number of rows
+   */
+  public PostColumnStore(int capacity) {
+    capacity = Math.max(capacity, 1);
+    ids = new int[capacity];
+    userIds = new int[capacity];
+    favorites = new long[(capacity + 63) >>> 6];
+    titles = new TextColumn(capacity);
+    snippets = new TextColumn(capacity);
+  }
+
+  /**
+   * Build a store from posts
+   *
+   * @param posts Posts in display order
+   * @return Store with one row per post
+   */
+  public static PostColumnStore of(List<Post> posts) {
+    PostColumnStore store = new PostColumnStore(posts.size());
+    for (Post post : posts) {
+      store.add(post);
+    }
+    return store;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Append a post
+   *
+   * @param post Post to append
+   */
+  public void add(Post post) {
+    add(post.getId(), post.getUserId(), post.getTitle(), post.getBodySnippet(), post.isFavorite());
+  }
+
+  /**
+   * Append a row
+   *
+   * @param id          Post ID
+   * @param userId      User ID
+   * @param title       Title
+   * @param bodySnippet Body preview
+   * @param isFavorite  Favorite status
+   */
+  public void add(int id, int userId, String title, String bodySnippet, boolean isFavorite) {
+    ensureCapacity(size + 1);
+    int row = size++;
+    ids[row] = id;
+    userIds[row] = userId;
+    putFavoriteBit(row, isFavorite);
+    titles.set(row, title);
+    snippets.set(row, bodySnippet);
+  }
+
+  /**
+   * Replace a row with a post
+   *
+   * @param row  Row index
+   * @param post New data
+   */
+  public void set(int row, Post post) {
+    checkIndex(row);
+    ids[row] = post.getId();
+    userIds[row] = post.getUserId();
+    putFavoriteBit(row, post.isFavorite());
+    titles.set(row, post.getTitle());
+    snippets.set(row, post.getBodySnippet());
+  }
+
+  /**
+   * Remove a row, shifting later rows up
+   *
+   * @param row Row index
+   */
+  public void remove(int row) {
+    checkIndex(row);
+    int tail = size - row - 1;
+    System.arraycopy(ids, row + 1, ids, row, tail);
+    System.arraycopy(userIds, row + 1, userIds, row, tail);
+    for (int i = row; i < size - 1; i++) {
+      putFavoriteBit(i, favoriteBit(i + 1));
+    }
+    titles.remove(row, size);
+    snippets.remove(row, size);
+    size--;
+    putFavoriteBit(size, false);
+  }
+
+  public int getId(int row) {
+    checkIndex(row);
+    return ids[row];
+  }
+
+  public int getUserId(int row) {
+    checkIndex(row);
+    return userIds[row];
+  }
+
+  public boolean isFavorite(int row) {
+    checkIndex(row);
+    return favoriteBit(row);
+  }
+
+  public void setFavorite(int row, boolean isFavorite) {
+    checkIndex(row);
+    putFavoriteBit(row, isFavorite);
+  }
+
+  public String getTitle(int row) {
+    checkIndex(row);
+    return titles.get(row);
+  }
+
+  public String getBodySnippet(int row) {
+    checkIndex(row);
+    return snippets.get(row);
+  }
+
+  /**
+   * Release spare capacity and reclaim space left by edited or removed text
+   * Call once a bulk load is finished
+   */
+  public void trimToSize() {
+    int capacity = Math.max(size, 1);
+    ids = Arrays.copyOf(ids, capacity);
+    userIds = Arrays.copyOf(userIds, capacity);
+    favorites = Arrays.copyOf(favorites, (capacity + 63) >>> 6);
+    titles.trim(capacity);
+    snippets.trim(capacity);
+  }
+
+  /**
+   * Find the row of a post
+   *
+   * @param postId Post ID
+   * @return Row index, or -1 if not found
+   */
+  public int indexOf(int postId) {
+    for (int i = 0; i < size; i++) {
+      if (ids[i] == postId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check if a row holds the same data as a row of another store
+   * Compares the stored UTF-8 bytes, so no text is decoded
+   *
+   * @param row      Row index in this store
+   * @param other    Other store
+   * @param otherRow Row index in the other store
+   * @return true if id, user, favorite, title and snippet are equal
+   */
+  public boolean sameRow(int row, PostColumnStore other, int otherRow) {
+    checkIndex(row);
+    other.checkIndex(otherRow);
+    return ids[row] == other.ids[otherRow]
+        && userIds[row] == other.userIds[otherRow]
+        && favoriteBit(row) == other.favoriteBit(otherRow)
+        && titles.sameText(row, other.titles, otherRow)
+        && snippets.sameText(row, other.snippets, otherRow);
+  }
+
+  /**
+   * Materialize a row as a list Post (body not loaded, snippet set)
+   *
+   * @param row Row index
+   * @return New Post for the row
+   */
+  public Post toPost(int row) {
+    Post post = new Post(getId(row), userIds[row], titles.get(row), null, favoriteBit(row));
+    post.setBodySnippet(snippets.get(row));
+    return post;
+  }
+
+  /**
+   * Materialize a range of rows
+   *
+   * @param from First row (inclusive)
+   * @param to   Last row (exclusive), clamped to the size
+   * @return New Posts for the rows
+   */
+  public List<Post> toPosts(int from, int to) {
+    to = Math.min(to, size);
+    List<Post> posts = new ArrayList<>(Math.max(to - from, 0));
+    for (int i = from; i < to; i++) {
+      posts.add(toPost(i));
+    }
+    return posts;
+  }
+
+  /**
+   * Get a view of one row
+   * The view reads straight from the columns; move it with Row.moveTo() to reuse it
+   *
+   * @param row Row index
+   * @return Row view
+   */
+  public Row row(int row) {
+    checkIndex(row);
+    return new Row(row);
+  }
+
+  private boolean favoriteBit(int row) {
+    return (favorites[row >>> 6] & (1L << row)) != 0;
+  }
+
+  private void putFavoriteBit(int row, boolean isFavorite) {
+    if (isFavorite) {
+      favorites[row >>> 6] |= 1L << row;
+    } else {
+      favorites[row >>> 6] &= ~(1L << row);
+    }
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity <= ids.length) {
+      return;
+    }
+    int capacity = Math.max(minCapacity, ids.length + (ids.length >> 1));
+    ids = Arrays.copyOf(ids, capacity);
+    userIds = Arrays.copyOf(userIds, capacity);
+    favorites = Arrays.copyOf(favorites, (capacity + 63) >>> 6);
+    titles.growRows(capacity);
+    snippets.growRows(capacity);
+  }
+
+  private void checkIndex(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+    }
+  }
+
+  /**
+   * Lightweight view of one row
+   */
+  public class Row {
+
+    private int row;
+
+    Row(int row) {
+      this.row = row;
+    }
+
+    /**
+     * Point this view at another row
+     */
+    public Row moveTo(int row) {
+      checkIndex(row);
+      this.row = row;
+      return this;
+    }
+
+    public int getIndex() {
+      return row;
+    }
+
+    public int getId() {
+      return ids[row];
+    }
+
+    public int getUserId() {
+      return userIds[row];
+    }
+
+    public boolean isFavorite() {
+      return favoriteBit(row);
+    }
+
+    public String getTitle() {
+      return titles.get(row);
+    }
+
+    public String getBodySnippet() {
+      return snippets.get(row);
+    }
+
+    public Post toPost() {
+      return PostColumnStore.this.toPost(row);
+    }
+  }
+
+  /**
+   * UTF-8 text column: each row is a (start, length) range of one shared buffer
+   * Replaced and removed text leaves a hole that is reclaimed when the buffer has to grow
+   * The buffer starts small and grows by half as text is added, so a large
+   * expected row count does not reserve the text of every row up front
+   */
+  private static class TextColumn {
+
+    private static final int NULL_LENGTH = -1;
+
+    // Initial buffer: a few bytes per expected row, capped
+    private static final int INITIAL_BYTES_PER_ROW = 8;
+    private static final int MAX_INITIAL_BYTES = 64 * 1024;
+
+    private byte[] bytes;
+    private int used;
+    private int garbage;
+    private int[] starts;
+    private int[] lengths;
+
+    TextColumn(int rows) {
+      bytes = new byte[(int) Math.min(MAX_INITIAL_BYTES, (long) rows * INITIAL_BYTES_PER_ROW)];
+      starts = new int[rows];
+      lengths = new int[rows];
+    }
+
+    void growRows(int rows) {
+      starts = Arrays.copyOf(starts, rows);
+      lengths = Arrays.copyOf(lengths, rows);
+    }
+
+    void trim(int rows) {
+      growRows(rows);
+      if (garbage > 0) {
+        compact(-1);
+      }
+      if (used < bytes.length) {
+        bytes = Arrays.copyOf(bytes, used);
+      }
+    }
+
+    String get(int row) {
+      int length = lengths[row];
+      if (length == NULL_LENGTH) {
+        return null;
+      }
+      return new String(bytes, starts[row], length, StandardCharsets.UTF_8);
+    }
+
+    boolean sameText(int row, TextColumn other, int otherRow) {
+      int length = lengths[row];
+      if (length != other.lengths[otherRow]) {
+        return false;
+      }
+      int start = starts[row];
+      int otherStart = other.starts[otherRow];
+      for (int i = 0; i < length; i++) {
+        if (bytes[start + i] != other.bytes[otherStart + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Store text for a row; the row's previous text (if any) becomes garbage
+     * Rows past the current size have no previous text
+     */
+    void set(int row, String value) {
+      if (lengths[row] > 0) {
+        garbage += lengths[row];
+      }
+      if (value == null) {
+        starts[row] = 0;
+        lengths[row] = NULL_LENGTH;
+        return;
+      }
+
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      reserve(utf8.length, row);
+      System.arraycopy(utf8, 0, bytes, used, utf8.length);
+      starts[row] = used;
+      lengths[row] = utf8.length;
+      used += utf8.length;
+    }
+
+    void remove(int row, int size) {
+      if (lengths[row] > 0) {
+        garbage += lengths[row];
+      }
+      System.arraycopy(starts, row + 1, starts, row, size - row - 1);
+      System.arraycopy(lengths, row + 1, lengths, row, size - row - 1);
+      lengths[size - 1] = 0;
+    }
+
+    /**
+     * Make room for extra bytes, compacting first if that frees enough
+     * The row being written is excluded from compaction
+     */
+    private void reserve(int extra, int writingRow) {
+      if (used + extra <= bytes.length) {
+        return;
+      }
+      if (garbage >= extra && garbage >= used / 2) {
+        compact(writingRow);
+        if (used + extra <= bytes.length) {
+          return;
+        }
+      }
+      long capacity = Math.max((long) used + extra, (long) bytes.length + (bytes.length >> 1) + 16);
+      bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, capacity));
+    }
+
+    private void compact(int writingRow) {
+      byte[] compacted = new byte[bytes.length];
+      int position = 0;
+      for (int row = 0; row < lengths.length; row++) {
+        int length = lengths[row];
+        if (row == writingRow || length <= 0) {
+          if (row == writingRow) {
+            lengths[row] = 0;
+          }
+          continue;
+        }
+        System.arraycopy(bytes, starts[row], compacted, position, length);
+        starts[row] = position;
+        position += length;
+      }
+      bytes = compacted;
+      used = position;
+      garbage = 0;
+    }
+  }
+}
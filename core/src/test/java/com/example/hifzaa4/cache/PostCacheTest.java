@@ -0,0 +1,102 @@
+package com.example.hifzaa4.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.example.hifzaa4.models.Post;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * PostCache eviction order and summary handling
+ */
+public class PostCacheTest {
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    PostCache cache = new PostCache(3);
+    cache.put(post(1));
+    cache.put(post(2));
+    cache.put(post(3));
+    cache.get(1);
+    cache.put(post(4));
+
+    assertEquals(3, cache.size());
+    assertNull(cache.get(2));
+    assertEquals(1, cache.get(1).getId());
+    assertEquals(3, cache.get(3).getId());
+    assertEquals(4, cache.get(4).getId());
+  }
+
+  @Test
+  public void summaryDoesNotReplaceFullPost() {
+    PostCache cache = new PostCache(10);
+    Post full = post(1);
+    cache.put(full);
+
+    Post summary = new Post(1, 1, "Title 1", null, false);
+    summary.setBodySnippet("Body");
+    Post other = new Post(2, 1, "Title 2", null, false);
+    cache.putAll(Arrays.asList(summary, other));
+
+    assertSame(full, cache.get(1));
+    assertSame(other, cache.get(2));
+  }
+
+  @Test
+  public void removeAndClear() {
+    PostCache cache = new PostCache(4);
+    cache.put(post(1));
+    cache.put(post(-2));
+    assertEquals(-2, cache.remove(-2).getId());
+    assertNull(cache.remove(-2));
+    assertEquals(1, cache.size());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertNull(cache.get(1));
+    cache.put(post(5));
+    assertEquals(5, cache.get(5).getId());
+  }
+
+  @Test
+  public void matchesLinkedHashMapUnderRandomOperations() {
+    int maxSize = 64;
+    PostCache cache = new PostCache(maxSize);
+    Map<Integer, Post> reference = new LinkedHashMap<Integer, Post>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Post> eldest) {
+        return size() > maxSize;
+      }
+    };
+
+    Random random = new Random(7);
+    for (int i = 0; i < 100_000; i++) {
+      int id = random.nextInt(200) - 50;
+      switch (random.nextInt(3)) {
+        case 0:
+          Post post = post(id);
+          cache.put(post);
+          reference.put(id, post);
+          break;
+        case 1:
+          assertSame(reference.get(id), cache.get(id));
+          break;
+        default:
+          assertSame(reference.remove(id), cache.remove(id));
+          break;
+      }
+      assertEquals(reference.size(), cache.size());
+    }
+  }
+
+  private static Post post(int id) {
+    return new Post(id, 1, "Title " + id, "Body " + id, false);
+  }
+}
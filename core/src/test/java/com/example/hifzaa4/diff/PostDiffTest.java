@@ -0,0 +1,124 @@
+package com.example.hifzaa4.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.hifzaa4.models.PostColumnStore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PostDiff: updates must turn the old list into the new one
+ */
+public class PostDiffTest {
+
+  @Test
+  public void identicalListsHaveNoUpdates() {
+    PostDiff diff = PostDiff.compute(store(1, 2, 3), store(1, 2, 3));
+    assertNotNull(diff);
+    assertTrue(diff.isEmpty());
+  }
+
+  @Test
+  public void adjacentChangesAreBatched() {
+    PostColumnStore oldList = store(1, 2, 3, 4, 5, 6);
+    PostColumnStore newList = store(1, 4, 5, 6, 7, 8);
+    newList.setFavorite(2, true); // id 5
+
+    PostDiff diff = PostDiff.compute(oldList, newList);
+
+    assertEquals(2, diff.getRemoved());
+    assertEquals(2, diff.getInserted());
+    assertEquals(1, diff.getChanged());
+    assertEquals(3, diff.getUpdateCount());
+    assertEquals("[remove 1+2, change 2+1, insert 4+2]", replay(oldList, newList, diff));
+  }
+
+  @Test
+  public void editsInsertsAndRemovesReplayToTheNewList() {
+    PostColumnStore oldList = new PostColumnStore();
+    PostColumnStore newList = new PostColumnStore();
+    for (int id = 1; id <= 1000; id++) {
+      if (id % 7 != 0) {
+        oldList.add(id, 1, "Title " + id, "Body " + id, false);
+      }
+      if (id % 11 != 0) {
+        newList.add(id, 1, id % 13 == 0 ? "Edited " + id : "Title " + id, "Body " + id, false);
+      }
+    }
+    newList.add(-1, 1, "Local", null, false);
+
+    PostDiff diff = PostDiff.compute(oldList, newList);
+
+    assertNotNull(diff);
+    replay(oldList, newList, diff);
+  }
+
+  @Test
+  public void movedRowsAreNotDiffed() {
+    assertNull(PostDiff.compute(store(1, 2, 3), store(1, 3, 2)));
+    assertNull(PostDiff.compute(store(1, 2), store(1, 2, 2)));
+  }
+
+  /**
+   * Apply the updates to a list of old IDs and check it ends up as the new list
+   */
+  private static String replay(PostColumnStore oldList, PostColumnStore newList, PostDiff diff) {
+    List<Integer> rows = new ArrayList<>();
+    for (int i = 0; i < oldList.size(); i++) {
+      rows.add(oldList.getId(i));
+    }
+    Set<Integer> changed = new HashSet<>();
+    List<String> log = new ArrayList<>();
+    diff.dispatchTo(new PostDiff.Callback() {
+      @Override
+      public void onInserted(int position, int count) {
+        for (int i = 0; i < count; i++) {
+          rows.add(position + i, newList.getId(position + i));
+        }
+        log.add("insert " + position + "+" + count);
+      }
+
+      @Override
+      public void onRemoved(int position, int count) {
+        rows.subList(position, position + count).clear();
+        log.add("remove " + position + "+" + count);
+      }
+
+      @Override
+      public void onChanged(int position, int count) {
+        for (int i = 0; i < count; i++) {
+          assertEquals(newList.getId(position + i), (int) rows.get(position + i));
+          changed.add(rows.get(position + i));
+        }
+        log.add("change " + position + "+" + count);
+      }
+    });
+
+    assertEquals(newList.size(), rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      assertEquals(newList.getId(i), (int) rows.get(i));
+      // Rows kept from the old list are reported as changed exactly when their data differs
+      int oldRow = oldList.indexOf(rows.get(i));
+      if (oldRow != -1) {
+        assertEquals(!oldList.sameRow(oldRow, newList, i), changed.contains(rows.get(i)));
+      }
+    }
+    return log.toString();
+  }
+
+  private static PostColumnStore store(int... ids) {
+    PostColumnStore store = new PostColumnStore();
+    for (int id : ids) {
+      store.add(id, 1, "Title " + id, "Body " + id, false);
+    }
+    return store;
+  }
+}
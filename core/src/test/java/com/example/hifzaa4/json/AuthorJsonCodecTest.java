@@ -0,0 +1,54 @@
+package com.example.hifzaa4.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.hifzaa4.models.Author;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * AuthorJsonCodec
+ */
+public class AuthorJsonCodecTest {
+
+  @Test
+  public void keepsTheFieldsShownAndSkipsNestedObjects() throws Exception {
+    String json = "[\n" +
+        "  {\n" +
+        "    \"id\": 1,\n" +
+        "    \"name\": \"Leanne Graham\",\n" +
+        "    \"username\": \"Bret\",\n" +
+        "    \"email\": \"Sincere@april.biz\",\n" +
+        "    \"address\": {\"street\": \"Kulas Light\", \"geo\": {\"lat\": \"-37.3159\", \"lng\": \"81.1496\"}},\n" +
+        "    \"phone\": \"1-770-736-8031 x56442\",\n" +
+        "    \"company\": {\"name\": \"Romaguera-Crona\"}\n" +
+        "  },\n" +
+        "  {\"id\": 2, \"name\": \"Ervin Howell\"}\n" +
+        "]";
+
+    List<Author> authors = AuthorJsonCodec.decodeList(json);
+
+    assertEquals(2, authors.size());
+    assertEquals(1, authors.get(0).getId());
+    assertEquals("Leanne Graham", authors.get(0).getName());
+    assertEquals("Bret", authors.get(0).getUsername());
+    assertEquals("Sincere@april.biz", authors.get(0).getEmail());
+    assertEquals("Ervin Howell", authors.get(1).getName());
+    assertNull(authors.get(1).getUsername());
+  }
+
+  @Test
+  public void rejectsUsersWithoutName() {
+    try {
+      AuthorJsonCodec.decodeList("[{\"id\": 3, \"username\": \"Samantha\"}]");
+      fail("Expected a JsonFormatException");
+    } catch (JsonFormatException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("name"));
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.hifzaa4.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.hifzaa4.models.Comment;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * CommentJsonCodec
+ */
+public class CommentJsonCodecTest {
+
+  @Test
+  public void decodesApiResponse() throws Exception {
+    String json = "[\n" +
+        "  {\n" +
+        "    \"postId\": 1,\n" +
+        "    \"id\": 1,\n" +
+        "    \"name\": \"id labore ex et quam laborum\",\n" +
+        "    \"email\": \"Eliseo@gardner.biz\",\n" +
+        "    \"body\": \"laudantium enim quasi\\nest quidem magnam\"\n" +
+        "  },\n" +
+        "  {\"postId\": 1, \"id\": 2, \"name\": null, \"body\": \"est natus\", \"likes\": [1, 2]}\n" +
+        "]";
+
+    List<Comment> comments = CommentJsonCodec.decodeList(json);
+
+    assertEquals(2, comments.size());
+    assertEquals(new Comment(1, 1, "id labore ex et quam laborum", "Eliseo@gardner.biz",
+        "laudantium enim quasi\nest quidem magnam"), comments.get(0));
+    assertEquals(2, comments.get(1).getId());
+    assertNull(comments.get(1).getName());
+    assertNull(comments.get(1).getEmail());
+    assertEquals("est natus", comments.get(1).getBody());
+  }
+
+  @Test
+  public void rejectsIncompleteComments() {
+    try {
+      CommentJsonCodec.decodeList("[{\"id\": 1, \"body\": \"no post\"}]");
+      fail("Expected a JsonFormatException");
+    } catch (JsonFormatException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("postId"));
+    }
+  }
+
+  @Test
+  public void comparesByValue() {
+    Comment comment = new Comment(3, 1, "name", "a@b.c", "body");
+    assertEquals(comment, new Comment(3, 1, "name", "a@b.c", "body"));
+    assertEquals(comment.hashCode(), new Comment(3, 1, "name", "a@b.c", "body").hashCode());
+    assertNotEquals(comment, new Comment(3, 1, "name", "a@b.c", "edited"));
+  }
+}
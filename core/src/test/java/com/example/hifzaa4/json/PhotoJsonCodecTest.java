@@ -0,0 +1,54 @@
+package com.example.hifzaa4.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.hifzaa4.models.Album;
+import com.example.hifzaa4.models.Photo;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * PhotoJsonCodec and AlbumJsonCodec
+ */
+public class PhotoJsonCodecTest {
+
+  @Test
+  public void decodesPhotosWithTheirImageUrls() throws Exception {
+    String json = "[{\"albumId\": 1, \"id\": 1, \"title\": \"accusamus beatae\"," +
+        " \"url\": \"https://via.placeholder.com/600/92c952\"," +
+        " \"thumbnailUrl\": \"https://via.placeholder.com/150/92c952\"}]";
+
+    List<Photo> photos = PhotoJsonCodec.decodeList(json);
+
+    assertEquals(1, photos.size());
+    assertEquals(1, photos.get(0).getAlbumId());
+    assertEquals("accusamus beatae", photos.get(0).getTitle());
+    assertEquals("https://via.placeholder.com/600/92c952", photos.get(0).getUrl());
+    assertEquals("https://via.placeholder.com/150/92c952", photos.get(0).getThumbnailUrl());
+  }
+
+  @Test
+  public void rejectsPhotosWithoutThumbnail() {
+    try {
+      PhotoJsonCodec.decodeList("[{\"albumId\": 1, \"id\": 2, \"url\": \"https://example.com/a\"}]");
+      fail("Expected a JsonFormatException");
+    } catch (JsonFormatException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("thumbnailUrl"));
+    }
+  }
+
+  @Test
+  public void decodesAlbums() throws Exception {
+    List<Album> albums = AlbumJsonCodec.decodeList(
+        "[{\"userId\": 1, \"id\": 1, \"title\": \"quidem molestiae enim\"}, {\"userId\": 2, \"id\": 11}]");
+
+    assertEquals(2, albums.size());
+    assertEquals("quidem molestiae enim", albums.get(0).getTitle());
+    assertEquals(2, albums.get(1).getUserId());
+    assertEquals(11, albums.get(1).getId());
+  }
+}
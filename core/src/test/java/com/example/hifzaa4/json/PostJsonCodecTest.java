@@ -0,0 +1,110 @@
+package com.example.hifzaa4.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.hifzaa4.models.Post;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PostJsonCodec and the JsonReader/JsonWriter under it
+ */
+public class PostJsonCodecTest {
+
+  @Test
+  public void decodesApiResponse() throws Exception {
+    String json = "[\n" +
+        "  {\n" +
+        "    \"userId\": 1,\n" +
+        "    \"id\": 1,\n" +
+        "    \"title\": \"sunt aut facere\",\n" +
+        "    \"body\": \"quia et suscipit\\nsuscipit recusandae\"\n" +
+        "  },\n" +
+        "  {\"id\": 2, \"userId\": 1, \"title\": \"qui est esse\", \"body\": \"est rerum\"," +
+        " \"tags\": [\"a\", {\"b\": [1, 2.5e3, true, null]}], \"draft\": false}\n" +
+        "]";
+
+    List<Post> posts = PostJsonCodec.decodeList(json);
+
+    assertEquals(2, posts.size());
+    assertEquals(1, posts.get(0).getId());
+    assertEquals(1, posts.get(0).getUserId());
+    assertEquals("sunt aut facere", posts.get(0).getTitle());
+    assertEquals("quia et suscipit\nsuscipit recusandae", posts.get(0).getBody());
+    assertFalse(posts.get(0).isFavorite());
+    assertEquals(2, posts.get(1).getId());
+    assertEquals("est rerum", posts.get(1).getBody());
+  }
+
+  @Test
+  public void roundTripsEscapesAndUnicode() throws Exception {
+    Post post = new Post(-7, 3, "Quote \" slash \\ tab \t ✓ 😀", "Line\r\nnext\u0001\u2028", false);
+
+    String json = PostJsonCodec.encode(post);
+    Post decoded = PostJsonCodec.decode(json);
+
+    assertEquals(-7, decoded.getId());
+    assertEquals(3, decoded.getUserId());
+    assertEquals(post.getTitle(), decoded.getTitle());
+    assertEquals(post.getBody(), decoded.getBody());
+    assertEquals("{\"id\":-7,\"userId\":3,\"title\":\"Quote \\\" slash \\\\ tab \\t ✓ 😀\"," +
+        "\"body\":\"Line\\r\\nnext\\u0001\\u2028\"}", json);
+  }
+
+  @Test
+  public void decodesUnicodeEscapesAndNulls() throws Exception {
+    Post post = PostJsonCodec.decode("{\"id\":\"5\",\"userId\":2.0,\"title\":\"caf\\u00e9 \\/\",\"body\":null}");
+    assertEquals(5, post.getId());
+    assertEquals(2, post.getUserId());
+    assertEquals("café /", post.getTitle());
+    assertNull(post.getBody());
+  }
+
+  @Test
+  public void listRoundTrip() throws Exception {
+    List<Post> posts = Arrays.asList(new Post(1, 1, "a", "b", false), new Post(2, 1, "", "", false));
+    List<Post> decoded = PostJsonCodec.decodeList(PostJsonCodec.encodeList(posts));
+    assertEquals(2, decoded.size());
+    assertEquals("", decoded.get(1).getTitle());
+    assertEquals(0, PostJsonCodec.decodeList(" [ ] ").size());
+  }
+
+  @Test
+  public void rejectsMalformedJson() {
+    assertMalformed("");
+    assertMalformed("[");
+    assertMalformed("[{\"id\":1,\"userId\":1,\"title\":\"t\",\"body\":\"b\"}");
+    assertMalformed("[{\"id\":1,\"userId\":1,\"title\":\"t\",\"body\":\"b\"},]");
+    assertMalformed("[{\"id\":1 \"userId\":1}]");
+    assertMalformed("[{\"id\":1,\"userId\":1,\"title\":\"unterminated}]");
+    assertMalformed("[] []");
+    assertMalformed("{\"id\":1}");
+    assertMalformed("[{\"id\":1.5,\"userId\":1,\"title\":\"t\",\"body\":\"b\"}]");
+  }
+
+  @Test
+  public void reportsMissingFields() {
+    try {
+      PostJsonCodec.decode("{\"id\":1,\"userId\":1,\"body\":\"b\"}");
+      fail();
+    } catch (JsonFormatException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("title"));
+    }
+  }
+
+  private static void assertMalformed(String json) {
+    try {
+      PostJsonCodec.decodeList(json);
+      fail("Accepted " + json);
+    } catch (JsonFormatException expected) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.example.hifzaa4.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostColumnStore behaviour and heap footprint against ArrayList<Post>
+ */
+public class PostColumnStoreTest {
+
+  @Test
+  public void rowsRoundTrip() {
+    Post post = new Post(7, 3, "Title é", "Body ✓ " + repeat('x', 300), true);
+    PostColumnStore store = PostColumnStore.of(List.of(post, new Post(8, 4, null, null, false)));
+
+    assertEquals(2, store.size());
+    PostColumnStore.Row row = store.row(0);
+    assertEquals(7, row.getId());
+    assertEquals(3, row.getUserId());
+    assertEquals("Title é", row.getTitle());
+    assertEquals(post.getBodySnippet(), row.getBodySnippet());
+    assertTrue(row.isFavorite());
+
+    row.moveTo(1);
+    assertNull(row.getTitle());
+    assertNull(row.getBodySnippet());
+    assertFalse(row.isFavorite());
+
+    Post copy = store.toPost(0);
+    assertFalse(copy.isBodyLoaded());
+    assertEquals(post.getBodySnippet(), copy.getBodySnippet());
+  }
+
+  @Test
+  public void removeAndSetKeepRowsAligned() {
+    PostColumnStore store = new PostColumnStore(2);
+    for (int i = 0; i < 200; i++) {
+      store.add(i, i % 10, "Title " + i, "Body " + i, i % 3 == 0);
+    }
+
+    store.remove(0);
+    store.remove(50);
+    assertEquals(198, store.size());
+    assertEquals(1, store.getId(0));
+    assertEquals(52, store.getId(50));
+    assertEquals("Title 52", store.getTitle(50));
+    assertFalse(store.isFavorite(50));
+    assertTrue(store.isFavorite(2)); // id 3
+    assertEquals(51, store.indexOf(53));
+
+    // Repeated edits create garbage that is compacted away when the buffer grows
+    for (int round = 0; round < 50; round++) {
+      for (int i = 0; i < store.size(); i++) {
+        int id = store.getId(i);
+        store.set(i, new Post(id, 1, "Edited " + round + " " + id, "Body " + round, false));
+      }
+    }
+    assertEquals("Edited 49 1", store.getTitle(0));
+    assertEquals("Edited 49 199", store.getTitle(197));
+    assertEquals("Body 49", store.getBodySnippet(100));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rowOutOfRangeThrows() {
+    new PostColumnStore().row(0);
+  }
+
+  @Test
+  public void heapFootprintAt100k() {
+    assertSmallerThanArrayList(100_000);
+  }
+
+  @Test
+  public void heapFootprintAt1M() {
+    assertSmallerThanArrayList(1_000_000);
+  }
+
+  @Test
+  public void expectedRowsDoNotReserveTextUpFront() {
+    int rows = 1_000_000;
+    long before = usedHeap();
+    PostColumnStore store = new PostColumnStore(rows);
+    long presizedBytes = usedHeap() - before;
+
+    // The int columns (ids, user ids, text starts and lengths) take 24 B/row; text is added as it comes
+    assertTrue("Pre-sized store took " + presizedBytes / rows + " B/row", presizedBytes < rows * 32L);
+    store.add(summary(0));
+    assertEquals(1, store.size());
+  }
+
+  private static void assertSmallerThanArrayList(int rows) {
+    long before = usedHeap();
+    List<Post> list = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      list.add(summary(i));
+    }
+    long listBytes = usedHeap() - before;
+    assertEquals(rows, list.size());
+    list = null;
+
+    before = usedHeap();
+    PostColumnStore store = new PostColumnStore();
+    for (int i = 0; i < rows; i++) {
+      store.add(summary(i));
+    }
+    store.trimToSize();
+    long storeBytes = usedHeap() - before;
+    assertEquals(rows, store.size());
+
+    System.out.println(String.format("%,d rows: ArrayList<Post> %,d KB (%d B/row), PostColumnStore %,d KB (%d B/row)",
+        rows, listBytes / 1024, listBytes / rows, storeBytes / 1024, storeBytes / rows));
+    assertTrue("Column store should be smaller", storeBytes < listBytes);
+  }
+
+  // A list row as loaded by the list query: title and body snippet, no full body
+  private static Post summary(int i) {
+    Post post = new Post(i, i % 10 + 1, "Post title number " + i, null, i % 5 == 0);
+    post.setBodySnippet(repeat((char) ('a' + i % 26), Post.SNIPPET_LENGTH - 8) + " #" + i);
+    return post;
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder builder = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    // Collect until the figure settles
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+}
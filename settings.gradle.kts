@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "HifzaA4"
 include(":app")
+include(":core")
+include(":benchmarks")